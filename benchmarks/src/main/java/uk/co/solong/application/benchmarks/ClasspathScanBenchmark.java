@@ -0,0 +1,132 @@
+package uk.co.solong.application.benchmarks;
+
+import io.github.classgraph.ClassGraph;
+import io.github.classgraph.ClassInfo;
+import io.github.classgraph.ScanResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import uk.co.solong.application.annotations.RootConfiguration;
+import uk.co.solong.application.index.ApplicationIndex;
+import uk.co.solong.application.main.spring.scanner.ApplicationScanner;
+import uk.co.solong.application.main.spring.scanner.ScanCache;
+import uk.co.solong.application.main.spring.scanner.ScanProfile;
+import uk.co.solong.application.main.spring.scanner.SpringClassFinder;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * <p>
+ * Compares the ways the launchers can find {@link RootConfiguration} classes
+ * on a generated classpath:
+ * </p>
+ * <ol>
+ * <li>{@link #springClassFinder} - the lean, parallel ClassGraph scan used by the Spring Boot launcher</li>
+ * <li>{@link #classGraphAllInfo} - the previous ClassGraph scan with <code>enableAllInfo()</code>, as a baseline</li>
+ * <li>{@link #springCandidateProvider} - Spring's ClassPathScanningCandidateComponentProvider, as used by the other launchers</li>
+ * <li>{@link #applicationScanner} - the single-pass scan shared by the launchers</li>
+ * </ol>
+ * <p>
+ * The application index and scan cache are disabled so that every invocation
+ * really scans. Run {@link #main} to include the GC profiler, which reports
+ * the allocation rate of each scan next to its throughput.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-D" + ApplicationIndex.IGNORE_PROPERTY + "=true", "-D" + ScanCache.DISABLED_PROPERTY + "=true"})
+public class ClasspathScanBenchmark {
+
+    @Param({"20", "200"})
+    public int jars;
+
+    @Param({"50"})
+    public int classesPerJar;
+
+    @Param({"1", "10"})
+    public int rootConfigurations;
+
+    private SyntheticClasspath classpath;
+    private ScanProfile profile;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        classpath = SyntheticClasspath.generate(jars, classesPerJar, rootConfigurations);
+        profile = ScanProfile.defaults().withClassLoader(classpath.getClassLoader()).withAllowPackages(SyntheticClasspath.PACKAGE);
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        classpath.close();
+    }
+
+    @Benchmark
+    public Object springClassFinder() {
+        return new SpringClassFinder().findAllAnnotatedClasses(RootConfiguration.class, profile);
+    }
+
+    @Benchmark
+    public void classGraphAllInfo(Blackhole blackhole) {
+        try (ScanResult scanResult = new ClassGraph().enableAllInfo()
+                .overrideClassLoaders(classpath.getClassLoader())
+                .whitelistPackages(SyntheticClasspath.PACKAGE)
+                .scan()) {
+            for (ClassInfo classInfo : scanResult.getClassesWithAnnotation(RootConfiguration.class.getName())) {
+                blackhole.consume(classInfo.getName());
+            }
+        }
+    }
+
+    @Benchmark
+    public Set<BeanDefinition> springCandidateProvider() {
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
+        scanner.setResourceLoader(new DefaultResourceLoader(classpath.getClassLoader()));
+        scanner.addIncludeFilter(new AnnotationTypeFilter(RootConfiguration.class));
+        return scanner.findCandidateComponents(SyntheticClasspath.PACKAGE);
+    }
+
+    @Benchmark
+    public Object applicationScanner() {
+        ApplicationScanner.clearCache();
+        return new ApplicationScanner(classpath.getClassLoader()).scan(SyntheticClasspath.PACKAGE);
+    }
+
+    /**
+     * Runs these benchmarks with the GC profiler. Takes the usual JMH
+     * options, e.g. <code>-p jars=200</code>.
+     */
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(Pattern.quote(ClasspathScanBenchmark.class.getName() + "."))
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,88 @@
+package uk.co.solong.application.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.co.solong.application.annotations.MainMethod;
+import uk.co.solong.application.invoke.Invokers;
+import uk.co.solong.application.invoke.MethodInvoker;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * Compares the per-call cost of invoking an annotated zero-arg method:
+ * </p>
+ * <ol>
+ * <li>{@link #direct} - a plain virtual call, as the baseline</li>
+ * <li>{@link #reflection} - {@link Method#invoke(Object, Object...)}, as the launchers used to</li>
+ * <li>{@link #generatedInvoker} - the LambdaMetafactory invoker {@link Invokers} creates for public methods</li>
+ * <li>{@link #handleInvoker} - the MethodHandle invoker {@link Invokers} falls back to for other methods</li>
+ * </ol>
+ * <p>
+ * The target is held in a non-final field so that none of the calls can be
+ * constant folded.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InvokerBenchmark {
+
+    private Target target;
+    private Method method;
+    private MethodInvoker generated;
+    private MethodInvoker handle;
+
+    @Setup
+    public void setUp() throws Exception {
+        target = new Target();
+        method = Invokers.annotatedMethods(Target.class, MainMethod.class).get(0);
+        generated = Invokers.forMethod(method);
+        handle = Invokers.forMethod(Target.class.getDeclaredMethod("hidden"));
+    }
+
+    @Benchmark
+    public int direct() {
+        return target.next();
+    }
+
+    @Benchmark
+    public Object reflection() throws Exception {
+        return method.invoke(target);
+    }
+
+    @Benchmark
+    public Object generatedInvoker() throws Exception {
+        return generated.invoke(target);
+    }
+
+    @Benchmark
+    public Object handleInvoker() throws Exception {
+        return handle.invoke(target);
+    }
+
+    public static class Target {
+        private int counter;
+
+        @MainMethod
+        public int next() {
+            return ++counter;
+        }
+
+        private int hidden() {
+            return ++counter;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package uk.co.solong.application.benchmarks;
+
+import org.springframework.asm.AnnotationVisitor;
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.FieldVisitor;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import uk.co.solong.application.annotations.RootConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+/**
+ * Generates a classpath of jars full of small classes under the package
+ * {@value #PACKAGE}, a configurable number of which are annotated with
+ * {@link RootConfiguration}. Each class has a few annotated fields and methods
+ * so that scanners which read more than class annotations pay for it.
+ */
+public final class SyntheticClasspath implements AutoCloseable {
+    public static final String PACKAGE = "synthetic";
+
+    private static final String ROOT_CONFIGURATION = "L" + RootConfiguration.class.getName().replace('.', '/') + ";";
+    private static final String DEPRECATED = "Ljava/lang/Deprecated;";
+
+    private final Path directory;
+    private final List<URL> jars = new ArrayList<>();
+    private URLClassLoader classLoader;
+
+    private SyntheticClasspath(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @param jars               the number of jars to generate
+     * @param classesPerJar      the number of classes in each jar
+     * @param rootConfigurations how many of all the classes carry
+     *                           {@link RootConfiguration}, spread evenly
+     */
+    public static SyntheticClasspath generate(int jars, int classesPerJar, int rootConfigurations) throws IOException {
+        SyntheticClasspath classpath = new SyntheticClasspath(Files.createTempDirectory("synthetic-classpath"));
+        int total = jars * classesPerJar;
+        int every = rootConfigurations == 0 ? Integer.MAX_VALUE : Math.max(1, total / rootConfigurations);
+        int roots = 0;
+        for (int j = 0; j < jars; j++) {
+            File jar = classpath.directory.resolve("synthetic-" + j + ".jar").toFile();
+            try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar.toPath()))) {
+                // directory entries, as written by the jar tool, are needed for classpath*: lookups
+                out.putNextEntry(new JarEntry(PACKAGE + "/"));
+                out.closeEntry();
+                out.putNextEntry(new JarEntry(PACKAGE + "/jar" + j + "/"));
+                out.closeEntry();
+                for (int c = 0; c < classesPerJar; c++) {
+                    int index = j * classesPerJar + c;
+                    boolean root = roots < rootConfigurations && index % every == 0;
+                    String name = PACKAGE + "/jar" + j + "/Generated" + c;
+                    out.putNextEntry(new JarEntry(name + ".class"));
+                    out.write(classBytes(name, root ? "candidate" + roots : null));
+                    out.closeEntry();
+                    if (root) {
+                        roots++;
+                    }
+                }
+            }
+            classpath.jars.add(jar.toURI().toURL());
+        }
+        return classpath;
+    }
+
+    /**
+     * @return a class loader over the generated jars, parented by the loader of
+     * this library.
+     */
+    public synchronized ClassLoader getClassLoader() {
+        if (classLoader == null) {
+            classLoader = new URLClassLoader(jars.toArray(new URL[0]), SyntheticClasspath.class.getClassLoader());
+        }
+        return classLoader;
+    }
+
+    public List<URL> getJars() {
+        return jars;
+    }
+
+    private static byte[] classBytes(String internalName, String rootConfigurationName) {
+        ClassWriter cw = new ClassWriter(0);
+        cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, internalName, null, "java/lang/Object", null);
+        if (rootConfigurationName != null) {
+            AnnotationVisitor av = cw.visitAnnotation(ROOT_CONFIGURATION, true);
+            av.visit("name", rootConfigurationName);
+            av.visitEnd();
+        }
+        for (int f = 0; f < 3; f++) {
+            FieldVisitor fv = cw.visitField(Opcodes.ACC_PRIVATE, "field" + f, "Ljava/lang/String;", null, null);
+            fv.visitAnnotation(DEPRECATED, true).visitEnd();
+            fv.visitEnd();
+        }
+        MethodVisitor init = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        init.visitCode();
+        init.visitVarInsn(Opcodes.ALOAD, 0);
+        init.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        init.visitInsn(Opcodes.RETURN);
+        init.visitMaxs(1, 1);
+        init.visitEnd();
+        for (int m = 0; m < 3; m++) {
+            MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "method" + m, "()Ljava/lang/String;", null, null);
+            mv.visitAnnotation(DEPRECATED, true).visitEnd();
+            mv.visitCode();
+            mv.visitVarInsn(Opcodes.ALOAD, 0);
+            mv.visitFieldInsn(Opcodes.GETFIELD, internalName, "field" + m, "Ljava/lang/String;");
+            mv.visitInsn(Opcodes.ARETURN);
+            mv.visitMaxs(1, 1);
+            mv.visitEnd();
+        }
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (classLoader != null) {
+            classLoader.close();
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package uk.co.solong.application.benchmarks.coldstart;
+
+import uk.co.solong.application.benchmarks.coldstart.fixture.FixtureBeansRegistrar;
+import uk.co.solong.application.benchmarks.coldstart.fixture.FixtureClasses;
+import uk.co.solong.application.benchmarks.coldstart.fixture.FixtureConfig;
+import uk.co.solong.application.benchmarks.coldstart.fixture.ReadyProbe;
+import uk.co.solong.application.main.spring.java.AutoAnnotationApplication;
+import uk.co.solong.application.main.spring.java.AutoAnnotationMethodApplication;
+import uk.co.solong.application.main.spring.java.AutoAnnotationSpringBootApplication;
+import uk.co.solong.application.main.spring.java.NamedAnnotationApplication;
+import uk.co.solong.application.main.spring.xml.XmlApplication;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <p>
+ * Measures the time from JVM start until each launcher is ready (its
+ * {@link uk.co.solong.application.annotations.MainMethod} is invoked, or its
+ * context is refreshed for launchers without one), by forking a fresh JVM per
+ * run against a small, medium or large fixture application. Each size has
+ * its own generated bean classes (see {@link FixtureClasses}), so larger
+ * fixtures load and scan more classes too.
+ * </p>
+ * <p>
+ * Arguments are <code>key=value</code> pairs:
+ * </p>
+ * <ol>
+ * <li>runs - runs per launcher and size (default 20)</li>
+ * <li>launchers - comma separated {@link Launcher} names (default all)</li>
+ * <li>sizes - comma separated {@link Size} names (default all)</li>
+ * <li>jvmArgs - space separated arguments for the forked JVMs</li>
+ * <li>timeout - seconds to wait for each run (default 120)</li>
+ * <li>output - where to write the JSON report (default coldstart-report.json)</li>
+ * <li>budget - a properties file of limits, e.g. <code>XML.small.p90=1500</code>,
+ * <code>*.large.p99=8000</code> or <code>*.*.rssKb=400000</code></li>
+ * </ol>
+ * <p>
+ * Exits with status 1 if any run fails or any budget is exceeded, so it can
+ * fail a build.
+ * </p>
+ */
+public final class ColdStartHarness {
+
+    public enum Launcher {
+        AUTO_ANNOTATION(AutoAnnotationApplication.class, "refresh"),
+        AUTO_ANNOTATION_METHOD(AutoAnnotationMethodApplication.class, "main"),
+        NAMED_ANNOTATION(NamedAnnotationApplication.class, "refresh", FixtureConfig.class.getName()),
+        XML(XmlApplication.class, "refresh", "classpath:coldstart/fixture.xml"),
+        SPRING_BOOT(AutoAnnotationSpringBootApplication.class, "refresh");
+
+        private final Class<?> mainClass;
+        private final String probe;
+        private final String[] args;
+
+        Launcher(Class<?> mainClass, String probe, String... args) {
+            this.mainClass = mainClass;
+            this.probe = probe;
+            this.args = args;
+        }
+    }
+
+    public enum Size {
+        SMALL(10), MEDIUM(250), LARGE(2500);
+
+        private final int beans;
+
+        Size(int beans) {
+            this.beans = beans;
+        }
+    }
+
+    private ColdStartHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("Expected key=value but was " + arg);
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        int runs = Integer.parseInt(options.getOrDefault("runs", "20"));
+        long timeout = Long.parseLong(options.getOrDefault("timeout", "120"));
+        List<String> jvmArgs = split(options.getOrDefault("jvmArgs", ""), " ");
+
+        Path fixtures = Files.createTempDirectory("coldstart-fixtures");
+        Map<Size, Path> fixtureJars = new LinkedHashMap<>();
+        List<Result> results = new ArrayList<>();
+        for (String launcherName : split(options.getOrDefault("launchers", join(Launcher.values())), ",")) {
+            Launcher launcher = Launcher.valueOf(launcherName.trim().toUpperCase());
+            for (String sizeName : split(options.getOrDefault("sizes", join(Size.values())), ",")) {
+                Size size = Size.valueOf(sizeName.trim().toUpperCase());
+                Result result = new Result(launcher, size);
+                if (!fixtureJars.containsKey(size)) {
+                    fixtureJars.put(size, FixtureClasses.generate(size.beans, fixtures));
+                }
+                for (int run = 0; run < runs; run++) {
+                    long[] sample = fork(launcher, size, fixtureJars.get(size), jvmArgs, timeout);
+                    if (sample == null) {
+                        result.failures++;
+                    } else {
+                        result.add(sample);
+                    }
+                }
+                System.out.println(result);
+                results.add(result);
+            }
+        }
+
+        String output = options.getOrDefault("output", "coldstart-report.json");
+        Files.write(Paths.get(output), toJson(runs, results).getBytes(StandardCharsets.UTF_8));
+        System.out.println("Report written to " + output);
+
+        List<String> violations = new ArrayList<>();
+        for (Result result : results) {
+            if (result.failures > 0) {
+                violations.add(result.key() + " failed " + result.failures + " of " + runs + " runs");
+            }
+        }
+        if (options.containsKey("budget")) {
+            violations.addAll(checkBudget(results, options.get("budget")));
+        }
+        for (String violation : violations) {
+            System.err.println("BUDGET EXCEEDED: " + violation);
+        }
+        System.exit(violations.isEmpty() ? 0 : 1);
+    }
+
+    /**
+     * @return {readyMillis, peakRssKb, classesLoaded}, or null if the run
+     * failed or timed out.
+     */
+    static long[] fork(Launcher launcher, Size size, Path fixtureJar, List<String> jvmArgs, long timeoutSeconds) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path") + File.pathSeparator + fixtureJar);
+        command.add("-D" + FixtureBeansRegistrar.BEANS_PROPERTY + "=" + size.beans);
+        command.add("-D" + FixtureBeansRegistrar.GENERATED_PROPERTY + "=true");
+        command.add("-D" + ReadyProbe.PROBE_PROPERTY + "=" + launcher.probe);
+        command.add(launcher.mainClass.getName());
+        command.addAll(Arrays.asList(launcher.args));
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectInput(ProcessBuilder.Redirect.from(new File(nullDevice()))).start();
+        AtomicReference<long[]> sample = new AtomicReference<>();
+        // read on another thread, so that a child that hangs without closing its output still times out
+        Thread reader = new Thread(() -> {
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    if (line.startsWith(ReadyProbe.MARKER)) {
+                        String[] fields = line.substring(ReadyProbe.MARKER.length()).trim().split(" ");
+                        sample.set(new long[]{Long.parseLong(fields[0]), Long.parseLong(fields[1]), Long.parseLong(fields[2])});
+                    }
+                }
+            } catch (IOException e) {
+                // the process was destroyed
+            }
+        }, "coldstart-output");
+        reader.setDaemon(true);
+        reader.start();
+        if (!process.waitFor(timeoutSeconds, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+            System.err.println(launcher + " " + size.name().toLowerCase() + " timed out after " + timeoutSeconds + "s");
+            return null;
+        }
+        reader.join(TimeUnit.SECONDS.toMillis(5));
+        return sample.get();
+    }
+
+    private static List<String> checkBudget(List<Result> results, String budgetFile) throws IOException {
+        Properties budget = new Properties();
+        try (InputStream in = Files.newInputStream(Paths.get(budgetFile))) {
+            budget.load(in);
+        }
+        List<String> violations = new ArrayList<>();
+        for (Result result : results) {
+            for (String metric : new String[]{"p50", "p90", "p99", "rssKb"}) {
+                String limit = lookup(budget, result, metric);
+                if (limit != null && result.metric(metric) > Long.parseLong(limit.trim())) {
+                    violations.add(result.key() + "." + metric + " = " + result.metric(metric) + " > " + limit.trim());
+                }
+            }
+        }
+        return violations;
+    }
+
+    private static String lookup(Properties budget, Result result, String metric) {
+        String[] keys = {
+                result.launcher.name() + "." + result.size.name().toLowerCase() + "." + metric,
+                "*." + result.size.name().toLowerCase() + "." + metric,
+                result.launcher.name() + ".*." + metric,
+                "*.*." + metric};
+        for (String key : keys) {
+            if (budget.getProperty(key) != null) {
+                return budget.getProperty(key);
+            }
+        }
+        return null;
+    }
+
+    private static String toJson(int runs, List<Result> results) {
+        StringBuilder json = new StringBuilder("{\"runsPerCase\":").append(runs).append(",\"results\":[");
+        for (int i = 0; i < results.size(); i++) {
+            Result r = results.get(i);
+            json.append(i == 0 ? "" : ",")
+                    .append("{\"launcher\":\"").append(r.launcher.name())
+                    .append("\",\"size\":\"").append(r.size.name().toLowerCase())
+                    .append("\",\"beans\":").append(r.size.beans)
+                    .append(",\"runs\":").append(r.ready.size())
+                    .append(",\"failures\":").append(r.failures)
+                    .append(",\"readyMillis\":{\"p50\":").append(r.metric("p50"))
+                    .append(",\"p90\":").append(r.metric("p90"))
+                    .append(",\"p99\":").append(r.metric("p99"))
+                    .append("},\"peakRssKb\":{\"p50\":").append(percentile(r.rss, 50))
+                    .append(",\"max\":").append(r.metric("rssKb"))
+                    .append("},\"classesLoaded\":{\"p50\":").append(percentile(r.classes, 50))
+                    .append("}}");
+        }
+        return json.append("]}").toString();
+    }
+
+    /**
+     * Nearest-rank percentile, or -1 if there are no samples.
+     */
+    static long percentile(List<Long> samples, double percentile) {
+        if (samples.isEmpty()) {
+            return -1;
+        }
+        List<Long> sorted = new ArrayList<>(samples);
+        sorted.sort(null);
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.size());
+        return sorted.get(Math.max(0, rank - 1));
+    }
+
+    private static String nullDevice() {
+        return System.getProperty("os.name").toLowerCase().startsWith("windows") ? "NUL" : "/dev/null";
+    }
+
+    private static List<String> split(String value, String separator) {
+        List<String> result = new ArrayList<>();
+        for (String part : value.split(separator)) {
+            if (!part.trim().isEmpty()) {
+                result.add(part.trim());
+            }
+        }
+        return result;
+    }
+
+    private static String join(Enum<?>[] values) {
+        StringBuilder sb = new StringBuilder();
+        for (Enum<?> value : values) {
+            sb.append(sb.length() == 0 ? "" : ",").append(value.name());
+        }
+        return sb.toString();
+    }
+
+    private static final class Result {
+        private final Launcher launcher;
+        private final Size size;
+        private final List<Long> ready = new ArrayList<>();
+        private final List<Long> rss = new ArrayList<>();
+        private final List<Long> classes = new ArrayList<>();
+        private int failures;
+
+        Result(Launcher launcher, Size size) {
+            this.launcher = launcher;
+            this.size = size;
+        }
+
+        void add(long[] sample) {
+            ready.add(sample[0]);
+            rss.add(sample[1]);
+            classes.add(sample[2]);
+        }
+
+        long metric(String metric) {
+            switch (metric) {
+                case "p50":
+                    return percentile(ready, 50);
+                case "p90":
+                    return percentile(ready, 90);
+                case "p99":
+                    return percentile(ready, 99);
+                case "rssKb":
+                    return percentile(rss, 100);
+                default:
+                    throw new IllegalArgumentException(metric);
+            }
+        }
+
+        String key() {
+            return launcher.name() + "." + size.name().toLowerCase();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-24s %-6s ready p50=%dms p90=%dms p99=%dms peakRss=%dkB classes=%d failures=%d",
+                    launcher, size.name().toLowerCase(), metric("p50"), metric("p90"), metric("p99"), metric("rssKb"), percentile(classes, 50), failures);
+        }
+    }
+}
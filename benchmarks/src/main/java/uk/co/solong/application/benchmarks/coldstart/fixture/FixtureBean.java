@@ -0,0 +1,29 @@
+package uk.co.solong.application.benchmarks.coldstart.fixture;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A bean of the fixture application; each depends on the one registered
+ * before it and does a little work when initialised.
+ */
+public class FixtureBean {
+    private final int index;
+    private final FixtureBean previous;
+    private final List<String> state = new ArrayList<>();
+
+    public FixtureBean(int index, FixtureBean previous) {
+        this.index = index;
+        this.previous = previous;
+    }
+
+    public void init() {
+        for (int i = 0; i < 16; i++) {
+            state.add(index + ":" + i);
+        }
+    }
+
+    public FixtureBean getPrevious() {
+        return previous;
+    }
+}
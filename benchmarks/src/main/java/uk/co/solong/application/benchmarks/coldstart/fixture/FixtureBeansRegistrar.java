@@ -0,0 +1,39 @@
+package uk.co.solong.application.benchmarks.coldstart.fixture;
+
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.BeanDefinitionRegistryPostProcessor;
+import org.springframework.beans.factory.support.GenericBeanDefinition;
+
+/**
+ * Registers {@value #BEANS_PROPERTY} {@link FixtureBean}s, so the same fixture
+ * can be small, medium or large. If {@value #GENERATED_PROPERTY} is set, each
+ * bean has its own class generated by {@link FixtureClasses}.
+ */
+public class FixtureBeansRegistrar implements BeanDefinitionRegistryPostProcessor {
+    public static final String BEANS_PROPERTY = "fixture.beans";
+    public static final String GENERATED_PROPERTY = "fixture.generated";
+
+    @Override
+    public void postProcessBeanDefinitionRegistry(BeanDefinitionRegistry registry) {
+        int beans = Integer.getInteger(BEANS_PROPERTY, 10);
+        boolean generated = Boolean.getBoolean(GENERATED_PROPERTY);
+        for (int i = 0; i < beans; i++) {
+            GenericBeanDefinition definition = new GenericBeanDefinition();
+            if (generated) {
+                definition.setBeanClassName(FixtureClasses.className(i));
+            } else {
+                definition.setBeanClass(FixtureBean.class);
+            }
+            definition.getConstructorArgumentValues().addIndexedArgumentValue(0, i);
+            definition.getConstructorArgumentValues().addIndexedArgumentValue(1, i == 0 ? null : new RuntimeBeanReference("fixtureBean" + (i - 1)));
+            definition.setInitMethodName("init");
+            registry.registerBeanDefinition("fixtureBean" + i, definition);
+        }
+    }
+
+    @Override
+    public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+    }
+}
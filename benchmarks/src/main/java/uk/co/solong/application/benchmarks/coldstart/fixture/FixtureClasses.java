@@ -0,0 +1,80 @@
+package uk.co.solong.application.benchmarks.coldstart.fixture;
+
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+/**
+ * Generates a jar of distinct {@link FixtureBean} subclasses, one per bean,
+ * so that a larger fixture also loads and scans more classes rather than
+ * only creating more instances of one class.
+ */
+public final class FixtureClasses {
+    public static final String PACKAGE = "uk.co.solong.application.benchmarks.coldstart.generated";
+
+    private static final String SUPER = FixtureBean.class.getName().replace('.', '/');
+    private static final String CONSTRUCTOR = "(IL" + SUPER + ";)V";
+
+    private FixtureClasses() {
+    }
+
+    /**
+     * @return the name of the class of the index'th bean.
+     */
+    public static String className(int index) {
+        return PACKAGE + ".FixtureBean" + index;
+    }
+
+    /**
+     * Writes a jar of <code>count</code> classes into the directory.
+     *
+     * @return the jar.
+     */
+    public static Path generate(int count, Path directory) throws IOException {
+        Path jar = directory.resolve("fixture-" + count + ".jar");
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+            String packagePath = PACKAGE.replace('.', '/') + "/";
+            StringBuilder path = new StringBuilder();
+            for (String part : packagePath.split("/")) {
+                path.append(part).append('/');
+                out.putNextEntry(new JarEntry(path.toString()));
+                out.closeEntry();
+            }
+            for (int i = 0; i < count; i++) {
+                String name = className(i).replace('.', '/');
+                out.putNextEntry(new JarEntry(name + ".class"));
+                out.write(classBytes(name, i));
+                out.closeEntry();
+            }
+        }
+        return jar;
+    }
+
+    private static byte[] classBytes(String internalName, int index) {
+        ClassWriter cw = new ClassWriter(0);
+        cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, internalName, null, SUPER, null);
+        MethodVisitor init = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", CONSTRUCTOR, null, null);
+        init.visitCode();
+        init.visitVarInsn(Opcodes.ALOAD, 0);
+        init.visitVarInsn(Opcodes.ILOAD, 1);
+        init.visitVarInsn(Opcodes.ALOAD, 2);
+        init.visitMethodInsn(Opcodes.INVOKESPECIAL, SUPER, "<init>", CONSTRUCTOR, false);
+        init.visitInsn(Opcodes.RETURN);
+        init.visitMaxs(3, 3);
+        init.visitEnd();
+        MethodVisitor id = cw.visitMethod(Opcodes.ACC_PUBLIC, "id", "()I", null, null);
+        id.visitCode();
+        id.visitLdcInsn(index);
+        id.visitInsn(Opcodes.IRETURN);
+        id.visitMaxs(1, 1);
+        id.visitEnd();
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+}
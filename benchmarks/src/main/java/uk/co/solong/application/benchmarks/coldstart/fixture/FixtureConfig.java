@@ -0,0 +1,29 @@
+package uk.co.solong.application.benchmarks.coldstart.fixture;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import uk.co.solong.application.annotations.RootConfiguration;
+
+/**
+ * Root configuration of the cold start fixture application. The XML
+ * equivalent is <code>coldstart/fixture.xml</code>.
+ */
+@Configuration
+@RootConfiguration(name = "fixture")
+public class FixtureConfig {
+
+    @Bean
+    public static FixtureBeansRegistrar fixtureBeansRegistrar() {
+        return new FixtureBeansRegistrar();
+    }
+
+    @Bean
+    public FixtureMain fixtureMain() {
+        return new FixtureMain();
+    }
+
+    @Bean
+    public ReadyProbe readyProbe() {
+        return new ReadyProbe();
+    }
+}
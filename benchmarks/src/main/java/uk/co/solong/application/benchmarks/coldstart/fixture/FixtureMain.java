@@ -0,0 +1,13 @@
+package uk.co.solong.application.benchmarks.coldstart.fixture;
+
+import uk.co.solong.application.annotations.MainClass;
+import uk.co.solong.application.annotations.MainMethod;
+
+@MainClass
+public class FixtureMain {
+
+    @MainMethod
+    public void run() {
+        ReadyProbe.ready();
+    }
+}
@@ -0,0 +1,53 @@
+package uk.co.solong.application.benchmarks.coldstart.fixture;
+
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Reports that the fixture application is ready, then halts the JVM. Reports
+ * on context refresh unless {@value #PROBE_PROPERTY} is <code>main</code>, in
+ * which case {@link FixtureMain} reports from its main method.
+ */
+public class ReadyProbe implements ApplicationListener<ContextRefreshedEvent> {
+    public static final String PROBE_PROPERTY = "coldstart.probe";
+    public static final String MARKER = "COLDSTART ";
+
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        if (!"main".equals(System.getProperty(PROBE_PROPERTY))) {
+            ready();
+        }
+    }
+
+    /**
+     * Prints the time since JVM start, peak resident set size and loaded class
+     * count, then halts without running shutdown hooks (which would block on
+     * a context that is still refreshing).
+     */
+    public static void ready() {
+        long readyMillis = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+        long classes = ManagementFactory.getClassLoadingMXBean().getTotalLoadedClassCount();
+        System.out.println(MARKER + readyMillis + " " + peakRssKb() + " " + classes);
+        System.out.flush();
+        Runtime.getRuntime().halt(0);
+    }
+
+    private static long peakRssKb() {
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc/self/status"), StandardCharsets.UTF_8)) {
+                if (line.startsWith("VmHWM:")) {
+                    return Long.parseLong(line.substring(6).replace("kB", "").trim());
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // not Linux
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,33 @@
+package uk.co.solong.application.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>
+ * Marks a public method of a {@link CommandLine} bean as a command, invoked
+ * by <code>name</code> (default: the method name) followed by one
+ * whitespace-separated argument per parameter. Parameters may be String,
+ * CharSequence, int, long, double, boolean, an enum or their wrappers; a
+ * trailing String[] takes the remaining arguments.
+ * </p>
+ * <p>
+ * In batch mode with several threads, <code>concurrent</code> commands may
+ * run at the same time as each other. Any other command waits for every
+ * earlier command to finish and runs alone, so it acts as a barrier.
+ * </p>
+ *
+ * @author Daniel Burrell
+ *
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(value={ElementType.METHOD})
+public @interface Command {
+    String name() default "";
+
+    String description() default "";
+
+    boolean concurrent() default false;
+}
@@ -5,6 +5,15 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+/**
+ * <p>
+ * Marks a bean whose {@link Command} methods are served by the command line
+ * launcher. The <code>prompt</code> is shown in interactive mode.
+ * </p>
+ *
+ * @author Daniel Burrell
+ *
+ */
 @Retention(RetentionPolicy.RUNTIME)
 @Target(value={ElementType.TYPE})
 public @interface CommandLine {
@@ -0,0 +1,33 @@
+package uk.co.solong.application.annotations;
+
+import uk.co.solong.application.registration.GeneratedRegistrations;
+import uk.co.solong.application.registration.RegistrationProcessor;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>
+ * Place this annotation on a {@link RootConfiguration} to have its bean
+ * definitions generated at compile time by {@link RegistrationProcessor}. The
+ * launchers then register the beans directly, without parsing the
+ * configuration or creating a CGLIB proxy for it.
+ * </p>
+ * <p>
+ * Because the configuration is not proxied, <code>@Bean</code> methods must
+ * not call each other to obtain their dependencies; take them as method
+ * parameters instead. Configurations that use features the generator does not
+ * support (component scanning, injected fields, conditions, ...) are reported
+ * as a compiler warning and keep using the reflective path, as do any whose
+ * generated code is out of date (see {@link GeneratedRegistrations}).
+ * </p>
+ *
+ * @author Daniel Burrell
+ *
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(value={ElementType.TYPE})
+public @interface GeneratedRegistration {
+}
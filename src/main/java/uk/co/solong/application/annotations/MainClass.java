@@ -5,8 +5,29 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+/**
+ * <p>
+ * Marks a bean whose {@link MainMethod}s are the application's entry points.
+ * When there are several entry points, or any of them asks for restarts or
+ * more than one concurrent invocation, each is run as a worker by the
+ * supervisor: <code>concurrency</code> invocations at a time, each restarted
+ * according to <code>restart</code> after <code>restartDelayMillis</code>, at
+ * most <code>maxRestarts</code> times (negative for no limit).
+ * </p>
+ *
+ * @author Daniel Burrell
+ *
+ */
 @Retention(RetentionPolicy.RUNTIME)
 @Target(value={ElementType.TYPE})
 public @interface MainClass {
     String name() default "";
+
+    RestartPolicy restart() default RestartPolicy.NEVER;
+
+    int concurrency() default 1;
+
+    int maxRestarts() default -1;
+
+    long restartDelayMillis() default 1000;
 }
@@ -0,0 +1,14 @@
+package uk.co.solong.application.annotations;
+
+/**
+ * When a {@link MainClass} worker's {@link MainMethod} is invoked again after
+ * it returns or throws.
+ *
+ * @author Daniel Burrell
+ *
+ */
+public enum RestartPolicy {
+    NEVER,
+    ON_FAILURE,
+    ALWAYS
+}
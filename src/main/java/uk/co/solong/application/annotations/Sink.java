@@ -0,0 +1,28 @@
+package uk.co.solong.application.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>
+ * Marks the method of a {@link MainClass} bean that writes out the items of a
+ * pipeline run by PipelineApplication. A method taking a List is called with
+ * batches of up to <code>batchSize</code> items, any other method once per
+ * item. It reads from a queue holding at most <code>capacity</code> items, on
+ * <code>parallelism</code> threads.
+ * </p>
+ *
+ * @author Daniel Burrell
+ *
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(value={ElementType.METHOD})
+public @interface Sink {
+    int parallelism() default 1;
+
+    int batchSize() default 100;
+
+    int capacity() default 1000;
+}
@@ -0,0 +1,29 @@
+package uk.co.solong.application.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>
+ * Marks the method of a {@link MainClass} bean that reads the items of a
+ * pipeline run by PipelineApplication. The method returns the next batch as a
+ * Collection, or null or an empty collection once there is nothing left to
+ * read. It may take an <code>int</code>, the batch size to read.
+ * </p>
+ * <p>
+ * <code>parallelism</code> threads call the method concurrently, so it must be
+ * thread safe if that is more than 1.
+ * </p>
+ *
+ * @author Daniel Burrell
+ *
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(value={ElementType.METHOD})
+public @interface Source {
+    int parallelism() default 1;
+
+    int batchSize() default 100;
+}
@@ -0,0 +1,36 @@
+package uk.co.solong.application.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>
+ * Marks a method of a {@link MainClass} bean that transforms the items of a
+ * pipeline run by PipelineApplication, between the {@link Source} and the
+ * {@link Sink}. Stages run lowest <code>order</code> first.
+ * </p>
+ * <p>
+ * A method taking a List is called with batches of up to
+ * <code>batchSize</code> items and returns a Collection of results (or null
+ * for none). A method taking anything else is called once per item and
+ * returns its result, or null to drop the item. Each stage reads from a queue
+ * holding at most <code>capacity</code> items, on <code>parallelism</code>
+ * threads.
+ * </p>
+ *
+ * @author Daniel Burrell
+ *
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(value={ElementType.METHOD})
+public @interface Stage {
+    int order() default 0;
+
+    int parallelism() default 1;
+
+    int batchSize() default 100;
+
+    int capacity() default 1000;
+}
@@ -0,0 +1,31 @@
+package uk.co.solong.application.annotations;
+
+import uk.co.solong.application.metrics.MetricsRegistry;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>
+ * Place this annotation on a public method of a bean to record how long every
+ * call takes, in nanoseconds, in the {@link MetricsRegistry} histogram named
+ * by the value (default: the simple class name and the method name, e.g.
+ * <code>Poller.poll</code>).
+ * </p>
+ * <p>
+ * The bean is proxied, so each call also allocates a method invocation (and,
+ * for a class proxy, an argument array): cheap, but not free on hot paths.
+ * Neither the bean's class nor the method may be final; final methods are
+ * left untimed and a warning is logged at startup.
+ * </p>
+ *
+ * @author Daniel Burrell
+ *
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Timed {
+    String value() default "";
+}
@@ -0,0 +1,24 @@
+package uk.co.solong.application.annotations;
+
+import uk.co.solong.application.warmup.BackgroundWarmUp;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>
+ * Place this annotation on a <code>@Bean</code> method or component class to
+ * have {@link BackgroundWarmUp} create the bean ahead of the others, lowest
+ * value first.
+ * </p>
+ *
+ * @author Daniel Burrell
+ *
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(value={ElementType.TYPE, ElementType.METHOD})
+public @interface WarmUp {
+    int value() default 0;
+}
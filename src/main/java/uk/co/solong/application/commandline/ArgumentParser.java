@@ -0,0 +1,98 @@
+package uk.co.solong.application.commandline;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * Converts one token to a command parameter. Numbers, booleans and enums are
+ * parsed straight from the line, without creating a String. A CharSequence
+ * parameter is a view of the line, valid only until the command returns.
+ */
+interface ArgumentParser {
+
+    Object parse(char[] chars, int start, int end);
+
+    static ArgumentParser forType(Class<?> type) {
+        if (type == String.class || type == Object.class) {
+            return (chars, start, end) -> new String(chars, start, end - start);
+        }
+        if (type == CharSequence.class) {
+            return (chars, start, end) -> CharBuffer.wrap(chars, start, end - start);
+        }
+        if (type == int.class || type == Integer.class) {
+            return (chars, start, end) -> {
+                long value = parseLong(chars, start, end);
+                if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+                    throw new NumberFormatException("Out of range for an int: " + new String(chars, start, end - start));
+                }
+                return (int) value;
+            };
+        }
+        if (type == long.class || type == Long.class) {
+            return ArgumentParser::parseLong;
+        }
+        if (type == double.class || type == Double.class) {
+            return (chars, start, end) -> Double.parseDouble(new String(chars, start, end - start));
+        }
+        if (type == boolean.class || type == Boolean.class) {
+            return (chars, start, end) -> {
+                if (matches("true", chars, start, end)) {
+                    return Boolean.TRUE;
+                }
+                if (matches("false", chars, start, end)) {
+                    return Boolean.FALSE;
+                }
+                throw new IllegalArgumentException("Expected true or false, but found: " + new String(chars, start, end - start));
+            };
+        }
+        if (type.isEnum()) {
+            Object[] constants = type.getEnumConstants();
+            return (chars, start, end) -> {
+                for (Object constant : constants) {
+                    if (matches(((Enum<?>) constant).name(), chars, start, end)) {
+                        return constant;
+                    }
+                }
+                throw new IllegalArgumentException("Expected one of " + Arrays.toString(constants) + ", but found: " + new String(chars, start, end - start));
+            };
+        }
+        return null;
+    }
+
+    static long parseLong(char[] chars, int start, int end) {
+        int i = start;
+        boolean negative = i < end && chars[i] == '-';
+        if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+            i++;
+        }
+        if (i == end) {
+            throw new NumberFormatException("Not a number: " + new String(chars, start, end - start));
+        }
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long result = 0;
+        for (; i < end; i++) {
+            int digit = chars[i] - '0';
+            if (digit < 0 || digit > 9 || result < limit / 10) {
+                throw new NumberFormatException("Not a number: " + new String(chars, start, end - start));
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                throw new NumberFormatException("Not a number: " + new String(chars, start, end - start));
+            }
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    static boolean matches(String expected, char[] chars, int start, int end) {
+        if (end - start != expected.length()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length(); i++) {
+            if (Character.toLowerCase(chars[start + i]) != Character.toLowerCase(expected.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
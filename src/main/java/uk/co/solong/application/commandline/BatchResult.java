@@ -0,0 +1,49 @@
+package uk.co.solong.application.commandline;
+
+/**
+ * Outcome of {@link CommandEngine#runBatch}: how many lines were read, how
+ * many commands ran and failed, and the first failure.
+ *
+ * @author Daniel Burrell
+ *
+ */
+public final class BatchResult {
+    private final long lines;
+    private final long executed;
+    private final long failed;
+    private final long elapsedMillis;
+    private final Throwable firstFailure;
+
+    BatchResult(long lines, long executed, long failed, long elapsedMillis, Throwable firstFailure) {
+        this.lines = lines;
+        this.executed = executed;
+        this.failed = failed;
+        this.elapsedMillis = elapsedMillis;
+        this.firstFailure = firstFailure;
+    }
+
+    public long getLines() {
+        return lines;
+    }
+
+    public long getExecuted() {
+        return executed;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public Throwable getFirstFailure() {
+        return firstFailure;
+    }
+
+    @Override
+    public String toString() {
+        return executed + " commands from " + lines + " lines in " + elapsedMillis + "ms, " + failed + " failed";
+    }
+}
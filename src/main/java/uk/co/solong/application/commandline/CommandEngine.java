@@ -0,0 +1,248 @@
+package uk.co.solong.application.commandline;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.co.solong.application.annotations.Command;
+
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>
+ * Runs the commands of a {@link CommandTable}, either as an interactive prompt
+ * or as a batch read from a file or stdin ({@value #INPUT_PROPERTY}, where
+ * <code>-</code> means stdin). Without the property, the engine is interactive
+ * when there is a console and reads a batch from stdin otherwise.
+ * </p>
+ * <p>
+ * A batch is one command per line; blank lines and lines starting with # are
+ * skipped. With {@value #THREADS_PROPERTY} above 1 (default 1),
+ * {@link Command#concurrent()} commands run on that many threads while the
+ * reader moves on, and every other command waits for the commands before it
+ * and runs on its own. Failures are logged with their line number; the batch
+ * stops at the first one unless {@value #FAIL_FAST_PROPERTY} is
+ * <code>false</code>.
+ * </p>
+ *
+ * @author Daniel Burrell
+ *
+ */
+public final class CommandEngine {
+    private static final Logger logger = LoggerFactory.getLogger(CommandEngine.class);
+
+    public static final String INPUT_PROPERTY = "uk.co.solong.commandline.input";
+    public static final String THREADS_PROPERTY = "uk.co.solong.commandline.threads";
+    public static final String FAIL_FAST_PROPERTY = "uk.co.solong.commandline.failFast";
+
+    private static final int IN_FLIGHT_PER_THREAD = 64;
+
+    private final CommandTable table;
+    private final int threads;
+    private final boolean failFast;
+
+    public CommandEngine(CommandTable table, int threads, boolean failFast) {
+        this.table = table;
+        this.threads = Math.max(1, threads);
+        this.failFast = failFast;
+    }
+
+    /**
+     * @return an engine configured from {@value #THREADS_PROPERTY} and
+     * {@value #FAIL_FAST_PROPERTY}.
+     */
+    public static CommandEngine fromSystemProperties(CommandTable table) {
+        return new CommandEngine(table, Integer.getInteger(THREADS_PROPERTY, 1), Boolean.parseBoolean(System.getProperty(FAIL_FAST_PROPERTY, "true")));
+    }
+
+    /**
+     * Runs interactively or as a batch, as described above.
+     *
+     * @throws RuntimeException if any command in a batch failed.
+     */
+    public void run(String prompt) throws Exception {
+        String input = System.getProperty(INPUT_PROPERTY);
+        if (input == null && System.console() != null) {
+            runInteractive(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)), System.out, prompt);
+            return;
+        }
+        ReadableByteChannel channel = input == null || "-".equals(input)
+                ? Channels.newChannel(new FileInputStream(FileDescriptor.in))
+                : FileChannel.open(Paths.get(input), StandardOpenOption.READ);
+        BatchResult result;
+        try {
+            result = runBatch(channel);
+        } finally {
+            LineReader.closeQuietly(channel);
+        }
+        logger.info("Batch complete: {}", result);
+        if (result.getFailed() > 0) {
+            throw new RuntimeException(result.getFailed() + " of " + result.getExecuted() + " commands failed", result.getFirstFailure());
+        }
+    }
+
+    /**
+     * Executes every command read from the channel.
+     */
+    public BatchResult runBatch(ReadableByteChannel channel) throws Exception {
+        long started = System.nanoTime();
+        Batch batch = new Batch();
+        Tokenizer tokens = new Tokenizer();
+        long lines;
+        if (threads == 1) {
+            lines = LineReader.read(channel, (chars, start, end, number) -> {
+                if (!Tokenizer.isIgnorable(chars, start, end)) {
+                    batch.execute(chars, start, end, number, tokens);
+                }
+                return !batch.stopped;
+            });
+        } else {
+            int permits = threads * IN_FLIGHT_PER_THREAD;
+            Semaphore inFlight = new Semaphore(permits);
+            ThreadLocal<Tokenizer> tokenizers = ThreadLocal.withInitial(Tokenizer::new);
+            AtomicInteger count = new AtomicInteger();
+            ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+                Thread thread = new Thread(r, "command-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            try {
+                lines = LineReader.read(channel, (chars, start, end, number) -> {
+                    if (Tokenizer.isIgnorable(chars, start, end)) {
+                        return !batch.stopped;
+                    }
+                    if (isConcurrent(chars, start, end, tokens)) {
+                        char[] line = Arrays.copyOfRange(chars, start, end);
+                        inFlight.acquire();
+                        executor.execute(() -> {
+                            try {
+                                batch.execute(line, 0, line.length, number, tokenizers.get());
+                            } finally {
+                                inFlight.release();
+                            }
+                        });
+                    } else {
+                        inFlight.acquire(permits);
+                        try {
+                            batch.execute(chars, start, end, number, tokens);
+                        } finally {
+                            inFlight.release(permits);
+                        }
+                    }
+                    return !batch.stopped;
+                });
+                inFlight.acquire(permits);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+        return new BatchResult(lines, batch.executed.sum(), batch.failed.sum(), (System.nanoTime() - started) / 1_000_000, batch.firstFailure.get());
+    }
+
+    /**
+     * Reads commands from in until end of input or <code>exit</code>,
+     * printing each result that is not null. <code>help</code> lists the
+     * commands. Failures are printed and do not end the session.
+     */
+    public void runInteractive(BufferedReader in, PrintStream out, String prompt) throws IOException {
+        Tokenizer tokens = new Tokenizer();
+        while (true) {
+            out.print(prompt + " ");
+            out.flush();
+            String line = in.readLine();
+            if (line == null) {
+                return;
+            }
+            char[] chars = line.toCharArray();
+            if (Tokenizer.isIgnorable(chars, 0, chars.length)) {
+                continue;
+            }
+            try {
+                tokens.tokenize(chars, 0, chars.length);
+                if (table.find(chars, tokens.start(0), tokens.end(0)) == null) {
+                    if (ArgumentParser.matches("exit", chars, tokens.start(0), tokens.end(0))
+                            || ArgumentParser.matches("quit", chars, tokens.start(0), tokens.end(0))) {
+                        return;
+                    }
+                    if (ArgumentParser.matches("help", chars, tokens.start(0), tokens.end(0))) {
+                        for (CommandHandler handler : table.getHandlers()) {
+                            out.println(handler.getDescription().isEmpty() ? handler.getUsage() : handler.getUsage() + " - " + handler.getDescription());
+                        }
+                        continue;
+                    }
+                }
+                Object result = dispatch(chars, 0, chars.length, tokens);
+                if (result != null) {
+                    out.println(result);
+                }
+            } catch (Exception | Error e) {
+                out.println("Error: " + (e.getMessage() == null ? e : e.getMessage()));
+                logger.debug("Command failed: {}", line, e);
+            }
+        }
+    }
+
+    private Object dispatch(char[] chars, int start, int end, Tokenizer tokens) throws Exception {
+        if (tokens.tokenize(chars, start, end) == 0) {
+            return null;
+        }
+        CommandHandler handler = table.find(chars, tokens.start(0), tokens.end(0));
+        if (handler == null) {
+            throw new IllegalArgumentException("Unknown command: " + new String(chars, tokens.start(0), tokens.end(0) - tokens.start(0)));
+        }
+        return handler.execute(chars, tokens);
+    }
+
+    private boolean isConcurrent(char[] chars, int start, int end, Tokenizer tokens) {
+        try {
+            if (tokens.tokenize(chars, start, end) == 0) {
+                return false;
+            }
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        CommandHandler handler = table.find(chars, tokens.start(0), tokens.end(0));
+        return handler != null && handler.isConcurrent();
+    }
+
+    private final class Batch {
+        private final LongAdder executed = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+        private volatile boolean stopped;
+
+        void execute(char[] chars, int start, int end, long number, Tokenizer tokens) {
+            executed.increment();
+            try {
+                Object result = dispatch(chars, start, end, tokens);
+                if (result != null && logger.isDebugEnabled()) {
+                    logger.debug("Line {}: {}", number, result);
+                }
+            } catch (Exception | Error e) {
+                // an Error must not end a pooled task uncounted, or the batch would report success
+                failed.increment();
+                firstFailure.compareAndSet(null, e);
+                logger.error("Command at line {} failed: {}", number, new String(chars, start, end - start), e);
+                if (failFast) {
+                    stopped = true;
+                }
+            }
+        }
+    }
+}
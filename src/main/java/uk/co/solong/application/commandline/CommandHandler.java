@@ -0,0 +1,83 @@
+package uk.co.solong.application.commandline;
+
+import uk.co.solong.application.invoke.MethodInvoker;
+
+import java.lang.reflect.Method;
+
+/**
+ * One entry of the {@link CommandTable}: the bean, its invoker and a parser
+ * per parameter, all resolved once when the table is built.
+ */
+final class CommandHandler {
+    private final String name;
+    private final String description;
+    private final boolean concurrent;
+    private final Object bean;
+    private final MethodInvoker invoker;
+    private final ArgumentParser[] parsers;
+    private final boolean varargs;
+    private final String usage;
+
+    CommandHandler(String name, String description, boolean concurrent, Object bean, MethodInvoker invoker, ArgumentParser[] parsers, boolean varargs) {
+        this.name = name;
+        this.description = description;
+        this.concurrent = concurrent;
+        this.bean = bean;
+        this.invoker = invoker;
+        this.parsers = parsers;
+        this.varargs = varargs;
+        this.usage = usageOf(name, invoker.getMethod(), varargs);
+    }
+
+    /**
+     * Invokes the command with the arguments in tokens 1..n of the line.
+     */
+    Object execute(char[] chars, Tokenizer tokens) throws Exception {
+        int arguments = tokens.count() - 1;
+        int fixed = varargs ? parsers.length - 1 : parsers.length;
+        if (varargs ? arguments < fixed : arguments != fixed) {
+            throw new IllegalArgumentException("Usage: " + usage);
+        }
+        if (parsers.length == 0) {
+            return invoker.invoke(bean);
+        }
+        Object[] args = new Object[parsers.length];
+        for (int i = 0; i < fixed; i++) {
+            args[i] = parsers[i].parse(chars, tokens.start(i + 1), tokens.end(i + 1));
+        }
+        if (varargs) {
+            String[] rest = new String[arguments - fixed];
+            for (int i = 0; i < rest.length; i++) {
+                int token = fixed + 1 + i;
+                rest[i] = new String(chars, tokens.start(token), tokens.end(token) - tokens.start(token));
+            }
+            args[fixed] = rest;
+        }
+        return invoker.invoke(bean, args);
+    }
+
+    private static String usageOf(String name, Method method, boolean varargs) {
+        StringBuilder sb = new StringBuilder(name);
+        Class<?>[] types = method.getParameterTypes();
+        for (int i = 0; i < types.length; i++) {
+            sb.append(varargs && i == types.length - 1 ? " [String...]" : " <" + types[i].getSimpleName() + ">");
+        }
+        return sb.toString();
+    }
+
+    String getName() {
+        return name;
+    }
+
+    String getDescription() {
+        return description;
+    }
+
+    boolean isConcurrent() {
+        return concurrent;
+    }
+
+    String getUsage() {
+        return usage;
+    }
+}
@@ -0,0 +1,109 @@
+package uk.co.solong.application.commandline;
+
+import org.apache.commons.lang3.Validate;
+import org.springframework.util.ClassUtils;
+import uk.co.solong.application.annotations.Command;
+import uk.co.solong.application.invoke.Invokers;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * <p>
+ * Dispatch table of every {@link Command} method of a set of beans, built
+ * once at startup. Each command's invoker and argument parsers are resolved
+ * up front, and commands are looked up straight from the characters of the
+ * line (an open addressing table keyed by the String hash of the name), so
+ * dispatching a command does not create a String for its name.
+ * </p>
+ *
+ * @author Daniel Burrell
+ *
+ */
+public final class CommandTable {
+    private final CommandHandler[] slots;
+    private final List<CommandHandler> handlers;
+
+    private CommandTable(List<CommandHandler> handlers) {
+        this.handlers = Collections.unmodifiableList(handlers);
+        int capacity = Integer.highestOneBit(Math.max(4, handlers.size() * 2) - 1) << 1;
+        this.slots = new CommandHandler[capacity];
+        for (CommandHandler handler : handlers) {
+            int slot = handler.getName().hashCode() & (capacity - 1);
+            while (slots[slot] != null) {
+                Validate.isTrue(!slots[slot].getName().equals(handler.getName()), "Command %s is defined more than once", handler.getName());
+                slot = (slot + 1) & (capacity - 1);
+            }
+            slots[slot] = handler;
+        }
+    }
+
+    /**
+     * Builds the table from the {@link Command} methods of the beans.
+     */
+    public static CommandTable build(Collection<?> beans) {
+        List<CommandHandler> handlers = new ArrayList<>();
+        for (Object bean : beans) {
+            for (Method method : Invokers.annotatedMethods(ClassUtils.getUserClass(bean), Command.class)) {
+                Command command = method.getAnnotation(Command.class);
+                Validate.isTrue(!Modifier.isStatic(method.getModifiers()), "Command method %s must not be static", method);
+                Class<?>[] types = method.getParameterTypes();
+                boolean varargs = types.length > 0 && types[types.length - 1] == String[].class;
+                ArgumentParser[] parsers = new ArgumentParser[types.length];
+                for (int i = 0; i < types.length; i++) {
+                    if (varargs && i == types.length - 1) {
+                        continue;
+                    }
+                    parsers[i] = ArgumentParser.forType(types[i]);
+                    Validate.isTrue(parsers[i] != null, "Unsupported parameter type %s on command method %s", types[i].getName(), method);
+                }
+                String name = command.name().isEmpty() ? method.getName() : command.name();
+                Validate.isTrue(name.indexOf(' ') < 0 && name.indexOf('"') < 0, "Invalid command name: %s", name);
+                handlers.add(new CommandHandler(name, command.description(), command.concurrent(), bean, Invokers.forMethod(method), parsers, varargs));
+            }
+        }
+        handlers.sort(Comparator.comparing(CommandHandler::getName));
+        return new CommandTable(handlers);
+    }
+
+    /**
+     * @return the handler for the command named by chars[start, end), or
+     * null if there is none.
+     */
+    CommandHandler find(char[] chars, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; slots[slot] != null; slot = (slot + 1) & mask) {
+            String name = slots[slot].getName();
+            if (name.length() == end - start && name.hashCode() == hash && sameChars(name, chars, start)) {
+                return slots[slot];
+            }
+        }
+        return null;
+    }
+
+    private static boolean sameChars(String name, char[] chars, int start) {
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) != chars[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    List<CommandHandler> getHandlers() {
+        return handlers;
+    }
+
+    public int size() {
+        return handlers.size();
+    }
+}
@@ -0,0 +1,91 @@
+package uk.co.solong.application.commandline;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads UTF-8 lines from a channel through a direct byte buffer, decoding
+ * into one reusable char buffer. Each line is handed over as a range of that
+ * buffer, which is only valid until the handler returns. Lines end with \n or
+ * \r\n; a line longer than the buffer makes it grow.
+ */
+final class LineReader {
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    interface LineHandler {
+        /**
+         * @return false to stop reading.
+         */
+        boolean line(char[] chars, int start, int end, long number) throws Exception;
+    }
+
+    private LineReader() {
+    }
+
+    /**
+     * @return the number of lines read.
+     */
+    static long read(ReadableByteChannel channel, LineHandler handler) throws Exception {
+        ByteBuffer bytes = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        long number = 0;
+        int scanned = 0;
+        boolean eof = false;
+        while (true) {
+            if (!eof && channel.read(bytes) < 0) {
+                eof = true;
+            }
+            bytes.flip();
+            CoderResult result = decoder.decode(bytes, chars, eof);
+            bytes.compact();
+            boolean done = eof && result.isUnderflow();
+            if (done) {
+                decoder.flush(chars);
+            }
+            char[] array = chars.array();
+            int filled = chars.position();
+            int lineStart = 0;
+            for (int i = scanned; i < filled; i++) {
+                if (array[i] == '\n') {
+                    int end = i > lineStart && array[i - 1] == '\r' ? i - 1 : i;
+                    if (!handler.line(array, lineStart, end, ++number)) {
+                        return number;
+                    }
+                    lineStart = i + 1;
+                }
+            }
+            if (done) {
+                if (lineStart < filled) {
+                    handler.line(array, lineStart, filled, ++number);
+                }
+                return number;
+            }
+            System.arraycopy(array, lineStart, array, 0, filled - lineStart);
+            chars.position(filled - lineStart);
+            scanned = chars.position();
+            if (!chars.hasRemaining()) {
+                CharBuffer larger = CharBuffer.allocate(chars.capacity() * 2);
+                chars.flip();
+                larger.put(chars);
+                chars = larger;
+            }
+        }
+    }
+
+    static void closeQuietly(ReadableByteChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // best effort
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package uk.co.solong.application.commandline;
+
+import java.util.Arrays;
+
+/**
+ * Splits a line into whitespace-separated tokens without copying it. A token
+ * starting with a double quote runs to the next double quote, which lets an
+ * argument contain spaces; there are no escapes. Instances are reused from
+ * line to line and are not thread safe.
+ */
+final class Tokenizer {
+    private int[] starts = new int[8];
+    private int[] ends = new int[8];
+    private int count;
+
+    /**
+     * @return the number of tokens in chars[start, end).
+     */
+    int tokenize(char[] chars, int start, int end) {
+        count = 0;
+        int i = start;
+        while (true) {
+            while (i < end && Character.isWhitespace(chars[i])) {
+                i++;
+            }
+            if (i == end) {
+                return count;
+            }
+            int tokenStart;
+            int tokenEnd;
+            if (chars[i] == '"') {
+                tokenStart = ++i;
+                while (i < end && chars[i] != '"') {
+                    i++;
+                }
+                if (i == end) {
+                    throw new IllegalArgumentException("Unterminated quote in: " + new String(chars, start, end - start));
+                }
+                tokenEnd = i++;
+            } else {
+                tokenStart = i;
+                while (i < end && !Character.isWhitespace(chars[i])) {
+                    i++;
+                }
+                tokenEnd = i;
+            }
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+            }
+            starts[count] = tokenStart;
+            ends[count] = tokenEnd;
+            count++;
+        }
+    }
+
+    int count() {
+        return count;
+    }
+
+    int start(int token) {
+        return starts[token];
+    }
+
+    int end(int token) {
+        return ends[token];
+    }
+
+    /**
+     * @return true if the line is blank or a comment (starts with #).
+     */
+    static boolean isIgnorable(char[] chars, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!Character.isWhitespace(chars[i])) {
+                return chars[i] == '#';
+            }
+        }
+        return true;
+    }
+}
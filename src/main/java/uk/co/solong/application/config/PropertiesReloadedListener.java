@@ -0,0 +1,16 @@
+package uk.co.solong.application.config;
+
+import java.util.Set;
+
+/**
+ * Notified by {@link ReloadableProperties} after a changed properties file has
+ * been swapped in. Beans implementing this interface are registered
+ * automatically.
+ *
+ * @author Daniel Burrell
+ *
+ */
+public interface PropertiesReloadedListener {
+
+    void reloaded(PropertySnapshot previous, PropertySnapshot current, Set<String> changed);
+}
@@ -0,0 +1,134 @@
+package uk.co.solong.application.config;
+
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.support.DefaultConversionService;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>
+ * Immutable view of a properties file at one point in time, with every
+ * placeholder already resolved. Values converted to other types (with Spring's
+ * default ConversionService) are cached per type, so repeated typed reads
+ * neither parse nor lock.
+ * </p>
+ *
+ * @author Daniel Burrell
+ *
+ */
+public final class PropertySnapshot {
+    private static final ConversionService conversionService = DefaultConversionService.getSharedInstance();
+    /**
+     * Cached for values that convert to null, e.g. an empty number.
+     */
+    private static final Object NO_VALUE = new Object();
+
+    private final Map<String, String> values;
+    private final String[] names;
+    private final long version;
+    private final Map<Class<?>, Map<String, Object>> converted = new ConcurrentHashMap<>();
+
+    PropertySnapshot(Map<String, String> values, long version) {
+        this.values = Collections.unmodifiableMap(values);
+        this.names = values.keySet().toArray(new String[0]);
+        this.version = version;
+    }
+
+    /**
+     * @return the value, or null if there is none.
+     */
+    public String get(String name) {
+        return values.get(name);
+    }
+
+    public String get(String name, String defaultValue) {
+        String value = values.get(name);
+        return value == null ? defaultValue : value;
+    }
+
+    /**
+     * @return the value converted to the type, or null if there is none (or
+     * it converts to null, as an empty number or boolean does).
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String name, Class<T> type) {
+        if (type == String.class) {
+            return (T) values.get(name);
+        }
+        Map<String, Object> cache = converted.get(type);
+        if (cache == null) {
+            cache = converted.computeIfAbsent(type, t -> new ConcurrentHashMap<>());
+        }
+        Object value = cache.get(name);
+        if (value == null) {
+            String raw = values.get(name);
+            if (raw == null) {
+                return null;
+            }
+            value = conversionService.convert(raw, type);
+            cache.put(name, value == null ? NO_VALUE : value);
+        }
+        return value == NO_VALUE ? null : (T) value;
+    }
+
+    public <T> T get(String name, Class<T> type, T defaultValue) {
+        T value = get(name, type);
+        return value == null ? defaultValue : value;
+    }
+
+    public int getInt(String name, int defaultValue) {
+        return get(name, Integer.class, defaultValue);
+    }
+
+    public long getLong(String name, long defaultValue) {
+        return get(name, Long.class, defaultValue);
+    }
+
+    public boolean getBoolean(String name, boolean defaultValue) {
+        return get(name, Boolean.class, defaultValue);
+    }
+
+    public boolean contains(String name) {
+        return values.containsKey(name);
+    }
+
+    public Map<String, String> asMap() {
+        return values;
+    }
+
+    String[] getNames() {
+        return names;
+    }
+
+    /**
+     * @return 1 for the snapshot loaded at startup, incremented by each
+     * reload.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the names whose value was added, removed or changed since the
+     * previous snapshot.
+     */
+    public Set<String> changedSince(PropertySnapshot previous) {
+        Set<String> changed = new LinkedHashSet<>();
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            if (!Objects.equals(entry.getValue(), previous.values.get(entry.getKey()))) {
+                changed.add(entry.getKey());
+            }
+        }
+        for (String name : previous.values.keySet()) {
+            if (!values.containsKey(name)) {
+                changed.add(name);
+            }
+        }
+        return changed;
+    }
+}
@@ -0,0 +1,305 @@
+package uk.co.solong.application.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanInitializationException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.context.ResourceLoaderAware;
+import org.springframework.core.Ordered;
+import org.springframework.core.PriorityOrdered;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.EnumerablePropertySource;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.MutablePropertySources;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.util.PropertyPlaceholderHelper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * <p>
+ * Loads a properties file ({@value #LOCATION_PROPERTY}, default
+ * {@value #DEFAULT_LOCATION}) into a {@link PropertySnapshot} and adds it to
+ * the {@link Environment} straight after the system environment, where
+ * {@link PropertyPlaceholderConfig}'s <code>@PropertySource</code> would be, so
+ * that placeholders and <code>@Value</code> read the pre-resolved values while
+ * system properties and environment variables still override the file. The
+ * file's own placeholders are resolved in the same order.
+ * </p>
+ * <p>
+ * If the file is on the filesystem (which includes target/classes, but not a
+ * jar), it is watched, and each change is loaded into a new snapshot that
+ * replaces the old one in a single volatile write. Readers never lock, and
+ * never see a half-loaded file. A file that fails to load or resolve is logged
+ * and the previous snapshot kept. After a swap, every
+ * {@link PropertiesReloadedListener} is told which names changed. Values
+ * already injected into beans are not changed; use a listener, or read from
+ * this bean, for values that must follow the file. Set
+ * {@value #WATCH_PROPERTY} to <code>false</code> to load the file once.
+ * </p>
+ *
+ * @author Daniel Burrell
+ *
+ */
+public class ReloadableProperties implements BeanFactoryPostProcessor, PriorityOrdered, EnvironmentAware, ResourceLoaderAware,
+        ApplicationContextAware, SmartInitializingSingleton, DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(ReloadableProperties.class);
+
+    public static final String LOCATION_PROPERTY = "uk.co.solong.config.location";
+    public static final String WATCH_PROPERTY = "uk.co.solong.config.watch";
+    public static final String DEFAULT_LOCATION = "classpath:${APP_ENV:default}.properties";
+    public static final String PROPERTY_SOURCE_NAME = "reloadableProperties";
+
+    private static final long SETTLE_MILLIS = 50;
+
+    private final List<PropertiesReloadedListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile PropertySnapshot snapshot;
+    private ConfigurableEnvironment environment;
+    private ResourceLoader resourceLoader = new DefaultResourceLoader();
+    private ApplicationContext applicationContext;
+    private Resource resource;
+    private WatchService watchService;
+    private Thread watcher;
+
+    public PropertySnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public String getProperty(String name) {
+        return snapshot.get(name);
+    }
+
+    public void addListener(PropertiesReloadedListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(PropertiesReloadedListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) throws BeansException {
+        String location = environment.resolveRequiredPlaceholders(System.getProperty(LOCATION_PROPERTY, DEFAULT_LOCATION));
+        resource = resourceLoader.getResource(location);
+        try {
+            snapshot = load(1);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new BeanInitializationException("Unable to load properties from " + location, e);
+        }
+        MutablePropertySources sources = environment.getPropertySources();
+        if (sources.contains(StandardEnvironment.SYSTEM_ENVIRONMENT_PROPERTY_SOURCE_NAME)) {
+            sources.addAfter(StandardEnvironment.SYSTEM_ENVIRONMENT_PROPERTY_SOURCE_NAME, new SnapshotPropertySource(this));
+        } else {
+            sources.addLast(new SnapshotPropertySource(this));
+        }
+        logger.info("Loaded {} properties from {}", snapshot.asMap().size(), resource);
+        if (Boolean.parseBoolean(System.getProperty(WATCH_PROPERTY, "true"))) {
+            watch();
+        }
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        listeners.addAll(applicationContext.getBeansOfType(PropertiesReloadedListener.class, false, false).values());
+    }
+
+    /**
+     * Loads the file again and, if any value changed, swaps in the new
+     * snapshot and notifies the listeners.
+     *
+     * @return true if a new snapshot was swapped in.
+     */
+    public synchronized boolean reload() {
+        PropertySnapshot previous = snapshot;
+        PropertySnapshot next;
+        try {
+            next = load(previous.getVersion() + 1);
+        } catch (IOException | IllegalArgumentException e) {
+            logger.warn("Unable to reload {}, keeping the previous properties", resource, e);
+            return false;
+        }
+        Set<String> changed = next.changedSince(previous);
+        if (changed.isEmpty()) {
+            return false;
+        }
+        snapshot = next;
+        logger.info("Reloaded {} (version {}), changed: {}", resource, next.getVersion(), changed);
+        for (PropertiesReloadedListener listener : listeners) {
+            try {
+                listener.reloaded(previous, next, changed);
+            } catch (RuntimeException e) {
+                logger.error("Properties listener {} failed", listener, e);
+            }
+        }
+        return true;
+    }
+
+    private PropertySnapshot load(long version) throws IOException {
+        Properties raw = new Properties();
+        try (InputStream in = resource.getInputStream()) {
+            raw.load(in);
+        }
+        PropertyPlaceholderHelper helper = new PropertyPlaceholderHelper("${", "}", ":", false);
+        PropertyPlaceholderHelper.PlaceholderResolver resolver = name -> {
+            String value = fromOtherSources(name, true);
+            if (value == null) {
+                value = raw.containsKey(name) ? raw.getProperty(name) : fromOtherSources(name, false);
+            }
+            return value;
+        };
+        Map<String, String> values = new TreeMap<>();
+        for (String name : raw.stringPropertyNames()) {
+            values.put(name, helper.replacePlaceholders(raw.getProperty(name), resolver));
+        }
+        return new PropertySnapshot(values, version);
+    }
+
+    /**
+     * @param higher whether to read the sources that take precedence over the
+     *               file (those up to the system environment) or the rest.
+     */
+    private String fromOtherSources(String name, boolean higher) {
+        boolean above = true;
+        for (PropertySource<?> source : environment.getPropertySources()) {
+            if (PROPERTY_SOURCE_NAME.equals(source.getName())) {
+                above = false;
+                continue;
+            }
+            if (above == higher) {
+                Object value = source.getProperty(name);
+                if (value != null) {
+                    return String.valueOf(value);
+                }
+            }
+            if (StandardEnvironment.SYSTEM_ENVIRONMENT_PROPERTY_SOURCE_NAME.equals(source.getName())) {
+                above = false;
+            }
+        }
+        return null;
+    }
+
+    private void watch() {
+        Path file;
+        try {
+            if (!resource.isFile()) {
+                logger.info("{} is not a file, changes will not be picked up", resource);
+                return;
+            }
+            file = resource.getFile().toPath().toAbsolutePath();
+            watchService = file.getFileSystem().newWatchService();
+            file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            logger.warn("Unable to watch {}, changes will not be picked up", resource, e);
+            return;
+        }
+        watcher = new Thread(() -> watch(file), "property-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private void watch(Path file) {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    changed |= event.kind() == StandardWatchEventKinds.OVERFLOW || file.getFileName().equals(event.context());
+                }
+                if (!key.reset()) {
+                    logger.warn("{} can no longer be watched, changes will not be picked up", file.getParent());
+                    return;
+                }
+                if (changed) {
+                    // let the writer finish, and fold the events it causes into one reload
+                    Thread.sleep(SETTLE_MILLIS);
+                    for (WatchKey pending = watchService.poll(); pending != null; pending = watchService.poll()) {
+                        pending.pollEvents();
+                        pending.reset();
+                    }
+                    reload();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed with the context
+        }
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+        if (watcher != null) {
+            watcher.interrupt();
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.environment = (ConfigurableEnvironment) environment;
+    }
+
+    @Override
+    public void setResourceLoader(ResourceLoader resourceLoader) {
+        this.resourceLoader = resourceLoader;
+    }
+
+    @Override
+    public void setApplicationContext(ApplicationContext applicationContext) {
+        this.applicationContext = applicationContext;
+    }
+
+    /**
+     * Reads from whichever snapshot is current.
+     */
+    static final class SnapshotPropertySource extends EnumerablePropertySource<ReloadableProperties> {
+
+        SnapshotPropertySource(ReloadableProperties source) {
+            super(PROPERTY_SOURCE_NAME, source);
+        }
+
+        @Override
+        public Object getProperty(String name) {
+            return getSource().snapshot.get(name);
+        }
+
+        @Override
+        public boolean containsProperty(String name) {
+            return getSource().snapshot.contains(name);
+        }
+
+        @Override
+        public String[] getPropertyNames() {
+            return getSource().snapshot.getNames().clone();
+        }
+    }
+}
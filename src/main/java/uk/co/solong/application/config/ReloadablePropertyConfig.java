@@ -0,0 +1,24 @@
+package uk.co.solong.application.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
+
+/**
+ * Use instead of {@link PropertyPlaceholderConfig} to load ${APP_ENV}.properties
+ * (or default.properties) through {@link ReloadableProperties}: resolved once
+ * into an immutable snapshot, and reloaded when the file changes.
+ */
+@Configuration
+public class ReloadablePropertyConfig {
+
+    @Bean
+    public static ReloadableProperties reloadableProperties() {
+        return new ReloadableProperties();
+    }
+
+    @Bean
+    public static PropertySourcesPlaceholderConfigurer propertySourcesPlaceholderConfigurer() {
+        return new PropertySourcesPlaceholderConfigurer();
+    }
+}
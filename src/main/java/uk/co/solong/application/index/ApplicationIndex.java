@@ -0,0 +1,254 @@
+package uk.co.solong.application.index;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.co.solong.application.annotations.CommandLine;
+import uk.co.solong.application.annotations.MainClass;
+import uk.co.solong.application.annotations.MainMethod;
+import uk.co.solong.application.annotations.RootConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * <p>
+ * Compile time index of the {@link RootConfiguration}, {@link MainClass},
+ * {@link MainMethod} and {@link CommandLine} annotations, written by
+ * {@link ApplicationIndexProcessor} to {@value #INDEX_LOCATION}.
+ * </p>
+ * <p>
+ * Every index on the classpath is merged. The index is considered stale (and
+ * the launchers fall back to scanning) if any indexed class is no longer
+ * present. Otherwise it is authoritative: classes in a classpath entry
+ * without an index (e.g. a jar built without the processor, which is every
+ * third party jar) are not in it, and are only scanned for if
+ * {@value #SCAN_UNINDEXED_PROPERTY} is <code>true</code> (see
+ * {@link #getUnindexedClasspathEntries()}). Set the system property
+ * {@value #IGNORE_PROPERTY} to <code>true</code> to always scan.
+ * </p>
+ *
+ * @author Daniel Burrell
+ *
+ */
+public final class ApplicationIndex {
+    private static final Logger logger = LoggerFactory.getLogger(ApplicationIndex.class);
+
+    public static final String INDEX_LOCATION = "META-INF/uk.co.solong.application.index";
+    public static final String IGNORE_PROPERTY = "uk.co.solong.index.ignore";
+    public static final String SCAN_UNINDEXED_PROPERTY = "uk.co.solong.index.scanUnindexed";
+
+    private final List<Entry> entries;
+    private final List<Path> unindexed;
+
+    ApplicationIndex(List<Entry> entries, List<Path> unindexed) {
+        this.entries = Collections.unmodifiableList(new ArrayList<>(entries));
+        this.unindexed = Collections.unmodifiableList(new ArrayList<>(unindexed));
+    }
+
+    /**
+     * Loads every index visible to the classLoader.
+     *
+     * @return the merged index, or null if there is no index, the index is
+     * stale, or the index has been disabled.
+     */
+    public static ApplicationIndex load(ClassLoader classLoader) {
+        if (Boolean.getBoolean(IGNORE_PROPERTY)) {
+            return null;
+        }
+        List<Entry> entries = new ArrayList<>();
+        Set<Path> indexed = new HashSet<>();
+        try {
+            Enumeration<URL> urls = classLoader.getResources(INDEX_LOCATION);
+            if (!urls.hasMoreElements()) {
+                logger.debug("No application index found");
+                return null;
+            }
+            while (urls.hasMoreElements()) {
+                URL url = urls.nextElement();
+                Path root = rootOf(url);
+                if (root != null) {
+                    indexed.add(root);
+                }
+                try (InputStream in = url.openStream()) {
+                    entries.addAll(IndexFormat.read(in));
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            logger.warn("Unable to read application index, falling back to classpath scanning", e);
+            return null;
+        }
+        for (Entry entry : entries) {
+            if (classLoader.getResource(entry.getClassName().replace('.', '/') + ".class") == null) {
+                logger.info("Application index is stale ({} is missing), falling back to classpath scanning", entry.getClassName());
+                return null;
+            }
+        }
+        List<Path> unindexed = new ArrayList<>();
+        for (Path root : classpathOf(classLoader)) {
+            if (!indexed.contains(root)) {
+                unindexed.add(root);
+            }
+        }
+        if (!unindexed.isEmpty()) {
+            logger.debug("Application index found in {} classpath entries, {} without one: {}", indexed.size(), unindexed.size(), unindexed);
+        }
+        return new ApplicationIndex(entries, unindexed);
+    }
+
+    /**
+     * @return the directory or jar holding the index at url, or null if it
+     * is not on the file system.
+     */
+    private static Path rootOf(URL url) {
+        String location = url.toString();
+        location = location.substring(0, location.length() - INDEX_LOCATION.length());
+        if (location.startsWith("jar:") && location.endsWith("!/")) {
+            location = location.substring("jar:".length(), location.length() - "!/".length());
+        }
+        try {
+            return Paths.get(new URI(location)).toAbsolutePath().normalize();
+        } catch (URISyntaxException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the directories and jars of the URLClassLoaders from
+     * classLoader up, or of the <code>java.class.path</code> if there are none.
+     */
+    private static Set<Path> classpathOf(ClassLoader classLoader) {
+        Set<Path> roots = new LinkedHashSet<>();
+        for (ClassLoader loader = classLoader; loader != null; loader = loader.getParent()) {
+            if (loader instanceof URLClassLoader) {
+                for (URL url : ((URLClassLoader) loader).getURLs()) {
+                    try {
+                        roots.add(Paths.get(url.toURI()).toAbsolutePath().normalize());
+                    } catch (URISyntaxException | RuntimeException e) {
+                        logger.debug("Ignoring classpath entry {}", url);
+                    }
+                }
+            }
+        }
+        if (roots.isEmpty()) {
+            for (String entry : System.getProperty("java.class.path", "").split(File.pathSeparator)) {
+                if (!entry.isEmpty()) {
+                    roots.add(Paths.get(entry).toAbsolutePath().normalize());
+                }
+            }
+        }
+        return roots;
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * @return the classpath entries that have no index, whose classes the
+     * index cannot account for.
+     */
+    public List<Path> getUnindexedClasspathEntries() {
+        return unindexed;
+    }
+
+    /**
+     * @return the classpath entries to scan alongside the index: those without
+     * one if {@value #SCAN_UNINDEXED_PROPERTY} is <code>true</code>, otherwise
+     * none.
+     */
+    public List<Path> getClasspathEntriesToScan() {
+        if (Boolean.getBoolean(SCAN_UNINDEXED_PROPERTY)) {
+            return unindexed;
+        }
+        if (!unindexed.isEmpty()) {
+            logger.debug("Not scanning the {} classpath entries without an application index, set {} to scan them",
+                    unindexed.size(), SCAN_UNINDEXED_PROPERTY);
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * @return the entries for the given annotation whose class is in the
+     * packageScope (or any package if the scope is empty).
+     */
+    public List<Entry> getEntries(Class<? extends Annotation> annotationType, String packageScope) {
+        List<Entry> result = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (entry.getAnnotation().equals(annotationType.getSimpleName()) && entry.isInPackage(packageScope)) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * A single indexed annotation. The value is the <code>name()</code> of a
+     * {@link RootConfiguration}, {@link MainClass} or {@link CommandLine}, or
+     * the method name of a {@link MainMethod}.
+     */
+    public static final class Entry {
+        private final String annotation;
+        private final String className;
+        private final String value;
+
+        public Entry(String annotation, String className, String value) {
+            this.annotation = annotation;
+            this.className = className;
+            this.value = value;
+        }
+
+        public String getAnnotation() {
+            return annotation;
+        }
+
+        public String getClassName() {
+            return className;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public boolean isInPackage(String packageScope) {
+            return packageScope == null || packageScope.isEmpty() || className.startsWith(packageScope + ".");
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Entry)) {
+                return false;
+            }
+            Entry other = (Entry) o;
+            return annotation.equals(other.annotation) && className.equals(other.className) && value.equals(other.value);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(annotation, className, value);
+        }
+
+        @Override
+        public String toString() {
+            return annotation + IndexFormat.SEPARATOR + className + IndexFormat.SEPARATOR + value;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package uk.co.solong.application.index;
+
+import uk.co.solong.application.annotations.CommandLine;
+import uk.co.solong.application.annotations.MainClass;
+import uk.co.solong.application.annotations.MainMethod;
+import uk.co.solong.application.annotations.RootConfiguration;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * <p>
+ * Annotation processor that writes an {@link ApplicationIndex} for every
+ * {@link RootConfiguration}, {@link MainClass}, {@link MainMethod} and
+ * {@link CommandLine} found at compile time, so that the launchers do not have
+ * to scan the classpath.
+ * </p>
+ * <p>
+ * The processor is picked up automatically by javac when this library is on
+ * the compile classpath. Entries written by a previous (incremental) compile
+ * are kept as long as their class still exists.
+ * </p>
+ *
+ * @author Daniel Burrell
+ *
+ */
+public class ApplicationIndexProcessor extends AbstractProcessor {
+
+    private final Set<ApplicationIndex.Entry> entries = new LinkedHashSet<>();
+    private final Set<String> compiledTypes = new HashSet<>();
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return new HashSet<>(Arrays.asList(RootConfiguration.class.getName(), MainClass.class.getName(), MainMethod.class.getName(), CommandLine.class.getName()));
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getRootElements()) {
+            if (element instanceof TypeElement) {
+                compiledTypes.add(((TypeElement) element).getQualifiedName().toString());
+            }
+        }
+        for (Element element : roundEnv.getElementsAnnotatedWith(RootConfiguration.class)) {
+            entries.add(new ApplicationIndex.Entry(RootConfiguration.class.getSimpleName(), binaryName(element), element.getAnnotation(RootConfiguration.class).name()));
+        }
+        for (Element element : roundEnv.getElementsAnnotatedWith(MainClass.class)) {
+            entries.add(new ApplicationIndex.Entry(MainClass.class.getSimpleName(), binaryName(element), element.getAnnotation(MainClass.class).name()));
+        }
+        for (Element element : roundEnv.getElementsAnnotatedWith(CommandLine.class)) {
+            entries.add(new ApplicationIndex.Entry(CommandLine.class.getSimpleName(), binaryName(element), element.getAnnotation(CommandLine.class).name()));
+        }
+        for (Element element : roundEnv.getElementsAnnotatedWith(MainMethod.class)) {
+            if (element.getKind() == ElementKind.METHOD) {
+                entries.add(new ApplicationIndex.Entry(MainMethod.class.getSimpleName(), binaryName(element.getEnclosingElement()), element.getSimpleName().toString()));
+            }
+        }
+        if (roundEnv.processingOver()) {
+            writeIndex();
+        }
+        return false;
+    }
+
+    private String binaryName(Element element) {
+        return processingEnv.getElementUtils().getBinaryName((TypeElement) element).toString();
+    }
+
+    private void writeIndex() {
+        Set<ApplicationIndex.Entry> merged = new LinkedHashSet<>(readPreviousEntries());
+        merged.addAll(entries);
+        if (merged.isEmpty()) {
+            return;
+        }
+        try {
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", ApplicationIndex.INDEX_LOCATION);
+            try (OutputStream out = file.openOutputStream()) {
+                IndexFormat.write(merged, out);
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Unable to write " + ApplicationIndex.INDEX_LOCATION + ": " + e.getMessage());
+        }
+    }
+
+    private Set<ApplicationIndex.Entry> readPreviousEntries() {
+        Set<ApplicationIndex.Entry> previous = new LinkedHashSet<>();
+        try {
+            FileObject file = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", ApplicationIndex.INDEX_LOCATION);
+            try (InputStream in = file.openInputStream()) {
+                List<ApplicationIndex.Entry> existing = IndexFormat.read(in);
+                for (ApplicationIndex.Entry entry : existing) {
+                    String typeName = entry.getClassName().replace('$', '.');
+                    boolean recompiled = compiledTypes.stream().anyMatch(t -> typeName.equals(t) || typeName.startsWith(t + "."));
+                    if (!recompiled && processingEnv.getElementUtils().getTypeElement(typeName) != null) {
+                        previous.add(entry);
+                    }
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // no index from a previous compile
+        }
+        return previous;
+    }
+}
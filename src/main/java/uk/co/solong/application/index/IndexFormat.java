@@ -0,0 +1,53 @@
+package uk.co.solong.application.index;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Reads and writes the line based index format:
+ * <code>annotation|className|value</code>. Kept free of logging so that the
+ * annotation processor only needs this library on the processor path.
+ */
+final class IndexFormat {
+
+    static final char SEPARATOR = '|';
+
+    private IndexFormat() {
+    }
+
+    static List<ApplicationIndex.Entry> read(InputStream in) throws IOException {
+        List<ApplicationIndex.Entry> entries = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isEmpty() || line.charAt(0) == '#') {
+                continue;
+            }
+            int first = line.indexOf(SEPARATOR);
+            int second = first < 0 ? -1 : line.indexOf(SEPARATOR, first + 1);
+            if (second < 0) {
+                throw new IllegalArgumentException("Malformed application index line: " + line);
+            }
+            entries.add(new ApplicationIndex.Entry(line.substring(0, first), line.substring(first + 1, second), line.substring(second + 1)));
+        }
+        return entries;
+    }
+
+    static void write(Collection<ApplicationIndex.Entry> entries, OutputStream out) throws IOException {
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        writer.write("# Generated by " + ApplicationIndexProcessor.class.getName() + "\n");
+        for (ApplicationIndex.Entry entry : entries) {
+            writer.write(entry.getAnnotation() + SEPARATOR + entry.getClassName() + SEPARATOR + entry.getValue() + "\n");
+        }
+        writer.flush();
+    }
+}
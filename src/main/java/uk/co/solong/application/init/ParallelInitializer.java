@@ -0,0 +1,412 @@
+package uk.co.solong.application.init;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.BeanInitializationException;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * Calls {@link ParallelInitializingBean#initialize()} on every such singleton
+ * once the context has created them all, before any lifecycle bean is started.
+ * </p>
+ * <p>
+ * The order comes from the dependencies Spring recorded while creating the
+ * beans (injection points and <code>depends-on</code>), followed through any
+ * beans that are not {@link ParallelInitializingBean}s. Beans in a dependency
+ * cycle are initialised together, one after another in registration order.
+ * With {@value #PARALLEL_PROPERTY} set to <code>true</code>, independent beans
+ * are initialised concurrently on up to {@value #THREADS_PROPERTY} threads
+ * (default: one per core); otherwise they are initialised on the refreshing
+ * thread. Either way the first failure stops any further initialisation and
+ * fails the refresh; if several beans fail concurrently, the one registered
+ * first is reported. Singletons created later (lazy ones, for example) are
+ * initialised as soon as they are created.
+ * </p>
+ * <p>
+ * Spring creates singletons under a single lock, so bean construction itself
+ * is not parallelised: beans should do their slow work in
+ * {@link ParallelInitializingBean#initialize()}.
+ * </p>
+ * <p>
+ * Since that runs after every singleton has been created, a bean that is not
+ * a {@link ParallelInitializingBean} but depends on one is constructed and
+ * initialised (<code>@PostConstruct</code>, <code>afterPropertiesSet</code>)
+ * before its dependency's <code>initialize()</code>. Such beans are logged
+ * with a warning; they must not use the dependency until the context has
+ * been refreshed, or should implement {@link ParallelInitializingBean}
+ * themselves.
+ * </p>
+ *
+ * @author Daniel Burrell
+ *
+ */
+public class ParallelInitializer implements SmartInitializingSingleton, BeanPostProcessor, BeanFactoryAware {
+    private static final Logger logger = LoggerFactory.getLogger(ParallelInitializer.class);
+
+    public static final String PARALLEL_PROPERTY = "uk.co.solong.init.parallel";
+    public static final String THREADS_PROPERTY = "uk.co.solong.init.threads";
+    public static final String BEAN_NAME = ParallelInitializer.class.getName();
+
+    private final int threads;
+    private ConfigurableListableBeanFactory beanFactory;
+    private volatile boolean initialized;
+    private final Map<String, List<String>> earlyDependents = new LinkedHashMap<>();
+
+    public ParallelInitializer(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Expected at least 1 thread, but was " + threads);
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Registers a ParallelInitializer with the context, configured from the
+     * system properties. Must be called before the context is refreshed.
+     */
+    public static void configure(ConfigurableApplicationContext context) {
+        int threads = 1;
+        if (Boolean.getBoolean(PARALLEL_PROPERTY)) {
+            threads = Integer.getInteger(THREADS_PROPERTY, Runtime.getRuntime().availableProcessors());
+        }
+        int poolSize = threads;
+        RootBeanDefinition definition = new RootBeanDefinition(ParallelInitializer.class, () -> new ParallelInitializer(poolSize));
+        definition.setRole(BeanDefinition.ROLE_INFRASTRUCTURE);
+        ((BeanDefinitionRegistry) context.getBeanFactory()).registerBeanDefinition(BEAN_NAME, definition);
+    }
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+        this.beanFactory = (ConfigurableListableBeanFactory) beanFactory;
+    }
+
+    /**
+     * Warns about a bean that is initialised before the
+     * {@link ParallelInitializingBean}s it depends on.
+     */
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+        if (!initialized && !(bean instanceof ParallelInitializingBean)) {
+            List<String> uninitialised = new ArrayList<>();
+            for (String dependency : beanFactory.getDependenciesForBean(beanName)) {
+                if (beanFactory.containsSingleton(dependency) && beanFactory.getSingleton(dependency) instanceof ParallelInitializingBean) {
+                    uninitialised.add(dependency);
+                }
+            }
+            if (!uninitialised.isEmpty()) {
+                synchronized (earlyDependents) {
+                    earlyDependents.put(beanName, uninitialised);
+                }
+                logger.warn("Bean '{}' is initialised before {} it depends on, whose initialize() runs once every singleton has been created; "
+                        + "it should not use them before the context is refreshed, or implement ParallelInitializingBean", beanName, uninitialised);
+            }
+        }
+        return bean;
+    }
+
+    /**
+     * @return the beans that were initialised before the
+     * {@link ParallelInitializingBean}s they depend on, with those dependencies.
+     */
+    Map<String, List<String>> getEarlyDependents() {
+        synchronized (earlyDependents) {
+            return new LinkedHashMap<>(earlyDependents);
+        }
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+        if (initialized && bean instanceof ParallelInitializingBean && beanFactory.containsBeanDefinition(beanName) && beanFactory.isSingleton(beanName)) {
+            try {
+                ((ParallelInitializingBean) bean).initialize();
+            } catch (Exception e) {
+                throw new BeanInitializationException("Initialisation of bean '" + beanName + "' failed", e);
+            }
+        }
+        return bean;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        initialized = true;
+        List<String> names = new ArrayList<>();
+        for (String name : beanFactory.getBeanNamesForType(ParallelInitializingBean.class, false, false)) {
+            if (beanFactory.containsSingleton(name)) {
+                names.add(name);
+            }
+        }
+        if (names.isEmpty()) {
+            return;
+        }
+        List<Group> groups = plan(names);
+        long begin = System.nanoTime();
+        if (threads == 1) {
+            for (Group group : groups) {
+                group.run();
+            }
+        } else {
+            new Run(groups, Math.min(threads, groups.size())).execute();
+        }
+        logger.info("Initialised {} beans on {} thread(s) in {}ms", names.size(), threads, (System.nanoTime() - begin) / 1_000_000);
+    }
+
+    /**
+     * @return groups of beans (strongly connected components of the
+     * dependency graph) in a dependency respecting order, each knowing the
+     * groups it must wait for.
+     */
+    List<Group> plan(List<String> names) {
+        Map<String, Integer> position = new HashMap<>();
+        for (String name : names) {
+            position.put(name, position.size());
+        }
+        Map<String, Set<String>> edges = new LinkedHashMap<>();
+        for (String name : names) {
+            edges.put(name, initializingDependencies(name, position));
+        }
+        List<Group> groups = new Tarjan(names, edges).groups();
+        Map<String, Group> groupOf = new HashMap<>();
+        for (Group group : groups) {
+            for (String name : group.names) {
+                groupOf.put(name, group);
+            }
+        }
+        for (Group group : groups) {
+            for (String name : group.names) {
+                for (String dependency : edges.get(name)) {
+                    Group other = groupOf.get(dependency);
+                    if (other != group && group.dependencies.add(other)) {
+                        other.dependents.add(group);
+                    }
+                }
+            }
+        }
+        return groups;
+    }
+
+    /**
+     * @return the ParallelInitializingBeans the bean depends on, following
+     * dependencies through other beans.
+     */
+    private Set<String> initializingDependencies(String name, Map<String, Integer> initializing) {
+        Set<String> result = new TreeSet<>((a, b) -> initializing.get(a) - initializing.get(b));
+        Set<String> seen = new HashSet<>(Collections.singleton(name));
+        Deque<String> pending = new ArrayDeque<>(Collections.singleton(name));
+        while (!pending.isEmpty()) {
+            for (String dependency : beanFactory.getDependenciesForBean(pending.pop())) {
+                if (seen.add(dependency)) {
+                    if (initializing.containsKey(dependency)) {
+                        result.add(dependency);
+                    } else {
+                        pending.push(dependency);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Beans that are initialised together, one after another.
+     */
+    final class Group {
+        final List<String> names;
+        final int position;
+        final Set<Group> dependencies = new LinkedHashSet<>();
+        final Set<Group> dependents = new LinkedHashSet<>();
+
+        Group(List<String> names, int position) {
+            this.names = names;
+            this.position = position;
+        }
+
+        void run() {
+            for (String name : names) {
+                ParallelInitializingBean bean = beanFactory.getBean(name, ParallelInitializingBean.class);
+                long begin = System.nanoTime();
+                try {
+                    bean.initialize();
+                } catch (Exception e) {
+                    throw new BeanInitializationException("Initialisation of bean '" + name + "' failed", e);
+                }
+                logger.debug("Initialised {} in {}ms", name, (System.nanoTime() - begin) / 1_000_000);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return names.toString();
+        }
+    }
+
+    /**
+     * One parallel initialisation: groups are submitted as soon as everything
+     * they depend on has completed, in registration order, and nothing more is
+     * submitted once one has failed.
+     */
+    private static final class Run {
+        private final List<Group> groups;
+        private final ExecutorService executor;
+        private final Map<Group, Integer> waitingFor = new HashMap<>();
+        private final Map<Group, RuntimeException> failures = new HashMap<>();
+        private int running;
+        private int completed;
+
+        Run(List<Group> groups, int threads) {
+            this.groups = groups;
+            AtomicInteger count = new AtomicInteger();
+            this.executor = Executors.newFixedThreadPool(threads, r -> {
+                Thread thread = new Thread(r, "parallel-init-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        synchronized void execute() {
+            try {
+                for (Group group : groups) {
+                    waitingFor.put(group, group.dependencies.size());
+                }
+                List<Group> ready = new ArrayList<>(groups);
+                ready.sort((a, b) -> a.position - b.position);
+                for (Group group : ready) {
+                    if (group.dependencies.isEmpty()) {
+                        submit(group);
+                    }
+                }
+                while (running > 0) {
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BeanInitializationException("Interrupted while initialising beans", e);
+            } finally {
+                executor.shutdownNow();
+            }
+            if (!failures.isEmpty()) {
+                List<Group> failed = new ArrayList<>(failures.keySet());
+                failed.sort((a, b) -> a.position - b.position);
+                RuntimeException first = failures.get(failed.get(0));
+                for (Group group : failed.subList(1, failed.size())) {
+                    first.addSuppressed(failures.get(group));
+                }
+                throw first;
+            }
+            if (completed != groups.size()) {
+                throw new IllegalStateException("Only " + completed + " of " + groups.size() + " bean groups were initialised");
+            }
+        }
+
+        private void submit(Group group) {
+            running++;
+            executor.execute(() -> {
+                RuntimeException failure = null;
+                try {
+                    group.run();
+                } catch (RuntimeException | Error e) {
+                    failure = e instanceof RuntimeException ? (RuntimeException) e : new BeanInitializationException("Initialisation of " + group + " failed", e);
+                }
+                completed(group, failure);
+            });
+        }
+
+        private synchronized void completed(Group group, RuntimeException failure) {
+            running--;
+            if (failure != null) {
+                failures.put(group, failure);
+                executor.shutdownNow();
+            } else {
+                completed++;
+                if (failures.isEmpty()) {
+                    for (Group dependent : group.dependents) {
+                        int remaining = waitingFor.merge(dependent, -1, Integer::sum);
+                        if (remaining == 0) {
+                            submit(dependent);
+                        }
+                    }
+                }
+            }
+            notifyAll();
+        }
+    }
+
+    /**
+     * Tarjan's strongly connected components, which come out with every
+     * component after the components it depends on. Components, and the beans
+     * within them, are in registration order where dependencies allow.
+     */
+    private final class Tarjan {
+        private final List<String> names;
+        private final Map<String, Set<String>> edges;
+        private final Map<String, Integer> index = new HashMap<>();
+        private final Map<String, Integer> lowLink = new HashMap<>();
+        private final Deque<String> stack = new ArrayDeque<>();
+        private final Set<String> onStack = new HashSet<>();
+        private final List<Group> groups = new ArrayList<>();
+
+        Tarjan(List<String> names, Map<String, Set<String>> edges) {
+            this.names = names;
+            this.edges = edges;
+        }
+
+        List<Group> groups() {
+            for (String name : names) {
+                if (!index.containsKey(name)) {
+                    connect(name);
+                }
+            }
+            return groups;
+        }
+
+        private void connect(String name) {
+            index.put(name, index.size());
+            lowLink.put(name, index.get(name));
+            stack.push(name);
+            onStack.add(name);
+            for (String dependency : edges.get(name)) {
+                if (!index.containsKey(dependency)) {
+                    connect(dependency);
+                    lowLink.put(name, Math.min(lowLink.get(name), lowLink.get(dependency)));
+                } else if (onStack.contains(dependency)) {
+                    lowLink.put(name, Math.min(lowLink.get(name), index.get(dependency)));
+                }
+            }
+            if (lowLink.get(name).equals(index.get(name))) {
+                List<String> component = new ArrayList<>();
+                String member;
+                do {
+                    member = stack.pop();
+                    onStack.remove(member);
+                    component.add(member);
+                } while (!member.equals(name));
+                component.sort((a, b) -> names.indexOf(a) - names.indexOf(b));
+                groups.add(new Group(component, names.indexOf(component.get(0))));
+            }
+        }
+    }
+}
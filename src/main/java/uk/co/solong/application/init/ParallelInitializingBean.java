@@ -0,0 +1,29 @@
+package uk.co.solong.application.init;
+
+/**
+ * <p>
+ * Implemented by singletons with slow initialisation (connection pools, caches
+ * warmed from disk, schema loaders, ...) that can run concurrently with other
+ * such beans.
+ * </p>
+ * <p>
+ * Once every singleton has been created, {@link ParallelInitializer} calls
+ * {@link #initialize()} on each of them, only after it has been called on
+ * every bean they depend on, either directly or through other beans.
+ * </p>
+ * <p>
+ * Beans that depend on one without implementing this interface are created
+ * and initialised (constructor, <code>@PostConstruct</code>,
+ * <code>afterPropertiesSet</code>) before {@link #initialize()} has run, so
+ * they see it uninitialised; {@link ParallelInitializer} logs a warning for
+ * each. Have such beans implement this interface too, or only use the
+ * dependency once the context has been refreshed.
+ * </p>
+ *
+ * @author Daniel Burrell
+ *
+ */
+public interface ParallelInitializingBean {
+
+    void initialize() throws Exception;
+}
@@ -0,0 +1,52 @@
+package uk.co.solong.application.invoke;
+
+import java.lang.reflect.Method;
+
+/**
+ * Invoker for a zero-argument instance method, calling an implementation of
+ * {@link Function} or {@link Procedure} generated by LambdaMetafactory.
+ */
+final class GeneratedInvoker extends MethodInvoker {
+    private final Procedure procedure;
+    private final Function function;
+
+    GeneratedInvoker(Method method, Procedure procedure, Function function) {
+        super(method);
+        this.procedure = procedure;
+        this.function = function;
+    }
+
+    @Override
+    public Object invoke(Object target) throws Exception {
+        if (target == null) {
+            throw new NullPointerException("Cannot invoke " + getMethod() + " on null");
+        }
+        if (function != null) {
+            return function.call(target);
+        }
+        procedure.call(target);
+        return null;
+    }
+
+    @Override
+    public Object invoke(Object target, Object... args) throws Exception {
+        if (args.length != 0) {
+            throw new IllegalArgumentException(getMethod() + " takes no arguments, but was given " + args.length);
+        }
+        return invoke(target);
+    }
+
+    /**
+     * Implemented by generated classes calling a method that returns a value.
+     */
+    interface Function {
+        Object call(Object target) throws Exception;
+    }
+
+    /**
+     * Implemented by generated classes calling a void method.
+     */
+    interface Procedure {
+        void call(Object target) throws Exception;
+    }
+}
@@ -0,0 +1,25 @@
+package uk.co.solong.application.invoke;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Method;
+
+/**
+ * Invoker backed by a MethodHandle of type (Object, Object[])Object.
+ */
+final class HandleInvoker extends MethodInvoker {
+    private final MethodHandle handle;
+
+    HandleInvoker(Method method, MethodHandle handle) {
+        super(method);
+        this.handle = handle;
+    }
+
+    @Override
+    public Object invoke(Object target, Object... args) throws Exception {
+        try {
+            return (Object) handle.invokeExact(target, args);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package uk.co.solong.application.invoke;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>
+ * Resolves methods into cached {@link MethodInvoker}s, and finds annotated
+ * methods once per class.
+ * </p>
+ * <p>
+ * Public, zero-argument instance methods of public classes visible to this
+ * library get an invoker generated by {@link LambdaMetafactory}, which the JIT
+ * compiles like a direct call. Every other method gets an invoker backed by a
+ * {@link MethodHandle}. Caches are held per class, so they do not keep
+ * application class loaders alive.
+ * </p>
+ *
+ * @author Daniel Burrell
+ *
+ */
+public final class Invokers {
+
+    private static final ClassValue<Map<Method, MethodInvoker>> invokers = new ClassValue<Map<Method, MethodInvoker>>() {
+        @Override
+        protected Map<Method, MethodInvoker> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private static final ClassValue<Map<Class<? extends Annotation>, List<Method>>> annotated = new ClassValue<Map<Class<? extends Annotation>, List<Method>>>() {
+        @Override
+        protected Map<Class<? extends Annotation>, List<Method>> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private Invokers() {
+    }
+
+    /**
+     * @return the invoker for the method, created on first use.
+     */
+    public static MethodInvoker forMethod(Method method) {
+        return invokers.get(method.getDeclaringClass()).computeIfAbsent(method, Invokers::create);
+    }
+
+    /**
+     * @return the public methods of the type (including inherited ones)
+     * annotated with annotationType, in declaration order where the JVM
+     * preserves it.
+     */
+    public static List<Method> annotatedMethods(Class<?> type, Class<? extends Annotation> annotationType) {
+        return annotated.get(type).computeIfAbsent(annotationType, a -> {
+            List<Method> result = new ArrayList<>();
+            for (Method method : type.getMethods()) {
+                if (method.isAnnotationPresent(a)) {
+                    result.add(method);
+                }
+            }
+            return Collections.unmodifiableList(result);
+        });
+    }
+
+    private static MethodInvoker create(Method method) {
+        try {
+            if (canGenerate(method)) {
+                return generate(method);
+            }
+            return new HandleInvoker(method, handle(method));
+        } catch (Throwable t) {
+            throw new IllegalArgumentException("Unable to create an invoker for " + method, t);
+        }
+    }
+
+    private static boolean canGenerate(Method method) {
+        if (method.getParameterCount() != 0 || Modifier.isStatic(method.getModifiers()) || !Modifier.isPublic(method.getModifiers())) {
+            return false;
+        }
+        for (Class<?> c = method.getDeclaringClass(); c != null; c = c.getEnclosingClass()) {
+            if (!Modifier.isPublic(c.getModifiers())) {
+                return false;
+            }
+        }
+        try {
+            Class<?> type = method.getDeclaringClass();
+            return Class.forName(type.getName(), false, Invokers.class.getClassLoader()) == type;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    private static MethodInvoker generate(Method method) throws Throwable {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodHandle handle = lookup.unreflect(method);
+        Class<?> type = method.getDeclaringClass();
+        if (method.getReturnType() == void.class) {
+            CallSite site = LambdaMetafactory.metafactory(lookup, "call", MethodType.methodType(GeneratedInvoker.Procedure.class),
+                    MethodType.methodType(void.class, Object.class), handle, MethodType.methodType(void.class, type));
+            return new GeneratedInvoker(method, (GeneratedInvoker.Procedure) site.getTarget().invoke(), null);
+        }
+        CallSite site = LambdaMetafactory.metafactory(lookup, "call", MethodType.methodType(GeneratedInvoker.Function.class),
+                MethodType.methodType(Object.class, Object.class), handle, MethodType.methodType(Object.class, type));
+        return new GeneratedInvoker(method, null, (GeneratedInvoker.Function) site.getTarget().invoke());
+    }
+
+    private static MethodHandle handle(Method method) throws IllegalAccessException {
+        method.setAccessible(true);
+        MethodHandle handle = MethodHandles.lookup().unreflect(method).asFixedArity();
+        if (Modifier.isStatic(method.getModifiers())) {
+            handle = MethodHandles.dropArguments(handle, 0, Object.class);
+        }
+        return handle.asSpreader(Object[].class, method.getParameterCount())
+                .asType(MethodType.methodType(Object.class, Object.class, Object[].class));
+    }
+}
@@ -0,0 +1,62 @@
+package uk.co.solong.application.invoke;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+
+/**
+ * <p>
+ * Invokes one method, without the per-call cost of
+ * {@link Method#invoke(Object, Object...)}. Obtain instances from
+ * {@link Invokers}, which resolves each method once and caches the result.
+ * </p>
+ * <p>
+ * Unlike {@link Method#invoke(Object, Object...)}, exceptions thrown by the
+ * method are thrown as they are rather than wrapped in an
+ * InvocationTargetException. The target is ignored for static methods.
+ * </p>
+ *
+ * @author Daniel Burrell
+ *
+ */
+public abstract class MethodInvoker {
+    static final Object[] NO_ARGS = new Object[0];
+
+    private final Method method;
+
+    MethodInvoker(Method method) {
+        this.method = method;
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * Invokes a method that takes no arguments.
+     *
+     * @return the result, boxed, or null for a void method.
+     */
+    public Object invoke(Object target) throws Exception {
+        return invoke(target, NO_ARGS);
+    }
+
+    /**
+     * @return the result, boxed, or null for a void method.
+     */
+    public abstract Object invoke(Object target, Object... args) throws Exception;
+
+    static Exception rethrow(Throwable t) {
+        if (t instanceof Exception) {
+            return (Exception) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        return new UndeclaredThrowableException(t);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + method + "]";
+    }
+}
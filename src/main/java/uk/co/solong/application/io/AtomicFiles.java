@@ -0,0 +1,45 @@
+package uk.co.solong.application.io;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * <p>
+ * Writes files so that a concurrent reader (in this JVM or another) sees
+ * either the previous complete file or the new one, never a partial write:
+ * the content is written to a temporary file in the same directory, which is
+ * then atomically renamed over the target (or simply renamed, on file
+ * systems that cannot do so atomically).
+ * </p>
+ *
+ * @author Daniel Burrell
+ *
+ */
+public final class AtomicFiles {
+
+    private AtomicFiles() {
+    }
+
+    /**
+     * Replaces the file with the content, creating its directory if needed.
+     * The temporary file is removed if anything fails.
+     */
+    public static void write(Path file, byte[] content) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, content);
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
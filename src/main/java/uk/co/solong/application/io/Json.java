@@ -0,0 +1,82 @@
+package uk.co.solong.application.io;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * <p>
+ * Minimal JSON writer for the startup report and metrics snapshots, so that
+ * the library does not need a JSON dependency. Supports maps, collections,
+ * numbers, booleans and strings; anything else is written as its string
+ * value.
+ * </p>
+ *
+ * @author Daniel Burrell
+ *
+ */
+public final class Json {
+
+    private Json() {
+    }
+
+    public static void value(StringBuilder json, Object value) {
+        if (value == null) {
+            json.append("null");
+        } else if (value instanceof Number || value instanceof Boolean) {
+            json.append(value);
+        } else if (value instanceof Map) {
+            json.append('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                json.append(first ? "" : ",");
+                string(json, String.valueOf(entry.getKey()));
+                json.append(':');
+                value(json, entry.getValue());
+                first = false;
+            }
+            json.append('}');
+        } else if (value instanceof Collection) {
+            json.append('[');
+            boolean first = true;
+            for (Object element : (Collection<?>) value) {
+                json.append(first ? "" : ",");
+                value(json, element);
+                first = false;
+            }
+            json.append(']');
+        } else {
+            string(json, value.toString());
+        }
+    }
+
+    public static void string(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+}
@@ -0,0 +1,105 @@
+package uk.co.solong.application.io;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.Set;
+
+/**
+ * <p>
+ * Directories for caches whose content the application trusts (bean
+ * definitions, scan results): whoever can write to them chooses what the
+ * application loads, so only the user running the JVM may.
+ * </p>
+ * <p>
+ * The default directories are under user.home rather than the shared
+ * java.io.tmpdir, and are created readable and writable by their owner only
+ * on POSIX file systems. A directory owned by another user, or writable by
+ * its group or others, is not used, and neither is a file in it owned by
+ * another user.
+ * </p>
+ *
+ * @author Daniel Burrell
+ *
+ */
+public final class PrivateDirectories {
+    private static final Logger logger = LoggerFactory.getLogger(PrivateDirectories.class);
+
+    private static final Set<PosixFilePermission> OWNER_ONLY = PosixFilePermissions.fromString("rwx------");
+
+    private PrivateDirectories() {
+    }
+
+    /**
+     * @return the default directory for the named cache, under user.home.
+     */
+    public static Path defaultDirectory(String name) {
+        return Paths.get(System.getProperty("user.home"), ".cache", "uk.co.solong.application", name);
+    }
+
+    /**
+     * Creates the directory, owner-only, if it does not exist.
+     *
+     * @return the user running the JVM, or null (having logged why) if the
+     * directory cannot be created or does not belong to that user alone.
+     */
+    public static UserPrincipal prepare(Path directory) {
+        try {
+            boolean posix = Files.getFileAttributeView(directory.getFileSystem().getPath("/"), PosixFileAttributeView.class) != null;
+            if (!Files.isDirectory(directory)) {
+                if (posix) {
+                    Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(OWNER_ONLY));
+                } else {
+                    Files.createDirectories(directory);
+                }
+            }
+            UserPrincipal user = currentUser(directory);
+            if (!user.equals(Files.getOwner(directory))) {
+                logger.warn("Not using {}, it is owned by {} rather than {}", directory, Files.getOwner(directory).getName(), user.getName());
+                return null;
+            }
+            if (posix) {
+                Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(directory);
+                if (permissions.contains(PosixFilePermission.GROUP_WRITE) || permissions.contains(PosixFilePermission.OTHERS_WRITE)) {
+                    logger.warn("Not using {}, it is writable by other users ({})", directory, PosixFilePermissions.toString(permissions));
+                    return null;
+                }
+            }
+            return user;
+        } catch (IOException | UnsupportedOperationException | SecurityException e) {
+            logger.warn("Not using {}, it cannot be created or checked", directory, e);
+            return null;
+        }
+    }
+
+    /**
+     * @return whether the file is a regular file (not a link) owned by the user.
+     */
+    public static boolean isOwnedBy(Path file, UserPrincipal user) throws IOException {
+        return Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS)
+                && user.equals(Files.getOwner(file, LinkOption.NOFOLLOW_LINKS));
+    }
+
+    /**
+     * The owner of a file this JVM has just created, which unlike a lookup of
+     * user.name also works for users without a name (e.g. an arbitrary uid in
+     * a container). Fails if the directory is not writable by this user.
+     */
+    private static UserPrincipal currentUser(Path directory) throws IOException {
+        Path probe = Files.createTempFile(directory, "owner", ".tmp");
+        try {
+            return Files.getOwner(probe);
+        } finally {
+            Files.deleteIfExists(probe);
+        }
+    }
+}
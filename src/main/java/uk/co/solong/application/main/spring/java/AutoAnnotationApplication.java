@@ -3,14 +3,23 @@ package uk.co.solong.application.main.spring.java;
 import org.apache.commons.lang3.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
-import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
-import org.springframework.core.type.filter.AnnotationTypeFilter;
 import org.springframework.util.StringUtils;
 import uk.co.solong.application.annotations.RootConfiguration;
+import uk.co.solong.application.init.ParallelInitializer;
+import uk.co.solong.application.main.spring.scanner.AnnotatedClass;
+import uk.co.solong.application.main.spring.scanner.ApplicationScanResult;
+import uk.co.solong.application.main.spring.scanner.ApplicationScanner;
+import uk.co.solong.application.metrics.MetricsRegistry;
+import uk.co.solong.application.registration.GeneratedRegistrations;
+import uk.co.solong.application.shutdown.ShutdownCoordinator;
+import uk.co.solong.application.startup.ClassDataSharing;
+import uk.co.solong.application.startup.ClassPreloader;
+import uk.co.solong.application.startup.StartupRecorder;
+import uk.co.solong.application.startup.StartupTrim;
+import uk.co.solong.application.warmup.BackgroundWarmUp;
 
-import java.util.Set;
+import java.util.List;
 
 /**
  * <p>
@@ -36,36 +45,40 @@ import java.util.Set;
 public class AutoAnnotationApplication {
     private static final Logger logger = LoggerFactory.getLogger(AutoAnnotationApplication.class);
 
+    private StartupRecorder recorder;
+    private ClassPreloader preloader;
+
     public void run(String qualifiedRootConfiguration) {
+        recorder = StartupRecorder.start(AutoAnnotationApplication.class.getSimpleName());
         AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
 
         boolean started = false;
         try {
-            logger.info("Scanning for root configuration");
-            ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
-            scanner.addIncludeFilter(new AnnotationTypeFilter(RootConfiguration.class));
-            Set<BeanDefinition> bd = scanner.findCandidateComponents("");
+            ApplicationScanResult scanResult;
+            try (StartupRecorder.Phase phase = recorder.phase("scan")) {
+                scanResult = new ApplicationScanner().scan("");
+            }
+            preloader = ClassPreloader.start(AutoAnnotationApplication.class.getClassLoader(), scanResult.getClassNames());
+            List<AnnotatedClass> bd = scanResult.getRootConfigurations();
 
             Validate.isTrue(bd.size() >= 1, "Must have at least 1 Configuration class annotated with @RootConfiguration on the classpath");
 
             if (bd.size() == 1) {
                 logger.info("RootConfiguration found");
-                String value = bd.iterator().next().getBeanClassName();
+                String value = bd.get(0).getClassName();
                 started = startApp(context, value);
             } else {
                 logger.info("Multiple RootConfigurations found");
                 Validate.isTrue(!StringUtils.isEmpty(qualifiedRootConfiguration), "Multiple RootConfigurations found, but no qualifier specified");
                 boolean found = false;
-                while (bd.iterator().hasNext()) {
-                    String value = bd.iterator().next().getBeanClassName();
-                    RootConfiguration r = Class.forName(value).getAnnotation(RootConfiguration.class);
-                    if (qualifiedRootConfiguration.equals(r.name())) {
+                for (AnnotatedClass candidate : bd) {
+                    if (qualifiedRootConfiguration.equals(candidate.getName())) {
                         found = true;
-                        started = startApp(context, value);
+                        started = startApp(context, candidate.getClassName());
                         break;
                     }
                 }
-                Validate.isTrue(found, "Multiple RootConfigurations found, but none match the name: {}", qualifiedRootConfiguration);
+                Validate.isTrue(found, "Multiple RootConfigurations found, but none match the name: %s", qualifiedRootConfiguration);
             }
         } catch (RuntimeException e) {
             throw new RuntimeException("Application failed to start", e);
@@ -85,12 +98,29 @@ public class AutoAnnotationApplication {
     private boolean startApp(AnnotationConfigApplicationContext context, String rootConfiguration) throws ClassNotFoundException {
         boolean started;
         logger.info("Using RootConfiguration: {}", rootConfiguration);
-        ClassLoader classLoader = AutoAnnotationApplication.class.getClassLoader();
-        Class<?> aClass = classLoader.loadClass(rootConfiguration);
-        context.register(aClass);
-        context.registerShutdownHook();
-        context.refresh();
+        try (StartupRecorder.Phase phase = recorder.phase("register")) {
+            ClassLoader classLoader = AutoAnnotationApplication.class.getClassLoader();
+            Class<?> aClass = classLoader.loadClass(rootConfiguration);
+            recorder.detail("registration", GeneratedRegistrations.register(context, aClass) ? "generated" : "reflective");
+        }
+        recorder.instrument(context);
+        ParallelInitializer.configure(context);
+        MetricsRegistry.configure(context);
+        BackgroundWarmUp warmUp = BackgroundWarmUp.configure(context);
+        ShutdownCoordinator.install(context);
+        try (StartupRecorder.Phase phase = recorder.phase("refresh")) {
+            context.refresh();
+        }
         logger.info("Application started");
+        if (preloader != null) {
+            preloader.finish(recorder, context);
+        }
+        StartupTrim.trim(recorder, context);
+        recorder.finish();
+        ClassDataSharing.checkpoint();
+        if (warmUp != null) {
+            warmUp.start();
+        }
         started = true;
         return started;
     }
@@ -0,0 +1,166 @@
+package uk.co.solong.application.main.spring.java;
+
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.util.StringUtils;
+import uk.co.solong.application.annotations.Command;
+import uk.co.solong.application.annotations.CommandLine;
+import uk.co.solong.application.annotations.RootConfiguration;
+import uk.co.solong.application.commandline.CommandEngine;
+import uk.co.solong.application.commandline.CommandTable;
+import uk.co.solong.application.init.ParallelInitializer;
+import uk.co.solong.application.main.spring.scanner.AnnotatedClass;
+import uk.co.solong.application.main.spring.scanner.ApplicationScanResult;
+import uk.co.solong.application.main.spring.scanner.ApplicationScanner;
+import uk.co.solong.application.metrics.MetricsRegistry;
+import uk.co.solong.application.registration.GeneratedRegistrations;
+import uk.co.solong.application.shutdown.ShutdownCoordinator;
+import uk.co.solong.application.startup.ClassDataSharing;
+import uk.co.solong.application.startup.ClassPreloader;
+import uk.co.solong.application.startup.StartupRecorder;
+import uk.co.solong.application.startup.StartupTrim;
+import uk.co.solong.application.warmup.BackgroundWarmUp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * Use this class for command line tools: applications that are driven by
+ * commands typed at a prompt, or replayed from a file or stdin.
+ * </p>
+ * <p>
+ * Registers the {@link RootConfiguration} as {@link AutoAnnotationApplication}
+ * does, then builds a dispatch table of the {@link Command} methods of every
+ * bean annotated with {@link CommandLine} and hands it to a
+ * {@link CommandEngine}, which decides between the interactive prompt and
+ * batch mode.
+ * </p>
+ * <p>
+ * Multiple RootConfigurations candidates may be present on the classpath,
+ * provided that the first arg to the application is the qualifier for the
+ * {@link RootConfiguration} e.g: </p>
+ * <p>
+ * <code>@RootConfiguration(name="someQualifier")</code>
+ * </p>
+ *
+ * @author Daniel Burrell
+ *
+ */
+public class AutoAnnotationCommandLineApplication {
+    private static final Logger logger = LoggerFactory.getLogger(AutoAnnotationCommandLineApplication.class);
+
+    private ApplicationScanResult scanResult;
+    private StartupRecorder recorder;
+    private ClassPreloader preloader;
+
+    public void run(String qualifiedRootConfiguration) {
+        recorder = StartupRecorder.start(AutoAnnotationCommandLineApplication.class.getSimpleName());
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+
+        boolean started = false;
+        try {
+            try (StartupRecorder.Phase phase = recorder.phase("scan")) {
+                scanResult = new ApplicationScanner().scan(System.getProperty("uk.co.solong.package", ""));
+            }
+            preloader = ClassPreloader.start(AutoAnnotationCommandLineApplication.class.getClassLoader(), scanResult.getClassNames());
+            List<AnnotatedClass> bd = scanResult.getRootConfigurations();
+
+            Validate.isTrue(bd.size() >= 1, "Must have at least 1 Configuration class annotated with @RootConfiguration on the classpath");
+
+            if (bd.size() == 1) {
+                logger.info("RootConfiguration found");
+                started = startApp(context, bd.get(0).getClassName());
+            } else {
+                logger.info("Multiple RootConfigurations found");
+                Validate.isTrue(!StringUtils.isEmpty(qualifiedRootConfiguration), "Multiple RootConfigurations found, but no qualifier specified");
+                boolean found = false;
+                for (AnnotatedClass candidate : bd) {
+                    if (qualifiedRootConfiguration.equals(candidate.getName())) {
+                        found = true;
+                        started = startApp(context, candidate.getClassName());
+                        break;
+                    }
+                }
+                Validate.isTrue(found, "Multiple RootConfigurations found, but none match the name: %s", qualifiedRootConfiguration);
+            }
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Application failed to start", e);
+        } catch (Exception e) {
+            throw new RuntimeException("Application failed to start", e);
+        } finally {
+            if (!started) {
+                try {
+                    context.close();
+                } catch (Throwable e) {
+                    logger.error("Application has failed. Closing context failed too");
+                }
+            }
+        }
+    }
+
+    private boolean startApp(AnnotationConfigApplicationContext context, String rootConfiguration) throws ClassNotFoundException {
+        logger.info("Using RootConfiguration: {}", rootConfiguration);
+        try (StartupRecorder.Phase phase = recorder.phase("register")) {
+            ClassLoader classLoader = AutoAnnotationCommandLineApplication.class.getClassLoader();
+            Class<?> aClass = classLoader.loadClass(rootConfiguration);
+            recorder.detail("registration", GeneratedRegistrations.register(context, aClass) ? "generated" : "reflective");
+        }
+        recorder.instrument(context);
+        ParallelInitializer.configure(context);
+        MetricsRegistry.configure(context);
+        BackgroundWarmUp warmUp = BackgroundWarmUp.configure(context);
+        ShutdownCoordinator.install(context);
+        try (StartupRecorder.Phase phase = recorder.phase("refresh")) {
+            context.refresh();
+        }
+        List<AnnotatedClass> commandLines = scanResult.getCommandLines();
+        Validate.isTrue(commandLines.size() >= 1, "Must have at least 1 class annotated with @CommandLine on the classpath");
+        List<Object> beans = new ArrayList<>();
+        String prompt = null;
+        CommandTable table;
+        try (StartupRecorder.Phase phase = recorder.phase("commands")) {
+            for (AnnotatedClass commandLine : commandLines) {
+                Class<?> clazz = Class.forName(commandLine.getClassName());
+                beans.add(context.getBean(clazz));
+                if (prompt == null) {
+                    prompt = clazz.getAnnotation(CommandLine.class).prompt();
+                }
+            }
+            table = CommandTable.build(beans);
+        }
+        Validate.isTrue(table.size() >= 1, "Expected at least 1 @Command method on the @CommandLine beans");
+        logger.info("{} commands found", table.size());
+        recorder.detail("commands", table.size());
+        if (preloader != null) {
+            preloader.finish(recorder, context);
+        }
+        StartupTrim.trim(recorder, context);
+        recorder.finish();
+        ClassDataSharing.checkpoint();
+        if (warmUp != null) {
+            warmUp.start();
+        }
+
+        try {
+            CommandEngine.fromSystemProperties(table).run(prompt);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Could not run commands", e);
+        }
+        return true;
+    }
+
+    public static void main(String[] args) {
+        Validate.isTrue(args.length <= 1, "Too many arguments. Expected either 1 RootConfiguration name, or nothing");
+        if (args.length == 1) {
+            new AutoAnnotationCommandLineApplication().run(args[0]);
+        } else {
+            new AutoAnnotationCommandLineApplication().run("");
+        }
+    }
+
+}
@@ -3,22 +3,36 @@ package uk.co.solong.application.main.spring.java;
 import org.apache.commons.lang3.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
-import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
-import org.springframework.core.type.filter.AnnotationTypeFilter;
 import org.springframework.util.StringUtils;
 import uk.co.solong.application.annotations.MainClass;
 import uk.co.solong.application.annotations.MainMethod;
+import uk.co.solong.application.annotations.RestartPolicy;
 import uk.co.solong.application.annotations.RootConfiguration;
+import uk.co.solong.application.init.ParallelInitializer;
+import uk.co.solong.application.invoke.Invokers;
+import uk.co.solong.application.invoke.MethodInvoker;
+import uk.co.solong.application.main.spring.scanner.AnnotatedClass;
+import uk.co.solong.application.main.spring.scanner.ApplicationScanResult;
+import uk.co.solong.application.main.spring.scanner.ApplicationScanner;
+import uk.co.solong.application.metrics.MetricsRegistry;
+import uk.co.solong.application.registration.GeneratedRegistrations;
+import uk.co.solong.application.shutdown.ShutdownCoordinator;
+import uk.co.solong.application.startup.ClassDataSharing;
+import uk.co.solong.application.startup.ClassPreloader;
+import uk.co.solong.application.startup.StartupRecorder;
+import uk.co.solong.application.startup.StartupTrim;
+import uk.co.solong.application.supervisor.Worker;
+import uk.co.solong.application.supervisor.WorkerSupervisor;
+import uk.co.solong.application.warmup.BackgroundWarmUp;
 
 import java.lang.annotation.Annotation;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
-import java.util.Set;
 
 /**
  * <p>
@@ -35,7 +49,12 @@ import java.util.Set;
  * </p>
  * 
  * <p>
- * Exactly 1 {@link MainClass} annotated class may be present on the classpath.</p>
+ * A single {@link MainClass} with a single {@link MainMethod} is invoked on
+ * the launcher thread. Several of them (or any asking for restarts or
+ * concurrency) are run together as workers by a {@link WorkerSupervisor},
+ * and the launcher waits for them all to finish. If the context has no
+ * {@link MainClass} bean, the application fails to start (it used to close
+ * the context and return).</p>
  * <p>
  * Multiple RootConfigurations candidates may be present on the classpath,
  * provided that the first arg to the application is the qualifier for the
@@ -52,20 +71,25 @@ import java.util.Set;
 public class AutoAnnotationMethodApplication {
     private static final Logger logger = LoggerFactory.getLogger(AutoAnnotationMethodApplication.class);
     private Optional<String> packageScope;
+    private ApplicationScanResult scanResult;
+    private StartupRecorder recorder;
+    private ClassPreloader preloader;
     public void run(String qualifiedRootConfiguration) {
+        recorder = StartupRecorder.start(getClass().getSimpleName());
         AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
 
         boolean started = false;
         try {
             packageScope = Optional.ofNullable(System.getProperty("uk.co.solong.package"));
-            logger.info("Scanning for root configuration");
-            ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
-            scanner.addIncludeFilter(new AnnotationTypeFilter(RootConfiguration.class));
-            Set<BeanDefinition> bd = scanner.findCandidateComponents(packageScope.orElse(""));
+            try (StartupRecorder.Phase phase = recorder.phase("scan")) {
+                scanResult = new ApplicationScanner().scan(packageScope.orElse(""));
+            }
+            preloader = ClassPreloader.start(AutoAnnotationMethodApplication.class.getClassLoader(), scanResult.getClassNames());
+            List<AnnotatedClass> bd = scanResult.getRootConfigurations();
 
             if (bd.size() == 1) {
                 logger.info("RootConfiguration found");
-                String value = bd.iterator().next().getBeanClassName();
+                String value = bd.get(0).getClassName();
                 started = startApp(context, value);
             } else if (bd.size() > 1) {
                 logger.info("Multiple RootConfigurations found");
@@ -73,12 +97,10 @@ public class AutoAnnotationMethodApplication {
                     throw new RuntimeException("Multiple RootConfigurations found, but no qualifier specified");
                 }
                 boolean found = false;
-                while (bd.iterator().hasNext()) {
-                    String value = bd.iterator().next().getBeanClassName();
-                    RootConfiguration r = Class.forName(value).getAnnotation(RootConfiguration.class);
-                    if (qualifiedRootConfiguration.equals(r.name())) {
+                for (AnnotatedClass candidate : bd) {
+                    if (qualifiedRootConfiguration.equals(candidate.getName())) {
                         found = true;
-                        started = startApp(context, value);
+                        started = startApp(context, candidate.getClassName());
                         break;
                     }
                 }
@@ -106,40 +128,117 @@ public class AutoAnnotationMethodApplication {
     private boolean startApp(AnnotationConfigApplicationContext context, String rootConfiguration) throws ClassNotFoundException {
         boolean started = false;
         logger.info("Using RootConfiguration: {}", rootConfiguration);
-        ClassLoader classLoader = AutoAnnotationMethodApplication.class.getClassLoader();
-        Class<?> aClass = classLoader.loadClass(rootConfiguration);
-        context.register(aClass);
-        context.registerShutdownHook();
-        context.refresh();
+        try (StartupRecorder.Phase phase = recorder.phase("register")) {
+            ClassLoader classLoader = AutoAnnotationMethodApplication.class.getClassLoader();
+            Class<?> aClass = classLoader.loadClass(rootConfiguration);
+            recorder.detail("registration", GeneratedRegistrations.register(context, aClass) ? "generated" : "reflective");
+        }
+        recorder.instrument(context);
+        ParallelInitializer.configure(context);
+        MetricsRegistry metrics = MetricsRegistry.configure(context);
+        BackgroundWarmUp warmUp = BackgroundWarmUp.configure(context);
+        ShutdownCoordinator.install(context);
+        try (StartupRecorder.Phase phase = recorder.phase("refresh")) {
+            context.refresh();
+        }
         logger.info("Configuration complete");
         logger.info("Searching for main class");
-        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
-        scanner.addIncludeFilter(new AnnotationTypeFilter(MainClass.class));
-        Set<BeanDefinition> bd = scanner.findCandidateComponents(packageScope.orElse(""));
-        if (bd.size() == 1) {
-            logger.info("RootConfiguration found");
-            String value = bd.iterator().next().getBeanClassName();
-            Class<?> clazz = Class.forName(value);
-            Collection<Method> methods = methodWithAnnotation(clazz, MainMethod.class);
-            Validate.isTrue(methods.size() == 1, "Expected exactly 1 MainMethod, found {}", methods.size());
-
-            Object d = context.getBean(clazz);
-
-            Method m = methods.iterator().next();
-            Validate.isTrue(m.getParameterCount() == 0, "Expected 0-arg MainMethod, but found {} arguments", m.getParameterCount());
-            started = true;
+        List<Worker> workers = new ArrayList<>();
+        int mainClasses = 0;
+        try (StartupRecorder.Phase phase = recorder.phase("main")) {
+            for (AnnotatedClass mainClass : scanResult.getMainClasses()) {
+                Class<?> clazz = Class.forName(mainClass.getClassName());
+                // another RootConfiguration's @MainClass is not a bean of this context
+                if (context.getBeanNamesForType(clazz).length == 0) {
+                    logger.debug("Ignoring @MainClass {}, it is not a bean of this context", clazz.getName());
+                    continue;
+                }
+                mainClasses++;
+                addWorkers(context, clazz, context.getBean(clazz), workers);
+            }
+        }
+        Validate.isTrue(mainClasses >= 1, "Must have at least 1 bean annotated with @MainClass in the context");
+        logger.info("MainClass found");
+        recorder.detail("workers", workers.size());
+        started = true;
+        if (preloader != null) {
+            preloader.finish(recorder, context);
+        }
+        StartupTrim.trim(recorder, context);
+        recorder.finish();
+        if (!ClassDataSharing.isTrainingWithMain()) {
+            ClassDataSharing.checkpoint();
+        }
+        if (warmUp != null) {
+            warmUp.start();
+        }
 
+        Validate.isTrue(!workers.isEmpty(), "Expected at least 1 entry point on the @MainClass beans");
+        Worker only = workers.get(0);
+        if (workers.size() == 1 && only.getRestartPolicy() == RestartPolicy.NEVER && only.getConcurrency() == 1) {
             try {
-                m.invoke(d);
-            } catch (IllegalAccessException e) {
-                throw new RuntimeException("Could not invoke method", e);
-            } catch (InvocationTargetException e) {
+                only.getTask().call();
+            } catch (Exception e) {
                 throw new RuntimeException("Could not invoke zero argument method", e);
             }
+        } else {
+            WorkerSupervisor supervisor = createSupervisor();
+            workers.forEach(supervisor::add);
+            if (metrics != null) {
+                for (Worker worker : workers) {
+                    String prefix = "workers." + worker.getName();
+                    metrics.gauge(prefix + ".invocations", worker::getInvocations);
+                    metrics.gauge(prefix + ".running", worker::getRunning);
+                    metrics.gauge(prefix + ".failures", worker::getFailures);
+                    metrics.gauge(prefix + ".restarts", worker::getRestarts);
+                }
+            }
+            context.getBeanFactory().registerSingleton(WorkerSupervisor.BEAN_NAME, supervisor);
+            supervisor.start();
+            try {
+                supervisor.awaitTermination();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        ClassDataSharing.checkpoint();
+        return started;
+    }
 
+    /**
+     * Creates the supervisor that runs the workers when there is more than one
+     * (or they restart).
+     */
+    protected WorkerSupervisor createSupervisor() {
+        return WorkerSupervisor.fromSystemProperties();
+    }
 
+    /**
+     * Adds the workers for one {@link MainClass} bean: by default, one for each
+     * of its {@link MainMethod}s. Subclasses override this to run other kinds
+     * of entry point.
+     */
+    protected void addWorkers(ConfigurableApplicationContext context, Class<?> mainClass, Object bean, List<Worker> workers) {
+        Collection<Method> methods = methodWithAnnotation(mainClass, MainMethod.class);
+        Validate.isTrue(methods.size() >= 1, "Expected at least 1 MainMethod on %s", mainClass.getName());
+        MainClass annotation = mainClass.getAnnotation(MainClass.class);
+        String workerName = workerName(mainClass);
+        for (Method method : methods) {
+            Validate.isTrue(method.getParameterCount() == 0, "Expected 0-arg MainMethod, but found %s arguments", method.getParameterCount());
+            MethodInvoker invoker = Invokers.forMethod(method);
+            workers.add(annotation == null
+                    ? new Worker(workerName + "." + method.getName(), () -> invoker.invoke(bean), RestartPolicy.NEVER, 1, -1, 1000)
+                    : new Worker(workerName + "." + method.getName(), () -> invoker.invoke(bean), annotation.restart(), annotation.concurrency(),
+                    annotation.maxRestarts(), annotation.restartDelayMillis()));
         }
-        return started;
+    }
+
+    /**
+     * @return the {@link MainClass} name of the class, or its simple name.
+     */
+    protected static String workerName(Class<?> mainClass) {
+        MainClass annotation = mainClass.getAnnotation(MainClass.class);
+        return annotation == null || StringUtils.isEmpty(annotation.name()) ? mainClass.getSimpleName() : annotation.name();
     }
 
     public static void main(String[] args) {
@@ -151,6 +250,11 @@ public class AutoAnnotationMethodApplication {
         }
     }
 
+    /**
+     * @return the public methods of classType annotated with annotationClass,
+     * found once and cached by {@link Invokers}, in a new list the caller
+     * may modify.
+     */
     public static Collection<Method> methodWithAnnotation(Class<?> classType, Class<? extends Annotation> annotationClass) {
 
         if (classType == null)
@@ -159,13 +263,7 @@ public class AutoAnnotationMethodApplication {
         if (annotationClass == null)
             throw new NullPointerException("annotationClass must not be null");
 
-        Collection<Method> result = new ArrayList<Method>();
-        for (Method method : classType.getMethods()) {
-            if (method.isAnnotationPresent(annotationClass)) {
-                result.add(method);
-            }
-        }
-        return result;
+        return new ArrayList<>(Invokers.annotatedMethods(classType, annotationClass));
     }
 
 }
@@ -2,19 +2,59 @@ package uk.co.solong.application.main.spring.java;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.ConfigurableApplicationContext;
 import uk.co.solong.application.annotations.RootConfiguration;
+import uk.co.solong.application.init.ParallelInitializer;
+import uk.co.solong.application.main.spring.scanner.ScanProfile;
 import uk.co.solong.application.main.spring.scanner.SpringClassFinder;
+import uk.co.solong.application.metrics.MetricsRegistry;
+import uk.co.solong.application.shutdown.ShutdownCoordinator;
+import uk.co.solong.application.startup.ClassDataSharing;
+import uk.co.solong.application.startup.ClassPreloader;
+import uk.co.solong.application.startup.StartupRecorder;
+import uk.co.solong.application.startup.StartupTrim;
+import uk.co.solong.application.warmup.BackgroundWarmUp;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Recommended class to use as a Spring Main.
  *
- * To be used in conjunction with RootConfiguration
+ * To be used in conjunction with RootConfiguration. If several
+ * RootConfigurations are present, select one by name with the system property
+ * {@value #QUALIFIER_PROPERTY}. The scan can be narrowed with the system
+ * properties described in {@link ScanProfile}.
  */
 @SpringBootApplication
 public class AutoAnnotationSpringBootApplication {
+    public static final String QUALIFIER_PROPERTY = "uk.co.solong.qualifier";
 
     public static void main(String[] args) throws ClassNotFoundException {
-        SpringClassFinder finder = new SpringClassFinder();
-        SpringApplication.run(new Class[] {AutoAnnotationSpringBootApplication.class, finder.findAnnotatedClasses(RootConfiguration.class)}, args);
+        StartupRecorder recorder = StartupRecorder.start(AutoAnnotationSpringBootApplication.class.getSimpleName());
+        Class<?> rootConfiguration;
+        try (StartupRecorder.Phase phase = recorder.phase("scan")) {
+            SpringClassFinder finder = new SpringClassFinder();
+            rootConfiguration = finder.findAnnotatedClass(RootConfiguration.class, System.getProperty(QUALIFIER_PROPERTY), ScanProfile.fromSystemProperties());
+        }
+        ClassPreloader preloader = ClassPreloader.start(AutoAnnotationSpringBootApplication.class.getClassLoader(), Collections.singleton(rootConfiguration.getName()));
+        SpringApplication application = new SpringApplication(AutoAnnotationSpringBootApplication.class, rootConfiguration);
+        AtomicReference<BackgroundWarmUp> warmUp = new AtomicReference<>();
+        application.setRegisterShutdownHook(false);
+        application.addInitializers(recorder::instrument, ParallelInitializer::configure, MetricsRegistry::configure, ShutdownCoordinator::install,
+                context -> warmUp.set(BackgroundWarmUp.configure(context)));
+        ConfigurableApplicationContext context;
+        try (StartupRecorder.Phase phase = recorder.phase("run")) {
+            context = application.run(args);
+        }
+        if (preloader != null) {
+            preloader.finish(recorder, context);
+        }
+        StartupTrim.trim(recorder, context);
+        recorder.finish();
+        ClassDataSharing.checkpoint();
+        if (warmUp.get() != null) {
+            warmUp.get().start();
+        }
     }
 }
@@ -0,0 +1,292 @@
+package uk.co.solong.application.main.spring.java;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import uk.co.solong.application.annotations.RootConfiguration;
+import uk.co.solong.application.config.PropertyPlaceholderConfig;
+import uk.co.solong.application.init.ParallelInitializer;
+import uk.co.solong.application.main.spring.scanner.AnnotatedClass;
+import uk.co.solong.application.main.spring.scanner.ApplicationScanResult;
+import uk.co.solong.application.main.spring.scanner.ApplicationScanner;
+import uk.co.solong.application.metrics.MetricsRegistry;
+import uk.co.solong.application.registration.GeneratedRegistrations;
+import uk.co.solong.application.shutdown.ShutdownCoordinator;
+import uk.co.solong.application.startup.ClassDataSharing;
+import uk.co.solong.application.startup.ClassPreloader;
+import uk.co.solong.application.startup.StartupRecorder;
+import uk.co.solong.application.startup.StartupTrim;
+import uk.co.solong.application.warmup.BackgroundWarmUp;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * Use this to run several applications, each with its own
+ * {@link RootConfiguration}, in one JVM.
+ * </p>
+ * <p>
+ * A parent context is started first from the configuration classes listed
+ * (comma separated) in {@value #PARENT_PROPERTY}, e.g.
+ * {@link PropertyPlaceholderConfig}. Its beans, property sources and classes
+ * are shared by every application. Each RootConfiguration named in the
+ * arguments (or every one on the classpath, if there are no arguments) is
+ * then started as a child context of the parent, on
+ * {@value #THREADS_PROPERTY} threads (default one per processor).
+ * </p>
+ * <p>
+ * The children are isolated from each other: one failing to start is logged
+ * and closed without affecting the rest, and on shutdown the children are
+ * closed, most recently started first, before the parent. The startup report
+ * lists each child's startup time, its bean count and
+ * <code>threadAllocatedBytes</code>: the bytes allocated by the thread that
+ * refreshed it. That counts the bean definitions and singletons it created,
+ * but not what background threads (parallel initialisation, warm-up,
+ * preloading) allocated for it, nor how much of it is still live on the heap.
+ * </p>
+ *
+ * @author Daniel Burrell
+ *
+ */
+public class MultiRootApplication {
+    private static final Logger logger = LoggerFactory.getLogger(MultiRootApplication.class);
+
+    public static final String PARENT_PROPERTY = "uk.co.solong.multiroot.parent";
+    public static final String THREADS_PROPERTY = "uk.co.solong.multiroot.threads";
+
+    private final Map<String, ConfigurableApplicationContext> children = Collections.synchronizedMap(new LinkedHashMap<>());
+    private AnnotationConfigApplicationContext parent;
+    private StartupRecorder recorder;
+
+    public void run(String... rootConfigurationNames) {
+        recorder = StartupRecorder.start(MultiRootApplication.class.getSimpleName());
+        parent = new AnnotationConfigApplicationContext();
+
+        boolean started = false;
+        try {
+            ApplicationScanResult scanResult;
+            try (StartupRecorder.Phase phase = recorder.phase("scan")) {
+                scanResult = new ApplicationScanner().scan(System.getProperty("uk.co.solong.package", ""));
+            }
+            ClassPreloader preloader = ClassPreloader.start(MultiRootApplication.class.getClassLoader(), scanResult.getClassNames());
+            List<AnnotatedClass> roots = select(scanResult.getRootConfigurations(), rootConfigurationNames);
+            try (StartupRecorder.Phase phase = recorder.phase("parent")) {
+                for (String configuration : StringUtils.split(System.getProperty(PARENT_PROPERTY, ""), ", ")) {
+                    parent.register(MultiRootApplication.class.getClassLoader().loadClass(configuration));
+                }
+                recorder.instrument(parent);
+                ShutdownCoordinator.configure(parent);
+                parent.refresh();
+            }
+            List<Map<String, Object>> metrics = startChildren(roots);
+            recorder.detail("roots", metrics);
+            Validate.isTrue(!children.isEmpty(), "None of the %s RootConfigurations started", roots.size());
+            ShutdownCoordinator.registerShutdownHook(closeOrder());
+            logger.info("Started {} of {} RootConfigurations", children.size(), roots.size());
+            started = true;
+            List<ConfigurableApplicationContext> contexts = new ArrayList<>(children.values());
+            contexts.add(parent);
+            if (preloader != null) {
+                preloader.finish(recorder, contexts.toArray(new ConfigurableApplicationContext[0]));
+            }
+            StartupTrim.trim(recorder, contexts.toArray(new ConfigurableApplicationContext[0]));
+            recorder.finish();
+            ClassDataSharing.checkpoint();
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Application failed to start", e);
+        } catch (Exception e) {
+            throw new RuntimeException("Application failed to start", e);
+        } finally {
+            if (!started) {
+                try {
+                    close();
+                } catch (Throwable e) {
+                    logger.error("Application has failed. Closing context failed too");
+                }
+            }
+        }
+    }
+
+    /**
+     * Picks the RootConfigurations to start. Two with the same name would
+     * share a slot in the children, so that is rejected before any starts.
+     */
+    private static List<AnnotatedClass> select(List<AnnotatedClass> candidates, String[] names) {
+        Validate.isTrue(candidates.size() >= 1, "Must have at least 1 Configuration class annotated with @RootConfiguration on the classpath");
+        List<AnnotatedClass> selected = names.length == 0 ? candidates : named(candidates, names);
+        Set<String> seen = new HashSet<>();
+        for (AnnotatedClass root : selected) {
+            Validate.isTrue(seen.add(nameOf(root)), "More than one RootConfiguration is named %s", nameOf(root));
+        }
+        return selected;
+    }
+
+    private static List<AnnotatedClass> named(List<AnnotatedClass> candidates, String[] names) {
+        List<AnnotatedClass> selected = new ArrayList<>();
+        for (String name : names) {
+            boolean found = false;
+            for (AnnotatedClass candidate : candidates) {
+                if (name.equals(candidate.getName())) {
+                    selected.add(candidate);
+                    found = true;
+                }
+            }
+            Validate.isTrue(found, "No RootConfiguration matches the name: %s", name);
+        }
+        return selected;
+    }
+
+    private List<Map<String, Object>> startChildren(List<AnnotatedClass> roots) throws InterruptedException {
+        AtomicInteger count = new AtomicInteger();
+        int threads = Math.max(1, Math.min(roots.size(), Integer.getInteger(THREADS_PROPERTY, Runtime.getRuntime().availableProcessors())));
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> new Thread(r, "root-" + count.incrementAndGet()));
+        try {
+            List<Future<Map<String, Object>>> futures = new ArrayList<>();
+            for (AnnotatedClass root : roots) {
+                futures.add(executor.submit(() -> startChild(root)));
+            }
+            List<Map<String, Object>> metrics = new ArrayList<>();
+            for (Future<Map<String, Object>> future : futures) {
+                try {
+                    metrics.add(future.get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Unexpected failure starting a RootConfiguration", e.getCause());
+                }
+            }
+            return metrics;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Starts one child context, and measures it. Failures are logged and
+     * reported rather than thrown.
+     */
+    private Map<String, Object> startChild(AnnotatedClass root) {
+        String name = nameOf(root);
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("name", name);
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        AnnotationConfigApplicationContext child = new AnnotationConfigApplicationContext();
+        try (StartupRecorder.Phase phase = recorder.phase("root:" + name)) {
+            child.setParent(parent);
+            child.setDisplayName(name);
+            Class<?> aClass = MultiRootApplication.class.getClassLoader().loadClass(root.getClassName());
+            metrics.put("registration", GeneratedRegistrations.register(child, aClass) ? "generated" : "reflective");
+            ParallelInitializer.configure(child);
+            MetricsRegistry.configure(child, name);
+            ShutdownCoordinator.configure(child);
+            BackgroundWarmUp warmUp = BackgroundWarmUp.configure(child);
+            child.refresh();
+            children.put(name, child);
+            if (warmUp != null) {
+                warmUp.start();
+            }
+            metrics.put("status", "started");
+            metrics.put("beans", child.getBeanDefinitionCount());
+        } catch (Exception | LinkageError e) {
+            logger.error("RootConfiguration {} failed to start", name, e);
+            metrics.put("status", "failed: " + e);
+            try {
+                child.close();
+            } catch (RuntimeException closeFailure) {
+                logger.error("Closing RootConfiguration {} failed too", name);
+            }
+        }
+        metrics.put("millis", (System.nanoTime() - start) / 1_000_000);
+        if (allocatedBefore >= 0) {
+            metrics.put("threadAllocatedBytes", allocatedBytes() - allocatedBefore);
+        }
+        return metrics;
+    }
+
+    private static String nameOf(AnnotatedClass root) {
+        return StringUtils.isEmpty(root.getName()) ? root.getClassName() : root.getName();
+    }
+
+    /**
+     * @return the bytes allocated so far by the current thread, including
+     * garbage, or -1 if the JVM cannot tell.
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean hotSpot = (com.sun.management.ThreadMXBean) threads;
+            if (hotSpot.isThreadAllocatedMemorySupported() && hotSpot.isThreadAllocatedMemoryEnabled()) {
+                return hotSpot.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the running child contexts, by RootConfiguration name.
+     */
+    public Map<String, ConfigurableApplicationContext> getChildren() {
+        synchronized (children) {
+            return Collections.unmodifiableMap(new LinkedHashMap<>(children));
+        }
+    }
+
+    public ConfigurableApplicationContext getParent() {
+        return parent;
+    }
+
+    /**
+     * @return the running children, most recently started first, then the
+     * parent.
+     */
+    private ConfigurableApplicationContext[] closeOrder() {
+        List<ConfigurableApplicationContext> contexts;
+        synchronized (children) {
+            contexts = new ArrayList<>(children.values());
+        }
+        Collections.reverse(contexts);
+        contexts.add(parent);
+        return contexts.toArray(new ConfigurableApplicationContext[0]);
+    }
+
+    /**
+     * Closes every child, most recently started first, then the parent.
+     */
+    public void close() {
+        List<Map.Entry<String, ConfigurableApplicationContext>> started;
+        synchronized (children) {
+            started = new ArrayList<>(children.entrySet());
+            children.clear();
+        }
+        Collections.reverse(started);
+        for (Map.Entry<String, ConfigurableApplicationContext> child : started) {
+            try {
+                child.getValue().close();
+            } catch (RuntimeException e) {
+                logger.error("Closing RootConfiguration {} failed", child.getKey(), e);
+            }
+        }
+        if (parent != null) {
+            parent.close();
+        }
+    }
+
+    public static void main(String[] args) {
+        new MultiRootApplication().run(args);
+    }
+
+}
@@ -4,6 +4,17 @@ import org.apache.commons.lang3.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import uk.co.solong.application.init.ParallelInitializer;
+import uk.co.solong.application.metrics.MetricsRegistry;
+import uk.co.solong.application.registration.GeneratedRegistrations;
+import uk.co.solong.application.shutdown.ShutdownCoordinator;
+import uk.co.solong.application.startup.ClassDataSharing;
+import uk.co.solong.application.startup.ClassPreloader;
+import uk.co.solong.application.startup.StartupRecorder;
+import uk.co.solong.application.startup.StartupTrim;
+import uk.co.solong.application.warmup.BackgroundWarmUp;
+
+import java.util.Collections;
 
 /**
  * <p>
@@ -28,17 +39,37 @@ public class NamedAnnotationApplication {
     private static final Logger logger = LoggerFactory.getLogger(NamedAnnotationApplication.class);
 
     public void run(String configClass) {
+        StartupRecorder recorder = StartupRecorder.start(NamedAnnotationApplication.class.getSimpleName());
         AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
 
+        ClassPreloader preloader = ClassPreloader.start(NamedAnnotationApplication.class.getClassLoader(), Collections.singleton(configClass));
+
         boolean started = false;
         try {
-            ClassLoader classLoader = NamedAnnotationApplication.class.getClassLoader();
-            Class<?> aClass = classLoader.loadClass(configClass);
-            context.register(aClass);
-            context.registerShutdownHook();
-            context.refresh();
+            try (StartupRecorder.Phase phase = recorder.phase("register")) {
+                ClassLoader classLoader = NamedAnnotationApplication.class.getClassLoader();
+                Class<?> aClass = classLoader.loadClass(configClass);
+                recorder.detail("registration", GeneratedRegistrations.register(context, aClass) ? "generated" : "reflective");
+            }
+            recorder.instrument(context);
+            ParallelInitializer.configure(context);
+            MetricsRegistry.configure(context);
+            BackgroundWarmUp warmUp = BackgroundWarmUp.configure(context);
+            ShutdownCoordinator.install(context);
+            try (StartupRecorder.Phase phase = recorder.phase("refresh")) {
+                context.refresh();
+            }
             logger.info("Application started");
             started = true;
+            if (preloader != null) {
+                preloader.finish(recorder, context);
+            }
+            StartupTrim.trim(recorder, context);
+            recorder.finish();
+            ClassDataSharing.checkpoint();
+            if (warmUp != null) {
+                warmUp.start();
+            }
         } catch (RuntimeException e) {
             throw new RuntimeException("Application failed to start", e);
         } catch (Exception e) {
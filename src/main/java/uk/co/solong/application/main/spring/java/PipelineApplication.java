@@ -0,0 +1,107 @@
+package uk.co.solong.application.main.spring.java;
+
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.ContextClosedEvent;
+import uk.co.solong.application.annotations.MainClass;
+import uk.co.solong.application.annotations.RestartPolicy;
+import uk.co.solong.application.annotations.Sink;
+import uk.co.solong.application.annotations.Source;
+import uk.co.solong.application.annotations.Stage;
+import uk.co.solong.application.metrics.MetricsRegistry;
+import uk.co.solong.application.pipeline.Pipeline;
+import uk.co.solong.application.supervisor.Worker;
+import uk.co.solong.application.supervisor.WorkerSupervisor;
+
+import java.util.List;
+
+/**
+ * <p>
+ * Starts an application like {@link AutoAnnotationMethodApplication}, except
+ * that a {@link MainClass} bean with a {@link Source} method is run as a
+ * {@link Pipeline}: its source, {@link Stage}s and {@link Sink} are connected
+ * by bounded queues and each runs on its own threads, in batches. Other
+ * {@link MainClass} beans run their MainMethods as usual, and several
+ * pipelines run side by side as workers.
+ * </p>
+ * <p>
+ * On shutdown, a pipeline stops reading from its source and is given
+ * {@value #DRAIN_TIMEOUT_PROPERTY} milliseconds (default
+ * {@value WorkerSupervisor#DRAIN_TIMEOUT_PROPERTY}, or else 10s) to finish
+ * the items already read. It is then aborted, interrupting its steps, and
+ * given until {@value WorkerSupervisor#SHUTDOWN_TIMEOUT_PROPERTY}
+ * milliseconds (default 30s) have passed in total to stop, before the rest of
+ * the context is closed. This holds whether the pipeline runs on its own or
+ * as one of several workers.
+ * </p>
+ *
+ * @author Daniel Burrell
+ *
+ */
+public class PipelineApplication extends AutoAnnotationMethodApplication {
+    private static final Logger logger = LoggerFactory.getLogger(PipelineApplication.class);
+
+    public static final String DRAIN_TIMEOUT_PROPERTY = "uk.co.solong.pipeline.drainTimeout";
+
+    @Override
+    protected void addWorkers(ConfigurableApplicationContext context, Class<?> mainClass, Object bean, List<Worker> workers) {
+        if (methodWithAnnotation(mainClass, Source.class).isEmpty()) {
+            super.addWorkers(context, mainClass, bean, workers);
+            return;
+        }
+        ConfigurableListableBeanFactory beanFactory = context.getBeanFactory();
+        MetricsRegistry metrics = beanFactory.containsSingleton(MetricsRegistry.BEAN_NAME)
+                ? (MetricsRegistry) beanFactory.getSingleton(MetricsRegistry.BEAN_NAME) : null;
+        Pipeline pipeline = Pipeline.forBean(workerName(mainClass), bean, metrics,
+                () -> beanFactory.containsSingleton(WorkerSupervisor.BEAN_NAME)
+                        && ((WorkerSupervisor) beanFactory.getSingleton(WorkerSupervisor.BEAN_NAME)).isStopping());
+        long drainTimeout = drainTimeout();
+        long shutdownTimeout = Long.getLong(WorkerSupervisor.SHUTDOWN_TIMEOUT_PROPERTY, 30_000L);
+        context.addApplicationListener(event -> {
+            if (event instanceof ContextClosedEvent) {
+                pipeline.stop();
+                try {
+                    if (!pipeline.awaitTermination(drainTimeout)) {
+                        logger.info("Pipeline {} did not drain within {}ms, aborting it", pipeline.getName(), drainTimeout);
+                        pipeline.abort();
+                        if (!pipeline.awaitTermination(Math.max(0, shutdownTimeout - drainTimeout))) {
+                            logger.warn("Pipeline {} did not stop within {}ms", pipeline.getName(), shutdownTimeout);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    pipeline.abort();
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        workers.add(new Worker(pipeline.getName(), () -> {
+            pipeline.run();
+            return null;
+        }, RestartPolicy.NEVER, 1, -1, 1000));
+    }
+
+    /**
+     * When several pipelines (or other workers) run under the supervisor, it
+     * gives them the pipeline drain timeout before interrupting them.
+     */
+    @Override
+    protected WorkerSupervisor createSupervisor() {
+        return WorkerSupervisor.fromSystemProperties(drainTimeout());
+    }
+
+    private static long drainTimeout() {
+        return Long.getLong(DRAIN_TIMEOUT_PROPERTY, Long.getLong(WorkerSupervisor.DRAIN_TIMEOUT_PROPERTY, 10_000L));
+    }
+
+    public static void main(String[] args) {
+        Validate.isTrue(args.length <= 1, "Too many arguments. Expected either 1 RootConfiguration name, or nothing");
+        if (args.length == 1) {
+            new PipelineApplication().run(args[0]);
+        } else {
+            new PipelineApplication().run("");
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package uk.co.solong.application.main.spring.scanner;
+
+import java.util.Objects;
+
+/**
+ * A class carrying one of this library's annotations, together with the
+ * <code>name()</code> attribute of that annotation (empty if the annotation has
+ * no name or it was not set).
+ *
+ * @author Daniel Burrell
+ *
+ */
+public final class AnnotatedClass {
+    private final String className;
+    private final String name;
+
+    public AnnotatedClass(String className, String name) {
+        this.className = className;
+        this.name = name == null ? "" : name;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof AnnotatedClass)) {
+            return false;
+        }
+        AnnotatedClass other = (AnnotatedClass) o;
+        return className.equals(other.className) && name.equals(other.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(className, name);
+    }
+
+    @Override
+    public String toString() {
+        return name.isEmpty() ? className : className + "(" + name + ")";
+    }
+}
@@ -0,0 +1,96 @@
+package uk.co.solong.application.main.spring.scanner;
+
+import uk.co.solong.application.annotations.CommandLine;
+import uk.co.solong.application.annotations.MainClass;
+import uk.co.solong.application.annotations.MainMethod;
+import uk.co.solong.application.annotations.RootConfiguration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>
+ * Immutable result of a single pass over the classpath (or the
+ * application index) collecting every {@link RootConfiguration},
+ * {@link MainClass}, {@link MainMethod} and {@link CommandLine}.
+ * </p>
+ * <p>
+ * Obtain one from {@link ApplicationScanner}; the same instance is handed to
+ * every launcher that asks for the same package scope.
+ * </p>
+ *
+ * @author Daniel Burrell
+ *
+ */
+public final class ApplicationScanResult {
+    private final List<AnnotatedClass> rootConfigurations;
+    private final List<AnnotatedClass> mainClasses;
+    private final List<AnnotatedClass> commandLines;
+    private final Map<String, List<String>> mainMethods;
+    private final boolean fromIndex;
+
+    ApplicationScanResult(List<AnnotatedClass> rootConfigurations, List<AnnotatedClass> mainClasses, List<AnnotatedClass> commandLines,
+                          Map<String, List<String>> mainMethods, boolean fromIndex) {
+        this.rootConfigurations = Collections.unmodifiableList(new ArrayList<>(rootConfigurations));
+        this.mainClasses = Collections.unmodifiableList(new ArrayList<>(mainClasses));
+        this.commandLines = Collections.unmodifiableList(new ArrayList<>(commandLines));
+        Map<String, List<String>> methods = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> entry : mainMethods.entrySet()) {
+            methods.put(entry.getKey(), Collections.unmodifiableList(new ArrayList<>(entry.getValue())));
+        }
+        this.mainMethods = Collections.unmodifiableMap(methods);
+        this.fromIndex = fromIndex;
+    }
+
+    public List<AnnotatedClass> getRootConfigurations() {
+        return rootConfigurations;
+    }
+
+    public List<AnnotatedClass> getMainClasses() {
+        return mainClasses;
+    }
+
+    public List<AnnotatedClass> getCommandLines() {
+        return commandLines;
+    }
+
+    /**
+     * @return the names of the {@link MainMethod} annotated methods declared
+     * on the given class, or an empty list.
+     */
+    public List<String> getMainMethods(String className) {
+        List<String> methods = mainMethods.get(className);
+        return methods == null ? Collections.<String>emptyList() : methods;
+    }
+
+    /**
+     * @return every class name found, in discovery order.
+     */
+    public Set<String> getClassNames() {
+        Set<String> names = new LinkedHashSet<>();
+        for (AnnotatedClass c : rootConfigurations) {
+            names.add(c.getClassName());
+        }
+        for (AnnotatedClass c : mainClasses) {
+            names.add(c.getClassName());
+        }
+        for (AnnotatedClass c : commandLines) {
+            names.add(c.getClassName());
+        }
+        names.addAll(mainMethods.keySet());
+        return Collections.unmodifiableSet(names);
+    }
+
+    /**
+     * @return true if the result was read from the compile time application
+     * index rather than scanned.
+     */
+    public boolean isFromIndex() {
+        return fromIndex;
+    }
+}
@@ -0,0 +1,206 @@
+package uk.co.solong.application.main.spring.scanner;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.core.type.MethodMetadata;
+import org.springframework.core.type.classreading.CachingMetadataReaderFactory;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import uk.co.solong.application.annotations.CommandLine;
+import uk.co.solong.application.annotations.MainClass;
+import uk.co.solong.application.annotations.MainMethod;
+import uk.co.solong.application.annotations.RootConfiguration;
+import uk.co.solong.application.index.ApplicationIndex;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.annotation.Annotation;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * <p>
+ * Finds every {@link RootConfiguration}, {@link MainClass}, {@link MainMethod}
+ * and {@link CommandLine} in a single pass, preferring the compile time
+ * {@link ApplicationIndex}, then the {@link ScanCache}, and otherwise scanning
+ * the classpath once with all four filters. When the index is used, the
+ * classpath entries without one (e.g. jars built without the processor) are
+ * only scanned, or read from the cache, if
+ * {@value ApplicationIndex#SCAN_UNINDEXED_PROPERTY} is set.
+ * </p>
+ * <p>
+ * Qualifier names are read from the class file metadata, so no candidate is
+ * loaded. Results are cached per class loader and package scope, so every
+ * launcher in the JVM shares the same {@link ApplicationScanResult}.
+ * </p>
+ *
+ * @author Daniel Burrell
+ *
+ */
+public class ApplicationScanner {
+    private static final Logger logger = LoggerFactory.getLogger(ApplicationScanner.class);
+
+    private static final Map<ClassLoader, Map<String, ApplicationScanResult>> results = new WeakHashMap<>();
+
+    private final ClassLoader classLoader;
+
+    public ApplicationScanner() {
+        this(ApplicationScanner.class.getClassLoader());
+    }
+
+    public ApplicationScanner(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    /**
+     * @param packageScope the base package to search, or empty for the whole
+     *                     classpath.
+     */
+    public ApplicationScanResult scan(String packageScope) {
+        String scope = packageScope == null ? "" : packageScope;
+        synchronized (results) {
+            Map<String, ApplicationScanResult> byScope = results.computeIfAbsent(classLoader, k -> new HashMap<>());
+            ApplicationScanResult result = byScope.get(scope);
+            if (result == null) {
+                result = doScan(scope);
+                byScope.put(scope, result);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Discards every cached result, e.g. once startup has completed.
+     */
+    public static void clearCache() {
+        synchronized (results) {
+            results.clear();
+        }
+    }
+
+    private ApplicationScanResult doScan(String packageScope) {
+        ApplicationIndex index = ApplicationIndex.load(classLoader);
+        if (index != null && !index.getEntries(RootConfiguration.class, packageScope).isEmpty()) {
+            logger.info("Using application index");
+            List<ApplicationIndex.Entry> entries = new ArrayList<>();
+            for (ApplicationIndex.Entry entry : index.getEntries()) {
+                if (entry.isInPackage(packageScope)) {
+                    entries.add(entry);
+                }
+            }
+            List<Path> unindexed = index.getClasspathEntriesToScan();
+            if (!unindexed.isEmpty()) {
+                entries.addAll(cachedOrScanned(packageScope, unindexed));
+            }
+            return fromEntries(entries, true);
+        }
+        return fromEntries(cachedOrScanned(packageScope, null), false);
+    }
+
+    /**
+     * @param only the classpath entries to scan, or null for the whole
+     *             classpath.
+     */
+    private List<ApplicationIndex.Entry> cachedOrScanned(String packageScope, List<Path> only) {
+        ScanCache cache = ScanCache.forClassLoader(classLoader);
+        String key = ApplicationScanner.class.getName() + ":" + packageScope + (only == null ? "" : ":unindexed");
+        if (cache != null) {
+            List<ApplicationIndex.Entry> cached = cache.load(key);
+            if (cached != null) {
+                logger.info("Using cached classpath scan");
+                return cached;
+            }
+        }
+        List<ApplicationIndex.Entry> entries;
+        if (only == null) {
+            logger.info("Scanning classpath for application annotations");
+            entries = scanClasspath(packageScope, classLoader);
+        } else {
+            logger.info("Scanning {} classpath entries without an application index", only.size());
+            try (URLClassLoader unindexed = new URLClassLoader(toUrls(only), null)) {
+                entries = scanClasspath(packageScope, unindexed);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        if (cache != null) {
+            cache.store(key, entries);
+        }
+        return entries;
+    }
+
+    private static URL[] toUrls(List<Path> paths) throws MalformedURLException {
+        URL[] urls = new URL[paths.size()];
+        for (int i = 0; i < urls.length; i++) {
+            urls[i] = paths.get(i).toUri().toURL();
+        }
+        return urls;
+    }
+
+    private static ApplicationScanResult fromEntries(List<ApplicationIndex.Entry> entries, boolean fromIndex) {
+        List<AnnotatedClass> rootConfigurations = new ArrayList<>();
+        List<AnnotatedClass> mainClasses = new ArrayList<>();
+        List<AnnotatedClass> commandLines = new ArrayList<>();
+        Map<String, List<String>> mainMethods = new LinkedHashMap<>();
+        for (ApplicationIndex.Entry entry : entries) {
+            AnnotatedClass annotatedClass = new AnnotatedClass(entry.getClassName(), entry.getValue());
+            if (entry.getAnnotation().equals(RootConfiguration.class.getSimpleName())) {
+                rootConfigurations.add(annotatedClass);
+            } else if (entry.getAnnotation().equals(MainClass.class.getSimpleName())) {
+                mainClasses.add(annotatedClass);
+            } else if (entry.getAnnotation().equals(CommandLine.class.getSimpleName())) {
+                commandLines.add(annotatedClass);
+            } else if (entry.getAnnotation().equals(MainMethod.class.getSimpleName())) {
+                mainMethods.computeIfAbsent(entry.getClassName(), k -> new ArrayList<>()).add(entry.getValue());
+            }
+        }
+        return new ApplicationScanResult(rootConfigurations, mainClasses, commandLines, mainMethods, fromIndex);
+    }
+
+    /**
+     * Scans the class files visible to resources, resolving the superclasses
+     * and annotations they refer to through the scanner's own class loader.
+     */
+    private List<ApplicationIndex.Entry> scanClasspath(String packageScope, ClassLoader resources) {
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
+        scanner.setResourceLoader(new DefaultResourceLoader(resources));
+        scanner.setMetadataReaderFactory(new CachingMetadataReaderFactory(classLoader));
+        scanner.addIncludeFilter(new AnnotationTypeFilter(RootConfiguration.class));
+        scanner.addIncludeFilter(new AnnotationTypeFilter(MainClass.class));
+        scanner.addIncludeFilter(new AnnotationTypeFilter(CommandLine.class));
+        scanner.addIncludeFilter((reader, factory) -> reader.getAnnotationMetadata().hasAnnotatedMethods(MainMethod.class.getName()));
+
+        List<ApplicationIndex.Entry> entries = new ArrayList<>();
+        for (BeanDefinition candidate : scanner.findCandidateComponents(packageScope)) {
+            AnnotationMetadata metadata = ((AnnotatedBeanDefinition) candidate).getMetadata();
+            addIfAnnotated(metadata, RootConfiguration.class, entries);
+            addIfAnnotated(metadata, MainClass.class, entries);
+            addIfAnnotated(metadata, CommandLine.class, entries);
+            for (MethodMetadata method : metadata.getAnnotatedMethods(MainMethod.class.getName())) {
+                entries.add(new ApplicationIndex.Entry(MainMethod.class.getSimpleName(), metadata.getClassName(), method.getMethodName()));
+            }
+        }
+        scanner.clearCache();
+        return entries;
+    }
+
+    private static void addIfAnnotated(AnnotationMetadata metadata, Class<? extends Annotation> annotationType, List<ApplicationIndex.Entry> into) {
+        if (metadata.isAnnotated(annotationType.getName())) {
+            Map<String, Object> attributes = metadata.getAnnotationAttributes(annotationType.getName());
+            Object name = attributes == null ? null : attributes.get("name");
+            into.add(new ApplicationIndex.Entry(annotationType.getSimpleName(), metadata.getClassName(), name == null ? "" : name.toString()));
+        }
+    }
+}
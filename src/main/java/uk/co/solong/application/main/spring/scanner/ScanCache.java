@@ -0,0 +1,287 @@
+package uk.co.solong.application.main.spring.scanner;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.co.solong.application.index.ApplicationIndex;
+import uk.co.solong.application.io.AtomicFiles;
+import uk.co.solong.application.io.PrivateDirectories;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.UserPrincipal;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * <p>
+ * Persistent cache of classpath scan results, so that a restart with an
+ * unchanged classpath does not have to scan again.
+ * </p>
+ * <p>
+ * Each scan is stored in its own small binary file, named after the scan and
+ * the classpath entries, and stamped with a fingerprint of every entry's path,
+ * size and modification time (every file, for directories). The file is read
+ * into a heap buffer in one go, since mapping such small files would only
+ * leave a mapping behind until the buffer is collected, and is discarded as
+ * soon as the fingerprint no longer matches, i.e. whenever a jar changes.
+ * </p>
+ * <p>
+ * Size and modification time miss a jar that is rebuilt with the same size
+ * and a fixed timestamp, as reproducible builds and Jib images do. Set
+ * {@value #FINGERPRINT_PROPERTY} to <code>content</code> to fingerprint the
+ * content of every file instead, which reads the whole classpath on each
+ * start but is still cheaper than scanning it.
+ * </p>
+ * <p>
+ * Files are written to a temporary file and atomically renamed into place, so
+ * several JVMs run by the same user can share the cache directory: a reader
+ * sees either the previous complete file or the new one.
+ * </p>
+ * <p>
+ * Whoever can write to the cache chooses which RootConfiguration and
+ * MainClass the launchers find, so it lives in {@value #DIRECTORY_PROPERTY}
+ * (default: a directory under user.home), which must belong to the user
+ * running the JVM and be writable by that user only (see
+ * {@link PrivateDirectories}); files owned by anyone else are ignored. It can
+ * be turned off with {@value #DISABLED_PROPERTY}.
+ * </p>
+ *
+ * @author Daniel Burrell
+ *
+ */
+public final class ScanCache {
+    private static final Logger logger = LoggerFactory.getLogger(ScanCache.class);
+
+    public static final String DIRECTORY_PROPERTY = "uk.co.solong.scan.cache.dir";
+    public static final String DISABLED_PROPERTY = "uk.co.solong.scan.cache.disabled";
+    public static final String FINGERPRINT_PROPERTY = "uk.co.solong.scan.cache.fingerprint";
+
+    private static final int MAGIC = 0x534c5343;
+    private static final int VERSION = 1;
+
+    private final Path directory;
+    private final UserPrincipal owner;
+    private final List<String> classpath;
+    private final boolean contentFingerprint;
+    private byte[] fingerprint;
+
+    ScanCache(Path directory, UserPrincipal owner, List<String> classpath, boolean contentFingerprint) {
+        this.directory = directory;
+        this.owner = owner;
+        this.classpath = classpath;
+        this.contentFingerprint = contentFingerprint;
+    }
+
+    /**
+     * @return a cache for the classpath visible to the classLoader, or null if
+     * the cache has been disabled or its directory is not private to this user.
+     */
+    public static ScanCache forClassLoader(ClassLoader classLoader) {
+        if (Boolean.getBoolean(DISABLED_PROPERTY)) {
+            return null;
+        }
+        String configured = System.getProperty(DIRECTORY_PROPERTY);
+        Path directory = StringUtils.isBlank(configured)
+                ? PrivateDirectories.defaultDirectory("scan-cache")
+                : Paths.get(configured);
+        UserPrincipal owner = PrivateDirectories.prepare(directory);
+        if (owner == null) {
+            return null;
+        }
+        String fingerprint = System.getProperty(FINGERPRINT_PROPERTY, "stamp");
+        if (!"stamp".equals(fingerprint) && !"content".equals(fingerprint)) {
+            throw new IllegalArgumentException(FINGERPRINT_PROPERTY + " must be stamp or content, not " + fingerprint);
+        }
+        return new ScanCache(directory, owner, classpathOf(classLoader), "content".equals(fingerprint));
+    }
+
+    /**
+     * @return the cached entries for the key, or null if there are none or the
+     * classpath has changed since they were stored.
+     */
+    public List<ApplicationIndex.Entry> load(String key) {
+        Path file = fileFor(key);
+        try {
+            if (!PrivateDirectories.isOwnedBy(file, owner)) {
+                if (Files.exists(file, LinkOption.NOFOLLOW_LINKS)) {
+                    logger.warn("Ignoring scan cache {}, not a file owned by {}", file, owner.getName());
+                }
+                return null;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return null;
+            }
+            byte[] stored = new byte[buffer.get() & 0xff];
+            buffer.get(stored);
+            if (!Arrays.equals(stored, fingerprint())) {
+                logger.info("Classpath has changed, ignoring scan cache {}", file);
+                return null;
+            }
+            int count = buffer.getInt();
+            List<ApplicationIndex.Entry> entries = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                entries.add(new ApplicationIndex.Entry(readString(buffer), readString(buffer), readString(buffer)));
+            }
+            logger.debug("Loaded {} entries from scan cache {}", count, file);
+            return entries;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            logger.warn("Ignoring unreadable scan cache {}", file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Stores the entries for the key. Failures are logged and otherwise
+     * ignored, since the cache is only an optimisation.
+     */
+    public void store(String key, Collection<ApplicationIndex.Entry> entries) {
+        Path file = fileFor(key);
+        try {
+            AtomicFiles.write(file, encode(entries));
+        } catch (IOException | IllegalArgumentException e) {
+            logger.warn("Unable to write scan cache {}", file, e);
+        }
+    }
+
+    Path fileFor(String key) {
+        MessageDigest digest = sha256();
+        digest.update(key.getBytes(StandardCharsets.UTF_8));
+        for (String entry : classpath) {
+            digest.update(entry.getBytes(StandardCharsets.UTF_8));
+        }
+        return directory.resolve(hex(digest.digest()) + ".bin");
+    }
+
+    private byte[] encode(Collection<ApplicationIndex.Entry> entries) {
+        List<byte[]> strings = new ArrayList<>();
+        int size = 4 + 4 + 1 + fingerprint().length + 4;
+        for (ApplicationIndex.Entry entry : entries) {
+            for (String s : new String[]{entry.getAnnotation(), entry.getClassName(), entry.getValue()}) {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                if (bytes.length > 0xffff) {
+                    throw new IllegalArgumentException("Entry too long to cache: " + s);
+                }
+                strings.add(bytes);
+                size += 2 + bytes.length;
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC).putInt(VERSION);
+        buffer.put((byte) fingerprint().length).put(fingerprint());
+        buffer.putInt(entries.size());
+        for (byte[] bytes : strings) {
+            buffer.putShort((short) bytes.length).put(bytes);
+        }
+        return buffer.array();
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xffff;
+        ByteBuffer slice = buffer.slice();
+        slice.limit(length);
+        buffer.position(buffer.position() + length);
+        return StandardCharsets.UTF_8.decode(slice).toString();
+    }
+
+    private synchronized byte[] fingerprint() {
+        if (fingerprint == null) {
+            MessageDigest digest = sha256();
+            digest.update((byte) (contentFingerprint ? 1 : 0));
+            for (String entry : classpath) {
+                digest.update(entry.getBytes(StandardCharsets.UTF_8));
+                File file = new File(entry);
+                if (file.isDirectory()) {
+                    try (Stream<Path> files = Files.walk(file.toPath())) {
+                        files.filter(Files::isRegularFile).sorted().forEach(p -> update(digest, p.toFile()));
+                    } catch (IOException e) {
+                        digest.update((byte) 0);
+                    }
+                } else {
+                    update(digest, file);
+                }
+            }
+            fingerprint = digest.digest();
+        }
+        return fingerprint;
+    }
+
+    private void update(MessageDigest digest, File file) {
+        digest.update(file.getPath().getBytes(StandardCharsets.UTF_8));
+        if (contentFingerprint) {
+            byte[] buffer = new byte[8192];
+            try (InputStream in = Files.newInputStream(file.toPath())) {
+                for (int read; (read = in.read(buffer)) != -1; ) {
+                    digest.update(buffer, 0, read);
+                }
+            } catch (IOException e) {
+                digest.update((byte) 0);
+            }
+        } else {
+            ByteBuffer stamp = ByteBuffer.allocate(16);
+            stamp.putLong(file.length()).putLong(file.lastModified());
+            digest.update(stamp.array());
+        }
+    }
+
+    static List<String> classpathOf(ClassLoader classLoader) {
+        Set<String> entries = new LinkedHashSet<>();
+        for (String entry : System.getProperty("java.class.path", "").split(File.pathSeparator)) {
+            if (!entry.isEmpty()) {
+                entries.add(new File(entry).getAbsolutePath());
+            }
+        }
+        for (ClassLoader cl = classLoader; cl != null; cl = cl.getParent()) {
+            if (cl instanceof URLClassLoader) {
+                for (URL url : ((URLClassLoader) cl).getURLs()) {
+                    if ("file".equals(url.getProtocol())) {
+                        try {
+                            entries.add(new File(url.toURI()).getAbsolutePath());
+                        } catch (URISyntaxException | IllegalArgumentException e) {
+                            entries.add(url.toString());
+                        }
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(entries);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,120 @@
+package uk.co.solong.application.main.spring.scanner;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>
+ * Describes how {@link SpringClassFinder} scans the classpath: which packages
+ * are allowed and denied, and how many worker threads to scan with. Only class
+ * annotation information is ever requested.
+ * </p>
+ * <p>
+ * {@link #fromSystemProperties()} reads the following (comma separated)
+ * system properties:
+ * </p>
+ * <ol>
+ * <li>{@value #ALLOW_PROPERTY} - packages to scan, the whole classpath if unset</li>
+ * <li>{@value #DENY_PROPERTY} - packages to skip, in addition to org.springframework and org.jboss</li>
+ * <li>{@value #THREADS_PROPERTY} - worker threads, the number of cores if unset</li>
+ * </ol>
+ * <p>
+ * Instances are immutable.
+ * </p>
+ *
+ * @author Daniel Burrell
+ *
+ */
+public final class ScanProfile {
+    public static final String ALLOW_PROPERTY = "uk.co.solong.package";
+    public static final String DENY_PROPERTY = "uk.co.solong.package.deny";
+    public static final String THREADS_PROPERTY = "uk.co.solong.scan.threads";
+
+    private static final List<String> DEFAULT_DENY = Arrays.asList("org.springframework", "org.jboss");
+
+    private final List<String> allowPackages;
+    private final List<String> denyPackages;
+    private final int threads;
+    private final ClassLoader classLoader;
+
+    private ScanProfile(List<String> allowPackages, List<String> denyPackages, int threads, ClassLoader classLoader) {
+        this.allowPackages = Collections.unmodifiableList(new ArrayList<>(allowPackages));
+        this.denyPackages = Collections.unmodifiableList(new ArrayList<>(denyPackages));
+        this.threads = threads;
+        this.classLoader = classLoader;
+    }
+
+    /**
+     * @return a profile scanning the whole classpath (less the default deny
+     * list) on one thread per core.
+     */
+    public static ScanProfile defaults() {
+        return new ScanProfile(Collections.<String>emptyList(), DEFAULT_DENY, Runtime.getRuntime().availableProcessors(), null);
+    }
+
+    public static ScanProfile fromSystemProperties() {
+        List<String> deny = new ArrayList<>(DEFAULT_DENY);
+        deny.addAll(split(System.getProperty(DENY_PROPERTY)));
+        String threads = System.getProperty(THREADS_PROPERTY);
+        int threadCount = StringUtils.isBlank(threads) ? Runtime.getRuntime().availableProcessors() : Integer.parseInt(threads.trim());
+        return new ScanProfile(split(System.getProperty(ALLOW_PROPERTY)), deny, 1, null).withThreads(threadCount);
+    }
+
+    public ScanProfile withAllowPackages(String... packages) {
+        return new ScanProfile(split(StringUtils.join(packages, ',')), denyPackages, threads, classLoader);
+    }
+
+    public ScanProfile withDenyPackages(String... packages) {
+        return new ScanProfile(allowPackages, split(StringUtils.join(packages, ',')), threads, classLoader);
+    }
+
+    public ScanProfile withThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Scan threads must be at least 1, but was " + threads);
+        }
+        return new ScanProfile(allowPackages, denyPackages, threads, classLoader);
+    }
+
+    /**
+     * Scan only this class loader (and its parents) instead of the context
+     * and system class loaders.
+     */
+    public ScanProfile withClassLoader(ClassLoader classLoader) {
+        return new ScanProfile(allowPackages, denyPackages, threads, classLoader);
+    }
+
+    public List<String> getAllowPackages() {
+        return allowPackages;
+    }
+
+    public List<String> getDenyPackages() {
+        return denyPackages;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @return the class loader to scan, or null for the default class loaders.
+     */
+    public ClassLoader getClassLoader() {
+        return classLoader;
+    }
+
+    private static List<String> split(String packages) {
+        List<String> result = new ArrayList<>();
+        if (packages != null) {
+            for (String p : packages.split(",")) {
+                if (!StringUtils.isBlank(p)) {
+                    result.add(p.trim());
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -1,12 +1,19 @@
 package uk.co.solong.application.main.spring.scanner;
 
+import io.github.classgraph.AnnotationInfo;
+import io.github.classgraph.AnnotationParameterValue;
 import io.github.classgraph.ClassGraph;
 import io.github.classgraph.ClassInfo;
 import io.github.classgraph.ScanResult;
 import org.apache.commons.lang3.StringUtils;
-import org.springframework.beans.factory.config.BeanDefinition;
+import uk.co.solong.application.index.ApplicationIndex;
 
+import java.io.File;
 import java.lang.annotation.Annotation;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 public class SpringClassFinder {
 
@@ -15,23 +22,162 @@ public class SpringClassFinder {
     }
 
     public Class<?> findAnnotatedClasses(Class<? extends Annotation> annotationType, String whitelistPackages) throws ClassNotFoundException {
+        ScanProfile profile = ScanProfile.defaults();
+        if (!StringUtils.isBlank(whitelistPackages)) {
+            profile = profile.withAllowPackages(whitelistPackages);
+        }
+        List<AnnotatedClass> candidates = findAllAnnotatedClasses(annotationType, profile);
+        if (candidates.isEmpty()) {
+            throw new RuntimeException("Could not find any class annotated with @" + annotationType.getSimpleName());
+        }
+        return load(candidates.get(0), profile);
+    }
+
+    /**
+     * Finds the single class annotated with annotationType, or if there are
+     * several, the one whose <code>name()</code> matches the qualifier.
+     */
+    public Class<?> findAnnotatedClass(Class<? extends Annotation> annotationType, String qualifier, ScanProfile profile) throws ClassNotFoundException {
+        List<AnnotatedClass> candidates = findAllAnnotatedClasses(annotationType, profile);
+        if (candidates.isEmpty()) {
+            throw new RuntimeException("Could not find any class annotated with @" + annotationType.getSimpleName());
+        }
+        if (candidates.size() == 1) {
+            return load(candidates.get(0), profile);
+        }
+        if (StringUtils.isEmpty(qualifier)) {
+            throw new RuntimeException("Multiple classes annotated with @" + annotationType.getSimpleName() + " found, but no qualifier specified: " + candidates);
+        }
+        for (AnnotatedClass candidate : candidates) {
+            if (qualifier.equals(candidate.getName())) {
+                return load(candidate, profile);
+            }
+        }
+        throw new RuntimeException("Multiple classes annotated with @" + annotationType.getSimpleName() + " found, but none match the name: " + qualifier);
+    }
+
+    /**
+     * Returns every class annotated with annotationType, together with the
+     * annotation's <code>name()</code> (if it has one). Reads the application
+     * index if it lists the annotation, then the {@link ScanCache}, and
+     * otherwise scans according to the profile. When the index is used, the
+     * classpath entries without one are only read from the cache or scanned
+     * if {@value ApplicationIndex#SCAN_UNINDEXED_PROPERTY} is set.
+     */
+    public List<AnnotatedClass> findAllAnnotatedClasses(Class<? extends Annotation> annotationType, ScanProfile profile) {
+        ApplicationIndex index = ApplicationIndex.load(classLoaderOf(profile));
+        List<AnnotatedClass> indexed = fromIndex(index, annotationType, profile);
+        if (!indexed.isEmpty()) {
+            List<Path> unindexed = index.getClasspathEntriesToScan();
+            if (unindexed.isEmpty()) {
+                return indexed;
+            }
+            List<AnnotatedClass> result = new ArrayList<>(indexed);
+            result.addAll(cachedOrScanned(annotationType, profile, unindexed));
+            return Collections.unmodifiableList(result);
+        }
+        return cachedOrScanned(annotationType, profile, null);
+    }
+
+    /**
+     * @param only the classpath entries to scan, or null for the whole
+     *             classpath.
+     */
+    private List<AnnotatedClass> cachedOrScanned(Class<? extends Annotation> annotationType, ScanProfile profile, List<Path> only) {
+        ScanCache cache = ScanCache.forClassLoader(classLoaderOf(profile));
+        String key = SpringClassFinder.class.getName() + ":" + annotationType.getName() + ":" + profile.getAllowPackages() + ":" + profile.getDenyPackages()
+                + (only == null ? "" : ":unindexed");
+        if (cache != null) {
+            List<ApplicationIndex.Entry> cached = cache.load(key);
+            if (cached != null) {
+                List<AnnotatedClass> result = new ArrayList<>();
+                for (ApplicationIndex.Entry entry : cached) {
+                    result.add(new AnnotatedClass(entry.getClassName(), entry.getValue()));
+                }
+                return Collections.unmodifiableList(result);
+            }
+        }
+        List<AnnotatedClass> result = new ArrayList<>();
+        List<ApplicationIndex.Entry> entries = new ArrayList<>();
+        try (ScanResult scanResult = extractGraph(profile, only)) {                   // Start the scan
+            for (ClassInfo classInfo : scanResult.getClassesWithAnnotation(annotationType.getName())) {
+                AnnotatedClass annotatedClass = new AnnotatedClass(classInfo.getName(), nameOf(classInfo, annotationType));
+                result.add(annotatedClass);
+                entries.add(new ApplicationIndex.Entry(annotationType.getSimpleName(), annotatedClass.getClassName(), annotatedClass.getName()));
+            }
+        }
+        if (cache != null) {
+            cache.store(key, entries);
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Loads the class from the profile's class loader, which is the one that
+     * found it, without initialising it.
+     */
+    private static Class<?> load(AnnotatedClass candidate, ScanProfile profile) throws ClassNotFoundException {
+        return Class.forName(candidate.getClassName(), false, classLoaderOf(profile));
+    }
 
-        try (ScanResult scanResult = extractGraph(whitelistPackages)) {                   // Start the scan
-            for (ClassInfo routeClassInfo : scanResult.getClassesWithAnnotation(annotationType.getCanonicalName())) {
-                return Class.forName(routeClassInfo.getName());
+    private static ClassLoader classLoaderOf(ScanProfile profile) {
+        return profile.getClassLoader() == null ? SpringClassFinder.class.getClassLoader() : profile.getClassLoader();
+    }
+
+    private List<AnnotatedClass> fromIndex(ApplicationIndex index, Class<? extends Annotation> annotationType, ScanProfile profile) {
+        List<AnnotatedClass> result = new ArrayList<>();
+        if (index == null) {
+            return result;
+        }
+        List<String> scopes = profile.getAllowPackages().isEmpty() ? Collections.singletonList("") : profile.getAllowPackages();
+        for (String scope : scopes) {
+            for (ApplicationIndex.Entry entry : index.getEntries(annotationType, scope)) {
+                if (!isDenied(entry.getClassName(), profile)) {
+                    result.add(new AnnotatedClass(entry.getClassName(), entry.getValue()));
+                }
             }
         }
-        throw new RuntimeException("Could not find any class annotated with @RootConfiguration");
+        return result;
     }
 
-    private ScanResult extractGraph(String whitelistPackages) {
+    private static boolean isDenied(String className, ScanProfile profile) {
+        for (String denied : profile.getDenyPackages()) {
+            if (className.startsWith(denied + ".")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String nameOf(ClassInfo classInfo, Class<? extends Annotation> annotationType) {
+        AnnotationInfo annotationInfo = classInfo.getAnnotationInfo().get(annotationType.getName());
+        if (annotationInfo != null) {
+            for (AnnotationParameterValue value : annotationInfo.getParameterValues()) {
+                if ("name".equals(value.getName()) && value.getValue() != null) {
+                    return value.getValue().toString();
+                }
+            }
+        }
+        return "";
+    }
+
+    private ScanResult extractGraph(ScanProfile profile, List<Path> only) {
         ClassGraph classGraph = new ClassGraph();
-        classGraph.enableAllInfo();
-        if (!StringUtils.isBlank(whitelistPackages)) {
-            classGraph.whitelistPackages(whitelistPackages);
+        classGraph.enableClassInfo().enableAnnotationInfo();
+        if (!profile.getAllowPackages().isEmpty()) {
+            classGraph.whitelistPackages(profile.getAllowPackages().toArray(new String[0]));
+        }
+        if (only != null) {
+            StringBuilder classpath = new StringBuilder();
+            for (Path entry : only) {
+                classpath.append(classpath.length() == 0 ? "" : File.pathSeparator).append(entry);
+            }
+            classGraph.overrideClasspath(classpath.toString());
+        } else if (profile.getClassLoader() != null) {
+            classGraph.overrideClassLoaders(profile.getClassLoader());
         }
-        return classGraph.blacklistPackages("org.springframework", "org.jboss")
-        .scan();
+        return classGraph.blacklistPackages(profile.getDenyPackages().toArray(new String[0]))
+        .scan(profile.getThreads());
 
     }
 }
@@ -0,0 +1,496 @@
+package uk.co.solong.application.main.spring.xml;
+
+import org.springframework.beans.BeanMetadataAttributeAccessor;
+import org.springframework.beans.MutablePropertyValues;
+import org.springframework.beans.PropertyValue;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinitionHolder;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
+import org.springframework.beans.factory.config.RuntimeBeanNameReference;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.config.TypedStringValue;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.beans.factory.support.AutowireCandidateQualifier;
+import org.springframework.beans.factory.support.GenericBeanDefinition;
+import org.springframework.beans.factory.support.LookupOverride;
+import org.springframework.beans.factory.support.ManagedArray;
+import org.springframework.beans.factory.support.ManagedList;
+import org.springframework.beans.factory.support.ManagedMap;
+import org.springframework.beans.factory.support.ManagedProperties;
+import org.springframework.beans.factory.support.ManagedSet;
+import org.springframework.beans.factory.support.MethodOverride;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * Compact binary encoding of the bean definitions an XML file produces: every
+ * setting of an {@link AbstractBeanDefinition}, and values built from strings,
+ * bean references, inner beans and managed collections, each written as a
+ * one byte tag followed by its fields. Strings are length-prefixed UTF-8 (-1
+ * for null), and names that repeat (class names, bean references, property
+ * names) are written once and then referred to by index.
+ * </p>
+ * <p>
+ * Anything else (definitions with an instance supplier or replaced methods,
+ * or values that are already objects) cannot be encoded, and {@link #encode} throws an
+ * {@link IllegalArgumentException}, so the file is simply not cached.
+ * </p>
+ */
+final class BeanDefinitionCodec {
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte TYPED_STRING = 2;
+    private static final byte REFERENCE = 3;
+    private static final byte NAME_REFERENCE = 4;
+    private static final byte INNER_BEAN = 5;
+    private static final byte LIST = 6;
+    private static final byte SET = 7;
+    private static final byte MAP = 8;
+    private static final byte PROPERTIES = 9;
+    private static final byte ARRAY = 10;
+
+    private BeanDefinitionCodec() {
+    }
+
+    static byte[] encode(List<BeanDefinitionHolder> holders) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            Writer writer = new Writer(new DataOutputStream(bytes));
+            writer.out.writeInt(holders.size());
+            for (BeanDefinitionHolder holder : holders) {
+                writer.holder(holder);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static List<BeanDefinitionHolder> decode(byte[] bytes, int offset, int length) throws IOException {
+        Reader reader = new Reader(new ByteArrayInputStream(bytes, offset, length));
+        int count = reader.length();
+        List<BeanDefinitionHolder> holders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            holders.add(reader.holder());
+        }
+        return holders;
+    }
+
+    private static final class Writer {
+        private final DataOutput out;
+        private final Map<String, Integer> strings = new HashMap<>();
+
+        Writer(DataOutput out) {
+            this.out = out;
+        }
+
+        void holder(BeanDefinitionHolder holder) throws IOException {
+            string(holder.getBeanName());
+            String[] aliases = holder.getAliases();
+            strings(aliases == null ? new String[0] : aliases);
+            definition(holder.getBeanDefinition());
+        }
+
+        void definition(BeanDefinition beanDefinition) throws IOException {
+            if (beanDefinition.getClass() != GenericBeanDefinition.class && beanDefinition.getClass() != RootBeanDefinition.class) {
+                throw new IllegalArgumentException("Cannot cache a " + beanDefinition.getClass().getName());
+            }
+            AbstractBeanDefinition bd = (AbstractBeanDefinition) beanDefinition;
+            if (bd.getInstanceSupplier() != null || (bd instanceof RootBeanDefinition && ((RootBeanDefinition) bd).getDecoratedDefinition() != null)) {
+                throw new IllegalArgumentException("Cannot cache a definition with runtime state");
+            }
+            string(bd.getParentName());
+            string(bd.getBeanClassName());
+            string(bd.getScope());
+            string(bd.getFactoryBeanName());
+            string(bd.getFactoryMethodName());
+            string(bd.getInitMethodName());
+            string(bd.getDestroyMethodName());
+            string(bd.getDescription());
+            string(bd.getResourceDescription());
+            strings(bd.getDependsOn() == null ? new String[0] : bd.getDependsOn());
+            out.writeInt(bd.getAutowireMode());
+            out.writeInt(bd.getDependencyCheck());
+            out.writeInt(bd.getRole());
+            out.writeShort((bd.isAbstract() ? 1 : 0)
+                    | (bd.isLazyInit() ? 1 << 1 : 0)
+                    | (bd.isAutowireCandidate() ? 1 << 2 : 0)
+                    | (bd.isPrimary() ? 1 << 3 : 0)
+                    | (bd.isNonPublicAccessAllowed() ? 1 << 4 : 0)
+                    | (bd.isLenientConstructorResolution() ? 1 << 5 : 0)
+                    | (bd.isEnforceInitMethod() ? 1 << 6 : 0)
+                    | (bd.isEnforceDestroyMethod() ? 1 << 7 : 0)
+                    | (bd.isSynthetic() ? 1 << 8 : 0));
+            attributes(bd);
+            out.writeInt(bd.getQualifiers().size());
+            for (AutowireCandidateQualifier qualifier : bd.getQualifiers()) {
+                string(qualifier.getTypeName());
+                attributes(qualifier);
+            }
+            ConstructorArgumentValues arguments = bd.getConstructorArgumentValues();
+            out.writeInt(arguments.getIndexedArgumentValues().size());
+            for (Map.Entry<Integer, ConstructorArgumentValues.ValueHolder> entry : arguments.getIndexedArgumentValues().entrySet()) {
+                out.writeInt(entry.getKey());
+                argument(entry.getValue());
+            }
+            out.writeInt(arguments.getGenericArgumentValues().size());
+            for (ConstructorArgumentValues.ValueHolder holder : arguments.getGenericArgumentValues()) {
+                argument(holder);
+            }
+            out.writeInt(bd.getPropertyValues().size());
+            for (PropertyValue propertyValue : bd.getPropertyValues().getPropertyValueList()) {
+                string(propertyValue.getName());
+                value(propertyValue.getValue());
+            }
+            out.writeInt(bd.getMethodOverrides().getOverrides().size());
+            for (MethodOverride override : bd.getMethodOverrides().getOverrides()) {
+                if (override.getClass() != LookupOverride.class) {
+                    throw new IllegalArgumentException("Cannot cache method override " + override);
+                }
+                string(override.getMethodName());
+                string(((LookupOverride) override).getBeanName());
+            }
+        }
+
+        void argument(ConstructorArgumentValues.ValueHolder holder) throws IOException {
+            string(holder.getType());
+            string(holder.getName());
+            value(holder.getValue());
+        }
+
+        void attributes(BeanMetadataAttributeAccessor accessor) throws IOException {
+            String[] names = accessor.attributeNames();
+            out.writeInt(names.length);
+            for (String name : names) {
+                Object value = accessor.getAttribute(name);
+                if (value != null && !(value instanceof String)) {
+                    throw new IllegalArgumentException("Cannot cache attribute " + name + " of type " + value.getClass().getName());
+                }
+                string(name);
+                string((String) value);
+            }
+        }
+
+        void value(Object value) throws IOException {
+            if (value == null) {
+                out.writeByte(NULL);
+            } else if (value instanceof String) {
+                out.writeByte(STRING);
+                string((String) value);
+            } else if (value instanceof TypedStringValue) {
+                TypedStringValue typed = (TypedStringValue) value;
+                if (typed.hasTargetType()) {
+                    throw new IllegalArgumentException("Cannot cache a resolved target type");
+                }
+                out.writeByte(TYPED_STRING);
+                string(typed.getValue());
+                string(typed.getTargetTypeName());
+                string(typed.getSpecifiedTypeName());
+                out.writeBoolean(typed.isDynamic());
+            } else if (value instanceof RuntimeBeanReference) {
+                out.writeByte(REFERENCE);
+                string(((RuntimeBeanReference) value).getBeanName());
+                out.writeBoolean(((RuntimeBeanReference) value).isToParent());
+            } else if (value instanceof RuntimeBeanNameReference) {
+                out.writeByte(NAME_REFERENCE);
+                string(((RuntimeBeanNameReference) value).getBeanName());
+            } else if (value instanceof BeanDefinitionHolder) {
+                out.writeByte(INNER_BEAN);
+                holder((BeanDefinitionHolder) value);
+            } else if (value instanceof ManagedArray) {
+                out.writeByte(ARRAY);
+                string(((ManagedArray) value).getElementTypeName());
+                out.writeBoolean(((ManagedArray) value).isMergeEnabled());
+                values((ManagedArray) value);
+            } else if (value instanceof ManagedList) {
+                out.writeByte(LIST);
+                string(((ManagedList<?>) value).getElementTypeName());
+                out.writeBoolean(((ManagedList<?>) value).isMergeEnabled());
+                values((ManagedList<?>) value);
+            } else if (value instanceof ManagedSet) {
+                out.writeByte(SET);
+                string(((ManagedSet<?>) value).getElementTypeName());
+                out.writeBoolean(((ManagedSet<?>) value).isMergeEnabled());
+                values((ManagedSet<?>) value);
+            } else if (value instanceof ManagedMap) {
+                ManagedMap<?, ?> map = (ManagedMap<?, ?>) value;
+                out.writeByte(MAP);
+                string(map.getKeyTypeName());
+                string(map.getValueTypeName());
+                out.writeBoolean(map.isMergeEnabled());
+                entries(map);
+            } else if (value instanceof ManagedProperties) {
+                out.writeByte(PROPERTIES);
+                out.writeBoolean(((ManagedProperties) value).isMergeEnabled());
+                entries((ManagedProperties) value);
+            } else {
+                throw new IllegalArgumentException("Cannot cache a value of type " + value.getClass().getName());
+            }
+        }
+
+        void values(Collection<?> values) throws IOException {
+            out.writeInt(values.size());
+            for (Object element : values) {
+                value(element);
+            }
+        }
+
+        void entries(Map<?, ?> map) throws IOException {
+            out.writeInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                value(entry.getKey());
+                value(entry.getValue());
+            }
+        }
+
+        void strings(String[] values) throws IOException {
+            out.writeInt(values.length);
+            for (String value : values) {
+                string(value);
+            }
+        }
+
+        /**
+         * Writes -1 for null, the index of a string written before, or
+         * -2 followed by the UTF-8 length and bytes of a new one.
+         */
+        void string(String value) throws IOException {
+            if (value == null) {
+                out.writeInt(-1);
+                return;
+            }
+            Integer index = strings.get(value);
+            if (index != null) {
+                out.writeInt(index);
+                return;
+            }
+            strings.put(value, strings.size());
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(-2);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static final class Reader {
+        private final ByteArrayInputStream source;
+        private final DataInput in;
+        private final List<String> strings = new ArrayList<>();
+
+        Reader(ByteArrayInputStream source) {
+            this.source = source;
+            this.in = new DataInputStream(source);
+        }
+
+        /**
+         * Reads a count or length, which in a valid file never exceeds the
+         * bytes left, so that a corrupt one cannot allocate a huge array.
+         */
+        int length() throws IOException {
+            int length = in.readInt();
+            if (length < 0 || length > source.available()) {
+                throw new IOException("Invalid length " + length);
+            }
+            return length;
+        }
+
+        BeanDefinitionHolder holder() throws IOException {
+            String name = string();
+            String[] aliases = strings();
+            return new BeanDefinitionHolder(definition(), name, aliases.length == 0 ? null : aliases);
+        }
+
+        AbstractBeanDefinition definition() throws IOException {
+            GenericBeanDefinition bd = new GenericBeanDefinition();
+            bd.setParentName(string());
+            bd.setBeanClassName(string());
+            bd.setScope(string());
+            bd.setFactoryBeanName(string());
+            bd.setFactoryMethodName(string());
+            bd.setInitMethodName(string());
+            bd.setDestroyMethodName(string());
+            bd.setDescription(string());
+            bd.setResourceDescription(string());
+            String[] dependsOn = strings();
+            bd.setDependsOn(dependsOn.length == 0 ? null : dependsOn);
+            bd.setAutowireMode(in.readInt());
+            bd.setDependencyCheck(in.readInt());
+            bd.setRole(in.readInt());
+            int flags = in.readShort();
+            bd.setAbstract((flags & 1) != 0);
+            bd.setLazyInit((flags & 1 << 1) != 0);
+            bd.setAutowireCandidate((flags & 1 << 2) != 0);
+            bd.setPrimary((flags & 1 << 3) != 0);
+            bd.setNonPublicAccessAllowed((flags & 1 << 4) != 0);
+            bd.setLenientConstructorResolution((flags & 1 << 5) != 0);
+            bd.setEnforceInitMethod((flags & 1 << 6) != 0);
+            bd.setEnforceDestroyMethod((flags & 1 << 7) != 0);
+            bd.setSynthetic((flags & 1 << 8) != 0);
+            attributes(bd);
+            int qualifiers = in.readInt();
+            for (int i = 0; i < qualifiers; i++) {
+                AutowireCandidateQualifier qualifier = new AutowireCandidateQualifier(string());
+                attributes(qualifier);
+                bd.addQualifier(qualifier);
+            }
+            ConstructorArgumentValues arguments = bd.getConstructorArgumentValues();
+            int indexed = in.readInt();
+            for (int i = 0; i < indexed; i++) {
+                int index = in.readInt();
+                arguments.addIndexedArgumentValue(index, argument());
+            }
+            int generic = in.readInt();
+            for (int i = 0; i < generic; i++) {
+                arguments.addGenericArgumentValue(argument());
+            }
+            MutablePropertyValues properties = bd.getPropertyValues();
+            int propertyCount = in.readInt();
+            for (int i = 0; i < propertyCount; i++) {
+                String name = string();
+                properties.addPropertyValue(new PropertyValue(name, value()));
+            }
+            int overrides = in.readInt();
+            for (int i = 0; i < overrides; i++) {
+                String methodName = string();
+                bd.getMethodOverrides().addOverride(new LookupOverride(methodName, string()));
+            }
+            return bd;
+        }
+
+        ConstructorArgumentValues.ValueHolder argument() throws IOException {
+            String type = string();
+            String name = string();
+            return new ConstructorArgumentValues.ValueHolder(value(), type, name);
+        }
+
+        void attributes(BeanMetadataAttributeAccessor accessor) throws IOException {
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String name = string();
+                accessor.setAttribute(name, string());
+            }
+        }
+
+        Object value() throws IOException {
+            byte tag = in.readByte();
+            switch (tag) {
+                case NULL:
+                    return null;
+                case STRING:
+                    return string();
+                case TYPED_STRING: {
+                    TypedStringValue typed = new TypedStringValue(string());
+                    typed.setTargetTypeName(string());
+                    typed.setSpecifiedTypeName(string());
+                    if (in.readBoolean()) {
+                        typed.setDynamic();
+                    }
+                    return typed;
+                }
+                case REFERENCE: {
+                    String name = string();
+                    return new RuntimeBeanReference(name, in.readBoolean());
+                }
+                case NAME_REFERENCE:
+                    return new RuntimeBeanNameReference(string());
+                case INNER_BEAN:
+                    return holder();
+                case ARRAY: {
+                    String elementType = string();
+                    boolean merge = in.readBoolean();
+                    int size = in.readInt();
+                    ManagedArray array = new ManagedArray(elementType, size);
+                    array.setMergeEnabled(merge);
+                    for (int i = 0; i < size; i++) {
+                        array.add(value());
+                    }
+                    return array;
+                }
+                case LIST: {
+                    ManagedList<Object> list = new ManagedList<>();
+                    list.setElementTypeName(string());
+                    list.setMergeEnabled(in.readBoolean());
+                    int size = in.readInt();
+                    for (int i = 0; i < size; i++) {
+                        list.add(value());
+                    }
+                    return list;
+                }
+                case SET: {
+                    ManagedSet<Object> set = new ManagedSet<>();
+                    set.setElementTypeName(string());
+                    set.setMergeEnabled(in.readBoolean());
+                    int size = in.readInt();
+                    for (int i = 0; i < size; i++) {
+                        set.add(value());
+                    }
+                    return set;
+                }
+                case MAP: {
+                    ManagedMap<Object, Object> map = new ManagedMap<>();
+                    map.setKeyTypeName(string());
+                    map.setValueTypeName(string());
+                    map.setMergeEnabled(in.readBoolean());
+                    int size = in.readInt();
+                    for (int i = 0; i < size; i++) {
+                        Object key = value();
+                        map.put(key, value());
+                    }
+                    return map;
+                }
+                case PROPERTIES: {
+                    ManagedProperties properties = new ManagedProperties();
+                    properties.setMergeEnabled(in.readBoolean());
+                    int size = in.readInt();
+                    for (int i = 0; i < size; i++) {
+                        Object key = value();
+                        properties.put(key, value());
+                    }
+                    return properties;
+                }
+                default:
+                    throw new IOException("Unknown value tag " + tag);
+            }
+        }
+
+        String[] strings() throws IOException {
+            String[] values = new String[length()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = string();
+            }
+            return values;
+        }
+
+        String string() throws IOException {
+            int index = in.readInt();
+            if (index == -1) {
+                return null;
+            }
+            if (index >= 0) {
+                if (index >= strings.size()) {
+                    throw new IOException("Unknown string " + index);
+                }
+                return strings.get(index);
+            }
+            byte[] bytes = new byte[length()];
+            in.readFully(bytes);
+            String value = new String(bytes, StandardCharsets.UTF_8);
+            strings.add(value);
+            return value;
+        }
+    }
+}
@@ -2,9 +2,17 @@ package uk.co.solong.application.main.spring.xml;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.support.BeanDefinitionReader;
-import org.springframework.beans.factory.xml.XmlBeanDefinitionReader;
 import org.springframework.context.support.GenericApplicationContext;
+import uk.co.solong.application.init.ParallelInitializer;
+import uk.co.solong.application.metrics.MetricsRegistry;
+import uk.co.solong.application.shutdown.ShutdownCoordinator;
+import uk.co.solong.application.startup.ClassDataSharing;
+import uk.co.solong.application.startup.ClassPreloader;
+import uk.co.solong.application.startup.StartupRecorder;
+import uk.co.solong.application.startup.StartupTrim;
+import uk.co.solong.application.warmup.BackgroundWarmUp;
+
+import java.util.Collections;
 
 /**
  * <p>
@@ -13,7 +21,8 @@ import org.springframework.context.support.GenericApplicationContext;
  * </p>
  * <p>
  * Attempts to load the configurations provided as args and register them with
- * the application context.
+ * the application context. The files are parsed in parallel, and unchanged
+ * files are loaded from a cache on restart (see {@link XmlDefinitionLoader}).
  * </p>
  * 
  * @author Daniel Burrell
@@ -28,16 +37,34 @@ public final class XmlApplication {
             throw new IllegalArgumentException("Config location missing");
         }
 
+        StartupRecorder recorder = StartupRecorder.start(XmlApplication.class.getSimpleName());
         GenericApplicationContext context = new GenericApplicationContext();
-        BeanDefinitionReader reader = new XmlBeanDefinitionReader(context);
-        reader.loadBeanDefinitions(configLocations);
+        ClassPreloader preloader = ClassPreloader.start(XmlApplication.class.getClassLoader(), Collections.<String>emptySet());
+        try (StartupRecorder.Phase phase = recorder.phase("parse")) {
+            recorder.detail("xml", XmlDefinitionLoader.fromSystemProperties().load(context, configLocations));
+        }
 
         boolean started = false;
         try {
-            context.registerShutdownHook();
-            context.refresh();
+            recorder.instrument(context);
+            ParallelInitializer.configure(context);
+            MetricsRegistry.configure(context);
+            BackgroundWarmUp warmUp = BackgroundWarmUp.configure(context);
+            ShutdownCoordinator.install(context);
+            try (StartupRecorder.Phase phase = recorder.phase("refresh")) {
+                context.refresh();
+            }
             logger.info("Application started");
             started = true;
+            if (preloader != null) {
+                preloader.finish(recorder, context);
+            }
+            StartupTrim.trim(recorder, context);
+            recorder.finish();
+            ClassDataSharing.checkpoint();
+            if (warmUp != null) {
+                warmUp.start();
+            }
         } catch (RuntimeException e) {
             throw new RuntimeException("Application failed to start", e);
         } catch (Exception e) {
@@ -0,0 +1,149 @@
+package uk.co.solong.application.main.spring.xml;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanDefinitionHolder;
+import uk.co.solong.application.io.AtomicFiles;
+import uk.co.solong.application.io.PrivateDirectories;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.UserPrincipal;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * Persistent cache of the bean definitions parsed from XML files, so that a
+ * restart with unchanged XML does not have to parse it again.
+ * </p>
+ * <p>
+ * Each file's definitions are stored in their own binary file (see
+ * {@link BeanDefinitionCodec}), named after the file's location and the
+ * active profiles, and stamped with a SHA-256 hash of the XML content. They
+ * are discarded as soon as the content changes. Files are written atomically,
+ * so several JVMs run by the same user can share the cache directory.
+ * </p>
+ * <p>
+ * The decoded definitions are registered as they are, so whoever can write
+ * to the cache can make the application create any bean. The cache lives in
+ * {@value #DIRECTORY_PROPERTY} (default: a directory under user.home), which
+ * must belong to the user running the JVM and be writable by that user only
+ * (see {@link PrivateDirectories}); files owned by anyone else are ignored.
+ * It can be turned off with {@value #DISABLED_PROPERTY}.
+ * </p>
+ *
+ * @author Daniel Burrell
+ *
+ */
+public final class XmlDefinitionCache {
+    private static final Logger logger = LoggerFactory.getLogger(XmlDefinitionCache.class);
+
+    public static final String DIRECTORY_PROPERTY = "uk.co.solong.xml.cache.dir";
+    public static final String DISABLED_PROPERTY = "uk.co.solong.xml.cache.disabled";
+
+    private static final int MAGIC = 0x534c5844;
+    private static final int VERSION = 1;
+
+    private final Path directory;
+    private final UserPrincipal owner;
+
+    XmlDefinitionCache(Path directory, UserPrincipal owner) {
+        this.directory = directory;
+        this.owner = owner;
+    }
+
+    /**
+     * @return the cache, or null if it has been disabled or its directory
+     * is not private to this user.
+     */
+    public static XmlDefinitionCache fromSystemProperties() {
+        if (Boolean.getBoolean(DISABLED_PROPERTY)) {
+            return null;
+        }
+        String configured = System.getProperty(DIRECTORY_PROPERTY);
+        Path directory = StringUtils.isBlank(configured)
+                ? PrivateDirectories.defaultDirectory("xml-cache")
+                : Paths.get(configured);
+        UserPrincipal owner = PrivateDirectories.prepare(directory);
+        return owner == null ? null : new XmlDefinitionCache(directory, owner);
+    }
+
+    /**
+     * @return the definitions stored for the key, or null if there are none
+     * or they were parsed from different content.
+     */
+    List<BeanDefinitionHolder> load(String key, byte[] contentHash) {
+        Path file = fileFor(key);
+        try {
+            if (!PrivateDirectories.isOwnedBy(file, owner)) {
+                if (Files.exists(file, LinkOption.NOFOLLOW_LINKS)) {
+                    logger.warn("Ignoring cached definitions {}, not a file owned by {}", file, owner.getName());
+                }
+                return null;
+            }
+            byte[] bytes = Files.readAllBytes(file);
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return null;
+            }
+            byte[] stored = new byte[buffer.get() & 0xff];
+            buffer.get(stored);
+            if (!Arrays.equals(stored, contentHash)) {
+                logger.debug("XML has changed, ignoring cached definitions {}", file);
+                return null;
+            }
+            return BeanDefinitionCodec.decode(bytes, buffer.position(), buffer.remaining());
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            // a corrupt file can fail anywhere in decoding; parse the XML instead
+            logger.warn("Ignoring unreadable cached definitions {}", file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Stores the definitions for the key. Failures are logged and otherwise
+     * ignored, since the cache is only an optimisation.
+     */
+    void store(String key, byte[] contentHash, byte[] encoded) {
+        Path file = fileFor(key);
+        ByteBuffer buffer = ByteBuffer.allocate(4 + 4 + 1 + contentHash.length + encoded.length);
+        buffer.putInt(MAGIC).putInt(VERSION).put((byte) contentHash.length).put(contentHash).put(encoded);
+        try {
+            AtomicFiles.write(file, buffer.array());
+        } catch (IOException e) {
+            logger.warn("Unable to write cached definitions {}", file, e);
+        }
+    }
+
+    Path fileFor(String key) {
+        return directory.resolve(hex(hash(key.getBytes(StandardCharsets.UTF_8))) + ".bin");
+    }
+
+    static byte[] hash(byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+}
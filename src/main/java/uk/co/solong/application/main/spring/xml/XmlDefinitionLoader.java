@@ -0,0 +1,267 @@
+package uk.co.solong.application.main.spring.xml;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanDefinitionStoreException;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinitionHolder;
+import org.springframework.beans.factory.parsing.BeanComponentDefinition;
+import org.springframework.beans.factory.parsing.ComponentDefinition;
+import org.springframework.beans.factory.parsing.EmptyReaderEventListener;
+import org.springframework.beans.factory.parsing.ImportDefinition;
+import org.springframework.beans.factory.support.BeanDefinitionReaderUtils;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.xml.XmlBeanDefinitionReader;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.SpringVersion;
+import org.springframework.core.io.Resource;
+import org.springframework.util.FileCopyUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * Loads the bean definitions of a set of XML config locations into a context,
+ * as XmlBeanDefinitionReader would, but parses the files in parallel (on
+ * {@value #THREADS_PROPERTY} threads, default one per processor) and reuses
+ * the definitions from the {@link XmlDefinitionCache} for files whose content
+ * has not changed.
+ * </p>
+ * <p>
+ * Each file is parsed into its own scratch registry, and the definitions are
+ * then registered in the order of the locations, so overriding behaves as it
+ * does when the files are parsed one after another. Anonymous beans are
+ * renamed as they are registered, so their generated names do not clash.
+ * </p>
+ * <p>
+ * Files that import other files or register anything other than plain beans
+ * (component scanning, annotation config, ...) depend on more than their own
+ * content, and are parsed every time.
+ * </p>
+ *
+ * @author Daniel Burrell
+ *
+ */
+public final class XmlDefinitionLoader {
+    private static final Logger logger = LoggerFactory.getLogger(XmlDefinitionLoader.class);
+
+    public static final String THREADS_PROPERTY = "uk.co.solong.xml.threads";
+
+    private final XmlDefinitionCache cache;
+    private final int threads;
+
+    public XmlDefinitionLoader(XmlDefinitionCache cache, int threads) {
+        this.cache = cache;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * @return a loader configured from {@value #THREADS_PROPERTY} and the
+     * {@link XmlDefinitionCache} properties.
+     */
+    public static XmlDefinitionLoader fromSystemProperties() {
+        return new XmlDefinitionLoader(XmlDefinitionCache.fromSystemProperties(),
+                Integer.getInteger(THREADS_PROPERTY, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Registers the definitions of every location with the context.
+     *
+     * @return how many files were read from the cache, parsed, and found to
+     * be uncacheable, for the startup report.
+     */
+    public Map<String, Object> load(GenericApplicationContext context, String... configLocations) {
+        List<Resource> resources = new ArrayList<>();
+        try {
+            for (String location : configLocations) {
+                resources.addAll(Arrays.asList(context.getResources(location)));
+            }
+        } catch (IOException e) {
+            throw new BeanDefinitionStoreException("Unable to resolve config locations " + Arrays.toString(configLocations), e);
+        }
+        String profiles = Arrays.toString(context.getEnvironment().getActiveProfiles()) + Arrays.toString(context.getEnvironment().getDefaultProfiles());
+        List<Parsed> parsed = new ArrayList<>();
+        int poolSize = Math.min(threads, resources.size());
+        if (poolSize <= 1) {
+            for (Resource resource : resources) {
+                parsed.add(parse(context, resource, profiles));
+            }
+        } else {
+            AtomicInteger count = new AtomicInteger();
+            ExecutorService executor = Executors.newFixedThreadPool(poolSize, r -> {
+                Thread thread = new Thread(r, "xml-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            try {
+                List<Future<Parsed>> futures = new ArrayList<>();
+                for (Resource resource : resources) {
+                    futures.add(executor.submit(() -> parse(context, resource, profiles)));
+                }
+                for (Future<Parsed> future : futures) {
+                    parsed.add(future.get());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BeanDefinitionStoreException("Interrupted while parsing XML", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw new BeanDefinitionStoreException("Unable to parse XML", e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        int cached = 0;
+        int uncacheable = 0;
+        for (Parsed result : parsed) {
+            for (BeanDefinitionHolder holder : result.holders) {
+                register(context, holder);
+            }
+            cached += result.cached ? 1 : 0;
+            uncacheable += result.cacheable ? 0 : 1;
+        }
+        summary.put("files", parsed.size());
+        summary.put("cached", cached);
+        summary.put("parsed", parsed.size() - cached);
+        summary.put("uncacheable", uncacheable);
+        logger.info("Loaded {} XML files: {}", parsed.size(), summary);
+        return summary;
+    }
+
+    private Parsed parse(GenericApplicationContext context, Resource resource, String profiles) {
+        byte[] hash = null;
+        String key = null;
+        if (cache != null) {
+            try {
+                hash = XmlDefinitionCache.hash(FileCopyUtils.copyToByteArray(resource.getInputStream()));
+                key = resource.getURL() + "|" + profiles + "|" + SpringVersion.getVersion();
+            } catch (IOException e) {
+                throw new BeanDefinitionStoreException("IOException parsing XML document from " + resource, e);
+            }
+            List<BeanDefinitionHolder> holders = cache.load(key, hash);
+            if (holders != null) {
+                logger.debug("Loaded {} definitions for {} from the cache", holders.size(), resource);
+                return new Parsed(holders, true, true);
+            }
+        }
+
+        DefaultListableBeanFactory registry = new DefaultListableBeanFactory();
+        Cacheability cacheability = new Cacheability();
+        XmlBeanDefinitionReader reader = new XmlBeanDefinitionReader(registry);
+        reader.setEnvironment(context.getEnvironment());
+        reader.setResourceLoader(context);
+        reader.setEventListener(cacheability);
+        reader.loadBeanDefinitions(resource);
+        List<BeanDefinitionHolder> holders = new ArrayList<>();
+        for (String name : registry.getBeanDefinitionNames()) {
+            holders.add(new BeanDefinitionHolder(registry.getBeanDefinition(name), name, registry.getAliases(name)));
+        }
+        boolean cacheable = cacheability.cacheable;
+        if (cache != null && cacheable) {
+            try {
+                cache.store(key, hash, BeanDefinitionCodec.encode(holders));
+            } catch (IllegalArgumentException e) {
+                logger.debug("Not caching the definitions of {}: {}", resource, e.getMessage());
+                cacheable = false;
+            }
+        }
+        return new Parsed(holders, false, cacheable);
+    }
+
+    /**
+     * Registers the definition and its aliases, generating a new name for an
+     * anonymous bean as the XML reader would have done had it been parsing
+     * straight into the context.
+     */
+    private static void register(GenericApplicationContext context, BeanDefinitionHolder holder) {
+        BeanDefinition definition = holder.getBeanDefinition();
+        String name = holder.getBeanName();
+        List<String> aliases = new ArrayList<>(holder.getAliases() == null ? new ArrayList<>() : Arrays.asList(holder.getAliases()));
+        String prefix = generatedNamePrefix(definition);
+        if (prefix != null && isGenerated(name, prefix)) {
+            name = BeanDefinitionReaderUtils.generateBeanName(definition, context);
+            aliases.remove(definition.getBeanClassName());
+            if (definition.getBeanClassName() != null && !context.isBeanNameInUse(definition.getBeanClassName())) {
+                aliases.add(definition.getBeanClassName());
+            }
+        }
+        context.registerBeanDefinition(name, definition);
+        for (String alias : aliases) {
+            context.registerAlias(name, alias);
+        }
+    }
+
+    private static String generatedNamePrefix(BeanDefinition definition) {
+        if (definition.getBeanClassName() != null) {
+            return definition.getBeanClassName();
+        }
+        if (definition.getParentName() != null) {
+            return definition.getParentName() + "$child";
+        }
+        if (definition.getFactoryBeanName() != null) {
+            return definition.getFactoryBeanName() + "$created";
+        }
+        return null;
+    }
+
+    private static boolean isGenerated(String name, String prefix) {
+        String separator = prefix + BeanDefinitionReaderUtils.GENERATED_BEAN_NAME_SEPARATOR;
+        if (!name.startsWith(separator) || name.length() == separator.length()) {
+            return false;
+        }
+        for (int i = separator.length(); i < name.length(); i++) {
+            if (!Character.isDigit(name.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class Parsed {
+        private final List<BeanDefinitionHolder> holders;
+        private final boolean cached;
+        private final boolean cacheable;
+
+        Parsed(List<BeanDefinitionHolder> holders, boolean cached, boolean cacheable) {
+            this.holders = holders;
+            this.cached = cached;
+            this.cacheable = cacheable;
+        }
+    }
+
+    /**
+     * Notices anything a file does that its content alone does not determine.
+     */
+    private static final class Cacheability extends EmptyReaderEventListener {
+        private boolean cacheable = true;
+
+        @Override
+        public void componentRegistered(ComponentDefinition componentDefinition) {
+            if (!(componentDefinition instanceof BeanComponentDefinition)) {
+                cacheable = false;
+            }
+        }
+
+        @Override
+        public void importProcessed(ImportDefinition importDefinition) {
+            cacheable = false;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package uk.co.solong.application.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A counter that many threads can increment without contending with each
+ * other (it is striped, see {@link LongAdder}).
+ *
+ * @author Daniel Burrell
+ *
+ */
+public final class Counter {
+    private final LongAdder count = new LongAdder();
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(long n) {
+        count.add(n);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+}
@@ -0,0 +1,111 @@
+package uk.co.solong.application.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>
+ * Records the distribution of non-negative values (typically latencies in
+ * nanoseconds) in fixed log-linear buckets, as HdrHistogram does: values below
+ * {@value #SUB_BUCKETS} are counted exactly, larger ones in buckets no wider
+ * than 1/{@value #HALF} of their value, so every percentile is within about
+ * 1.6% of the true value across the whole <code>long</code> range.
+ * </p>
+ * <p>
+ * Recording takes a few arithmetic operations and atomic increments and does
+ * not allocate. Percentiles are computed when {@link #snapshot()} is called.
+ * </p>
+ *
+ * @author Daniel Burrell
+ *
+ */
+public final class Histogram {
+    static final int SUB_BUCKETS = 128;
+    static final int HALF = SUB_BUCKETS / 2;
+    private static final int HALF_BITS = 6;
+    private static final int BUCKETS = SUB_BUCKETS + (62 - HALF_BITS) * HALF;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(indexOf(value));
+        count.increment();
+        sum.add(value);
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            // retry
+        }
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - HALF_BITS;
+        return SUB_BUCKETS + (shift - 1) * HALF + (int) (value >>> shift) - HALF;
+    }
+
+    /**
+     * @return the highest value counted in the bucket.
+     */
+    static long highestValueIn(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / HALF + 1;
+        long lowest = (long) ((index - SUB_BUCKETS) % HALF + HALF) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /**
+     * @return the count, mean, max and 50th, 90th, 99th and 99.9th
+     * percentiles. Values recorded while the snapshot is taken may be
+     * partially included.
+     */
+    public Map<String, Long> snapshot() {
+        long[] buckets = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = counts.get(i);
+            total += buckets[i];
+        }
+        long highest = max.get();
+        Map<String, Long> snapshot = new LinkedHashMap<>();
+        snapshot.put("count", total);
+        snapshot.put("mean", total == 0 ? 0 : sum.sum() / Math.max(1, count.sum()));
+        snapshot.put("max", highest);
+        snapshot.put("p50", percentile(buckets, total, 0.5, highest));
+        snapshot.put("p90", percentile(buckets, total, 0.9, highest));
+        snapshot.put("p99", percentile(buckets, total, 0.99, highest));
+        snapshot.put("p999", percentile(buckets, total, 0.999, highest));
+        return snapshot;
+    }
+
+    private static long percentile(long[] buckets, long total, double percentile, long max) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile * total));
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return Math.min(highestValueIn(i), max);
+            }
+        }
+        return max;
+    }
+}
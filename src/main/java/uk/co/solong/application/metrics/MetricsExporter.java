@@ -0,0 +1,187 @@
+package uk.co.solong.application.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import uk.co.solong.application.io.AtomicFiles;
+import uk.co.solong.application.io.Json;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes a {@link MetricsRegistry} over JMX and to a file while the context
+ * is running.
+ */
+final class MetricsExporter implements SmartLifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(MetricsExporter.class);
+
+    static final String BEAN_NAME = MetricsExporter.class.getName();
+
+    private final MetricsRegistry registry;
+    private final String name;
+    private final boolean jmx;
+    private final Path file;
+    private final long intervalMillis;
+    private ObjectName objectName;
+    private ScheduledExecutorService writer;
+    private volatile boolean running;
+
+    MetricsExporter(MetricsRegistry registry, String name, boolean jmx, String file, long intervalMillis) {
+        this.registry = registry;
+        this.name = name;
+        this.jmx = jmx;
+        this.file = file == null || file.trim().isEmpty() ? null : Paths.get(file.trim());
+        this.intervalMillis = intervalMillis;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        if (jmx) {
+            try {
+                ObjectName mbeanName = new ObjectName("uk.co.solong.application:type=Metrics,name=" + ObjectName.quote(name));
+                ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsMBean(registry), mbeanName);
+                objectName = mbeanName;
+            } catch (JMException e) {
+                logger.warn("Unable to register the metrics MBean for {}", name, e);
+            }
+        }
+        if (file != null) {
+            writer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "metrics-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            writer.scheduleAtFixedRate(this::write, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        if (writer != null) {
+            writer.shutdownNow();
+            writer = null;
+            write();
+        }
+        if (objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (JMException e) {
+                logger.debug("Unable to unregister {}", objectName, e);
+            }
+            objectName = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    synchronized ObjectName getObjectName() {
+        return objectName;
+    }
+
+    void write() {
+        Map<String, Object> content = new LinkedHashMap<>();
+        content.put("timestamp", System.currentTimeMillis());
+        content.put("metrics", registry.snapshot());
+        StringBuilder json = new StringBuilder();
+        Json.value(json, content);
+        try {
+            AtomicFiles.write(file, json.append('\n').toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            logger.warn("Unable to write metrics to {}", file, e);
+        }
+    }
+
+    /**
+     * Exposes the flattened snapshot as read only <code>long</code>
+     * attributes.
+     */
+    static final class MetricsMBean implements DynamicMBean {
+        private final MetricsRegistry registry;
+
+        MetricsMBean(MetricsRegistry registry) {
+            this.registry = registry;
+        }
+
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            Long value = registry.flatSnapshot().get(attribute);
+            if (value == null) {
+                throw new AttributeNotFoundException(attribute);
+            }
+            return value;
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            Map<String, Long> snapshot = registry.flatSnapshot();
+            AttributeList list = new AttributeList();
+            for (String attribute : attributes) {
+                if (snapshot.containsKey(attribute)) {
+                    list.add(new Attribute(attribute, snapshot.get(attribute)));
+                }
+            }
+            return list;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Metrics are read only: " + attribute.getName());
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+            throw new ReflectionException(new NoSuchMethodException(actionName), "Metrics have no operations");
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> attributes = new ArrayList<>();
+            for (String name : registry.flatSnapshot().keySet()) {
+                attributes.add(new MBeanAttributeInfo(name, "long", name, true, false, false));
+            }
+            return new MBeanInfo(MetricsRegistry.class.getName(), "Application metrics", attributes.toArray(new MBeanAttributeInfo[0]),
+                    null, null, null);
+        }
+    }
+}
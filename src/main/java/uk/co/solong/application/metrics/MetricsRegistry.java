@@ -0,0 +1,143 @@
+package uk.co.solong.application.metrics;
+
+import org.springframework.context.ConfigurableApplicationContext;
+import uk.co.solong.application.annotations.Timed;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * <p>
+ * Named {@link Counter}s, {@link Histogram}s and gauges for the application.
+ * Every launcher registers one in its context as {@value #BEAN_NAME} (unless
+ * {@value #DISABLED_PROPERTY} is <code>true</code>), together with:
+ * </p>
+ * <ul>
+ * <li>a post processor that times the {@link Timed} methods of every bean</li>
+ * <li>a JMX MBean, <code>uk.co.solong.application:type=Metrics,name=</code>
+ * {@value #NAME_PROPERTY} (default <code>application</code>), with one
+ * attribute per counter, gauge and histogram statistic (unless
+ * {@value #JMX_PROPERTY} is <code>false</code>)</li>
+ * <li>if {@value #FILE_PROPERTY} is set, a daemon thread that writes a JSON
+ * snapshot to that file every {@value #INTERVAL_PROPERTY} milliseconds
+ * (default 10s) and when the context closes</li>
+ * </ul>
+ * <p>
+ * Launchers that run several contexts in one JVM name each context's metrics
+ * after it: the MBean takes that name, and the file gets it as a suffix
+ * (<code>metrics.json</code> becomes <code>metrics-name.json</code>), so the
+ * contexts do not overwrite each other.
+ * </p>
+ * <p>
+ * Look metrics up once and keep them: recording is lock free and does not
+ * allocate, but the lookup by name does a map access.
+ * </p>
+ *
+ * @author Daniel Burrell
+ *
+ */
+public class MetricsRegistry {
+    public static final String BEAN_NAME = "metricsRegistry";
+    public static final String DISABLED_PROPERTY = "uk.co.solong.metrics.disabled";
+    public static final String JMX_PROPERTY = "uk.co.solong.metrics.jmx";
+    public static final String FILE_PROPERTY = "uk.co.solong.metrics.file";
+    public static final String INTERVAL_PROPERTY = "uk.co.solong.metrics.interval";
+    public static final String NAME_PROPERTY = "uk.co.solong.metrics.name";
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    /**
+     * Registers a MetricsRegistry, the {@link Timed} post processor and the
+     * exporters with the context, configured from the system properties. Must
+     * be called before the context is refreshed.
+     *
+     * @return the registry, or null if metrics are disabled.
+     */
+    public static MetricsRegistry configure(ConfigurableApplicationContext context) {
+        return configure(context, null);
+    }
+
+    /**
+     * As {@link #configure(ConfigurableApplicationContext)}, for one of
+     * several contexts in the JVM.
+     *
+     * @param contextName names the context's MBean and suffixes its file, or
+     *                    null for the only context in the JVM.
+     */
+    public static MetricsRegistry configure(ConfigurableApplicationContext context, String contextName) {
+        if (Boolean.getBoolean(DISABLED_PROPERTY)) {
+            return null;
+        }
+        String file = System.getProperty(FILE_PROPERTY);
+        if (contextName != null && file != null && !file.trim().isEmpty()) {
+            file = withSuffix(file.trim(), contextName);
+        }
+        MetricsRegistry registry = new MetricsRegistry();
+        context.getBeanFactory().registerSingleton(BEAN_NAME, registry);
+        context.addBeanFactoryPostProcessor(beanFactory -> beanFactory.addBeanPostProcessor(new TimedBeanPostProcessor(registry)));
+        context.getBeanFactory().registerSingleton(MetricsExporter.BEAN_NAME, new MetricsExporter(registry,
+                contextName == null ? System.getProperty(NAME_PROPERTY, "application") : contextName,
+                !"false".equalsIgnoreCase(System.getProperty(JMX_PROPERTY)), file, Long.getLong(INTERVAL_PROPERTY, 10_000L)));
+        return registry;
+    }
+
+    /**
+     * @return the file with the suffix added before its extension.
+     */
+    static String withSuffix(String file, String suffix) {
+        int separator = Math.max(file.lastIndexOf('/'), file.lastIndexOf('\\'));
+        int dot = file.lastIndexOf('.');
+        return dot > separator + 1 ? file.substring(0, dot) + "-" + suffix + file.substring(dot) : file + "-" + suffix;
+    }
+
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, n -> new Counter());
+    }
+
+    public Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, n -> new Histogram());
+    }
+
+    /**
+     * Registers (or replaces) a gauge, whose value is read from the supplier
+     * whenever a snapshot is taken.
+     */
+    public void gauge(String name, LongSupplier supplier) {
+        gauges.put(name, supplier);
+    }
+
+    /**
+     * @return every metric by name: a Long for counters and gauges, a map of
+     * statistics (see {@link Histogram#snapshot()}) for histograms.
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new TreeMap<>();
+        counters.forEach((name, counter) -> snapshot.put(name, counter.getCount()));
+        gauges.forEach((name, gauge) -> snapshot.put(name, gauge.getAsLong()));
+        histograms.forEach((name, histogram) -> snapshot.put(name, histogram.snapshot()));
+        return snapshot;
+    }
+
+    /**
+     * @return the snapshot with every histogram statistic as its own entry,
+     * e.g. <code>Poller.poll.p99</code>.
+     */
+    public Map<String, Long> flatSnapshot() {
+        Map<String, Long> flat = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> entry : snapshot().entrySet()) {
+            if (entry.getValue() instanceof Map) {
+                for (Map.Entry<?, ?> statistic : ((Map<?, ?>) entry.getValue()).entrySet()) {
+                    flat.put(entry.getKey() + "." + statistic.getKey(), (Long) statistic.getValue());
+                }
+            } else {
+                flat.put(entry.getKey(), (Long) entry.getValue());
+            }
+        }
+        return flat;
+    }
+}
@@ -0,0 +1,111 @@
+package uk.co.solong.application.metrics;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.util.ClassUtils;
+import uk.co.solong.application.annotations.Timed;
+import uk.co.solong.application.invoke.Invokers;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Proxies beans with {@link Timed} methods so that each call is recorded in
+ * the method's histogram. The histograms are resolved when the proxy is
+ * created, so a call costs a map lookup by method, two
+ * {@link System#nanoTime()} calls and the recording, on top of the proxy's
+ * own cost: a MethodInvocation and, for a class proxy, an argument array per
+ * call. A class proxy cannot override final methods, so those are left
+ * untimed with a warning.
+ */
+final class TimedBeanPostProcessor implements BeanPostProcessor {
+    private static final Logger logger = LoggerFactory.getLogger(TimedBeanPostProcessor.class);
+
+    private final MetricsRegistry registry;
+
+    TimedBeanPostProcessor(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+        Class<?> type = AopUtils.getTargetClass(bean);
+        List<Method> methods = Invokers.annotatedMethods(type, Timed.class);
+        if (methods.isEmpty()) {
+            return bean;
+        }
+        Map<Method, Histogram> histograms = new HashMap<>();
+        for (Method method : methods) {
+            String name = method.getAnnotation(Timed.class).value();
+            Histogram histogram = registry.histogram(name.isEmpty() ? type.getSimpleName() + "." + method.getName() : name);
+            histograms.put(method, histogram);
+            // a JDK proxy invokes the interface's method
+            for (Class<?> i : ClassUtils.getAllInterfacesForClassAsSet(type)) {
+                Method declared = ClassUtils.getMethodIfAvailable(i, method.getName(), method.getParameterTypes());
+                if (declared != null) {
+                    histograms.put(declared, histogram);
+                }
+            }
+        }
+        TimingInterceptor interceptor = new TimingInterceptor(histograms);
+        if (bean instanceof Advised && !((Advised) bean).isFrozen()) {
+            ((Advised) bean).addAdvice(0, interceptor);
+            if (((Advised) bean).isProxyTargetClass()) {
+                warnFinalMethods(beanName, methods);
+            }
+            return bean;
+        }
+        if (Modifier.isFinal(type.getModifiers())) {
+            logger.warn("Bean '{}' has @Timed methods but its class {} is final, so they cannot be timed", beanName, type.getName());
+            return bean;
+        }
+        warnFinalMethods(beanName, methods);
+        ProxyFactory factory = new ProxyFactory(bean);
+        factory.setProxyTargetClass(true);
+        factory.addAdvice(interceptor);
+        return factory.getProxy(type.getClassLoader());
+    }
+
+    private static void warnFinalMethods(String beanName, List<Method> methods) {
+        for (Method method : methods) {
+            if (Modifier.isFinal(method.getModifiers())) {
+                logger.warn("Bean '{}' has a @Timed method {} that is final, so it cannot be timed", beanName, method);
+            }
+        }
+    }
+
+    /**
+     * Records the duration of the timed methods.
+     */
+    static final class TimingInterceptor implements MethodInterceptor {
+        private final Map<Method, Histogram> histograms;
+
+        TimingInterceptor(Map<Method, Histogram> histograms) {
+            this.histograms = histograms;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            Histogram histogram = histograms.get(invocation.getMethod());
+            if (histogram == null) {
+                return invocation.proceed();
+            }
+            long begin = System.nanoTime();
+            try {
+                return invocation.proceed();
+            } finally {
+                histogram.record(System.nanoTime() - begin);
+            }
+        }
+    }
+}
@@ -0,0 +1,394 @@
+package uk.co.solong.application.pipeline;
+
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.ClassUtils;
+import uk.co.solong.application.annotations.Sink;
+import uk.co.solong.application.annotations.Source;
+import uk.co.solong.application.annotations.Stage;
+import uk.co.solong.application.invoke.Invokers;
+import uk.co.solong.application.metrics.Counter;
+import uk.co.solong.application.metrics.Histogram;
+import uk.co.solong.application.metrics.MetricsRegistry;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+/**
+ * <p>
+ * Runs the {@link Source}, {@link Stage}s and {@link Sink} of a bean as a
+ * pipeline: each step runs on its own threads and passes its results to the
+ * next through a bounded queue, so a slow step holds back the ones before it
+ * (backpressure) instead of letting items pile up in memory. A step takes
+ * whatever is waiting in its queue, up to its batch size, rather than waiting
+ * for a full batch.
+ * </p>
+ * <p>
+ * The parallelism, batch size and queue capacity of each step can be
+ * overridden without rebuilding with the system properties
+ * <code>uk.co.solong.pipeline.&lt;pipeline&gt;.&lt;method&gt;.parallelism</code>,
+ * <code>.batchSize</code> and <code>.capacity</code>.
+ * </p>
+ * <p>
+ * While it runs, the items and batches processed by each step, its throughput
+ * over the last interval and on average, the time it spent busy and blocked
+ * on a full queue, and the depth of its queue are logged every {@value #REPORT_INTERVAL_PROPERTY} milliseconds
+ * (default 10s, 0 for only at the end) and published as
+ * <code>pipeline.&lt;step&gt;.*</code> metrics. The step whose queue stays
+ * full while the one after it is busy is the one to give more threads.
+ * </p>
+ * <p>
+ * The pipeline completes once the source has returned an empty batch and
+ * every item has reached the sink. {@link #stop()} (or the stop condition)
+ * stops reading from the source and lets the items already read drain. The
+ * first exception thrown by a step aborts the pipeline and is rethrown by
+ * {@link #run()}, as is an interrupt, abandoning the queued items.
+ * {@link #abort()} abandons them too, but lets {@link #run()} return.
+ * </p>
+ *
+ * @author Daniel Burrell
+ *
+ */
+public final class Pipeline {
+    private static final Logger logger = LoggerFactory.getLogger(Pipeline.class);
+
+    public static final String PROPERTY_PREFIX = "uk.co.solong.pipeline.";
+    public static final String REPORT_INTERVAL_PROPERTY = "uk.co.solong.pipeline.reportInterval";
+
+    private final String name;
+    private final List<Step> steps;
+    private final BooleanSupplier stopRequested;
+    private final long reportIntervalMillis;
+    private final CountDownLatch done;
+    private final List<Thread> threads = new ArrayList<>();
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private volatile boolean stopping;
+    private volatile boolean aborted;
+    private volatile long startNanos;
+    private volatile long endNanos;
+    private long reportedNanos;
+
+    Pipeline(String name, List<Step> steps, BooleanSupplier stopRequested, long reportIntervalMillis) {
+        this.name = name;
+        this.steps = steps;
+        this.stopRequested = stopRequested;
+        this.reportIntervalMillis = reportIntervalMillis;
+        for (int i = 0; i < steps.size() - 1; i++) {
+            steps.get(i).next = steps.get(i + 1);
+        }
+        this.done = new CountDownLatch(steps.stream().mapToInt(s -> s.parallelism).sum());
+    }
+
+    /**
+     * Builds the pipeline declared by the bean's {@link Source}, {@link Stage}
+     * and {@link Sink} methods.
+     *
+     * @param metrics the registry to publish the statistics to, or null.
+     * @param stopRequested polled by the source between batches; once it
+     * returns true the pipeline stops as if {@link #stop()} had been called.
+     */
+    public static Pipeline forBean(String name, Object bean, MetricsRegistry metrics, BooleanSupplier stopRequested) {
+        Class<?> type = ClassUtils.getUserClass(bean);
+        List<Method> sources = Invokers.annotatedMethods(type, Source.class);
+        List<Method> sinks = Invokers.annotatedMethods(type, Sink.class);
+        Validate.isTrue(sources.size() == 1, "Expected 1 @Source on %s, but found %s", type.getName(), sources.size());
+        Validate.isTrue(sinks.size() == 1, "Expected 1 @Sink on %s, but found %s", type.getName(), sinks.size());
+        List<Method> stages = new ArrayList<>(Invokers.annotatedMethods(type, Stage.class));
+        stages.sort(Comparator.comparingInt(m -> m.getAnnotation(Stage.class).order()));
+
+        List<Step> steps = new ArrayList<>();
+        Method source = sources.get(0);
+        Source sourceAnnotation = source.getAnnotation(Source.class);
+        Validate.isTrue(Collection.class.isAssignableFrom(source.getReturnType()), "Expected @Source %s to return a Collection", source);
+        Validate.isTrue(source.getParameterCount() == 0 || source.getParameterCount() == 1 && source.getParameterTypes()[0] == int.class,
+                "Expected @Source %s to take no arguments or an int", source);
+        steps.add(step(name, bean, source, true, source.getParameterCount() == 1, sourceAnnotation.parallelism(), sourceAnnotation.batchSize(), 0,
+                metrics));
+        for (Method stage : stages) {
+            Stage annotation = stage.getAnnotation(Stage.class);
+            Validate.isTrue(stage.getParameterCount() == 1, "Expected @Stage %s to take 1 argument", stage);
+            boolean batched = stage.getParameterTypes()[0] == List.class;
+            Validate.isTrue(batched ? Collection.class.isAssignableFrom(stage.getReturnType()) : stage.getReturnType() != void.class,
+                    "Expected @Stage %s to return a Collection for a List, or a result for an item", stage);
+            steps.add(step(name, bean, stage, false, batched, annotation.parallelism(), annotation.batchSize(), annotation.capacity(), metrics));
+        }
+        Method sink = sinks.get(0);
+        Sink sinkAnnotation = sink.getAnnotation(Sink.class);
+        Validate.isTrue(sink.getParameterCount() == 1, "Expected @Sink %s to take 1 argument", sink);
+        steps.add(step(name, bean, sink, false, sink.getParameterTypes()[0] == List.class, sinkAnnotation.parallelism(), sinkAnnotation.batchSize(),
+                sinkAnnotation.capacity(), metrics));
+        return new Pipeline(name, steps, stopRequested, Long.getLong(REPORT_INTERVAL_PROPERTY, 10_000L));
+    }
+
+    private static Step step(String pipeline, Object bean, Method method, boolean source, boolean batched, int parallelism, int batchSize,
+                             int capacity, MetricsRegistry metrics) {
+        String name = pipeline + "." + method.getName();
+        Step step = new Step(name, source, bean, Invokers.forMethod(method), batched, setting(name, "parallelism", parallelism),
+                setting(name, "batchSize", batchSize), source ? 0 : setting(name, "capacity", capacity),
+                metrics == null ? new Counter() : metrics.counter("pipeline." + name + ".items"),
+                metrics == null ? new Counter() : metrics.counter("pipeline." + name + ".batches"),
+                metrics == null ? new Histogram() : metrics.histogram("pipeline." + name + ".batchNanos"));
+        if (metrics != null && !source) {
+            BlockingQueue<Object> queue = step.queue;
+            metrics.gauge("pipeline." + name + ".queue", queue::size);
+        }
+        return step;
+    }
+
+    private static int setting(String step, String key, int value) {
+        int configured = Integer.getInteger(PROPERTY_PREFIX + step + "." + key, value);
+        Validate.isTrue(configured >= 1, "Pipeline step %s must have a %s of at least 1, but was %s", step, key, configured);
+        return configured;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Runs the pipeline to completion on its own threads, waiting for it.
+     */
+    public void run() throws Exception {
+        Validate.validState(started.compareAndSet(false, true), "Pipeline %s has already been run", name);
+        startNanos = System.nanoTime();
+        synchronized (threads) {
+            if (aborted) {
+                logger.warn("Pipeline {} was aborted before it started", name);
+                return;
+            }
+            for (Step step : steps) {
+                step.remaining.set(step.parallelism);
+                for (int i = 1; i <= step.parallelism; i++) {
+                    Thread thread = new Thread(() -> runStep(step), "pipeline-" + step.name + "-" + i);
+                    thread.setDaemon(true);
+                    threads.add(thread);
+                }
+            }
+            threads.forEach(Thread::start);
+        }
+        logger.info("Pipeline {} started: {}", name, describe());
+        try {
+            while (!done.await(reportIntervalMillis > 0 ? reportIntervalMillis : Long.MAX_VALUE, TimeUnit.MILLISECONDS)) {
+                logger.info("Pipeline {}: {}", name, getStatistics());
+            }
+        } catch (InterruptedException e) {
+            logger.warn("Pipeline {} interrupted, abandoning queued items: {}", name, getStatistics());
+            abort();
+            throw e;
+        } finally {
+            endNanos = System.nanoTime();
+        }
+        Throwable t = failure.get();
+        if (t instanceof Exception) {
+            throw (Exception) t;
+        } else if (t instanceof Error) {
+            throw (Error) t;
+        } else if (aborted) {
+            logger.warn("Pipeline {} aborted, abandoning queued items: {}", name, getStatistics());
+            return;
+        }
+        logger.info("Pipeline {} completed in {}ms: {}", name, TimeUnit.NANOSECONDS.toMillis(endNanos - startNanos), getStatistics());
+    }
+
+    /**
+     * Stops reading from the source. The items already read still go through
+     * the rest of the pipeline.
+     */
+    public void stop() {
+        stopping = true;
+    }
+
+    /**
+     * Interrupts every step, abandoning the items still queued. {@link #run()}
+     * returns once the steps have finished; a pipeline aborted before it is
+     * run does not start.
+     */
+    public void abort() {
+        aborted = true;
+        synchronized (threads) {
+            for (Thread thread : threads) {
+                if (thread != Thread.currentThread()) {
+                    thread.interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true if every step has finished within the timeout, or the
+     * pipeline has not been started.
+     */
+    public boolean awaitTermination(long timeoutMillis) throws InterruptedException {
+        synchronized (threads) {
+            if (threads.isEmpty()) {
+                return true;
+            }
+        }
+        return done.await(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return for each step: the items and batches processed, the current
+     * throughput (items per second since the previous call, so each periodic
+     * report shows the rate over its interval), the average throughput since
+     * the pipeline started, the time spent busy in the step's method and
+     * blocked on the next step's full queue, and the number of items waiting
+     * in its own queue.
+     */
+    public synchronized Map<String, Map<String, Long>> getStatistics() {
+        long now = endNanos != 0 ? endNanos : System.nanoTime();
+        long elapsedMillis = startNanos == 0 ? 0 : Math.max(1, TimeUnit.NANOSECONDS.toMillis(now - startNanos));
+        long intervalNanos = startNanos == 0 ? 0 : now - (reportedNanos != 0 ? reportedNanos : startNanos);
+        Map<String, Map<String, Long>> statistics = new LinkedHashMap<>();
+        for (Step step : steps) {
+            Map<String, Long> s = new LinkedHashMap<>();
+            long items = step.items.getCount();
+            s.put("items", items);
+            s.put("batches", step.batches.getCount());
+            s.put("itemsPerSecond", intervalNanos <= 0 ? 0 : (items - step.reportedItems) * 1_000_000_000L / intervalNanos);
+            s.put("averageItemsPerSecond", elapsedMillis == 0 ? 0 : items * 1000 / elapsedMillis);
+            s.put("busyMillis", TimeUnit.NANOSECONDS.toMillis(step.busyNanos.sum()));
+            s.put("blockedMillis", TimeUnit.NANOSECONDS.toMillis(step.blockedNanos.sum()));
+            if (!step.source) {
+                s.put("queue", (long) step.queue.size());
+            }
+            statistics.put(step.name, s);
+            if (intervalNanos > 0) {
+                step.reportedItems = items;
+            }
+        }
+        if (intervalNanos > 0) {
+            reportedNanos = now;
+        }
+        return statistics;
+    }
+
+    private String describe() {
+        StringBuilder sb = new StringBuilder();
+        for (Step step : steps) {
+            if (sb.length() > 0) {
+                sb.append(" -> ");
+            }
+            sb.append(step.name).append(" [threads=").append(step.parallelism).append(", batchSize=").append(step.batchSize);
+            if (!step.source) {
+                sb.append(", capacity=").append(step.capacity);
+            }
+            sb.append(']');
+        }
+        return sb.toString();
+    }
+
+    private void runStep(Step step) {
+        try {
+            if (step.source) {
+                read(step);
+            } else {
+                process(step);
+            }
+        } catch (InterruptedException e) {
+            // aborted
+        } catch (Throwable t) {
+            if (failure.compareAndSet(null, t)) {
+                logger.error("Pipeline step {} failed, aborting pipeline {}", step.name, name, t);
+            }
+            abort();
+        } finally {
+            if (step.remaining.decrementAndGet() == 0 && step.next != null && !aborted) {
+                try {
+                    for (int i = 0; i < step.next.parallelism; i++) {
+                        step.next.queue.put(Step.END);
+                    }
+                } catch (InterruptedException e) {
+                    // aborted
+                }
+            }
+            done.countDown();
+        }
+    }
+
+    private void read(Step step) throws Exception {
+        Object[] args = step.batched ? new Object[]{step.batchSize} : new Object[0];
+        while (!stopping && !aborted && !stopRequested.getAsBoolean()) {
+            long begin = System.nanoTime();
+            Collection<?> batch = (Collection<?>) step.invoker.invoke(step.bean, args);
+            if (batch == null || batch.isEmpty()) {
+                return;
+            }
+            step.record(batch.size(), System.nanoTime() - begin);
+            for (Object item : batch) {
+                step.emit(item);
+            }
+        }
+        logger.info("Pipeline {} stopped reading from {}", name, step.name);
+    }
+
+    private void process(Step step) throws Exception {
+        BlockingQueue<Object> queue = step.queue;
+        // a step that swallows the interrupt still stops at the next item
+        while (!aborted) {
+            List<Object> batch = new ArrayList<>(Math.min(step.batchSize, 1024));
+            int ends = 0;
+            Object first = queue.take();
+            if (first == Step.END) {
+                ends++;
+            } else {
+                batch.add(first);
+                queue.drainTo(batch, step.batchSize - 1);
+                // nothing is queued after the end markers, so they are always at the end
+                while (!batch.isEmpty() && batch.get(batch.size() - 1) == Step.END) {
+                    batch.remove(batch.size() - 1);
+                    ends++;
+                }
+            }
+            if (!batch.isEmpty()) {
+                handle(step, batch);
+            }
+            if (ends > 0) {
+                // leave the other end markers for the other threads
+                for (int i = 1; i < ends; i++) {
+                    queue.put(Step.END);
+                }
+                return;
+            }
+        }
+    }
+
+    private void handle(Step step, List<Object> batch) throws Exception {
+        long begin = System.nanoTime();
+        long blocked = 0;
+        if (step.batched) {
+            Collection<?> results = (Collection<?>) step.invoker.invoke(step.bean, batch);
+            long invoked = System.nanoTime();
+            if (results != null && step.next != null) {
+                for (Object result : results) {
+                    step.emit(result);
+                }
+            }
+            step.record(batch.size(), invoked - begin);
+        } else {
+            for (Object item : batch) {
+                if (aborted) {
+                    return;
+                }
+                Object result = step.invoker.invoke(step.bean, item);
+                if (result != null && step.next != null) {
+                    blocked += step.emit(result);
+                }
+            }
+            step.record(batch.size(), System.nanoTime() - begin - blocked);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package uk.co.solong.application.pipeline;
+
+import uk.co.solong.application.invoke.MethodInvoker;
+import uk.co.solong.application.metrics.Counter;
+import uk.co.solong.application.metrics.Histogram;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One source, stage or sink of a {@link Pipeline}, with the queue it reads
+ * from (none for the source) and its statistics.
+ */
+final class Step {
+    /**
+     * Put on a queue, once for each of its readers, after the last item.
+     */
+    static final Object END = new Object();
+
+    final String name;
+    final boolean source;
+    final Object bean;
+    final MethodInvoker invoker;
+    final boolean batched;
+    final int parallelism;
+    final int batchSize;
+    final int capacity;
+    final BlockingQueue<Object> queue;
+    final AtomicInteger remaining = new AtomicInteger();
+    final Counter items;
+    final Counter batches;
+    final Histogram batchNanos;
+    final LongAdder busyNanos = new LongAdder();
+    final LongAdder blockedNanos = new LongAdder();
+    Step next;
+    /**
+     * Items processed when {@link Pipeline#getStatistics()} was last called.
+     */
+    long reportedItems;
+
+    Step(String name, boolean source, Object bean, MethodInvoker invoker, boolean batched, int parallelism, int batchSize, int capacity,
+         Counter items, Counter batches, Histogram batchNanos) {
+        this.name = name;
+        this.source = source;
+        this.bean = bean;
+        this.invoker = invoker;
+        this.batched = batched;
+        this.parallelism = parallelism;
+        this.batchSize = batchSize;
+        this.capacity = capacity;
+        this.queue = source ? null : new ArrayBlockingQueue<>(capacity);
+        this.items = items;
+        this.batches = batches;
+        this.batchNanos = batchNanos;
+    }
+
+    /**
+     * Records a batch that took the given time, excluding any time spent
+     * blocked on the next step's queue.
+     */
+    void record(int size, long nanos) {
+        items.add(size);
+        batches.increment();
+        batchNanos.record(nanos);
+        busyNanos.add(nanos);
+    }
+
+    /**
+     * Passes an item to the next step, waiting while its queue is full.
+     *
+     * @return the time spent waiting.
+     */
+    long emit(Object item) throws InterruptedException {
+        if (next.queue.offer(item)) {
+            return 0;
+        }
+        long begin = System.nanoTime();
+        next.queue.put(item);
+        long blocked = System.nanoTime() - begin;
+        blockedNanos.add(blocked);
+        return blocked;
+    }
+}
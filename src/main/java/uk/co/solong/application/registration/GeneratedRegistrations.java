@@ -0,0 +1,182 @@
+package uk.co.solong.application.registration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.support.GenericApplicationContext;
+import uk.co.solong.application.annotations.GeneratedRegistration;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>
+ * Finds the registration generated by {@link RegistrationProcessor} for a
+ * configuration annotated with {@link GeneratedRegistration}, and checks that
+ * it is up to date by comparing its signature with one computed from the
+ * configuration classes on the classpath.
+ * </p>
+ * <p>
+ * Set the system property {@value #IGNORE_PROPERTY} to <code>true</code> to
+ * always configure reflectively.
+ * </p>
+ *
+ * @author Daniel Burrell
+ *
+ */
+public final class GeneratedRegistrations {
+    private static final Logger logger = LoggerFactory.getLogger(GeneratedRegistrations.class);
+
+    public static final String IGNORE_PROPERTY = "uk.co.solong.registration.ignore";
+    public static final String SUFFIX = "__Registration";
+
+    private GeneratedRegistrations() {
+    }
+
+    /**
+     * Registers the configuration with the context, from generated code if
+     * possible and reflectively otherwise.
+     *
+     * @return true if the generated registration was used.
+     */
+    public static boolean register(AnnotationConfigApplicationContext context, Class<?> configuration) {
+        ApplicationContextInitializer<GenericApplicationContext> initializer = find(configuration);
+        if (initializer == null) {
+            context.register(configuration);
+            return false;
+        }
+        initializer.initialize(context);
+        logger.info("Registered {} from generated code", configuration.getName());
+        return true;
+    }
+
+    /**
+     * @return the generated registration for the configuration, or null if
+     * there is none, it is out of date, or generated registrations are ignored.
+     */
+    @SuppressWarnings("unchecked")
+    public static ApplicationContextInitializer<GenericApplicationContext> find(Class<?> configuration) {
+        if (Boolean.getBoolean(IGNORE_PROPERTY) || !configuration.isAnnotationPresent(GeneratedRegistration.class)) {
+            return null;
+        }
+        Class<?> generated;
+        try {
+            generated = Class.forName(configuration.getName() + SUFFIX, false, configuration.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            logger.info("No generated registration for {}, is annotation processing enabled?", configuration.getName());
+            return null;
+        }
+        try {
+            String expected = (String) generated.getField("SIGNATURE").get(null);
+            if (!expected.equals(signatureOf(configuration))) {
+                logger.info("Generated registration for {} is out of date, configuring it reflectively", configuration.getName());
+                return null;
+            }
+            return (ApplicationContextInitializer<GenericApplicationContext>) generated.getConstructor().newInstance();
+        } catch (ReflectiveOperationException | ClassCastException | LinkageError | SecurityException e) {
+            logger.warn("Unable to use generated registration {}, configuring reflectively", generated.getName(), e);
+            return null;
+        }
+    }
+
+    static String signatureOf(Class<?> configuration) throws ReflectiveOperationException {
+        Signature signature = new Signature();
+        visit(configuration, new HashSet<Class<?>>(), signature);
+        return signature.hash();
+    }
+
+    private static void visit(Class<?> type, Set<Class<?>> visited, Signature signature) throws ReflectiveOperationException {
+        if (!visited.add(type)) {
+            return;
+        }
+        List<String> interfaces = new ArrayList<>();
+        for (Class<?> i : type.getInterfaces()) {
+            interfaces.add(i.getCanonicalName());
+        }
+        signature.type(type.getCanonicalName(), type.getSuperclass() == null ? "" : type.getSuperclass().getCanonicalName(),
+                interfaces, render(type.getDeclaredAnnotations()));
+        for (Field field : type.getDeclaredFields()) {
+            if (field.getDeclaredAnnotations().length > 0) {
+                signature.field(type.getCanonicalName(), field.getName(), render(field.getDeclaredAnnotations()));
+            }
+        }
+        for (Method method : type.getDeclaredMethods()) {
+            if (method.isBridge() || method.isSynthetic() || !method.isAnnotationPresent(Bean.class)) {
+                continue;
+            }
+            List<String> parameterTypes = new ArrayList<>();
+            for (Class<?> parameterType : method.getParameterTypes()) {
+                parameterTypes.add(parameterType.getCanonicalName());
+            }
+            List<List<String>> parameterAnnotations = new ArrayList<>();
+            for (Annotation[] annotations : method.getParameterAnnotations()) {
+                parameterAnnotations.add(render(annotations));
+            }
+            signature.bean(type.getCanonicalName(), method.getName(), Modifier.isStatic(method.getModifiers()),
+                    method.getReturnType().getCanonicalName(), parameterTypes, render(method.getDeclaredAnnotations()), parameterAnnotations);
+        }
+        Import imports = type.getAnnotation(Import.class);
+        if (imports != null) {
+            for (Class<?> imported : imports.value()) {
+                visit(imported, visited, signature);
+            }
+        }
+    }
+
+    private static List<String> render(Annotation[] annotations) throws ReflectiveOperationException {
+        List<String> rendered = new ArrayList<>();
+        for (Annotation annotation : annotations) {
+            rendered.add(render(annotation));
+        }
+        return rendered;
+    }
+
+    private static String render(Annotation annotation) throws ReflectiveOperationException {
+        Map<String, String> values = new HashMap<>();
+        for (Method attribute : annotation.annotationType().getDeclaredMethods()) {
+            if (attribute.getParameterCount() == 0 && !attribute.isSynthetic()) {
+                attribute.setAccessible(true);
+                try {
+                    values.put(attribute.getName(), renderValue(attribute.invoke(annotation)));
+                } catch (InvocationTargetException e) {
+                    throw new ReflectiveOperationException("Unable to read " + attribute, e);
+                }
+            }
+        }
+        return Signature.annotation(annotation.annotationType().getCanonicalName(), values);
+    }
+
+    private static String renderValue(Object value) throws ReflectiveOperationException {
+        if (value instanceof String) {
+            return Signature.stringValue((String) value);
+        } else if (value instanceof Class) {
+            return Signature.classValue(((Class<?>) value).getCanonicalName());
+        } else if (value instanceof Enum) {
+            Enum<?> constant = (Enum<?>) value;
+            return Signature.enumValue(constant.getDeclaringClass().getCanonicalName(), constant.name());
+        } else if (value instanceof Annotation) {
+            return render((Annotation) value);
+        } else if (value != null && value.getClass().isArray()) {
+            String[] items = new String[Array.getLength(value)];
+            for (int i = 0; i < items.length; i++) {
+                items[i] = renderValue(Array.get(value, i));
+            }
+            return Signature.arrayValue(Arrays.asList(items));
+        }
+        return String.valueOf(value);
+    }
+}
@@ -0,0 +1,526 @@
+package uk.co.solong.application.registration;
+
+import uk.co.solong.application.annotations.GeneratedRegistration;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>
+ * Annotation processor that generates an
+ * <code>ApplicationContextInitializer</code> for every configuration annotated
+ * with {@link GeneratedRegistration}. The initializer instantiates the
+ * configuration (and every configuration it imports) directly and registers
+ * each <code>@Bean</code> method as a functional bean definition, so that
+ * refresh does not need to parse the configuration or proxy it.
+ * </p>
+ * <p>
+ * The generated class is named after the configuration with the suffix
+ * {@value GeneratedRegistrations#SUFFIX} and records a {@link Signature} of the
+ * configuration graph, which {@link GeneratedRegistrations} checks before
+ * using it. Configurations that use anything beyond <code>@Import</code>,
+ * <code>@PropertySource</code> (with the default factory), <code>@Bean</code>,
+ * <code>@Primary</code>, <code>@Lazy</code>, <code>@DependsOn</code> and
+ * <code>@Qualifier</code> parameters are reported with a warning and left to
+ * the reflective path.
+ * </p>
+ * <p>
+ * Like {@link Signature}, this class must not use logging or Spring, since it
+ * runs inside javac.
+ * </p>
+ *
+ * @author Daniel Burrell
+ *
+ */
+public class RegistrationProcessor extends AbstractProcessor {
+
+    static final String CONFIGURATION = "org.springframework.context.annotation.Configuration";
+    static final String IMPORT = "org.springframework.context.annotation.Import";
+    static final String PROPERTY_SOURCE = "org.springframework.context.annotation.PropertySource";
+    static final String PROPERTY_SOURCES = "org.springframework.context.annotation.PropertySources";
+    static final String PROPERTY_SOURCE_FACTORY = "org.springframework.core.io.support.PropertySourceFactory";
+    static final String BEAN = "org.springframework.context.annotation.Bean";
+    static final String PRIMARY = "org.springframework.context.annotation.Primary";
+    static final String LAZY = "org.springframework.context.annotation.Lazy";
+    static final String DEPENDS_ON = "org.springframework.context.annotation.DependsOn";
+    static final String DESCRIPTION = "org.springframework.context.annotation.Description";
+    static final String QUALIFIER = "org.springframework.beans.factory.annotation.Qualifier";
+
+    private static final String OWN_ANNOTATIONS = GeneratedRegistration.class.getPackage().getName() + ".";
+    private static final Set<String> CLASS_ANNOTATIONS = new HashSet<>(Arrays.asList(CONFIGURATION, IMPORT, PROPERTY_SOURCE, PROPERTY_SOURCES, Deprecated.class.getName()));
+    private static final Set<String> BEAN_ANNOTATIONS = new HashSet<>(Arrays.asList(BEAN, PRIMARY, LAZY, DEPENDS_ON, DESCRIPTION, Deprecated.class.getName()));
+    private static final Set<String> PARAMETER_ANNOTATIONS = Collections.singleton(QUALIFIER);
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(GeneratedRegistration.class.getName());
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(GeneratedRegistration.class)) {
+            if (!(element instanceof TypeElement)) {
+                continue;
+            }
+            TypeElement root = (TypeElement) element;
+            try {
+                generate(root);
+            } catch (UnsupportedConfigurationException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                        "Not generating a registration for " + root.getQualifiedName() + ", it will be configured reflectively: " + e.getMessage(), root);
+            }
+        }
+        return false;
+    }
+
+    private void generate(TypeElement root) throws UnsupportedConfigurationException {
+        String packageName = processingEnv.getElementUtils().getPackageOf(root).getQualifiedName().toString();
+        Map<String, TypeElement> graph = new LinkedHashMap<>();
+        List<AnnotationMirror> propertySources = new ArrayList<>();
+        Signature signature = new Signature();
+        visit(root, packageName, graph, propertySources, new HashSet<String>(), signature);
+
+        String binaryName = processingEnv.getElementUtils().getBinaryName(root).toString();
+        String simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1)) + GeneratedRegistrations.SUFFIX;
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("/**\n * Bean registration for {@link ").append(root.getQualifiedName()).append("}, generated by ")
+                .append(RegistrationProcessor.class.getName()).append(".\n */\n");
+        source.append("public final class ").append(simpleName)
+                .append(" implements org.springframework.context.ApplicationContextInitializer<org.springframework.context.support.GenericApplicationContext> {\n\n");
+        source.append("    public static final String SIGNATURE = ").append(literal(signature.hash())).append(";\n\n");
+        source.append("    @Override\n    public void initialize(final org.springframework.context.support.GenericApplicationContext context) {\n");
+        if (!propertySources.isEmpty()) {
+            source.append("        final java.util.List<String> propertySources = new java.util.ArrayList<>();\n");
+            for (AnnotationMirror propertySource : propertySources) {
+                appendPropertySource(source, propertySource);
+            }
+        }
+        int index = 0;
+        for (TypeElement type : graph.values()) {
+            String variable = "config" + index++;
+            source.append("        final ").append(type.getQualifiedName()).append(' ').append(variable)
+                    .append(" = new ").append(type.getQualifiedName()).append("();\n");
+            source.append("        context.getBeanFactory().registerSingleton(").append(literal(configurationBeanName(type, type == root)))
+                    .append(", ").append(variable).append(");\n");
+            for (ExecutableElement method : beanMethods(type)) {
+                appendBean(source, type, variable, method);
+            }
+        }
+        source.append("    }\n}\n");
+
+        try {
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(packageName.isEmpty() ? simpleName : packageName + "." + simpleName,
+                    graph.values().toArray(new Element[0]));
+            try (Writer writer = file.openWriter()) {
+                writer.write(source.toString());
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Unable to write registration for " + root.getQualifiedName() + ": " + e.getMessage(), root);
+        }
+    }
+
+    /**
+     * Adds the type and everything it imports to the graph, imports first (the
+     * order in which Spring registers them), checking that the generated code
+     * can reproduce what Spring would do with it. Property sources are
+     * collected in the order Spring processes them: a type's own before those
+     * of its imports.
+     */
+    private void visit(TypeElement type, String packageName, Map<String, TypeElement> graph, List<AnnotationMirror> propertySources,
+                       Set<String> visiting, Signature signature) throws UnsupportedConfigurationException {
+        String name = type.getQualifiedName().toString();
+        if (graph.containsKey(name)) {
+            return;
+        }
+        if (!visiting.add(name)) {
+            throw new UnsupportedConfigurationException("circular @Import of " + name);
+        }
+        if (type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.ABSTRACT)) {
+            throw new UnsupportedConfigurationException(name + " is not a concrete class");
+        }
+        if (type.getNestingKind() == NestingKind.MEMBER && !type.getModifiers().contains(Modifier.STATIC)) {
+            throw new UnsupportedConfigurationException(name + " is an inner class");
+        }
+        if (!isAccessible(type, packageName)) {
+            throw new UnsupportedConfigurationException(name + " is not accessible from package " + packageName);
+        }
+        if (!type.getInterfaces().isEmpty()) {
+            throw new UnsupportedConfigurationException(name + " implements interfaces");
+        }
+        if (!Object.class.getName().equals(erasure(type.getSuperclass()))) {
+            throw new UnsupportedConfigurationException(name + " extends another class");
+        }
+        List<String> interfaces = new ArrayList<>();
+        for (TypeMirror mirror : type.getInterfaces()) {
+            interfaces.add(erasure(mirror));
+        }
+        List<String> annotations = new ArrayList<>();
+        for (AnnotationMirror mirror : runtimeAnnotations(type)) {
+            String annotation = annotationName(mirror);
+            if (!CLASS_ANNOTATIONS.contains(annotation) && !annotation.startsWith(OWN_ANNOTATIONS)) {
+                throw new UnsupportedConfigurationException("@" + annotation + " on " + name + " is not supported");
+            }
+            annotations.add(render(mirror));
+            if (annotation.equals(PROPERTY_SOURCE)) {
+                propertySources.add(checkPropertySource(name, mirror));
+            } else if (annotation.equals(PROPERTY_SOURCES)) {
+                for (AnnotationValue value : values(mirror.getElementValues(), "value")) {
+                    propertySources.add(checkPropertySource(name, (AnnotationMirror) value.getValue()));
+                }
+            }
+        }
+        signature.type(name, erasure(type.getSuperclass()), interfaces, annotations);
+
+        boolean hasDefaultConstructor = false;
+        Set<String> beanNames = new HashSet<>();
+        for (Element member : type.getEnclosedElements()) {
+            List<AnnotationMirror> memberAnnotations = runtimeAnnotations(member);
+            if (member.getKind() == ElementKind.FIELD && !memberAnnotations.isEmpty()) {
+                throw new UnsupportedConfigurationException("annotated field " + name + "." + member.getSimpleName() + " is not supported");
+            } else if (member.getKind() == ElementKind.CONSTRUCTOR) {
+                ExecutableElement constructor = (ExecutableElement) member;
+                if (constructor.getParameters().isEmpty() && memberAnnotations.isEmpty() && isAccessible(constructor, packageName)) {
+                    hasDefaultConstructor = true;
+                }
+            } else if (member.getKind() == ElementKind.METHOD && find(memberAnnotations, BEAN) != null) {
+                if (!beanNames.add(member.getSimpleName().toString())) {
+                    throw new UnsupportedConfigurationException("overloaded @Bean method " + name + "." + member.getSimpleName() + " is not supported");
+                }
+                checkBeanMethod(name, (ExecutableElement) member, memberAnnotations, packageName, signature);
+            } else if (member.getKind() == ElementKind.METHOD && !memberAnnotations.isEmpty()) {
+                throw new UnsupportedConfigurationException("annotated method " + name + "." + member.getSimpleName() + " is not supported");
+            }
+        }
+        if (!hasDefaultConstructor) {
+            throw new UnsupportedConfigurationException(name + " has no accessible no-arg constructor");
+        }
+
+        AnnotationMirror imports = find(runtimeAnnotations(type), IMPORT);
+        if (imports != null) {
+            for (AnnotationValue value : values(imports.getElementValues(), "value")) {
+                TypeElement imported = (TypeElement) processingEnv.getTypeUtils().asElement((TypeMirror) value.getValue());
+                visit(imported, packageName, graph, propertySources, visiting, signature);
+            }
+        }
+        visiting.remove(name);
+        graph.put(name, type);
+    }
+
+    private AnnotationMirror checkPropertySource(String className, AnnotationMirror propertySource) throws UnsupportedConfigurationException {
+        Map<? extends ExecutableElement, ? extends AnnotationValue> values = processingEnv.getElementUtils().getElementValuesWithDefaults(propertySource);
+        if (!PROPERTY_SOURCE_FACTORY.equals(erasure((TypeMirror) values(values, "factory").get(0).getValue()))) {
+            throw new UnsupportedConfigurationException("@PropertySource(factory) on " + className + " is not supported");
+        }
+        if (values(values, "value").isEmpty()) {
+            throw new UnsupportedConfigurationException("@PropertySource on " + className + " has no location");
+        }
+        return propertySource;
+    }
+
+    private void checkBeanMethod(String className, ExecutableElement method, List<AnnotationMirror> annotations, String packageName, Signature signature) throws UnsupportedConfigurationException {
+        String name = className + "." + method.getSimpleName();
+        if (!isAccessible(method, packageName)) {
+            throw new UnsupportedConfigurationException("@Bean method " + name + " is not accessible from package " + packageName);
+        }
+        if (!method.getTypeParameters().isEmpty()) {
+            throw new UnsupportedConfigurationException("generic @Bean method " + name + " is not supported");
+        }
+        checkType(method.getReturnType(), "return type of " + name, packageName);
+        List<String> rendered = new ArrayList<>();
+        for (AnnotationMirror mirror : annotations) {
+            if (!BEAN_ANNOTATIONS.contains(annotationName(mirror))) {
+                throw new UnsupportedConfigurationException("@" + annotationName(mirror) + " on " + name + " is not supported");
+            }
+            rendered.add(render(mirror));
+        }
+        AnnotationMirror bean = find(annotations, BEAN);
+        for (AnnotationValue autowire : values(processingEnv.getElementUtils().getElementValuesWithDefaults(bean), "autowire")) {
+            if (!"NO".equals(((VariableElement) autowire.getValue()).getSimpleName().toString())) {
+                throw new UnsupportedConfigurationException("@Bean(autowire) on " + name + " is not supported");
+            }
+        }
+
+        List<String> parameterTypes = new ArrayList<>();
+        List<List<String>> parameterAnnotations = new ArrayList<>();
+        for (VariableElement parameter : method.getParameters()) {
+            checkType(parameter.asType(), "parameter " + parameter.getSimpleName() + " of " + name, packageName);
+            List<String> renderedParameter = new ArrayList<>();
+            for (AnnotationMirror mirror : runtimeAnnotations(parameter)) {
+                if (!PARAMETER_ANNOTATIONS.contains(annotationName(mirror))) {
+                    throw new UnsupportedConfigurationException("@" + annotationName(mirror) + " on parameter " + parameter.getSimpleName() + " of " + name + " is not supported");
+                }
+                renderedParameter.add(render(mirror));
+            }
+            parameterTypes.add(erasure(parameter.asType()));
+            parameterAnnotations.add(renderedParameter);
+        }
+        signature.bean(className, method.getSimpleName().toString(), method.getModifiers().contains(Modifier.STATIC),
+                erasure(method.getReturnType()), parameterTypes, rendered, parameterAnnotations);
+    }
+
+    private void checkType(TypeMirror type, String description, String packageName) throws UnsupportedConfigurationException {
+        if (type.getKind() != TypeKind.DECLARED) {
+            throw new UnsupportedConfigurationException(description + " must be a class or interface");
+        }
+        if (!((DeclaredType) type).getTypeArguments().isEmpty()) {
+            throw new UnsupportedConfigurationException(description + " is generic");
+        }
+        if (!isAccessible(((DeclaredType) type).asElement(), packageName)) {
+            throw new UnsupportedConfigurationException(description + " is not accessible from package " + packageName);
+        }
+    }
+
+    private void appendPropertySource(StringBuilder source, AnnotationMirror propertySource) {
+        Map<? extends ExecutableElement, ? extends AnnotationValue> values = processingEnv.getElementUtils().getElementValuesWithDefaults(propertySource);
+        List<String> locations = new ArrayList<>();
+        for (AnnotationValue value : values(values, "value")) {
+            locations.add(literal((String) value.getValue()));
+        }
+        source.append("        ").append(RegistrationSupport.class.getName()).append(".addPropertySource(context, ")
+                .append(literal((String) values(values, "name").get(0).getValue())).append(", new String[]{").append(String.join(", ", locations)).append("}, ")
+                .append(values(values, "ignoreResourceNotFound").get(0).getValue()).append(", ")
+                .append(literal((String) values(values, "encoding").get(0).getValue())).append(", propertySources);\n");
+    }
+
+    private void appendBean(StringBuilder source, TypeElement type, String variable, ExecutableElement method) {
+        List<AnnotationMirror> annotations = runtimeAnnotations(method);
+        Map<? extends ExecutableElement, ? extends AnnotationValue> bean = processingEnv.getElementUtils().getElementValuesWithDefaults(find(annotations, BEAN));
+        List<String> names = new ArrayList<>();
+        for (AnnotationValue value : values(bean, "name")) {
+            names.add((String) value.getValue());
+        }
+        for (AnnotationValue value : values(bean, "value")) {
+            names.add((String) value.getValue());
+        }
+        String beanName = names.isEmpty() ? method.getSimpleName().toString() : names.remove(0);
+        String beanType = erasure(method.getReturnType());
+
+        List<String> arguments = new ArrayList<>();
+        for (VariableElement parameter : method.getParameters()) {
+            AnnotationMirror qualifier = find(runtimeAnnotations(parameter), QUALIFIER);
+            String qualifierValue = qualifier == null ? null : (String) values(processingEnv.getElementUtils().getElementValuesWithDefaults(qualifier), "value").get(0).getValue();
+            arguments.add(RegistrationSupport.class.getName() + ".resolve(context, " + erasure(parameter.asType()) + ".class, "
+                    + literal(parameter.getSimpleName().toString()) + ", " + (qualifierValue == null || qualifierValue.isEmpty() ? "null" : literal(qualifierValue)) + ")");
+        }
+        String target = method.getModifiers().contains(Modifier.STATIC) ? type.getQualifiedName().toString() : variable;
+        String call = target + "." + method.getSimpleName() + "(" + String.join(", ", arguments) + ")";
+
+        source.append("        context.registerBean(").append(literal(beanName)).append(", ").append(beanType).append(".class, () -> ");
+        if (method.getThrownTypes().isEmpty()) {
+            source.append(call);
+        } else {
+            source.append("{\n            try {\n                return ").append(call).append(";\n")
+                    .append("            } catch (RuntimeException | Error e) {\n                throw e;\n")
+                    .append("            } catch (Throwable e) {\n                throw new org.springframework.beans.factory.BeanCreationException(")
+                    .append(literal(beanName)).append(", ").append(literal("Factory method '" + method.getSimpleName() + "' threw exception")).append(", e);\n")
+                    .append("            }\n        }");
+        }
+        source.append(", bd -> {\n");
+        if (find(annotations, PRIMARY) != null) {
+            source.append("            bd.setPrimary(true);\n");
+        }
+        AnnotationMirror lazy = find(annotations, LAZY);
+        if (lazy != null) {
+            source.append("            bd.setLazyInit(").append(values(processingEnv.getElementUtils().getElementValuesWithDefaults(lazy), "value").get(0).getValue()).append(");\n");
+        }
+        AnnotationMirror dependsOn = find(annotations, DEPENDS_ON);
+        if (dependsOn != null) {
+            List<String> dependencies = new ArrayList<>();
+            for (AnnotationValue value : values(dependsOn.getElementValues(), "value")) {
+                dependencies.add(literal((String) value.getValue()));
+            }
+            source.append("            bd.setDependsOn(new String[]{").append(String.join(", ", dependencies)).append("});\n");
+        }
+        if (Boolean.FALSE.equals(values(bean, "autowireCandidate").get(0).getValue())) {
+            source.append("            bd.setAutowireCandidate(false);\n");
+        }
+        String initMethod = (String) values(bean, "initMethod").get(0).getValue();
+        if (!initMethod.isEmpty()) {
+            source.append("            bd.setInitMethodName(").append(literal(initMethod)).append(");\n");
+        }
+        source.append("            bd.setDestroyMethodName(").append(literal((String) values(bean, "destroyMethod").get(0).getValue())).append(");\n");
+        source.append("        });\n");
+        for (String alias : names) {
+            source.append("        context.registerAlias(").append(literal(beanName)).append(", ").append(literal(alias)).append(");\n");
+        }
+    }
+
+    private List<ExecutableElement> beanMethods(TypeElement type) {
+        List<ExecutableElement> methods = new ArrayList<>();
+        for (Element member : type.getEnclosedElements()) {
+            if (member.getKind() == ElementKind.METHOD && find(runtimeAnnotations(member), BEAN) != null) {
+                methods.add((ExecutableElement) member);
+            }
+        }
+        return methods;
+    }
+
+    /**
+     * The name Spring would give the configuration: the
+     * <code>@Configuration</code> value or decapitalised short class name for
+     * the registered class, and the class name for imported ones.
+     */
+    private String configurationBeanName(TypeElement type, boolean root) {
+        if (!root) {
+            return processingEnv.getElementUtils().getBinaryName(type).toString();
+        }
+        AnnotationMirror configuration = find(runtimeAnnotations(type), CONFIGURATION);
+        if (configuration != null) {
+            List<AnnotationValue> value = values(configuration.getElementValues(), "value");
+            if (!value.isEmpty() && !((String) value.get(0).getValue()).isEmpty()) {
+                return (String) value.get(0).getValue();
+            }
+        }
+        String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+        String shortName = binaryName.substring(binaryName.lastIndexOf('.') + 1).replace('$', '.');
+        if (shortName.length() > 1 && Character.isUpperCase(shortName.charAt(0)) && Character.isUpperCase(shortName.charAt(1))) {
+            return shortName;
+        }
+        return Character.toLowerCase(shortName.charAt(0)) + shortName.substring(1);
+    }
+
+    private boolean isAccessible(Element element, String packageName) {
+        for (Element e = element; e != null && e.getKind() != ElementKind.PACKAGE; e = e.getEnclosingElement()) {
+            Set<Modifier> modifiers = e.getModifiers();
+            if (modifiers.contains(Modifier.PRIVATE)) {
+                return false;
+            }
+            if (!modifiers.contains(Modifier.PUBLIC)
+                    && !processingEnv.getElementUtils().getPackageOf(e).getQualifiedName().contentEquals(packageName)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private List<AnnotationMirror> runtimeAnnotations(Element element) {
+        List<AnnotationMirror> result = new ArrayList<>();
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            Retention retention = mirror.getAnnotationType().asElement().getAnnotation(Retention.class);
+            if (retention != null && retention.value() == RetentionPolicy.RUNTIME) {
+                result.add(mirror);
+            }
+        }
+        return result;
+    }
+
+    private static AnnotationMirror find(List<AnnotationMirror> annotations, String name) {
+        for (AnnotationMirror mirror : annotations) {
+            if (annotationName(mirror).equals(name)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the value of the named attribute as a list, whether it is an
+     * array or a single value, or an empty list if it is absent.
+     */
+    @SuppressWarnings("unchecked")
+    private static List<AnnotationValue> values(Map<? extends ExecutableElement, ? extends AnnotationValue> values, String attribute) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : values.entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(attribute)) {
+                Object value = entry.getValue().getValue();
+                return value instanceof List ? new ArrayList<>((List<AnnotationValue>) value) : new ArrayList<>(Collections.singletonList(entry.getValue()));
+            }
+        }
+        return new ArrayList<>();
+    }
+
+    private static String annotationName(AnnotationMirror mirror) {
+        return ((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().toString();
+    }
+
+    private String render(AnnotationMirror mirror) {
+        Map<String, String> values = new HashMap<>();
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : processingEnv.getElementUtils().getElementValuesWithDefaults(mirror).entrySet()) {
+            values.put(entry.getKey().getSimpleName().toString(), render(entry.getValue()));
+        }
+        return Signature.annotation(annotationName(mirror), values);
+    }
+
+    @SuppressWarnings("unchecked")
+    private String render(AnnotationValue annotationValue) {
+        Object value = annotationValue.getValue();
+        if (value instanceof String) {
+            return Signature.stringValue((String) value);
+        } else if (value instanceof TypeMirror) {
+            return Signature.classValue(erasure((TypeMirror) value));
+        } else if (value instanceof VariableElement) {
+            VariableElement constant = (VariableElement) value;
+            return Signature.enumValue(((TypeElement) constant.getEnclosingElement()).getQualifiedName().toString(), constant.getSimpleName().toString());
+        } else if (value instanceof AnnotationMirror) {
+            return render((AnnotationMirror) value);
+        } else if (value instanceof List) {
+            List<String> items = new ArrayList<>();
+            for (AnnotationValue item : (List<AnnotationValue>) value) {
+                items.add(render(item));
+            }
+            return Signature.arrayValue(items);
+        }
+        return String.valueOf(value);
+    }
+
+    private String erasure(TypeMirror type) {
+        return processingEnv.getTypeUtils().erasure(type).toString();
+    }
+
+    private static String literal(String value) {
+        StringBuilder literal = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                literal.append('\\').append(c);
+            } else if (c < 0x20) {
+                literal.append(String.format("\\%03o", (int) c));
+            } else {
+                literal.append(c);
+            }
+        }
+        return literal.append('"').toString();
+    }
+
+    private static class UnsupportedConfigurationException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        UnsupportedConfigurationException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package uk.co.solong.application.registration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanDefinitionStoreException;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.env.CompositePropertySource;
+import org.springframework.core.env.MutablePropertySources;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.core.io.support.ResourcePropertySource;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.UnknownHostException;
+import java.util.List;
+
+/**
+ * Runtime support for the code generated by {@link RegistrationProcessor}.
+ *
+ * @author Daniel Burrell
+ *
+ */
+public final class RegistrationSupport {
+    private static final Logger logger = LoggerFactory.getLogger(RegistrationSupport.class);
+
+    private RegistrationSupport() {
+    }
+
+    /**
+     * Resolves a <code>@Bean</code> method parameter the way Spring would for
+     * the common cases: the bean named by the qualifier if there is one,
+     * otherwise the single (or primary) bean of the type, falling back to the
+     * bean named after the parameter when there are several.
+     */
+    public static <T> T resolve(GenericApplicationContext context, Class<T> type, String parameterName, String qualifier) {
+        if (qualifier != null) {
+            return context.getBean(qualifier, type);
+        }
+        if (type.isInstance(context)) {
+            return type.cast(context);
+        }
+        if (type.isInstance(context.getBeanFactory())) {
+            return type.cast(context.getBeanFactory());
+        }
+        String[] candidates = context.getBeanNamesForType(type);
+        if (candidates.length > 1 && context.containsBean(parameterName)) {
+            for (String candidate : candidates) {
+                if (candidate.equals(parameterName)) {
+                    return context.getBean(parameterName, type);
+                }
+            }
+        }
+        return context.getBean(type);
+    }
+
+    /**
+     * Adds the properties files of a <code>@PropertySource</code> to the
+     * environment as Spring would when parsing the configuration: placeholders
+     * in the locations are resolved against the environment, each source is
+     * added before the ones added earlier (tracked in added), and sources with
+     * the same name are combined.
+     */
+    public static void addPropertySource(GenericApplicationContext context, String name, String[] locations,
+                                         boolean ignoreResourceNotFound, String encoding, List<String> added) {
+        for (String location : locations) {
+            try {
+                Resource resource = context.getResource(context.getEnvironment().resolveRequiredPlaceholders(location));
+                EncodedResource encoded = new EncodedResource(resource, encoding.isEmpty() ? null : encoding);
+                add(context.getEnvironment().getPropertySources(),
+                        name.isEmpty() ? new ResourcePropertySource(encoded) : new ResourcePropertySource(name, encoded), added);
+            } catch (IllegalArgumentException | FileNotFoundException | UnknownHostException e) {
+                if (!ignoreResourceNotFound) {
+                    throw new BeanDefinitionStoreException("Unable to load @PropertySource " + location, e);
+                }
+                logger.info("Properties location [{}] not resolvable: {}", location, e.getMessage());
+            } catch (IOException e) {
+                throw new BeanDefinitionStoreException("Unable to load @PropertySource " + location, e);
+            }
+        }
+    }
+
+    private static void add(MutablePropertySources sources, ResourcePropertySource source, List<String> added) {
+        String name = source.getName();
+        PropertySource<?> existing = added.contains(name) ? sources.get(name) : null;
+        if (existing != null) {
+            if (existing instanceof CompositePropertySource) {
+                ((CompositePropertySource) existing).addFirstPropertySource(source.withResourceName());
+            } else {
+                CompositePropertySource composite = new CompositePropertySource(name);
+                composite.addPropertySource(source.withResourceName());
+                composite.addPropertySource(existing instanceof ResourcePropertySource ? ((ResourcePropertySource) existing).withResourceName() : existing);
+                sources.replace(name, composite);
+            }
+            return;
+        }
+        if (added.isEmpty()) {
+            sources.addLast(source);
+        } else {
+            sources.addBefore(added.get(added.size() - 1), source);
+        }
+        added.add(name);
+    }
+}
@@ -0,0 +1,105 @@
+package uk.co.solong.application.registration;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Canonical description of a configuration graph: its classes, their runtime
+ * annotations, annotated fields and <code>@Bean</code> methods. It is built
+ * from the compiler's model by {@link RegistrationProcessor} and from
+ * reflection by {@link GeneratedRegistrations}; generated code is out of date
+ * when the two hashes differ.
+ * <p>
+ * Free of logging and Spring so that it can run inside javac.
+ * </p>
+ */
+final class Signature {
+
+    private final SortedMap<String, SortedSet<String>> classes = new TreeMap<>();
+
+    void type(String className, String superclass, Collection<String> interfaces, Collection<String> annotations) {
+        members(className).add("0 extends " + superclass + " implements " + sorted(interfaces) + " " + sorted(annotations));
+    }
+
+    void field(String className, String name, Collection<String> annotations) {
+        members(className).add("1 field " + name + " " + sorted(annotations));
+    }
+
+    void bean(String className, String method, boolean isStatic, String returnType, List<String> parameterTypes,
+              Collection<String> annotations, List<? extends Collection<String>> parameterAnnotations) {
+        List<String> parameters = new ArrayList<>();
+        for (int i = 0; i < parameterTypes.size(); i++) {
+            parameters.add(parameterTypes.get(i) + " " + sorted(parameterAnnotations.get(i)));
+        }
+        members(className).add("2 bean " + (isStatic ? "static " : "") + returnType + " " + method + "(" + String.join(", ", parameters) + ") " + sorted(annotations));
+    }
+
+    String hash() {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, SortedSet<String>> type : classes.entrySet()) {
+            text.append("class ").append(type.getKey()).append('\n');
+            for (String member : type.getValue()) {
+                text.append(member).append('\n');
+            }
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    static String annotation(String type, Map<String, String> values) {
+        StringBuilder text = new StringBuilder("@").append(type).append('(');
+        boolean first = true;
+        for (Map.Entry<String, String> value : new TreeMap<>(values).entrySet()) {
+            if (!first) {
+                text.append(", ");
+            }
+            first = false;
+            text.append(value.getKey()).append('=').append(value.getValue());
+        }
+        return text.append(')').toString();
+    }
+
+    static String stringValue(String value) {
+        return '"' + value + '"';
+    }
+
+    static String classValue(String canonicalName) {
+        return canonicalName + ".class";
+    }
+
+    static String enumValue(String type, String constant) {
+        return type + "." + constant;
+    }
+
+    static String arrayValue(List<String> values) {
+        return "{" + String.join(", ", values) + "}";
+    }
+
+    private SortedSet<String> members(String className) {
+        return classes.computeIfAbsent(className, k -> new TreeSet<>());
+    }
+
+    private static String sorted(Collection<String> values) {
+        List<String> list = new ArrayList<>(values);
+        Collections.sort(list);
+        return list.toString();
+    }
+}
@@ -0,0 +1,238 @@
+package uk.co.solong.application.shutdown;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.Lifecycle;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.ContextClosedEvent;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * Destroys the singletons of a closing context on several threads. As a
+ * {@link SmartLifecycle} in the first phase it is stopped last, once every
+ * other lifecycle bean has stopped, and then destroys each singleton as soon
+ * as every bean that depends on it has been destroyed, so independent beans
+ * are destroyed concurrently and no bean is destroyed while a dependent still
+ * needs it. Beans in a dependency cycle, and lifecycle beans that are still
+ * running, are left for the context to destroy as usual afterwards.
+ * </p>
+ * <p>
+ * It only destroys anything while its context is closing, i.e. after the
+ * context has published its {@link ContextClosedEvent}, which it does before
+ * stopping the lifecycle beans. A plain {@link Lifecycle#stop()} of the
+ * context leaves every singleton in place.
+ * </p>
+ * <p>
+ * With one thread it destroys nothing itself, and only records when the
+ * lifecycle beans finished stopping, for {@link ShutdownCoordinator}'s timings.
+ * </p>
+ *
+ * @author Daniel Burrell
+ *
+ */
+public class ParallelDestroyer implements SmartLifecycle, BeanFactoryAware, ApplicationContextAware, ApplicationListener<ContextClosedEvent> {
+    private static final Logger logger = LoggerFactory.getLogger(ParallelDestroyer.class);
+
+    public static final String BEAN_NAME = ParallelDestroyer.class.getName();
+
+    private final int threads;
+    private DefaultListableBeanFactory beanFactory;
+    private ApplicationContext applicationContext;
+    private volatile boolean running;
+    private volatile boolean closing;
+    private volatile long stoppedNanos;
+
+    public ParallelDestroyer(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Expected at least 1 thread, but was " + threads);
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Registers a ParallelDestroyer with the context. Must be called before
+     * the context is refreshed.
+     */
+    public static void configure(ConfigurableApplicationContext context, int threads) {
+        RootBeanDefinition definition = new RootBeanDefinition(ParallelDestroyer.class, () -> new ParallelDestroyer(threads));
+        definition.setRole(BeanDefinition.ROLE_INFRASTRUCTURE);
+        ((BeanDefinitionRegistry) context.getBeanFactory()).registerBeanDefinition(BEAN_NAME, definition);
+    }
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+        if (beanFactory instanceof DefaultListableBeanFactory) {
+            this.beanFactory = (DefaultListableBeanFactory) beanFactory;
+        }
+    }
+
+    @Override
+    public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
+        this.applicationContext = applicationContext;
+    }
+
+    @Override
+    public void onApplicationEvent(ContextClosedEvent event) {
+        // a child context's event is also published to its parent
+        if (event.getApplicationContext() == applicationContext) {
+            closing = true;
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (!closing) {
+            return;
+        }
+        stoppedNanos = System.nanoTime();
+        if (threads > 1 && beanFactory != null) {
+            destroySingletons();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return true;
+    }
+
+    @Override
+    public int getPhase() {
+        return Integer.MIN_VALUE;
+    }
+
+    /**
+     * @return when every other lifecycle bean had stopped, or 0.
+     */
+    long getStoppedNanos() {
+        return stoppedNanos;
+    }
+
+    void destroySingletons() {
+        Set<String> names = new LinkedHashSet<>(Arrays.asList(beanFactory.getSingletonNames()));
+        names.remove(BEAN_NAME);
+        names.removeIf(name -> {
+            Object singleton = beanFactory.getSingleton(name);
+            return singleton instanceof Lifecycle && ((Lifecycle) singleton).isRunning();
+        });
+        Map<String, Set<String>> dependencies = new HashMap<>();
+        Map<String, AtomicInteger> dependents = new LinkedHashMap<>();
+        for (String name : names) {
+            dependents.put(name, new AtomicInteger());
+        }
+        for (String name : names) {
+            Set<String> own = new LinkedHashSet<>(Arrays.asList(beanFactory.getDependenciesForBean(name)));
+            own.retainAll(names);
+            own.remove(name);
+            dependencies.put(name, own);
+            for (String dependency : own) {
+                dependents.get(dependency).incrementAndGet();
+            }
+        }
+        List<String> ready = new ArrayList<>();
+        for (Map.Entry<String, AtomicInteger> entry : dependents.entrySet()) {
+            if (entry.getValue().get() == 0) {
+                ready.add(entry.getKey());
+            }
+        }
+        int destroyable = countDestroyable(ready, dependencies, dependents);
+        if (destroyable == 0) {
+            return;
+        }
+        long begin = System.nanoTime();
+        AtomicInteger count = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, destroyable), r -> {
+            Thread thread = new Thread(r, "destroy-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        CountDownLatch done = new CountDownLatch(destroyable);
+        try {
+            for (String name : ready) {
+                submit(executor, name, dependencies, dependents, done);
+            }
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Interrupted with {} beans still to destroy", done.getCount());
+        } finally {
+            executor.shutdown();
+        }
+        logger.info("Destroyed {} beans on {} thread(s) in {}ms", destroyable, Math.min(threads, destroyable), (System.nanoTime() - begin) / 1_000_000);
+    }
+
+    private void submit(ExecutorService executor, String name, Map<String, Set<String>> dependencies, Map<String, AtomicInteger> dependents, CountDownLatch done) {
+        executor.execute(() -> {
+            try {
+                beanFactory.destroySingleton(name);
+            } catch (RuntimeException e) {
+                logger.warn("Destroying bean '{}' failed", name, e);
+            } finally {
+                for (String dependency : dependencies.get(name)) {
+                    if (dependents.get(dependency).decrementAndGet() == 0) {
+                        submit(executor, dependency, dependencies, dependents, done);
+                    }
+                }
+                done.countDown();
+            }
+        });
+    }
+
+    /**
+     * @return how many beans will be destroyed starting from the ready ones,
+     * i.e. every bean not in (or depended on by) a cycle.
+     */
+    private static int countDestroyable(List<String> ready, Map<String, Set<String>> dependencies, Map<String, AtomicInteger> dependents) {
+        Map<String, Integer> remaining = new HashMap<>();
+        for (Map.Entry<String, AtomicInteger> entry : dependents.entrySet()) {
+            remaining.put(entry.getKey(), entry.getValue().get());
+        }
+        Deque<String> pending = new ArrayDeque<>(ready);
+        int count = 0;
+        while (!pending.isEmpty()) {
+            count++;
+            for (String dependency : dependencies.get(pending.pop())) {
+                if (remaining.merge(dependency, -1, Integer::sum) == 0) {
+                    pending.push(dependency);
+                }
+            }
+        }
+        return count;
+    }
+}
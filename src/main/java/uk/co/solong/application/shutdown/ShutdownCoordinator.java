@@ -0,0 +1,184 @@
+package uk.co.solong.application.shutdown;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+import uk.co.solong.application.supervisor.WorkerSupervisor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * Replaces the context's own shutdown hook with one that shuts down in timed
+ * phases, under an overall deadline of {@value #TIMEOUT_PROPERTY}
+ * milliseconds (default 30s):
+ * </p>
+ * <ol>
+ * <li><code>drain</code>: stops the <code>@MainMethod</code> workers (see
+ * {@link WorkerSupervisor}), letting in-flight invocations finish, for at
+ * most {@value #DRAIN_TIMEOUT_PROPERTY} milliseconds (default: half the
+ * deadline), so that a worker ignoring interrupts cannot keep the beans
+ * from being destroyed</li>
+ * <li><code>stop</code>: closes the context, up to the point where every
+ * lifecycle bean has stopped</li>
+ * <li><code>destroy</code>: destroys the singletons, in parallel on
+ * {@value #THREADS_PROPERTY} threads (default: one per core) when
+ * {@value #PARALLEL_PROPERTY} is <code>true</code> (see
+ * {@link ParallelDestroyer})</li>
+ * </ol>
+ * <p>
+ * Each phase is timed and logged, which gives the grace period a deployment
+ * needs. If the deadline passes, the hook logs the phase it was in and
+ * returns, so that the JVM can exit rather than hang.
+ * </p>
+ *
+ * @author Daniel Burrell
+ *
+ */
+public final class ShutdownCoordinator {
+    private static final Logger logger = LoggerFactory.getLogger(ShutdownCoordinator.class);
+
+    public static final String TIMEOUT_PROPERTY = "uk.co.solong.shutdown.timeout";
+    public static final String DRAIN_TIMEOUT_PROPERTY = "uk.co.solong.shutdown.drainTimeout";
+    public static final String PARALLEL_PROPERTY = "uk.co.solong.shutdown.parallel";
+    public static final String THREADS_PROPERTY = "uk.co.solong.shutdown.threads";
+
+    private final List<ConfigurableApplicationContext> contexts;
+    private final long timeoutMillis;
+    private final long drainTimeoutMillis;
+    private final Map<String, Long> timings = new LinkedHashMap<>();
+    private volatile String phase = "drain";
+    private volatile ParallelDestroyer destroyer;
+
+    ShutdownCoordinator(List<ConfigurableApplicationContext> contexts, long timeoutMillis) {
+        this(contexts, timeoutMillis, timeoutMillis / 2);
+    }
+
+    ShutdownCoordinator(List<ConfigurableApplicationContext> contexts, long timeoutMillis, long drainTimeoutMillis) {
+        this.contexts = contexts;
+        this.timeoutMillis = timeoutMillis;
+        this.drainTimeoutMillis = Math.min(drainTimeoutMillis, timeoutMillis);
+    }
+
+    /**
+     * Configures the context for timed (and, if enabled, parallel) shutdown and
+     * registers the shutdown hook. Use instead of
+     * {@link ConfigurableApplicationContext#registerShutdownHook()}, before the
+     * context is refreshed.
+     */
+    public static ShutdownCoordinator install(ConfigurableApplicationContext context) {
+        configure(context);
+        return registerShutdownHook(context);
+    }
+
+    /**
+     * Registers a {@link ParallelDestroyer} with the context, configured from
+     * the system properties. Must be called before the context is refreshed.
+     */
+    public static void configure(ConfigurableApplicationContext context) {
+        int threads = 1;
+        if (Boolean.getBoolean(PARALLEL_PROPERTY)) {
+            threads = Integer.getInteger(THREADS_PROPERTY, Runtime.getRuntime().availableProcessors());
+        }
+        ParallelDestroyer.configure(context, threads);
+    }
+
+    /**
+     * Registers a JVM shutdown hook that closes the contexts in the given
+     * order.
+     */
+    public static ShutdownCoordinator registerShutdownHook(ConfigurableApplicationContext... contexts) {
+        long timeoutMillis = Long.getLong(TIMEOUT_PROPERTY, 30_000L);
+        ShutdownCoordinator coordinator = new ShutdownCoordinator(Arrays.asList(contexts), timeoutMillis,
+                Long.getLong(DRAIN_TIMEOUT_PROPERTY, timeoutMillis / 2));
+        Runtime.getRuntime().addShutdownHook(new Thread(coordinator::shutdown, "shutdown-coordinator"));
+        return coordinator;
+    }
+
+    /**
+     * Shuts the contexts down, waiting at most the timeout. Does nothing if
+     * they have already been closed.
+     *
+     * @return true if shutdown completed within the timeout.
+     */
+    public boolean shutdown() {
+        if (contexts.stream().noneMatch(ConfigurableApplicationContext::isActive)) {
+            return true;
+        }
+        Thread closer = new Thread(this::close, "shutdown-close");
+        closer.setDaemon(true);
+        closer.start();
+        try {
+            closer.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (closer.isAlive()) {
+            logger.warn("Shutdown did not complete within {}ms, still in phase {}: {}", timeoutMillis, currentPhase(), getTimings());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the duration of each phase completed so far, in milliseconds.
+     */
+    public synchronized Map<String, Long> getTimings() {
+        return new LinkedHashMap<>(timings);
+    }
+
+    private String currentPhase() {
+        ParallelDestroyer current = destroyer;
+        return "stop".equals(phase) && current != null && current.getStoppedNanos() != 0 ? "destroy" : phase;
+    }
+
+    private synchronized void add(String name, long nanos) {
+        timings.merge(name, TimeUnit.NANOSECONDS.toMillis(nanos), Long::sum);
+    }
+
+    private void close() {
+        long begin = System.nanoTime();
+        List<ConfigurableApplicationContext> active = new ArrayList<>();
+        for (ConfigurableApplicationContext context : contexts) {
+            if (context.isActive()) {
+                active.add(context);
+            }
+        }
+        long drainDeadline = begin + TimeUnit.MILLISECONDS.toNanos(drainTimeoutMillis);
+        for (ConfigurableApplicationContext context : active) {
+            ConfigurableListableBeanFactory beanFactory = context.getBeanFactory();
+            if (beanFactory.containsSingleton(WorkerSupervisor.BEAN_NAME)) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(drainDeadline - System.nanoTime());
+                ((WorkerSupervisor) beanFactory.getSingleton(WorkerSupervisor.BEAN_NAME)).stop(remaining);
+            }
+        }
+        add("drain", System.nanoTime() - begin);
+        for (ConfigurableApplicationContext context : active) {
+            ConfigurableListableBeanFactory beanFactory = context.getBeanFactory();
+            destroyer = beanFactory.containsSingleton(ParallelDestroyer.BEAN_NAME)
+                    ? (ParallelDestroyer) beanFactory.getSingleton(ParallelDestroyer.BEAN_NAME) : null;
+            phase = "stop";
+            long closing = System.nanoTime();
+            try {
+                context.close();
+            } catch (RuntimeException e) {
+                logger.error("Closing {} failed", context.getDisplayName(), e);
+            }
+            long closed = System.nanoTime();
+            if (destroyer != null && destroyer.getStoppedNanos() != 0) {
+                add("stop", destroyer.getStoppedNanos() - closing);
+                add("destroy", closed - destroyer.getStoppedNanos());
+            } else {
+                add("close", closed - closing);
+            }
+        }
+        add("total", System.nanoTime() - begin);
+        logger.info("Shutdown complete: {} (milliseconds)", getTimings());
+    }
+}
@@ -0,0 +1,71 @@
+package uk.co.solong.application.startup;
+
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Times each bean from just before instantiation until after initialisation.
+ * Stops recording once startup has finished so that it costs nothing
+ * afterwards.
+ */
+class BeanTimingPostProcessor implements InstantiationAwareBeanPostProcessor {
+    private final StartupEvents events;
+    private final Map<String, long[]> starts = new ConcurrentHashMap<>();
+    private final Map<String, Object> inFlight = new ConcurrentHashMap<>();
+    private final List<StartupReport.Bean> beans = new ArrayList<>();
+    private volatile boolean recording = true;
+
+    BeanTimingPostProcessor(StartupEvents events) {
+        this.events = events;
+    }
+
+    @Override
+    public Object postProcessBeforeInstantiation(Class<?> beanClass, String beanName) {
+        if (recording) {
+            starts.put(beanName, new long[]{System.nanoTime()});
+            Object event = events.beginBean(beanName);
+            if (event != null) {
+                inFlight.put(beanName, event);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (recording) {
+            long[] start = starts.remove(beanName);
+            if (start != null) {
+                long micros = (System.nanoTime() - start[0]) / 1000;
+                String type = bean.getClass().getName();
+                Object event = inFlight.remove(beanName);
+                if (event != null) {
+                    events.endBean(event, type);
+                }
+                synchronized (beans) {
+                    beans.add(new StartupReport.Bean(beanName, type, micros));
+                }
+            }
+        }
+        return bean;
+    }
+
+    void stop() {
+        recording = false;
+        starts.clear();
+        inFlight.clear();
+    }
+
+    List<StartupReport.Bean> getBeans() {
+        synchronized (beans) {
+            List<StartupReport.Bean> sorted = new ArrayList<>(beans);
+            sorted.sort(Comparator.comparingLong(StartupReport.Bean::getDurationMicros).reversed());
+            return sorted;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package uk.co.solong.application.startup;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+import com.sun.management.VMOption;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * Support for AppCDS (class data sharing) archives.
+ * </p>
+ * <p>
+ * When the system property {@value #TRAINING_PROPERTY} is <code>true</code>,
+ * the launchers run in training mode: they start the application as usual
+ * and then exit, so that the JVM can write an archive of every class that was
+ * loaded (<code>-XX:ArchiveClassesAtExit</code>, or
+ * <code>-XX:DumpLoadedClassList</code> on older JVMs).
+ * {@link ClassDataSharingTrainer} starts such a run with the right flags. With
+ * {@value #TRAINING_INVOKE_MAIN_PROPERTY} set, launchers that have a
+ * <code>@MainMethod</code> invoke it first; the training run then ends when it
+ * returns or when it calls {@link #checkpoint()}.
+ * </p>
+ * <p>
+ * Every launcher reports whether an archive was requested and whether the JVM
+ * mapped it (see {@link #status()}), in its log and in the
+ * {@link StartupReport} detail <code>cds</code>.
+ * </p>
+ *
+ * @author Daniel Burrell
+ *
+ */
+public final class ClassDataSharing {
+    private static final Logger logger = LoggerFactory.getLogger(ClassDataSharing.class);
+
+    public static final String TRAINING_PROPERTY = "uk.co.solong.cds.training";
+    public static final String TRAINING_INVOKE_MAIN_PROPERTY = "uk.co.solong.cds.training.invokeMain";
+
+    private ClassDataSharing() {
+    }
+
+    public static boolean isTraining() {
+        return Boolean.getBoolean(TRAINING_PROPERTY);
+    }
+
+    /**
+     * @return true if this is a training run in which the main method should
+     * be invoked before exiting.
+     */
+    public static boolean isTrainingWithMain() {
+        return isTraining() && Boolean.getBoolean(TRAINING_INVOKE_MAIN_PROPERTY);
+    }
+
+    /**
+     * Ends a training run, if this is one: everything loaded so far goes into
+     * the archive. Applications may call this from their main method once they
+     * have loaded what they need. Does nothing outside training mode.
+     */
+    public static void checkpoint() {
+        if (isTraining()) {
+            logger.info("Class data sharing training run complete, exiting so the JVM can write the archive");
+            System.exit(0);
+        }
+    }
+
+    /**
+     * @return whether the JVM is sharing class data (possibly only from the
+     * JDK's default archive), which archive was requested and whether the JVM
+     * mapped it. The JVM only maps an archive that matches its version and
+     * classpath, so a rejected archive shows as not mapped. Whether it was
+     * mapped is only known where <code>/proc/self/maps</code> can be read
+     * (Linux), and is left out elsewhere.
+     */
+    public static Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        String info = System.getProperty("java.vm.info", "");
+        String archive = vmOption("SharedArchiveFile");
+        status.put("sharing", info.contains("sharing"));
+        status.put("archive", archive == null ? "" : archive);
+        if (archive != null && !archive.isEmpty()) {
+            Boolean mapped = isMapped(archive);
+            if (mapped != null) {
+                status.put("applicationArchiveMapped", mapped);
+            }
+        }
+        status.put("training", isTraining());
+        return status;
+    }
+
+    static void report(StartupRecorder recorder) {
+        Map<String, Object> status = status();
+        recorder.detail("cds", status);
+        String archive = (String) status.get("archive");
+        Object mapped = status.get("applicationArchiveMapped");
+        if (archive.isEmpty()) {
+            logger.debug("No application class data sharing archive requested");
+        } else if (mapped == null) {
+            logger.info("Class data sharing archive {} requested; whether the JVM accepted it is unknown on this platform (check with -Xlog:cds)", archive);
+        } else if (Boolean.TRUE.equals(mapped)) {
+            logger.info("Class data sharing archive in use: {}", archive);
+        } else {
+            logger.warn("Class data sharing archive {} was requested but is not in use; it may have been built for a different JVM or classpath", archive);
+        }
+    }
+
+    /**
+     * @return whether every file of the (path separated) archive option is
+     * mapped into this process, or null if that cannot be told.
+     */
+    static Boolean isMapped(String archive) {
+        List<String> maps;
+        try {
+            maps = Files.readAllLines(Paths.get("/proc/self/maps"), StandardCharsets.UTF_8);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+        for (String file : archive.split(File.pathSeparator)) {
+            if (file.isEmpty()) {
+                continue;
+            }
+            String path;
+            try {
+                path = Paths.get(file).toRealPath().toString();
+            } catch (IOException e) {
+                path = new File(file).getAbsolutePath();
+            }
+            boolean found = false;
+            for (String line : maps) {
+                if (line.endsWith(path)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String vmOption(String name) {
+        try {
+            HotSpotDiagnosticMXBean hotSpot = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+            if (hotSpot == null) {
+                return null;
+            }
+            VMOption option = hotSpot.getVMOption(name);
+            return option.getValue();
+        } catch (IllegalArgumentException | LinkageError e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package uk.co.solong.application.startup;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * <p>
+ * Produces an AppCDS archive for one of the launchers by running it in
+ * {@link ClassDataSharing} training mode with this JVM's classpath:
+ * </p>
+ * <p>
+ * <code>java -cp app.jar:... uk.co.solong.application.startup.ClassDataSharingTrainer app.jsa
+ * uk.co.solong.application.main.spring.java.AutoAnnotationApplication [args...]</code>
+ * </p>
+ * <p>
+ * On Java 13 and later the archive is written by
+ * <code>-XX:ArchiveClassesAtExit</code>; on Java 10 to 12 the loaded class list
+ * is dumped first and the archive built from it with
+ * <code>-Xshare:dump</code>. Later starts use the archive by passing
+ * <code>-XX:SharedArchiveFile=app.jsa</code> with the same classpath, which
+ * must consist of jars only.
+ * </p>
+ * <p>
+ * The training run is given the -D arguments this JVM was started with, so
+ * pass the application's system properties to the trainer as to the
+ * application itself.
+ * </p>
+ *
+ * @author Daniel Burrell
+ *
+ */
+public final class ClassDataSharingTrainer {
+
+    private ClassDataSharingTrainer() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Validate.isTrue(args.length >= 2, "Expected the archive file, the launcher class and then any launcher arguments");
+        String archive = new File(args[0]).getAbsolutePath();
+        List<String> launcher = Arrays.asList(args).subList(1, args.length);
+        int version = javaVersion();
+        Validate.isTrue(version >= 10, "Application class data sharing archives need Java 10 or later, but this is Java %s", version);
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            String[] contents = new File(entry).list();
+            Validate.isTrue(contents == null || contents.length == 0, "Class data sharing archives can only be built from jars, but the classpath contains the directory %s", entry);
+        }
+
+        if (version >= 13) {
+            run(training(launcher, "-XX:ArchiveClassesAtExit=" + archive));
+        } else {
+            String classList = archive + ".classlist";
+            run(training(launcher, "-Xshare:off", "-XX:DumpLoadedClassList=" + classList));
+            List<String> dump = new ArrayList<>();
+            dump.add(java());
+            if (version == 10) {
+                dump.add("-XX:+UseAppCDS");
+            }
+            dump.addAll(Arrays.asList("-Xshare:dump", "-XX:SharedClassListFile=" + classList, "-XX:SharedArchiveFile=" + archive,
+                    "-cp", System.getProperty("java.class.path")));
+            run(dump);
+        }
+        System.out.println("Wrote " + archive + ". Start the application with -XX:SharedArchiveFile=" + archive
+                + (version == 10 ? " -XX:+UseAppCDS" : "") + " and the same classpath.");
+    }
+
+    private static List<String> training(List<String> launcher, String... jvmFlags) {
+        List<String> command = new ArrayList<>();
+        command.add(java());
+        command.addAll(Arrays.asList(jvmFlags));
+        command.add("-D" + ClassDataSharing.TRAINING_PROPERTY + "=true");
+        command.addAll(systemProperties());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.addAll(launcher);
+        return command;
+    }
+
+    /**
+     * The -D arguments this JVM was started with, so that the training run
+     * loads the same configuration (and so the same classes), followed by any
+     * uk.co.solong.* or APP_ENV property set since.
+     */
+    static List<String> systemProperties() {
+        List<String> arguments = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        for (String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (argument.startsWith("-D")) {
+                String name = StringUtils.substringBefore(argument.substring(2), "=");
+                if (!name.equals(ClassDataSharing.TRAINING_PROPERTY)) {
+                    arguments.add(argument);
+                    names.add(name);
+                }
+            }
+        }
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if ((name.startsWith("uk.co.solong.") || name.equals("APP_ENV"))
+                    && !name.equals(ClassDataSharing.TRAINING_PROPERTY) && !names.contains(name)) {
+                arguments.add("-D" + name + "=" + System.getProperty(name));
+            }
+        }
+        return arguments;
+    }
+
+    private static void run(List<String> command) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(command).inheritIO().start();
+        int exit = process.waitFor();
+        if (exit != 0) {
+            throw new IllegalStateException("Training command failed with exit code " + exit + ": " + command);
+        }
+    }
+
+    private static String java() {
+        return Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+    }
+
+    static int javaVersion() {
+        String version = System.getProperty("java.specification.version");
+        if (version.startsWith("1.")) {
+            version = version.substring(2);
+        }
+        return Integer.parseInt(version);
+    }
+}
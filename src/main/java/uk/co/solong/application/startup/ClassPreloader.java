@@ -0,0 +1,296 @@
+package uk.co.solong.application.startup;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.ClassUtils;
+import uk.co.solong.application.io.AtomicFiles;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Driver;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>
+ * Loads and initialises the classes that startup is about to need on
+ * background threads, so that idle cores do the class loading while the
+ * launcher thread registers and refreshes the context. Enabled with the
+ * system property {@value #PRELOAD_PROPERTY}.
+ * </p>
+ * <p>
+ * The classes are those found by the scan, followed by the classes listed in
+ * {@value #LIST_PROPERTY} (if set). At the end of startup that file is
+ * rewritten with the class of every bean definition and singleton (and their
+ * supertypes), so each run preloads what the previous one used.
+ * </p>
+ * <p>
+ * Classes and packages listed in {@value #DENY_PROPERTY}, the built in
+ * {@link #DEFAULT_DENY} packages and JDBC drivers are loaded but never
+ * initialised here, since their static initialisers have side effects (they
+ * register drivers, bind logging, start toolkits, ...). Classes whose
+ * initialisers depend on state set up during startup, or initialise each
+ * other in a cycle, belong there too.
+ * </p>
+ * <p>
+ * The {@link StartupReport} detail <code>preload</code> gives the classes
+ * preloaded, the class loading time taken off the launcher thread and the
+ * window from the start of preloading to the end of startup. A run with
+ * {@value #LIST_PROPERTY} set but without {@value #PRELOAD_PROPERTY} preloads
+ * nothing, and saves the same window to a <code>.baseline</code> file next to
+ * the list. Preloading runs then report the baseline and the gain (baseline
+ * minus window) against it. The baseline is a single run, so re-record it
+ * after changing the application or the machine, and treat small gains as
+ * noise.
+ * </p>
+ *
+ * @author Daniel Burrell
+ *
+ */
+public final class ClassPreloader {
+    private static final Logger logger = LoggerFactory.getLogger(ClassPreloader.class);
+
+    public static final String PRELOAD_PROPERTY = "uk.co.solong.preload";
+    public static final String LIST_PROPERTY = "uk.co.solong.preload.list";
+    public static final String THREADS_PROPERTY = "uk.co.solong.preload.threads";
+    public static final String DENY_PROPERTY = "uk.co.solong.preload.deny";
+    public static final String BASELINE_SUFFIX = ".baseline";
+
+    /**
+     * Packages whose classes are never initialised by the preloader.
+     */
+    public static final List<String> DEFAULT_DENY = Collections.unmodifiableList(Arrays.asList(
+            "java.awt", "javax.swing", "javax.imageio", "java.sql", "sun", "com.sun", "jdk",
+            "org.slf4j", "ch.qos.logback", "org.apache.log4j", "org.apache.logging.log4j"));
+
+    private final ClassLoader classLoader;
+    private final Set<String> seed;
+    private final List<String> classNames;
+    private final List<String> deny;
+    private final Path list;
+    private final int threads;
+    private final long startNanos = System.nanoTime();
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicInteger initialised = new AtomicInteger();
+    private final AtomicInteger loadedOnly = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final LongAdder offloadedNanos = new LongAdder();
+    private volatile boolean stopped;
+
+    ClassPreloader(ClassLoader classLoader, Collection<String> seed, Path list, List<String> deny, int threads) {
+        this.classLoader = classLoader;
+        this.seed = new LinkedHashSet<>(seed);
+        this.list = list;
+        this.deny = deny;
+        this.threads = threads;
+        Set<String> names = new LinkedHashSet<>(seed);
+        if (list != null && threads > 0) {
+            try {
+                for (String line : Files.readAllLines(list, StandardCharsets.UTF_8)) {
+                    if (!line.trim().isEmpty() && !line.startsWith("#")) {
+                        names.add(line.trim());
+                    }
+                }
+            } catch (NoSuchFileException e) {
+                logger.info("No preload list at {} yet, it will be written at the end of startup", list);
+            } catch (IOException e) {
+                logger.warn("Ignoring unreadable preload list {}", list, e);
+            }
+        }
+        this.classNames = new ArrayList<>(names);
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(PRELOAD_PROPERTY);
+    }
+
+    /**
+     * Starts preloading the seed classes and the recorded list, if enabled.
+     *
+     * @return the running preloader, one that only records the baseline if
+     * preloading is disabled but a list is set, or null otherwise.
+     */
+    public static ClassPreloader start(ClassLoader classLoader, Collection<String> seed) {
+        String file = System.getProperty(LIST_PROPERTY);
+        if (!isEnabled()) {
+            return StringUtils.isBlank(file) ? null
+                    : new ClassPreloader(classLoader, seed, Paths.get(file.trim()), Collections.<String>emptyList(), 0);
+        }
+        List<String> deny = new ArrayList<>(DEFAULT_DENY);
+        deny.addAll(Arrays.asList(StringUtils.split(System.getProperty(DENY_PROPERTY, ""), ", ")));
+        int threads = Integer.getInteger(THREADS_PROPERTY, Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1)));
+        ClassPreloader preloader = new ClassPreloader(classLoader, seed, StringUtils.isBlank(file) ? null : Paths.get(file.trim()), deny, threads);
+        preloader.start();
+        return preloader;
+    }
+
+    void start() {
+        for (int i = 0; i < threads; i++) {
+            Thread thread = new Thread(this::preload, "class-preloader-" + (i + 1));
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    private void preload() {
+        int i;
+        while (!stopped && (i = next.getAndIncrement()) < classNames.size()) {
+            String name = classNames.get(i);
+            long begin = System.nanoTime();
+            try {
+                Class<?> type = Class.forName(name, false, classLoader);
+                if (isDenied(name) || Driver.class.isAssignableFrom(type)) {
+                    loadedOnly.incrementAndGet();
+                } else {
+                    Class.forName(name, true, classLoader);
+                    initialised.incrementAndGet();
+                }
+            } catch (ClassNotFoundException | LinkageError e) {
+                failed.incrementAndGet();
+                logger.debug("Unable to preload {}", name, e);
+            }
+            offloadedNanos.add(System.nanoTime() - begin);
+        }
+    }
+
+    boolean isDone() {
+        return initialised.get() + loadedOnly.get() + failed.get() == classNames.size();
+    }
+
+    boolean isDenied(String className) {
+        for (String denied : deny) {
+            if (className.equals(denied) || className.startsWith(denied + ".") || className.startsWith(denied + "$")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Stops preloading, rewrites the list from the started contexts and adds
+     * the figures to the recorder. Call this once the contexts have been
+     * refreshed.
+     */
+    public void finish(StartupRecorder recorder, ConfigurableApplicationContext... contexts) {
+        stopped = true;
+        long windowMillis = (System.nanoTime() - startNanos) / 1_000_000;
+        if (threads == 0) {
+            recorder.detail("preload", Collections.singletonMap("baselineMillis", windowMillis));
+            logger.info("Startup took {}ms without preloading, recording it as the baseline in {}", windowMillis, baseline());
+            write(baseline(), windowMillis + "\n");
+            return;
+        }
+        int done = initialised.get() + loadedOnly.get() + failed.get();
+        Map<String, Object> detail = new LinkedHashMap<>();
+        detail.put("threads", threads);
+        detail.put("classes", classNames.size());
+        detail.put("initialised", initialised.get());
+        detail.put("loadedOnly", loadedOnly.get());
+        detail.put("failed", failed.get());
+        detail.put("pending", classNames.size() - done);
+        detail.put("offloadedMillis", offloadedNanos.sum() / 1_000_000);
+        detail.put("windowMillis", windowMillis);
+        Long baselineMillis = readBaseline();
+        if (baselineMillis != null) {
+            detail.put("baselineMillis", baselineMillis);
+            detail.put("gainMillis", baselineMillis - windowMillis);
+        }
+        recorder.detail("preload", detail);
+        logger.info("Preloaded {} of {} classes on {} threads, {}ms of class loading off the launcher thread",
+                done, classNames.size(), threads, offloadedNanos.sum() / 1_000_000);
+        if (baselineMillis != null) {
+            logger.info("Startup took {}ms against {}ms without preloading, a gain of {}ms", windowMillis, baselineMillis, baselineMillis - windowMillis);
+        }
+        if (list != null) {
+            writeList(recordedClasses(contexts));
+        }
+    }
+
+    Set<String> recordedClasses(ConfigurableApplicationContext... contexts) {
+        Set<String> names = new LinkedHashSet<>(seed);
+        for (ConfigurableApplicationContext context : contexts) {
+            ConfigurableListableBeanFactory beanFactory = context.getBeanFactory();
+            for (String name : beanFactory.getBeanDefinitionNames()) {
+                String className = beanFactory.getBeanDefinition(name).getBeanClassName();
+                if (className != null && isRecordable(className)) {
+                    names.add(className);
+                }
+                if (beanFactory.containsSingleton(name)) {
+                    Object singleton = beanFactory.getSingleton(name);
+                    if (singleton != null) {
+                        addHierarchy(ClassUtils.getUserClass(singleton), names);
+                    }
+                }
+            }
+        }
+        return names;
+    }
+
+    private static void addHierarchy(Class<?> type, Set<String> into) {
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            if (isRecordable(c.getName()) && into.add(c.getName())) {
+                for (Class<?> i : c.getInterfaces()) {
+                    addHierarchy(i, into);
+                }
+            }
+        }
+    }
+
+    private static boolean isRecordable(String className) {
+        return !className.startsWith("java.") && !className.contains("$$") && !className.contains("/");
+    }
+
+    private Path baseline() {
+        return list.resolveSibling(list.getFileName() + BASELINE_SUFFIX);
+    }
+
+    /**
+     * @return the window recorded by a run without preloading, or null if
+     * there is none.
+     */
+    private Long readBaseline() {
+        if (list == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(new String(Files.readAllBytes(baseline()), StandardCharsets.UTF_8).trim());
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | NumberFormatException e) {
+            logger.warn("Ignoring unreadable preload baseline {}", baseline(), e);
+            return null;
+        }
+    }
+
+    private void writeList(Set<String> names) {
+        StringBuilder sb = new StringBuilder();
+        for (String name : names) {
+            sb.append(name).append('\n');
+        }
+        write(list, sb.toString());
+    }
+
+    private static void write(Path file, String content) {
+        try {
+            AtomicFiles.write(file, content.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            logger.warn("Unable to write {}", file, e);
+        }
+    }
+}
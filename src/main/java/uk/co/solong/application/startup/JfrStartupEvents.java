@@ -0,0 +1,76 @@
+package uk.co.solong.application.startup;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder events for startup phases and bean creation. Only loaded
+ * when <code>jdk.jfr</code> is present.
+ */
+class JfrStartupEvents extends StartupEvents {
+
+    @Override
+    Object beginPhase(String launcher, String phase) {
+        PhaseEvent event = new PhaseEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.launcher = launcher;
+        event.phase = phase;
+        event.begin();
+        return event;
+    }
+
+    @Override
+    void endPhase(Object handle, long classesLoaded) {
+        if (handle != null) {
+            PhaseEvent event = (PhaseEvent) handle;
+            event.end();
+            event.classesLoaded = classesLoaded;
+            event.commit();
+        }
+    }
+
+    @Override
+    Object beginBean(String beanName) {
+        BeanEvent event = new BeanEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.beanName = beanName;
+        event.begin();
+        return event;
+    }
+
+    @Override
+    void endBean(Object handle, String type) {
+        BeanEvent event = (BeanEvent) handle;
+        event.end();
+        event.beanType = type;
+        event.commit();
+    }
+
+    @Name("uk.co.solong.application.StartupPhase")
+    @Label("Startup Phase")
+    @Category({"SoLong Application", "Startup"})
+    static class PhaseEvent extends Event {
+        @Label("Launcher")
+        String launcher;
+        @Label("Phase")
+        String phase;
+        @Label("Classes Loaded")
+        long classesLoaded;
+    }
+
+    @Name("uk.co.solong.application.StartupBean")
+    @Label("Startup Bean")
+    @Category({"SoLong Application", "Startup"})
+    static class BeanEvent extends Event {
+        @Label("Bean Name")
+        String beanName;
+        @Label("Bean Type")
+        String beanType;
+    }
+}
@@ -0,0 +1,37 @@
+package uk.co.solong.application.startup;
+
+/**
+ * Emits startup phases and bean timings to an external recorder. The default
+ * implementation does nothing; {@link JfrStartupEvents} is used when the JVM
+ * has Flight Recorder. It is loaded reflectively so that this library still
+ * runs on JVMs without <code>jdk.jfr</code>.
+ */
+class StartupEvents {
+    static final StartupEvents NONE = new StartupEvents();
+
+    static StartupEvents create(boolean enabled) {
+        if (enabled) {
+            try {
+                Class.forName("jdk.jfr.Event");
+                return (StartupEvents) Class.forName("uk.co.solong.application.startup.JfrStartupEvents").getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // Flight Recorder is not available
+            }
+        }
+        return NONE;
+    }
+
+    Object beginPhase(String launcher, String phase) {
+        return null;
+    }
+
+    void endPhase(Object handle, long classesLoaded) {
+    }
+
+    Object beginBean(String beanName) {
+        return null;
+    }
+
+    void endBean(Object handle, String type) {
+    }
+}
@@ -0,0 +1,156 @@
+package uk.co.solong.application.startup;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * Records how a launcher spends its startup time. Each launcher wraps its
+ * steps (scanning, class loading, XML parsing, refresh, ...) in a
+ * {@link #phase(String)} and calls {@link #instrument} on its context to time
+ * every bean. {@link #finish()} logs a summary and produces a
+ * {@link StartupReport}.
+ * </p>
+ * <p>
+ * If the system property {@value #REPORT_PROPERTY} is set, the report is
+ * written there as JSON. Phases and beans are also emitted as JFR events
+ * (<code>uk.co.solong.application.StartupPhase</code> and
+ * <code>uk.co.solong.application.StartupBean</code>) when running on a JVM with
+ * Flight Recorder, unless {@value #JFR_PROPERTY} is <code>false</code>.
+ * </p>
+ *
+ * @author Daniel Burrell
+ *
+ */
+public final class StartupRecorder {
+    private static final Logger logger = LoggerFactory.getLogger(StartupRecorder.class);
+
+    public static final String REPORT_PROPERTY = "uk.co.solong.startup.report";
+    public static final String JFR_PROPERTY = "uk.co.solong.startup.jfr";
+
+    private final String launcher;
+    private final long startNanos;
+    private final long jvmStartupMillis;
+    private final ClassLoadingMXBean classLoading;
+    private final long startClasses;
+    private final StartupEvents events;
+    private final BeanTimingPostProcessor beanTimings;
+    private final List<StartupReport.Phase> phases = new ArrayList<>();
+    private final Map<String, Object> details = new LinkedHashMap<>();
+    private StartupReport report;
+
+    private StartupRecorder(String launcher) {
+        this.launcher = launcher;
+        this.startNanos = System.nanoTime();
+        this.jvmStartupMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+        this.classLoading = ManagementFactory.getClassLoadingMXBean();
+        this.startClasses = classLoading.getTotalLoadedClassCount();
+        this.events = StartupEvents.create(!"false".equalsIgnoreCase(System.getProperty(JFR_PROPERTY)));
+        this.beanTimings = new BeanTimingPostProcessor(events);
+    }
+
+    /**
+     * Starts recording. Call this as early as possible in the launcher.
+     *
+     * @param launcher the name of the launcher, e.g. its simple class name.
+     */
+    public static StartupRecorder start(String launcher) {
+        return new StartupRecorder(launcher);
+    }
+
+    /**
+     * Starts a named phase, which ends when the returned phase is closed.
+     */
+    public Phase phase(String name) {
+        return new Phase(name);
+    }
+
+    /**
+     * Times the instantiation and initialisation of every bean created by the
+     * context. Must be called before the context is refreshed.
+     */
+    public void instrument(ConfigurableApplicationContext context) {
+        context.addBeanFactoryPostProcessor(beanFactory -> beanFactory.addBeanPostProcessor(beanTimings));
+    }
+
+    /**
+     * Adds a figure to the report, e.g. from an optional startup feature.
+     */
+    public synchronized void detail(String name, Object value) {
+        details.put(name, value);
+    }
+
+    /**
+     * Completes the recording, logs a summary and writes the report if
+     * requested. Subsequent calls return the same report.
+     */
+    public synchronized StartupReport finish() {
+        if (report == null) {
+            beanTimings.stop();
+            ClassDataSharing.report(this);
+            long total = (System.nanoTime() - startNanos) / 1_000_000;
+            report = new StartupReport(launcher, jvmStartupMillis, total, classLoading.getTotalLoadedClassCount() - startClasses,
+                    phases, beanTimings.getBeans(), details);
+            logger.info("{}", report);
+            String file = System.getProperty(REPORT_PROPERTY);
+            if (file != null && !file.trim().isEmpty()) {
+                try {
+                    report.writeTo(Paths.get(file.trim()));
+                } catch (IOException e) {
+                    logger.warn("Unable to write startup report to {}", file, e);
+                }
+            }
+        }
+        return report;
+    }
+
+    /**
+     * @return the report, or null if {@link #finish()} has not been called.
+     */
+    public synchronized StartupReport getReport() {
+        return report;
+    }
+
+    private synchronized void add(StartupReport.Phase phase) {
+        phases.add(phase);
+    }
+
+    /**
+     * A running phase; closing it records the duration.
+     */
+    public final class Phase implements AutoCloseable {
+        private final String name;
+        private final long begin;
+        private final long beginClasses;
+        private final Object event;
+        private boolean closed;
+
+        private Phase(String name) {
+            this.name = name;
+            this.begin = System.nanoTime();
+            this.beginClasses = classLoading.getTotalLoadedClassCount();
+            this.event = events.beginPhase(launcher, name);
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            long classes = classLoading.getTotalLoadedClassCount() - beginClasses;
+            events.endPhase(event, classes);
+            add(new StartupReport.Phase(name, (begin - startNanos) / 1_000_000, (System.nanoTime() - begin) / 1_000_000, classes));
+        }
+    }
+}
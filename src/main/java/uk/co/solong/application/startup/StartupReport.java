@@ -0,0 +1,203 @@
+package uk.co.solong.application.startup;
+
+import uk.co.solong.application.io.Json;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * What happened while a launcher started: how long each phase took, how many
+ * classes were loaded in it, how long each bean took to instantiate and
+ * initialise, and any additional figures contributed by optional startup
+ * features.
+ * </p>
+ * <p>
+ * Produced by {@link StartupRecorder#finish()}. All times are in
+ * milliseconds.
+ * </p>
+ *
+ * @author Daniel Burrell
+ *
+ */
+public final class StartupReport {
+    private final String launcher;
+    private final long jvmStartupMillis;
+    private final long totalMillis;
+    private final long classesLoaded;
+    private final List<Phase> phases;
+    private final List<Bean> beans;
+    private final Map<String, Object> details;
+
+    StartupReport(String launcher, long jvmStartupMillis, long totalMillis, long classesLoaded, List<Phase> phases, List<Bean> beans, Map<String, Object> details) {
+        this.launcher = launcher;
+        this.jvmStartupMillis = jvmStartupMillis;
+        this.totalMillis = totalMillis;
+        this.classesLoaded = classesLoaded;
+        this.phases = Collections.unmodifiableList(new ArrayList<>(phases));
+        this.beans = Collections.unmodifiableList(new ArrayList<>(beans));
+        this.details = Collections.unmodifiableMap(new LinkedHashMap<>(details));
+    }
+
+    public String getLauncher() {
+        return launcher;
+    }
+
+    /**
+     * @return the time from JVM start until the launcher began.
+     */
+    public long getJvmStartupMillis() {
+        return jvmStartupMillis;
+    }
+
+    /**
+     * @return the time from the launcher beginning until startup finished.
+     */
+    public long getTotalMillis() {
+        return totalMillis;
+    }
+
+    /**
+     * @return the number of classes loaded while the launcher was starting.
+     */
+    public long getClassesLoaded() {
+        return classesLoaded;
+    }
+
+    public List<Phase> getPhases() {
+        return phases;
+    }
+
+    /**
+     * @return the bean timings, slowest first.
+     */
+    public List<Bean> getBeans() {
+        return beans;
+    }
+
+    /**
+     * @return figures contributed by optional startup features, keyed by name.
+     */
+    public Map<String, Object> getDetails() {
+        return details;
+    }
+
+    public String toJson() {
+        StringBuilder json = new StringBuilder(256 + beans.size() * 48);
+        json.append("{\"launcher\":");
+        Json.string(json, launcher);
+        json.append(",\"jvmStartupMillis\":").append(jvmStartupMillis);
+        json.append(",\"totalMillis\":").append(totalMillis);
+        json.append(",\"classesLoaded\":").append(classesLoaded);
+        json.append(",\"phases\":[");
+        for (int i = 0; i < phases.size(); i++) {
+            Phase phase = phases.get(i);
+            json.append(i == 0 ? "" : ",").append("{\"name\":");
+            Json.string(json, phase.getName());
+            json.append(",\"startMillis\":").append(phase.getStartMillis());
+            json.append(",\"durationMillis\":").append(phase.getDurationMillis());
+            json.append(",\"classesLoaded\":").append(phase.getClassesLoaded()).append('}');
+        }
+        json.append("],\"beans\":[");
+        for (int i = 0; i < beans.size(); i++) {
+            Bean bean = beans.get(i);
+            json.append(i == 0 ? "" : ",").append("{\"name\":");
+            Json.string(json, bean.getName());
+            json.append(",\"type\":");
+            Json.string(json, bean.getType());
+            json.append(",\"durationMicros\":").append(bean.getDurationMicros()).append('}');
+        }
+        json.append("],\"details\":");
+        Json.value(json, details);
+        return json.append('}').toString();
+    }
+
+    public void writeTo(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Files.write(file, toJson().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(launcher).append(" started in ").append(totalMillis).append("ms (JVM ").append(jvmStartupMillis).append("ms");
+        for (Phase phase : phases) {
+            sb.append(", ").append(phase.getName()).append(' ').append(phase.getDurationMillis()).append("ms");
+        }
+        return sb.append(", ").append(classesLoaded).append(" classes loaded)").toString();
+    }
+
+    /**
+     * A named, timed step of the startup.
+     */
+    public static final class Phase {
+        private final String name;
+        private final long startMillis;
+        private final long durationMillis;
+        private final long classesLoaded;
+
+        Phase(String name, long startMillis, long durationMillis, long classesLoaded) {
+            this.name = name;
+            this.startMillis = startMillis;
+            this.durationMillis = durationMillis;
+            this.classesLoaded = classesLoaded;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the offset from the launcher beginning.
+         */
+        public long getStartMillis() {
+            return startMillis;
+        }
+
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+
+        public long getClassesLoaded() {
+            return classesLoaded;
+        }
+    }
+
+    /**
+     * The time taken to instantiate and initialise a single bean, including
+     * any beans it caused to be created.
+     */
+    public static final class Bean {
+        private final String name;
+        private final String type;
+        private final long durationMicros;
+
+        Bean(String name, String type, long durationMicros) {
+            this.name = name;
+            this.type = type;
+            this.durationMicros = durationMicros;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public long getDurationMicros() {
+            return durationMicros;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package uk.co.solong.application.startup;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.CachedIntrospectionResults;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.type.classreading.CachingMetadataReaderFactory;
+import org.springframework.util.ReflectionUtils;
+import uk.co.solong.application.main.spring.scanner.ApplicationScanner;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ * Opt-in trim of data that is only needed while starting up. When the system
+ * property {@value #TRIM_PROPERTY} is <code>true</code>, the launchers call
+ * {@link #trim} once their contexts have started, which clears:
+ * </p>
+ * <ul>
+ * <li>the {@link ApplicationScanner} results</li>
+ * <li>Spring's reflection, annotation, ResolvableType and bean introspection caches</li>
+ * <li>each context's resource caches (ASM class metadata) and cached metadata readers</li>
+ * <li>each bean factory's merged definitions of beans that have not been created</li>
+ * </ul>
+ * <p>
+ * All of these are rebuilt on demand, so clearing them is safe at any time,
+ * including while a background warm-up is creating beans. The heap retained
+ * before and after is measured by a full GC either side (so the trim takes a
+ * little longer than the clearing itself, and the figures are meaningless
+ * with <code>-XX:+DisableExplicitGC</code>), and reported in the
+ * {@link StartupReport} detail <code>trim</code>.
+ * </p>
+ *
+ * @author Daniel Burrell
+ *
+ */
+public final class StartupTrim {
+    private static final Logger logger = LoggerFactory.getLogger(StartupTrim.class);
+
+    public static final String TRIM_PROPERTY = "uk.co.solong.startup.trim";
+
+    private StartupTrim() {
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(TRIM_PROPERTY);
+    }
+
+    /**
+     * Trims, if enabled, and adds the heap recovered to the recorder. Does
+     * nothing otherwise.
+     */
+    public static void trim(StartupRecorder recorder, ConfigurableApplicationContext... contexts) {
+        if (!isEnabled()) {
+            return;
+        }
+        try (StartupRecorder.Phase phase = recorder.phase("trim")) {
+            MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+            long before = retainedHeap(memory);
+            clear(contexts);
+            long after = retainedHeap(memory);
+            Map<String, Object> detail = new LinkedHashMap<>();
+            detail.put("retainedBefore", before);
+            detail.put("retainedAfter", after);
+            detail.put("recovered", before - after);
+            recorder.detail("trim", detail);
+            logger.info("Startup trim recovered {}KB of retained heap ({}KB -> {}KB)", (before - after) / 1024, before / 1024, after / 1024);
+        }
+    }
+
+    static void clear(ConfigurableApplicationContext... contexts) {
+        ApplicationScanner.clearCache();
+        for (ConfigurableApplicationContext context : contexts) {
+            if (context == null || !context.isActive()) {
+                continue;
+            }
+            ConfigurableListableBeanFactory beanFactory = context.getBeanFactory();
+            for (CachingMetadataReaderFactory factory : beanFactory.getBeansOfType(CachingMetadataReaderFactory.class, false, false).values()) {
+                factory.clearCache();
+            }
+            if (context instanceof DefaultResourceLoader) {
+                ((DefaultResourceLoader) context).clearResourceCaches();
+            }
+            beanFactory.clearMetadataCache();
+            CachedIntrospectionResults.clearClassLoader(context.getClassLoader());
+        }
+        ReflectionUtils.clearCache();
+        AnnotationUtils.clearCache();
+        ResolvableType.clearCache();
+    }
+
+    private static long retainedHeap(MemoryMXBean memory) {
+        memory.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
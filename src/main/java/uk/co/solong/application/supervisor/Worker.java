@@ -0,0 +1,103 @@
+package uk.co.solong.application.supervisor;
+
+import org.apache.commons.lang3.Validate;
+import uk.co.solong.application.annotations.RestartPolicy;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A task run by a {@link WorkerSupervisor}, with its restart policy and the
+ * number of invocations to run at a time. Also counts invocations, failures
+ * and restarts.
+ *
+ * @author Daniel Burrell
+ *
+ */
+public final class Worker {
+    private final String name;
+    private final Callable<?> task;
+    private final RestartPolicy restartPolicy;
+    private final int concurrency;
+    private final int maxRestarts;
+    private final long restartDelayMillis;
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger invocations = new AtomicInteger();
+    private final AtomicInteger failures = new AtomicInteger();
+    private final AtomicInteger restarts = new AtomicInteger();
+
+    public Worker(String name, Callable<?> task, RestartPolicy restartPolicy, int concurrency, int maxRestarts, long restartDelayMillis) {
+        Validate.isTrue(concurrency >= 1, "Worker %s must have a concurrency of at least 1, but was %s", name, concurrency);
+        Validate.isTrue(restartDelayMillis >= 0, "Worker %s must have a non-negative restart delay", name);
+        this.name = name;
+        this.task = task;
+        this.restartPolicy = restartPolicy;
+        this.concurrency = concurrency;
+        this.maxRestarts = maxRestarts;
+        this.restartDelayMillis = restartDelayMillis;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public RestartPolicy getRestartPolicy() {
+        return restartPolicy;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public int getMaxRestarts() {
+        return maxRestarts;
+    }
+
+    public long getRestartDelayMillis() {
+        return restartDelayMillis;
+    }
+
+    /**
+     * @return the number of invocations currently running.
+     */
+    public int getRunning() {
+        return running.get();
+    }
+
+    public int getInvocations() {
+        return invocations.get();
+    }
+
+    public int getFailures() {
+        return failures.get();
+    }
+
+    public int getRestarts() {
+        return restarts.get();
+    }
+
+    public Callable<?> getTask() {
+        return task;
+    }
+
+    AtomicInteger running() {
+        return running;
+    }
+
+    AtomicInteger invocations() {
+        return invocations;
+    }
+
+    AtomicInteger failures() {
+        return failures;
+    }
+
+    AtomicInteger restarts() {
+        return restarts;
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + restartPolicy + ", concurrency " + concurrency + ")";
+    }
+}
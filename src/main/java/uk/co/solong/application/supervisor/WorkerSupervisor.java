@@ -0,0 +1,283 @@
+package uk.co.solong.application.supervisor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import uk.co.solong.application.annotations.RestartPolicy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * Runs a set of {@link Worker}s in one JVM, each invocation on its own
+ * thread: a virtual thread where the JVM has them (Java 21+), otherwise a
+ * platform thread. Set {@value #THREADS_PROPERTY} to <code>platform</code> to
+ * always use platform threads, or pass a ThreadFactory.
+ * </p>
+ * <p>
+ * Invocations that return or throw are restarted according to the worker's
+ * {@link RestartPolicy}. Stopping the supervisor (which happens first when the
+ * context is closed, as it is a {@link SmartLifecycle} in the last phase) stops
+ * restarts, gives in-flight invocations up to {@value #DRAIN_TIMEOUT_PROPERTY}
+ * milliseconds (default 0) to return by themselves, then interrupts the rest
+ * and waits until {@value #SHUTDOWN_TIMEOUT_PROPERTY} milliseconds (default
+ * 30s) have passed in total for them to finish. Long running invocations can
+ * poll {@link #isStopping()} to finish their current unit of work and return.
+ * </p>
+ *
+ * @author Daniel Burrell
+ *
+ */
+public class WorkerSupervisor implements SmartLifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(WorkerSupervisor.class);
+
+    public static final String THREADS_PROPERTY = "uk.co.solong.workers.threads";
+    public static final String SHUTDOWN_TIMEOUT_PROPERTY = "uk.co.solong.workers.shutdownTimeout";
+    public static final String DRAIN_TIMEOUT_PROPERTY = "uk.co.solong.workers.drainTimeout";
+    public static final String BEAN_NAME = "workerSupervisor";
+
+    private final ThreadFactory threadFactory;
+    private final long drainTimeoutMillis;
+    private final long shutdownTimeoutMillis;
+    private final List<Worker> workers = new ArrayList<>();
+    private final List<Thread> threads = new ArrayList<>();
+    private final AtomicInteger live = new AtomicInteger();
+    private boolean started;
+    private volatile boolean running;
+    private volatile boolean stopping;
+
+    public WorkerSupervisor(ThreadFactory threadFactory, long shutdownTimeoutMillis) {
+        this(threadFactory, 0, shutdownTimeoutMillis);
+    }
+
+    public WorkerSupervisor(ThreadFactory threadFactory, long drainTimeoutMillis, long shutdownTimeoutMillis) {
+        this.threadFactory = threadFactory;
+        this.drainTimeoutMillis = drainTimeoutMillis;
+        this.shutdownTimeoutMillis = shutdownTimeoutMillis;
+    }
+
+    /**
+     * @return a supervisor configured from {@value #THREADS_PROPERTY},
+     * {@value #DRAIN_TIMEOUT_PROPERTY} and {@value #SHUTDOWN_TIMEOUT_PROPERTY}.
+     */
+    public static WorkerSupervisor fromSystemProperties() {
+        return fromSystemProperties(0L);
+    }
+
+    /**
+     * @return a supervisor configured as by {@link #fromSystemProperties()},
+     * but draining for defaultDrainTimeoutMillis unless
+     * {@value #DRAIN_TIMEOUT_PROPERTY} is set.
+     */
+    public static WorkerSupervisor fromSystemProperties(long defaultDrainTimeoutMillis) {
+        ThreadFactory factory = "platform".equalsIgnoreCase(System.getProperty(THREADS_PROPERTY)) ? null : virtualThreadFactory();
+        if (factory == null) {
+            AtomicInteger count = new AtomicInteger();
+            factory = r -> new Thread(r, "worker-" + count.incrementAndGet());
+        }
+        return new WorkerSupervisor(factory, Long.getLong(DRAIN_TIMEOUT_PROPERTY, defaultDrainTimeoutMillis), Long.getLong(SHUTDOWN_TIMEOUT_PROPERTY, 30_000L));
+    }
+
+    /**
+     * @return a factory for virtual threads, or null if this JVM does not
+     * have them.
+     */
+    static ThreadFactory virtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, "worker-", 1L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+            logger.debug("Virtual threads are not available, using platform threads", e);
+            return null;
+        }
+    }
+
+    public synchronized void add(Worker worker) {
+        if (started) {
+            throw new IllegalStateException("Workers must be added before the supervisor is started");
+        }
+        workers.add(worker);
+    }
+
+    public synchronized List<Worker> getWorkers() {
+        return Collections.unmodifiableList(new ArrayList<>(workers));
+    }
+
+    @Override
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        for (Worker worker : workers) {
+            live.addAndGet(worker.getConcurrency());
+        }
+        running = live.get() > 0;
+        for (Worker worker : workers) {
+            for (int i = 0; i < worker.getConcurrency(); i++) {
+                Thread thread = threadFactory.newThread(() -> supervise(worker));
+                threads.add(thread);
+                thread.start();
+            }
+            logger.info("Started worker {}", worker);
+        }
+    }
+
+    /**
+     * Waits until every invocation has finished without being restarted.
+     */
+    public void awaitTermination() throws InterruptedException {
+        for (Thread thread : snapshot()) {
+            thread.join();
+        }
+    }
+
+    /**
+     * @return true once the supervisor has started stopping.
+     */
+    public boolean isStopping() {
+        return stopping;
+    }
+
+    @Override
+    public void stop() {
+        stop(shutdownTimeoutMillis);
+    }
+
+    /**
+     * Stops as {@link #stop()} does, but waits at most timeoutMillis (or the
+     * configured shutdown timeout, if that is shorter) in total.
+     */
+    public void stop(long timeoutMillis) {
+        stopping = true;
+        List<Thread> toStop = snapshot();
+        long begin = System.nanoTime();
+        long budgetMillis = Math.max(0, Math.min(timeoutMillis, shutdownTimeoutMillis));
+        long deadline = begin + TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+        try {
+            if (drainTimeoutMillis > 0) {
+                logger.info("Draining {} worker invocations", toStop.size());
+                join(toStop, Math.min(deadline, begin + TimeUnit.MILLISECONDS.toNanos(drainTimeoutMillis)));
+            }
+            int alive = alive(toStop);
+            logger.info("Stopping {} worker invocations", alive);
+            for (Thread thread : toStop) {
+                thread.interrupt();
+            }
+            join(toStop, deadline);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        int alive = alive(toStop);
+        if (alive > 0) {
+            logger.warn("{} worker invocations did not stop within {}ms", alive, budgetMillis);
+        }
+        running = false;
+    }
+
+    private static void join(List<Thread> threads, long deadline) throws InterruptedException {
+        for (Thread thread : threads) {
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining > 0) {
+                thread.join(remaining);
+            }
+        }
+    }
+
+    private static int alive(List<Thread> threads) {
+        int alive = 0;
+        for (Thread thread : threads) {
+            if (thread.isAlive()) {
+                alive++;
+            }
+        }
+        return alive;
+    }
+
+    /**
+     * @return true from starting until the supervisor is stopped or every
+     * invocation has finished without being restarted.
+     */
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return false;
+    }
+
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE;
+    }
+
+    private synchronized List<Thread> snapshot() {
+        return new ArrayList<>(threads);
+    }
+
+    private void supervise(Worker worker) {
+        worker.running().incrementAndGet();
+        try {
+            while (!stopping) {
+                boolean failed = false;
+                worker.invocations().incrementAndGet();
+                try {
+                    worker.getTask().call();
+                } catch (InterruptedException e) {
+                    if (stopping) {
+                        return;
+                    }
+                    failed = true;
+                    worker.failures().incrementAndGet();
+                    logger.error("Worker {} was interrupted", worker.getName(), e);
+                } catch (Exception | Error e) {
+                    if (stopping) {
+                        return;
+                    }
+                    failed = true;
+                    worker.failures().incrementAndGet();
+                    logger.error("Worker {} failed", worker.getName(), e);
+                }
+                if (stopping || !shouldRestart(worker, failed)) {
+                    return;
+                }
+                logger.info("Restarting worker {} in {}ms", worker.getName(), worker.getRestartDelayMillis());
+                try {
+                    Thread.sleep(worker.getRestartDelayMillis());
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        } finally {
+            worker.running().decrementAndGet();
+            if (live.decrementAndGet() == 0) {
+                running = false;
+            }
+        }
+    }
+
+    private static boolean shouldRestart(Worker worker, boolean failed) {
+        RestartPolicy policy = worker.getRestartPolicy();
+        if (policy == RestartPolicy.NEVER || (policy == RestartPolicy.ON_FAILURE && !failed)) {
+            return false;
+        }
+        int restarts;
+        do {
+            restarts = worker.restarts().get();
+            if (worker.getMaxRestarts() >= 0 && restarts >= worker.getMaxRestarts()) {
+                logger.warn("Worker {} has been restarted {} times, giving up", worker.getName(), restarts);
+                return false;
+            }
+        } while (!worker.restarts().compareAndSet(restarts, restarts + 1));
+        return true;
+    }
+}
@@ -0,0 +1,279 @@
+package uk.co.solong.application.warmup;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.core.type.MethodMetadata;
+import uk.co.solong.application.annotations.WarmUp;
+import uk.co.solong.application.io.AtomicFiles;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * Lazy-by-default startup. When the system property {@value #LAZY_PROPERTY} is
+ * <code>true</code>, every singleton is made lazy so that the context refreshes
+ * (and the application starts) without creating them. Once the application has
+ * started, {@link #start()} creates them in the background, on
+ * {@value #THREADS_PROPERTY} (default 1) minimum priority threads.
+ * </p>
+ * <p>
+ * Beans annotated with {@link WarmUp} are created first, lowest value first,
+ * then the beans listed in the profile file {@value #PROFILE_PROPERTY} (if
+ * set), then the rest in registration order. The profile is rewritten when the
+ * warm-up completes, starting with the beans the application asked for before
+ * the warm-up reached them, so that the next run warms them first.
+ * </p>
+ * <p>
+ * Progress is available from the {@link WarmUpProgress} bean
+ * {@value #PROGRESS_BEAN_NAME}. Beans that were lazy to begin with, and
+ * infrastructure beans, are left alone.
+ * </p>
+ *
+ * @author Daniel Burrell
+ *
+ */
+public class BackgroundWarmUp {
+    private static final Logger logger = LoggerFactory.getLogger(BackgroundWarmUp.class);
+
+    public static final String LAZY_PROPERTY = "uk.co.solong.lazy";
+    public static final String PROFILE_PROPERTY = "uk.co.solong.warmup.profile";
+    public static final String THREADS_PROPERTY = "uk.co.solong.warmup.threads";
+    public static final String PROGRESS_BEAN_NAME = "warmUpProgress";
+
+    private static final ThreadLocal<Boolean> warming = new ThreadLocal<>();
+
+    private final ConfigurableApplicationContext context;
+    private final Path profile;
+    private final int threads;
+    private final WarmUpProgress progress = new WarmUpProgress();
+    private final Set<String> candidates = ConcurrentHashMap.newKeySet();
+    private final Set<String> warm = ConcurrentHashMap.newKeySet();
+    private final Set<String> onDemand = Collections.synchronizedSet(new LinkedHashSet<String>());
+    private volatile List<String> order = Collections.emptyList();
+    private volatile boolean stopped;
+
+    BackgroundWarmUp(ConfigurableApplicationContext context, Path profile, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Expected at least 1 warm-up thread, but was " + threads);
+        }
+        this.context = context;
+        this.profile = profile;
+        this.threads = threads;
+    }
+
+    /**
+     * Makes the context lazy, if {@value #LAZY_PROPERTY} is set. Must be called
+     * before the context is refreshed.
+     *
+     * @return the warm-up to {@link #start()} once the application has
+     * started, or null if lazy startup is not enabled.
+     */
+    public static BackgroundWarmUp configure(ConfigurableApplicationContext context) {
+        if (!Boolean.getBoolean(LAZY_PROPERTY)) {
+            return null;
+        }
+        String file = System.getProperty(PROFILE_PROPERTY);
+        BackgroundWarmUp warmUp = new BackgroundWarmUp(context, file == null || file.trim().isEmpty() ? null : Paths.get(file.trim()),
+                Integer.getInteger(THREADS_PROPERTY, 1));
+        context.addBeanFactoryPostProcessor(warmUp::makeLazy);
+        context.getBeanFactory().addBeanPostProcessor(warmUp.new Tracker());
+        context.getBeanFactory().registerSingleton(PROGRESS_BEAN_NAME, warmUp.progress);
+        context.addApplicationListener(new ApplicationListener<ApplicationEvent>() {
+            @Override
+            public void onApplicationEvent(ApplicationEvent event) {
+                if (event instanceof ContextClosedEvent) {
+                    warmUp.stopped = true;
+                }
+            }
+        });
+        return warmUp;
+    }
+
+    public WarmUpProgress getProgress() {
+        return progress;
+    }
+
+    /**
+     * @return the order in which beans will be warmed.
+     */
+    public List<String> getOrder() {
+        return order;
+    }
+
+    /**
+     * Starts creating the remaining beans in the background.
+     */
+    public void start() {
+        Queue<String> queue = new ConcurrentLinkedQueue<>(order);
+        AtomicInteger running = new AtomicInteger(threads);
+        progress.started();
+        logger.info("Warming up {} beans in the background", order.size());
+        for (int i = 1; i <= threads; i++) {
+            Thread thread = new Thread(() -> {
+                warming.set(Boolean.TRUE);
+                try {
+                    warm(queue);
+                } finally {
+                    if (running.decrementAndGet() == 0) {
+                        finished();
+                    }
+                }
+            }, "warm-up-" + i);
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            thread.start();
+        }
+    }
+
+    private void makeLazy(ConfigurableListableBeanFactory beanFactory) {
+        List<String> registered = new ArrayList<>();
+        Map<String, Integer> annotated = new HashMap<>();
+        for (String name : beanFactory.getBeanDefinitionNames()) {
+            BeanDefinition definition = beanFactory.getBeanDefinition(name);
+            if (!definition.isSingleton() || definition.isAbstract() || definition.isLazyInit() || definition.getRole() == BeanDefinition.ROLE_INFRASTRUCTURE) {
+                continue;
+            }
+            definition.setLazyInit(true);
+            registered.add(name);
+            Integer warmUpOrder = warmUpOrder(definition);
+            if (warmUpOrder != null) {
+                annotated.put(name, warmUpOrder);
+            }
+        }
+        candidates.addAll(registered);
+
+        Set<String> ordered = new LinkedHashSet<>();
+        List<String> first = new ArrayList<>(annotated.keySet());
+        first.sort(Comparator.comparing(annotated::get).thenComparing(registered::indexOf));
+        ordered.addAll(first);
+        for (String name : readProfile()) {
+            if (candidates.contains(name)) {
+                ordered.add(name);
+            }
+        }
+        ordered.addAll(registered);
+        order = Collections.unmodifiableList(new ArrayList<>(ordered));
+        progress.setTotal(order.size());
+        logger.debug("Made {} beans lazy", registered.size());
+    }
+
+    private static Integer warmUpOrder(BeanDefinition definition) {
+        if (!(definition instanceof AnnotatedBeanDefinition)) {
+            return null;
+        }
+        AnnotatedBeanDefinition annotated = (AnnotatedBeanDefinition) definition;
+        MethodMetadata factoryMethod = annotated.getFactoryMethodMetadata();
+        Map<String, Object> attributes = factoryMethod != null
+                ? factoryMethod.getAnnotationAttributes(WarmUp.class.getName())
+                : annotated.getMetadata().getAnnotationAttributes(WarmUp.class.getName());
+        return attributes == null ? null : (Integer) attributes.get("value");
+    }
+
+    private void warm(Queue<String> queue) {
+        String name;
+        while (!stopped && (name = queue.poll()) != null) {
+            if (warm.contains(name)) {
+                continue;
+            }
+            try {
+                context.getBeanFactory().getBean(name);
+            } catch (BeansException | IllegalStateException e) {
+                if (!stopped && context.isActive()) {
+                    progress.failed();
+                    logger.warn("Unable to warm up bean {}, it will be created when first used", name, e);
+                }
+            }
+        }
+    }
+
+    private void finished() {
+        if (!stopped && profile != null) {
+            writeProfile();
+        }
+        progress.completed();
+        if (stopped) {
+            logger.info("Warm-up stopped, context closed: {}", progress);
+        } else {
+            logger.info("Warm-up complete: {}", progress);
+        }
+    }
+
+    private List<String> readProfile() {
+        List<String> names = new ArrayList<>();
+        if (profile == null) {
+            return names;
+        }
+        try {
+            for (String line : Files.readAllLines(profile, StandardCharsets.UTF_8)) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    names.add(line);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            logger.info("No warm-up profile at {} yet, it will be recorded by this run", profile);
+        } catch (IOException e) {
+            logger.warn("Unable to read warm-up profile {}", profile, e);
+        }
+        return names;
+    }
+
+    private void writeProfile() {
+        Set<String> names = new LinkedHashSet<>();
+        synchronized (onDemand) {
+            names.addAll(onDemand);
+        }
+        names.addAll(readProfile());
+        List<String> lines = new ArrayList<>();
+        lines.add("# Beans in the order the application first used them, most recent run first");
+        lines.addAll(names);
+        try {
+            AtomicFiles.write(profile, String.join("\n", lines).concat("\n").getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            logger.warn("Unable to write warm-up profile {}", profile, e);
+        }
+    }
+
+    /**
+     * Counts beans as warm however they are created, and remembers those the
+     * application asked for itself.
+     */
+    private final class Tracker implements BeanPostProcessor {
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+            if (candidates.contains(beanName) && warm.add(beanName)) {
+                progress.warmed();
+                if (!Boolean.TRUE.equals(warming.get())) {
+                    onDemand.add(beanName);
+                }
+            }
+            return bean;
+        }
+    }
+}
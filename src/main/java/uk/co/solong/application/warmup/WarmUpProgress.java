@@ -0,0 +1,86 @@
+package uk.co.solong.application.warmup;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Progress of a {@link BackgroundWarmUp}, registered in the context as
+ * {@value BackgroundWarmUp#PROGRESS_BEAN_NAME}. Beans count as warm however
+ * they were created: by the warm-up or on demand by the application.
+ *
+ * @author Daniel Burrell
+ *
+ */
+public class WarmUpProgress {
+    private final AtomicInteger warm = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final CountDownLatch complete = new CountDownLatch(1);
+    private volatile int total;
+    private volatile long startNanos;
+    private volatile long endNanos;
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getWarm() {
+        return warm.get();
+    }
+
+    public int getFailed() {
+        return failed.get();
+    }
+
+    public int getPercentComplete() {
+        return total == 0 ? 100 : Math.min(100, 100 * (warm.get() + failed.get()) / total);
+    }
+
+    public boolean isComplete() {
+        return complete.getCount() == 0;
+    }
+
+    /**
+     * @return time spent warming up so far, or in total once complete.
+     */
+    public long getElapsedMillis() {
+        if (startNanos == 0) {
+            return 0;
+        }
+        return ((isComplete() ? endNanos : System.nanoTime()) - startNanos) / 1_000_000;
+    }
+
+    /**
+     * @return true if the warm-up completed within the timeout.
+     */
+    public boolean awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException {
+        return complete.await(timeout, unit);
+    }
+
+    void setTotal(int total) {
+        this.total = total;
+    }
+
+    void started() {
+        startNanos = System.nanoTime();
+    }
+
+    void warmed() {
+        warm.incrementAndGet();
+    }
+
+    void failed() {
+        failed.incrementAndGet();
+    }
+
+    void completed() {
+        endNanos = System.nanoTime();
+        complete.countDown();
+    }
+
+    @Override
+    public String toString() {
+        return warm.get() + "/" + total + " beans warm" + (failed.get() > 0 ? ", " + failed.get() + " failed" : "")
+                + (isComplete() ? ", complete in " + getElapsedMillis() + "ms" : "");
+    }
+}
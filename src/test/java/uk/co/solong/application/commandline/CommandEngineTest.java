@@ -0,0 +1,134 @@
+package uk.co.solong.application.commandline;
+
+import org.junit.Test;
+import uk.co.solong.application.annotations.Command;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class CommandEngineTest {
+
+    @Test
+    public void batchDispatchesEveryLine() throws Exception {
+        Commands commands = new Commands();
+        StringBuilder input = new StringBuilder("# replay\n\n");
+        for (int i = 0; i < 20_000; i++) {
+            input.append("add ").append(i).append("\r\n");
+        }
+        input.append("say \"hello world\" TWICE\n");
+        input.append("tag a b c");
+
+        BatchResult result = new CommandEngine(CommandTable.build(Collections.singletonList(commands)), 1, true).runBatch(channel(input.toString()));
+
+        assertEquals(20_004, result.getLines());
+        assertEquals(20_002, result.getExecuted());
+        assertEquals(0, result.getFailed());
+        assertEquals(199_990_000L, commands.total.get());
+        assertEquals(Collections.singletonList("hello world x2"), commands.said);
+        assertEquals(3, commands.tags.get());
+    }
+
+    @Test
+    public void nonConcurrentCommandsWaitForEarlierOnes() throws Exception {
+        Commands commands = new Commands();
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            input.append("add 1\n");
+        }
+        input.append("check 1000\n");
+
+        BatchResult result = new CommandEngine(CommandTable.build(Collections.singletonList(commands)), 4, true).runBatch(channel(input.toString()));
+
+        assertEquals(0, result.getFailed());
+        assertEquals(1000L, commands.total.get());
+    }
+
+    @Test
+    public void failuresAreCountedAndStopTheBatchWhenFailingFast() throws Exception {
+        CommandTable table = CommandTable.build(Collections.singletonList(new Commands()));
+
+        BatchResult lenient = new CommandEngine(table, 1, false).runBatch(channel("nope\nadd x\nadd 1\nadd 99999999999999999999\n"));
+        assertEquals(4, lenient.getExecuted());
+        assertEquals(3, lenient.getFailed());
+        assertTrue(lenient.getFirstFailure().getMessage().startsWith("Unknown command"));
+
+        BatchResult strict = new CommandEngine(table, 1, true).runBatch(channel("add x\nadd 1\n"));
+        assertEquals(1, strict.getExecuted());
+    }
+
+    @Test
+    public void errorsAreCountedAsFailures() throws Exception {
+        CommandTable table = CommandTable.build(Collections.singletonList(new Commands()));
+
+        BatchResult result = new CommandEngine(table, 4, false).runBatch(channel("explode\nadd 1\nexplode\n"));
+
+        assertEquals(3, result.getExecuted());
+        assertEquals(2, result.getFailed());
+        assertTrue(result.getFirstFailure() instanceof AssertionError);
+    }
+
+    @Test
+    public void interactiveModePrintsResultsAndErrors() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new CommandEngine(CommandTable.build(Collections.singletonList(new Commands())), 1, true)
+                .runInteractive(new BufferedReader(new StringReader("add 2\nadd\nhelp\nexit\nadd 3\n")), new PrintStream(out, true), "$");
+
+        String printed = out.toString();
+        assertTrue(printed.contains("$ 2"));
+        assertTrue(printed.contains("Error: Usage: add <long>"));
+        assertTrue(printed.contains("say <String> <Times> - Says something"));
+        assertFalse(printed.contains("5"));
+    }
+
+    private static ReadableByteChannel channel(String input) {
+        return Channels.newChannel(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public enum Times {
+        ONCE, TWICE
+    }
+
+    public static class Commands {
+        final AtomicLong total = new AtomicLong();
+        final AtomicInteger tags = new AtomicInteger();
+        final List<String> said = new ArrayList<>();
+
+        @Command(concurrent = true)
+        public long add(long value) {
+            return total.addAndGet(value);
+        }
+
+        @Command(name = "say", description = "Says something")
+        public void say(String message, Times times) {
+            said.add(message + " x" + (times.ordinal() + 1));
+        }
+
+        @Command
+        public void tag(String... names) {
+            tags.addAndGet(names.length);
+        }
+
+        @Command(concurrent = true)
+        public void explode() {
+            throw new AssertionError("boom");
+        }
+
+        @Command
+        public void check(int expected) {
+            assertEquals(expected, total.get());
+        }
+    }
+}
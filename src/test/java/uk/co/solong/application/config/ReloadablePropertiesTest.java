@@ -0,0 +1,131 @@
+package uk.co.solong.application.config;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ReloadablePropertiesTest {
+
+    @After
+    public void clearProperties() {
+        System.clearProperty(ReloadableProperties.LOCATION_PROPERTY);
+        System.clearProperty(ReloadableProperties.WATCH_PROPERTY);
+        System.clearProperty("a");
+    }
+
+    @Test
+    public void placeholdersAreResolvedUpFrontAndChangesAreSwappedIn() throws Exception {
+        Path file = Files.createTempFile("reloadable", ".properties");
+        write(file, "a=1\nb=${a}-x\nc=${missing:fallback}\n");
+        System.setProperty(ReloadableProperties.LOCATION_PROPERTY, file.toUri().toString());
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(Config.class)) {
+            ReloadableProperties properties = context.getBean(ReloadableProperties.class);
+            assertEquals("1-x", context.getEnvironment().getProperty("b"));
+            assertEquals("fallback", properties.getProperty("c"));
+            assertEquals("1-x", context.getBean("b"));
+            assertEquals(1, properties.getSnapshot().getInt("a", 0));
+            assertSame(properties.getSnapshot().get("a", Integer.class), properties.getSnapshot().get("a", Integer.class));
+
+            write(file, "a=2\nb=${a}-x\nc=${missing:fallback}\n");
+            Listener listener = context.getBean(Listener.class);
+            assertTrue(listener.reloaded.await(10, TimeUnit.SECONDS));
+
+            assertEquals("2-x", context.getEnvironment().getProperty("b"));
+            assertEquals(2, properties.getSnapshot().getVersion());
+            assertEquals(2, properties.getSnapshot().getInt("a", 0));
+            assertEquals(2, listener.changed.size());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void brokenFileKeepsThePreviousSnapshot() throws Exception {
+        Path file = Files.createTempFile("reloadable", ".properties");
+        write(file, "a=1\nb=x\n");
+        System.setProperty(ReloadableProperties.LOCATION_PROPERTY, file.toUri().toString());
+        System.setProperty(ReloadableProperties.WATCH_PROPERTY, "false");
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(Config.class)) {
+            ReloadableProperties properties = context.getBean(ReloadableProperties.class);
+            assertFalse(properties.reload());
+
+            write(file, "a=${unresolvable}\nb=x\n");
+            assertFalse(properties.reload());
+            assertEquals("1", context.getEnvironment().getProperty("a"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void systemPropertiesOverrideTheFile() throws Exception {
+        Path file = Files.createTempFile("reloadable", ".properties");
+        write(file, "a=1\nb=${a}-x\n");
+        System.setProperty(ReloadableProperties.LOCATION_PROPERTY, file.toUri().toString());
+        System.setProperty(ReloadableProperties.WATCH_PROPERTY, "false");
+        System.setProperty("a", "3");
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(Config.class)) {
+            assertEquals("3", context.getEnvironment().getProperty("a"));
+            assertEquals("3-x", context.getBean("b"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void emptyValuesFallBackToTheDefault() {
+        Map<String, String> values = new HashMap<>();
+        values.put("port", "");
+        values.put("enabled", "");
+        PropertySnapshot snapshot = new PropertySnapshot(values, 1);
+        assertEquals(8080, snapshot.getInt("port", 8080));
+        assertEquals(8080, snapshot.getInt("port", 8080));
+        assertTrue(snapshot.getBoolean("enabled", true));
+        assertNull(snapshot.get("port", Integer.class));
+        assertEquals("", snapshot.get("port"));
+    }
+
+    private static void write(Path file, String content) throws Exception {
+        Files.write(file, content.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    @Configuration
+    @Import(ReloadablePropertyConfig.class)
+    public static class Config {
+        @Bean
+        public String b(@Value("${b}") String b) {
+            return b;
+        }
+
+        @Bean
+        public Listener listener() {
+            return new Listener();
+        }
+    }
+
+    public static class Listener implements PropertiesReloadedListener {
+        final CountDownLatch reloaded = new CountDownLatch(1);
+        volatile Set<String> changed;
+
+        @Override
+        public void reloaded(PropertySnapshot previous, PropertySnapshot current, Set<String> changed) {
+            this.changed = changed;
+            reloaded.countDown();
+        }
+    }
+}
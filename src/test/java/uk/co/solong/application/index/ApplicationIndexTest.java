@@ -0,0 +1,80 @@
+package uk.co.solong.application.index;
+
+import org.junit.Test;
+import uk.co.solong.application.annotations.MainClass;
+import uk.co.solong.application.annotations.RootConfiguration;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ApplicationIndexTest {
+
+    @Test
+    public void roundTrip() throws IOException {
+        List<ApplicationIndex.Entry> entries = Arrays.asList(
+                new ApplicationIndex.Entry("RootConfiguration", "com.example.Config", "someQualifier"),
+                new ApplicationIndex.Entry("MainClass", "com.example.Main$Inner", ""),
+                new ApplicationIndex.Entry("MainMethod", "com.example.Main$Inner", "run"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        IndexFormat.write(entries, out);
+
+        assertEquals(entries, IndexFormat.read(new ByteArrayInputStream(out.toByteArray())));
+    }
+
+    @Test
+    public void loadFiltersByAnnotationAndPackage() throws IOException {
+        File root = Files.createTempDirectory("index").toFile();
+        writeIndex(root, new ApplicationIndex.Entry("RootConfiguration", "java.lang.String", "a"),
+                new ApplicationIndex.Entry("MainClass", "java.util.List", ""));
+
+        ApplicationIndex index = ApplicationIndex.load(classLoader(root));
+
+        assertNotNull(index);
+        assertEquals(1, index.getEntries(RootConfiguration.class, "").size());
+        assertEquals(1, index.getEntries(MainClass.class, "java.util").size());
+        assertEquals(0, index.getEntries(MainClass.class, "com.example").size());
+    }
+
+    @Test
+    public void staleIndexIsIgnored() throws IOException {
+        File root = Files.createTempDirectory("index").toFile();
+        writeIndex(root, new ApplicationIndex.Entry("RootConfiguration", "com.example.DoesNotExist", ""));
+
+        assertNull(ApplicationIndex.load(classLoader(root)));
+    }
+
+    @Test
+    public void classpathEntriesWithoutAnIndexAreReported() throws IOException {
+        File indexed = Files.createTempDirectory("index").toFile();
+        File plain = Files.createTempDirectory("plain").toFile();
+        writeIndex(indexed, new ApplicationIndex.Entry("RootConfiguration", "java.lang.String", "a"));
+
+        ApplicationIndex index = ApplicationIndex.load(new URLClassLoader(new URL[]{indexed.toURI().toURL(), plain.toURI().toURL()}, null));
+
+        assertEquals(Collections.singletonList(plain.toPath().toAbsolutePath().normalize()), index.getUnindexedClasspathEntries());
+    }
+
+    private static void writeIndex(File root, ApplicationIndex.Entry... entries) throws IOException {
+        File file = new File(root, ApplicationIndex.INDEX_LOCATION);
+        file.getParentFile().mkdirs();
+        try (OutputStream out = new FileOutputStream(file)) {
+            IndexFormat.write(Arrays.asList(entries), out);
+        }
+    }
+
+    private static ClassLoader classLoader(File root) throws IOException {
+        return new URLClassLoader(new URL[]{root.toURI().toURL()}, null);
+    }
+}
@@ -0,0 +1,181 @@
+package uk.co.solong.application.init;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.beans.factory.BeanInitializationException;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ParallelInitializerTest {
+
+    private static final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+    private static CountDownLatch bothStarted;
+
+    @After
+    public void clearProperties() {
+        System.clearProperty(ParallelInitializer.PARALLEL_PROPERTY);
+        System.clearProperty(ParallelInitializer.THREADS_PROPERTY);
+        order.clear();
+    }
+
+    @Test
+    public void independentBeansAreInitialisedConcurrentlyAndDependenciesFirst() {
+        System.setProperty(ParallelInitializer.PARALLEL_PROPERTY, "true");
+        System.setProperty(ParallelInitializer.THREADS_PROPERTY, "4");
+        bothStarted = new CountDownLatch(2);
+        AnnotationConfigApplicationContext context = context(Config.class);
+        context.refresh();
+
+        assertEquals(3, order.size());
+        assertEquals("dependent", order.get(2));
+        context.close();
+    }
+
+    @Test
+    public void sequentialByDefault() {
+        bothStarted = new CountDownLatch(0);
+        AnnotationConfigApplicationContext context = context(Config.class);
+        context.refresh();
+
+        assertEquals(3, order.size());
+        assertEquals("dependent", order.get(2));
+        context.close();
+    }
+
+    @Test
+    public void failureFailsTheRefresh() {
+        System.setProperty(ParallelInitializer.PARALLEL_PROPERTY, "true");
+        AnnotationConfigApplicationContext context = context(FailingConfig.class);
+        try {
+            context.refresh();
+            fail("Expected the refresh to fail");
+        } catch (BeanInitializationException e) {
+            assertTrue(e.getMessage().contains("'broken'"));
+        }
+        assertFalse(order.contains("afterBroken"));
+    }
+
+    @Test
+    public void beansInitialisedBeforeTheirParallelDependenciesAreReported() {
+        AnnotationConfigApplicationContext context = context(EarlyConfig.class);
+        context.refresh();
+
+        // the client is created and initialised before the pool's initialize()
+        assertEquals(Collections.singletonList("client saw pool=false"), order.subList(0, 1));
+        assertEquals("pool", order.get(1));
+        ParallelInitializer initializer = context.getBean(ParallelInitializer.BEAN_NAME, ParallelInitializer.class);
+        assertEquals(Collections.singletonMap("client", Collections.singletonList("pool")), initializer.getEarlyDependents());
+        context.close();
+    }
+
+    private static AnnotationConfigApplicationContext context(Class<?> config) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.register(config);
+        ParallelInitializer.configure(context);
+        return context;
+    }
+
+    static class Slow implements ParallelInitializingBean {
+        private final String name;
+
+        Slow(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void initialize() throws Exception {
+            bothStarted.countDown();
+            assertTrue("Independent beans were not initialised concurrently", bothStarted.await(5, TimeUnit.SECONDS));
+            order.add(name);
+        }
+    }
+
+    static class Dependent implements ParallelInitializingBean {
+        Dependent(Slow first, Slow second) {
+        }
+
+        @Override
+        public void initialize() {
+            order.add("dependent");
+        }
+    }
+
+    @Configuration
+    static class Config {
+        @Bean
+        public Slow first() {
+            return new Slow("first");
+        }
+
+        @Bean
+        public Slow second() {
+            return new Slow("second");
+        }
+
+        @Bean
+        public Dependent dependent() {
+            return new Dependent(first(), second());
+        }
+    }
+
+    static class Pool implements ParallelInitializingBean {
+        volatile boolean initialised;
+
+        @Override
+        public void initialize() {
+            initialised = true;
+            order.add("pool");
+        }
+    }
+
+    static class Client implements InitializingBean {
+        private final Pool pool;
+
+        Client(Pool pool) {
+            this.pool = pool;
+        }
+
+        @Override
+        public void afterPropertiesSet() {
+            order.add("client saw pool=" + pool.initialised);
+        }
+    }
+
+    @Configuration
+    static class EarlyConfig {
+        @Bean
+        public Pool pool() {
+            return new Pool();
+        }
+
+        @Bean
+        public Client client(Pool pool) {
+            return new Client(pool);
+        }
+    }
+
+    @Configuration
+    static class FailingConfig {
+        @Bean
+        public ParallelInitializingBean broken() {
+            return () -> {
+                throw new IllegalStateException("broken");
+            };
+        }
+
+        @Bean
+        public Object afterBroken(ParallelInitializingBean broken) {
+            return (ParallelInitializingBean) () -> order.add("afterBroken");
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package uk.co.solong.application.invoke;
+
+import org.junit.Test;
+import uk.co.solong.application.annotations.MainMethod;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class InvokersTest {
+
+    @Test
+    public void publicMethodsGetGeneratedInvokersAndOthersHandles() throws Exception {
+        MethodInvoker generated = Invokers.forMethod(Target.class.getMethod("answer"));
+        MethodInvoker handle = Invokers.forMethod(Target.class.getDeclaredMethod("add", int.class, int.class));
+
+        assertTrue(generated instanceof GeneratedInvoker);
+        assertTrue(handle instanceof HandleInvoker);
+        assertEquals(42, generated.invoke(new Target()));
+        assertEquals(5, handle.invoke(new Target(), 2, 3));
+        assertSame(generated, Invokers.forMethod(Target.class.getMethod("answer")));
+    }
+
+    @Test
+    public void voidAndStaticMethodsAreInvoked() throws Exception {
+        Target target = new Target();
+        assertNull(Invokers.forMethod(Target.class.getMethod("touch")).invoke(target));
+        assertTrue(target.touched);
+        assertEquals("x", Invokers.forMethod(Target.class.getMethod("echo", String.class)).invoke(null, "x"));
+    }
+
+    @Test
+    public void exceptionsAreThrownUnwrapped() throws Exception {
+        try {
+            Invokers.forMethod(Target.class.getMethod("explode")).invoke(new Target());
+            fail("Expected an IOException");
+        } catch (IOException e) {
+            assertEquals("boom", e.getMessage());
+        }
+    }
+
+    @Test
+    public void annotatedMethodsAreFoundOnce() {
+        List<Method> methods = Invokers.annotatedMethods(Target.class, MainMethod.class);
+        assertEquals(1, methods.size());
+        assertEquals("answer", methods.get(0).getName());
+        assertSame(methods, Invokers.annotatedMethods(Target.class, MainMethod.class));
+    }
+
+    public static class Target {
+        boolean touched;
+
+        @MainMethod
+        public int answer() {
+            return 42;
+        }
+
+        public void touch() {
+            touched = true;
+        }
+
+        public void explode() throws IOException {
+            throw new IOException("boom");
+        }
+
+        public static String echo(String s) {
+            return s;
+        }
+
+        private int add(int a, int b) {
+            return a + b;
+        }
+    }
+}
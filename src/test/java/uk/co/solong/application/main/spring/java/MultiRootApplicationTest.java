@@ -0,0 +1,67 @@
+package uk.co.solong.application.main.spring.java;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import uk.co.solong.application.main.spring.java.multiroot.SharedConfig;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class MultiRootApplicationTest {
+    private MultiRootApplication application;
+
+    @Before
+    public void setProperties() {
+        System.setProperty("uk.co.solong.package", "uk.co.solong.application.main.spring.java.multiroot");
+        System.setProperty(MultiRootApplication.PARENT_PROPERTY, SharedConfig.class.getName());
+        System.setProperty(MultiRootApplication.THREADS_PROPERTY, "3");
+        application = new MultiRootApplication();
+    }
+
+    @After
+    public void clearProperties() {
+        application.close();
+        System.clearProperty("uk.co.solong.package");
+        System.clearProperty(MultiRootApplication.PARENT_PROPERTY);
+        System.clearProperty(MultiRootApplication.THREADS_PROPERTY);
+    }
+
+    @Test
+    public void childrenShareTheParentAndAFailingChildIsIsolated() {
+        application.run();
+
+        Map<String, ConfigurableApplicationContext> children = application.getChildren();
+        assertEquals(2, children.size());
+        assertEquals("two", children.get("two").getBean("two"));
+        assertTrue(children.get("one").getBean("one", String.class).startsWith("one-"));
+        assertEquals(2, application.getParent().getBean(AtomicInteger.class).get());
+        assertFalse(children.get("one").containsBean("two"));
+
+        application.close();
+        assertFalse(children.get("one").isActive());
+        assertFalse(application.getParent().isActive());
+    }
+
+    @Test
+    public void onlyTheNamedRootsAreStarted() {
+        application.run("two");
+
+        assertEquals(1, application.getChildren().size());
+        assertTrue(application.getChildren().containsKey("two"));
+    }
+
+    @Test
+    public void duplicateNamesAreRejectedBeforeAnyStarts() {
+        try {
+            application.run("two", "two");
+            throw new AssertionError("expected the duplicate name to be rejected");
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause().getMessage().contains("two"));
+        }
+        assertTrue(application.getChildren().isEmpty());
+    }
+}
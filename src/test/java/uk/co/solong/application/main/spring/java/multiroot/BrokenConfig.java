@@ -0,0 +1,15 @@
+package uk.co.solong.application.main.spring.java.multiroot;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import uk.co.solong.application.annotations.RootConfiguration;
+
+@Configuration
+@RootConfiguration(name = "broken")
+public class BrokenConfig {
+
+    @Bean
+    public String broken() {
+        throw new IllegalStateException("broken");
+    }
+}
@@ -0,0 +1,17 @@
+package uk.co.solong.application.main.spring.java.multiroot;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import uk.co.solong.application.annotations.RootConfiguration;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+@RootConfiguration(name = "one")
+public class OneConfig {
+
+    @Bean
+    public String one(AtomicInteger sharedCounter) {
+        return "one-" + sharedCounter.incrementAndGet();
+    }
+}
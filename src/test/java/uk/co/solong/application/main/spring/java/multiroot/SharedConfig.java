@@ -0,0 +1,15 @@
+package uk.co.solong.application.main.spring.java.multiroot;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class SharedConfig {
+
+    @Bean
+    public AtomicInteger sharedCounter() {
+        return new AtomicInteger();
+    }
+}
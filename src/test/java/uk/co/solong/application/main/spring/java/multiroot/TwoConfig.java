@@ -0,0 +1,18 @@
+package uk.co.solong.application.main.spring.java.multiroot;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import uk.co.solong.application.annotations.RootConfiguration;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+@RootConfiguration(name = "two")
+public class TwoConfig {
+
+    @Bean
+    public String two(AtomicInteger sharedCounter) {
+        sharedCounter.incrementAndGet();
+        return "two";
+    }
+}
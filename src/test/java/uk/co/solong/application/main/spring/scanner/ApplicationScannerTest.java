@@ -0,0 +1,89 @@
+package uk.co.solong.application.main.spring.scanner;
+
+import org.junit.Test;
+import uk.co.solong.application.annotations.MainClass;
+import uk.co.solong.application.index.ApplicationIndex;
+import uk.co.solong.application.main.spring.scanner.fixture.AlphaConfig;
+import uk.co.solong.application.main.spring.scanner.fixture.Worker;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class ApplicationScannerTest {
+    private static final String FIXTURES = "uk.co.solong.application.main.spring.scanner.fixture";
+
+    @Test
+    public void collectsEveryAnnotationInOnePass() {
+        ApplicationScanResult result = new ApplicationScanner().scan(FIXTURES);
+
+        assertEquals(Collections.singletonList(new AnnotatedClass(AlphaConfig.class.getName(), "alpha")), result.getRootConfigurations());
+        assertEquals(Collections.singletonList(new AnnotatedClass(Worker.class.getName(), "")), result.getMainClasses());
+        assertEquals(Collections.singletonList(new AnnotatedClass(Worker.class.getName(), "worker")), result.getCommandLines());
+        assertEquals(Collections.singletonList("run"), result.getMainMethods(Worker.class.getName()));
+        assertFalse(result.isFromIndex());
+    }
+
+    @Test
+    public void resultIsShared() {
+        assertSame(new ApplicationScanner().scan(FIXTURES), new ApplicationScanner().scan(FIXTURES));
+    }
+
+    @Test
+    public void classpathEntriesWithoutAnIndexAreNotScannedByDefault() throws IOException {
+        ApplicationScanResult result = new ApplicationScanner(indexedAndPlainClassLoader()).scan("");
+
+        assertTrue(result.isFromIndex());
+        assertEquals(Collections.singletonList(new AnnotatedClass("java.lang.String", "a")), result.getRootConfigurations());
+        assertTrue(result.getMainClasses().isEmpty());
+    }
+
+    @Test
+    public void classpathEntriesWithoutAnIndexAreScannedWhenEnabled() throws IOException {
+        System.setProperty(ApplicationIndex.SCAN_UNINDEXED_PROPERTY, "true");
+        try {
+            ApplicationScanResult result = new ApplicationScanner(indexedAndPlainClassLoader()).scan("");
+
+            assertTrue(result.isFromIndex());
+            assertEquals(Collections.singletonList(new AnnotatedClass("java.lang.String", "a")), result.getRootConfigurations());
+            assertEquals(Collections.singletonList(new AnnotatedClass(Worker.class.getName(), "")), result.getMainClasses());
+        } finally {
+            System.clearProperty(ApplicationIndex.SCAN_UNINDEXED_PROPERTY);
+        }
+    }
+
+    /**
+     * A classpath of a directory with an index listing only a root
+     * configuration, and one without an index holding the {@link Worker}.
+     */
+    private static ClassLoader indexedAndPlainClassLoader() throws IOException {
+        Path indexed = Files.createTempDirectory("indexed");
+        Path index = indexed.resolve(ApplicationIndex.INDEX_LOCATION);
+        Files.createDirectories(index.getParent());
+        Files.write(index, "RootConfiguration|java.lang.String|a\n".getBytes(StandardCharsets.UTF_8));
+        Path plain = Files.createTempDirectory("plain");
+        String workerFile = Worker.class.getName().replace('.', '/') + ".class";
+        Files.createDirectories(plain.resolve(workerFile).getParent());
+        try (InputStream in = Worker.class.getClassLoader().getResourceAsStream(workerFile)) {
+            Files.copy(in, plain.resolve(workerFile));
+        }
+        // only the annotations are visible from the parent, so the test classpath itself is not scanned
+        ClassLoader annotations = new ClassLoader(null) {
+            @Override
+            protected Class<?> findClass(String name) throws ClassNotFoundException {
+                if (name.startsWith(MainClass.class.getPackage().getName() + ".")) {
+                    return MainClass.class.getClassLoader().loadClass(name);
+                }
+                throw new ClassNotFoundException(name);
+            }
+        };
+        return new URLClassLoader(new URL[]{indexed.toUri().toURL(), plain.toUri().toURL()}, annotations);
+    }
+}
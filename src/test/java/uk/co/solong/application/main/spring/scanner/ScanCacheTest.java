@@ -0,0 +1,88 @@
+package uk.co.solong.application.main.spring.scanner;
+
+import org.junit.Before;
+import org.junit.Test;
+import uk.co.solong.application.index.ApplicationIndex;
+import uk.co.solong.application.io.PrivateDirectories;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ScanCacheTest {
+    private Path directory;
+    private File jar;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("scan-cache");
+        jar = Files.createTempFile("library", ".jar").toFile();
+        Files.write(jar.toPath(), new byte[]{1, 2, 3});
+    }
+
+    @Test
+    public void storedEntriesAreLoadedBack() {
+        List<ApplicationIndex.Entry> entries = Arrays.asList(
+                new ApplicationIndex.Entry("RootConfiguration", "com.example.Config", "qualifier"),
+                new ApplicationIndex.Entry("MainMethod", "com.example.Main", "run"));
+        cache().store("key", entries);
+
+        assertEquals(entries, cache().load("key"));
+        assertNull(cache().load("other"));
+    }
+
+    @Test
+    public void changedJarInvalidatesCache() throws IOException {
+        cache().store("key", Collections.singletonList(new ApplicationIndex.Entry("MainClass", "com.example.Main", "")));
+
+        Files.write(jar.toPath(), new byte[]{1, 2, 3, 4});
+
+        assertNull(cache().load("key"));
+    }
+
+    @Test
+    public void corruptFileIsIgnored() throws IOException {
+        ScanCache cache = cache();
+        Files.write(cache.fileFor("key"), new byte[]{0x53, 0x4c});
+
+        assertNull(cache.load("key"));
+    }
+
+    @Test
+    public void contentFingerprintSeesJarRebuiltWithSameSizeAndTimestamp() throws IOException {
+        ScanCache stamp = cache(false);
+        ScanCache content = cache(true);
+        stamp.store("key", Collections.singletonList(new ApplicationIndex.Entry("MainClass", "com.example.Main", "")));
+        content.store("other", Collections.singletonList(new ApplicationIndex.Entry("MainClass", "com.example.Main", "")));
+        long modified = jar.lastModified();
+
+        Files.write(jar.toPath(), new byte[]{3, 2, 1});
+        jar.setLastModified(modified);
+
+        assertNotNull(cache(false).load("key"));
+        assertNull(cache(true).load("other"));
+    }
+
+    @Test
+    public void fileOwnedByAnotherUserIsIgnored() throws IOException {
+        ScanCache cache = cache();
+        cache.store("key", Collections.singletonList(new ApplicationIndex.Entry("MainClass", "com.example.Main", "")));
+        ScanCache otherUser = new ScanCache(directory, () -> "someone-else", Collections.singletonList(jar.getAbsolutePath()), false);
+
+        assertNull(otherUser.load("key"));
+    }
+
+    private ScanCache cache() {
+        return cache(false);
+    }
+
+    private ScanCache cache(boolean contentFingerprint) {
+        return new ScanCache(directory, PrivateDirectories.prepare(directory), Collections.singletonList(jar.getAbsolutePath()), contentFingerprint);
+    }
+}
@@ -0,0 +1,51 @@
+package uk.co.solong.application.main.spring.scanner;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class ScanProfileTest {
+
+    @After
+    public void clearProperties() {
+        System.clearProperty(ScanProfile.ALLOW_PROPERTY);
+        System.clearProperty(ScanProfile.DENY_PROPERTY);
+        System.clearProperty(ScanProfile.THREADS_PROPERTY);
+    }
+
+    @Test
+    public void readsPackageListsFromSystemProperties() {
+        System.setProperty(ScanProfile.ALLOW_PROPERTY, "com.example, com.other");
+        System.setProperty(ScanProfile.DENY_PROPERTY, "com.example.generated");
+        System.setProperty(ScanProfile.THREADS_PROPERTY, "3");
+
+        ScanProfile profile = ScanProfile.fromSystemProperties();
+
+        assertEquals(Arrays.asList("com.example", "com.other"), profile.getAllowPackages());
+        assertEquals(Arrays.asList("org.springframework", "org.jboss", "com.example.generated"), profile.getDenyPackages());
+        assertEquals(3, profile.getThreads());
+    }
+
+    @Test
+    public void defaultsToWholeClasspathOnEveryCore() {
+        ScanProfile profile = ScanProfile.fromSystemProperties();
+
+        assertTrue(profile.getAllowPackages().isEmpty());
+        assertEquals(Runtime.getRuntime().availableProcessors(), profile.getThreads());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsZeroThreads() {
+        ScanProfile.defaults().withThreads(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeThreadsFromSystemProperties() {
+        System.setProperty(ScanProfile.THREADS_PROPERTY, "-2");
+
+        ScanProfile.fromSystemProperties();
+    }
+}
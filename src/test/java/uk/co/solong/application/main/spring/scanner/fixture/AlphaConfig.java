@@ -0,0 +1,9 @@
+package uk.co.solong.application.main.spring.scanner.fixture;
+
+import org.springframework.context.annotation.Configuration;
+import uk.co.solong.application.annotations.RootConfiguration;
+
+@Configuration
+@RootConfiguration(name = "alpha")
+public class AlphaConfig {
+}
@@ -0,0 +1,14 @@
+package uk.co.solong.application.main.spring.scanner.fixture;
+
+import uk.co.solong.application.annotations.CommandLine;
+import uk.co.solong.application.annotations.MainClass;
+import uk.co.solong.application.annotations.MainMethod;
+
+@MainClass
+@CommandLine(name = "worker")
+public class Worker {
+
+    @MainMethod
+    public void run() {
+    }
+}
@@ -0,0 +1,217 @@
+package uk.co.solong.application.main.spring.xml;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.context.support.GenericApplicationContext;
+import uk.co.solong.application.io.PrivateDirectories;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+
+public class XmlDefinitionLoaderTest {
+    private static final String ITEM = Item.class.getName();
+
+    private Path directory;
+
+    @Before
+    public void createDirectory() throws Exception {
+        directory = Files.createTempDirectory("xml-definitions");
+    }
+
+    @Test
+    public void unchangedFilesAreLoadedFromTheCacheWithTheSameDefinitions() throws Exception {
+        String[] locations = {
+                write("first.xml", "<bean id='parent' class='" + ITEM + "' abstract='true'><property name='name' value='inherited'/></bean>"
+                        + "<bean id='a' parent='parent' lazy-init='true'>"
+                        + "<property name='values'><list><value>x</value><ref bean='b'/></list></property>"
+                        + "<property name='map'><map><entry key='k' value-ref='b'/></map></property>"
+                        + "<property name='properties'><props><prop key='p'>${missing:v}</prop></props></property>"
+                        + "<property name='child'><bean class='" + ITEM + "'><constructor-arg value='inner'/></bean></property>"
+                        + "</bean>"
+                        + "<bean class='" + ITEM + "'><constructor-arg value='anonymous-1'/></bean>"
+                        + "<alias name='a' alias='aye'/>"),
+                write("second.xml", "<bean id='b' class='" + ITEM + "' primary='true'><constructor-arg index='0' value='b'/></bean>"
+                        + "<bean class='" + ITEM + "'><constructor-arg value='anonymous-2'/></bean>")
+        };
+        XmlDefinitionLoader loader = new XmlDefinitionLoader(cache(), 2);
+
+        Map<String, Object> first = loadAndCheck(loader, locations);
+        Map<String, Object> second = loadAndCheck(loader, locations);
+
+        assertEquals(0, first.get("cached"));
+        assertEquals(2, first.get("parsed"));
+        assertEquals(2, second.get("cached"));
+        assertEquals(0, second.get("parsed"));
+
+        write("second.xml", "<bean id='b' class='" + ITEM + "'><constructor-arg value='b'/></bean>"
+                + "<bean class='" + ITEM + "'><constructor-arg value='anonymous-2'/></bean>");
+        assertEquals(1, loadAndCheck(loader, locations).get("cached"));
+    }
+
+    @Test
+    public void filesWithImportsAreNotCached() throws Exception {
+        write("imported.xml", "<bean id='b' class='" + ITEM + "'/>");
+        String location = write("importing.xml", "<import resource='imported.xml'/>");
+        XmlDefinitionLoader loader = new XmlDefinitionLoader(cache(), 1);
+
+        for (int i = 0; i < 2; i++) {
+            try (GenericApplicationContext context = new GenericApplicationContext()) {
+                Map<String, Object> summary = loader.load(context, location);
+                assertEquals(0, summary.get("cached"));
+                assertEquals(1, summary.get("uncacheable"));
+                assertTrue(context.containsBeanDefinition("b"));
+            }
+        }
+    }
+
+    @Test
+    public void typedValuesAreCachedWithoutLoadingBeanClasses() throws Exception {
+        String location = write("typed.xml", "<bean id='t' class='" + ITEM + "' lazy-init='true'>"
+                + "<property name='values'><list><value type='java.lang.Integer'>1</value></list></property></bean>");
+        XmlDefinitionLoader loader = new XmlDefinitionLoader(cache(), 1);
+
+        for (int i = 0; i < 2; i++) {
+            try (GenericApplicationContext context = new GenericApplicationContext()) {
+                Map<String, Object> summary = loader.load(context, location);
+                assertEquals(i, summary.get("cached"));
+                assertFalse(((AbstractBeanDefinition) context.getBeanDefinition("t")).hasBeanClass());
+                context.refresh();
+                assertEquals(1, context.getBean("t", Item.class).getValues().get(0));
+            }
+        }
+    }
+
+    @Test
+    public void corruptCacheFilesAreIgnored() throws Exception {
+        String location = write("corrupt.xml", "<bean id='b' class='" + ITEM + "'><constructor-arg value='b'/></bean>");
+        XmlDefinitionLoader loader = new XmlDefinitionLoader(cache(), 1);
+        try (GenericApplicationContext context = new GenericApplicationContext()) {
+            loader.load(context, location);
+        }
+        File[] files = directory.resolve("cache").toFile().listFiles();
+        assertEquals(1, files.length);
+        byte[] bytes = Files.readAllBytes(files[0].toPath());
+        // keep the header and content hash, garble the definitions
+        for (int i = 4 + 4 + 1 + 32; i < bytes.length; i++) {
+            bytes[i] = (byte) 0x7f;
+        }
+        Files.write(files[0].toPath(), bytes);
+
+        try (GenericApplicationContext context = new GenericApplicationContext()) {
+            Map<String, Object> summary = loader.load(context, location);
+            assertEquals(0, summary.get("cached"));
+            assertEquals(1, summary.get("parsed"));
+            context.refresh();
+            assertEquals("b", context.getBean("b", Item.class).getName());
+        }
+    }
+
+    @Test
+    public void cacheDirectoryWritableByOthersIsNotUsed() throws Exception {
+        Path shared = directory.resolve("shared");
+        Files.createDirectory(shared);
+        Assume.assumeTrue(Files.getFileAttributeView(shared, PosixFileAttributeView.class) != null);
+        Files.setPosixFilePermissions(shared, PosixFilePermissions.fromString("rwxrwxrwx"));
+
+        assertNull(PrivateDirectories.prepare(shared));
+    }
+
+    private XmlDefinitionCache cache() {
+        Path cache = directory.resolve("cache");
+        return new XmlDefinitionCache(cache, PrivateDirectories.prepare(cache));
+    }
+
+    private Map<String, Object> loadAndCheck(XmlDefinitionLoader loader, String... locations) {
+        try (GenericApplicationContext context = new GenericApplicationContext()) {
+            Map<String, Object> summary = loader.load(context, locations);
+            context.refresh();
+            Item a = context.getBean("aye", Item.class);
+            assertEquals("inherited", a.getName());
+            assertEquals("x", a.getValues().get(0));
+            assertSame(context.getBean("b"), a.getValues().get(1));
+            assertSame(context.getBean("b"), a.getMap().get("k"));
+            assertEquals("${missing:v}", a.getProperties().getProperty("p"));
+            assertEquals("inner", a.getChild().getName());
+            assertEquals("anonymous-1", context.getBean(ITEM + "#0", Item.class).getName());
+            assertEquals("anonymous-2", context.getBean(ITEM + "#1", Item.class).getName());
+            assertEquals("anonymous-1", context.getBean(ITEM, Item.class).getName());
+            return summary;
+        }
+    }
+
+    private String write(String name, String beans) throws Exception {
+        File file = directory.resolve(name).toFile();
+        String xml = "<?xml version='1.0' encoding='UTF-8'?>\n"
+                + "<beans xmlns='http://www.springframework.org/schema/beans' xmlns:xsi='http://www.w3.org/2001/XMLSchema-instance'"
+                + " xsi:schemaLocation='http://www.springframework.org/schema/beans http://www.springframework.org/schema/beans/spring-beans.xsd'>"
+                + beans + "</beans>";
+        Files.write(file.toPath(), xml.getBytes(StandardCharsets.UTF_8));
+        return file.toURI().toString();
+    }
+
+    public static class Item {
+        private String name;
+        private List<Object> values;
+        private Map<String, Object> map;
+        private Properties properties;
+        private Item child;
+
+        public Item() {
+        }
+
+        public Item(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public List<Object> getValues() {
+            return values;
+        }
+
+        public void setValues(List<Object> values) {
+            this.values = values;
+        }
+
+        public Map<String, Object> getMap() {
+            return map;
+        }
+
+        public void setMap(Map<String, Object> map) {
+            this.map = map;
+        }
+
+        public Properties getProperties() {
+            return properties;
+        }
+
+        public void setProperties(Properties properties) {
+            this.properties = properties;
+        }
+
+        public Item getChild() {
+            return child;
+        }
+
+        public void setChild(Item child) {
+            this.child = child;
+        }
+    }
+}
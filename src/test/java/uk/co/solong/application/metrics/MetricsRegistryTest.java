@@ -0,0 +1,99 @@
+package uk.co.solong.application.metrics;
+
+import org.junit.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import uk.co.solong.application.annotations.Timed;
+
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class MetricsRegistryTest {
+
+    @Test
+    public void percentilesAreWithinTheBucketResolution() {
+        Histogram histogram = new Histogram();
+        for (long i = 1; i <= 1_000_000; i++) {
+            histogram.record(i * 1000);
+        }
+        Map<String, Long> snapshot = histogram.snapshot();
+        assertEquals(1_000_000L, (long) snapshot.get("count"));
+        assertEquals(1_000_000_000L, (long) snapshot.get("max"));
+        assertWithin(500_000_000L, snapshot.get("p50"));
+        assertWithin(990_000_000L, snapshot.get("p99"));
+        assertWithin(999_000_000L, snapshot.get("p999"));
+        for (long value : new long[]{0, 127, 128, 255, 256, 1L << 40, Long.MAX_VALUE}) {
+            int index = Histogram.indexOf(value);
+            assertTrue(value <= Histogram.highestValueIn(index));
+            assertTrue(index == 0 || value > Histogram.highestValueIn(index - 1));
+        }
+    }
+
+    @Test
+    public void timesAnnotatedMethodsAndPublishesOverJmx() throws Exception {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.register(Config.class);
+        MetricsRegistry registry = MetricsRegistry.configure(context);
+        context.refresh();
+        try {
+            Service service = context.getBean(Service.class);
+            for (int i = 0; i < 10; i++) {
+                service.work();
+            }
+            service.untimed();
+            registry.counter("requests").add(3);
+            registry.gauge("queue", () -> 7);
+
+            Map<String, Object> snapshot = registry.snapshot();
+            assertEquals(10L, (long) registry.histogram("Service.work").getCount());
+            assertEquals(10L, ((Map<?, ?>) snapshot.get("Service.work")).get("count"));
+            assertEquals(3L, snapshot.get("requests"));
+            assertEquals(7L, snapshot.get("queue"));
+            assertEquals(3, snapshot.size());
+
+            ObjectName name = new ObjectName("uk.co.solong.application:type=Metrics,name=" + ObjectName.quote("application"));
+            assertEquals(10L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Service.work.count"));
+            try {
+                ManagementFactory.getPlatformMBeanServer().invoke(name, "reset", new Object[0], new String[0]);
+                throw new AssertionError("expected metrics to have no operations");
+            } catch (ReflectionException e) {
+                assertTrue(e.getCause() instanceof NoSuchMethodException);
+            }
+        } finally {
+            context.close();
+        }
+    }
+
+    @Test
+    public void eachNamedContextGetsItsOwnFile() {
+        assertEquals("/var/metrics-one.json", MetricsRegistry.withSuffix("/var/metrics.json", "one"));
+        assertEquals("/var/metrics-one", MetricsRegistry.withSuffix("/var/metrics", "one"));
+        assertEquals("/var.d/.metrics-one", MetricsRegistry.withSuffix("/var.d/.metrics", "one"));
+    }
+
+    @Configuration
+    static class Config {
+        @Bean
+        public Service service() {
+            return new Service();
+        }
+    }
+
+    public static class Service {
+        @Timed
+        public void work() {
+        }
+
+        public void untimed() {
+        }
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(actual + " is not within 1.6% of " + expected, Math.abs(actual - expected) <= expected * 16 / 1000);
+    }
+}
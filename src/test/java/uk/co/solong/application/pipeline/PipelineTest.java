@@ -0,0 +1,206 @@
+package uk.co.solong.application.pipeline;
+
+import org.junit.Test;
+import uk.co.solong.application.annotations.Sink;
+import uk.co.solong.application.annotations.Source;
+import uk.co.solong.application.annotations.Stage;
+import uk.co.solong.application.metrics.MetricsRegistry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class PipelineTest {
+
+    @Test
+    public void passesEveryItemThroughTheStagesInOrder() throws Exception {
+        Numbers numbers = new Numbers(10_000);
+        MetricsRegistry metrics = new MetricsRegistry();
+        Pipeline pipeline = Pipeline.forBean("numbers", numbers, metrics, () -> false);
+        pipeline.run();
+
+        // 1..10000 doubled, keeping multiples of 4: 4, 8, ... 20000
+        assertEquals(5_000, numbers.written.get());
+        assertEquals(4L * 5_000 * 5_001 / 2, numbers.sum.get());
+        assertTrue(numbers.largestBatch.get() <= 16);
+        Map<String, Map<String, Long>> statistics = pipeline.getStatistics();
+        assertEquals(10_000L, (long) statistics.get("numbers.read").get("items"));
+        assertEquals(10_000L, (long) statistics.get("numbers.doubled").get("items"));
+        assertEquals(5_000L, (long) statistics.get("numbers.write").get("items"));
+        assertEquals(0L, (long) statistics.get("numbers.write").get("queue"));
+        assertEquals(5_000L, metrics.snapshot().get("pipeline.numbers.write.items"));
+        // nothing has been processed since the final report, whatever the average
+        assertEquals(0L, (long) statistics.get("numbers.read").get("itemsPerSecond"));
+        assertTrue(statistics.get("numbers.read").get("averageItemsPerSecond") > 0);
+    }
+
+    @Test
+    public void abortsAndRethrowsTheFirstFailure() {
+        Pipeline pipeline = Pipeline.forBean("failing", new Failing(), null, () -> false);
+        try {
+            pipeline.run();
+            throw new AssertionError("Expected the stage's exception");
+        } catch (Exception e) {
+            assertEquals("bad item 500", e.getMessage());
+        }
+    }
+
+    @Test
+    public void stopsReadingWhenAskedAndDrains() throws Exception {
+        Numbers numbers = new Numbers(Integer.MAX_VALUE);
+        AtomicInteger polls = new AtomicInteger();
+        Pipeline pipeline = Pipeline.forBean("endless", numbers, null, () -> polls.incrementAndGet() > 100);
+        pipeline.run();
+
+        long read = pipeline.getStatistics().get("endless.read").get("items");
+        assertTrue(read > 0);
+        assertEquals(read, (long) pipeline.getStatistics().get("endless.doubled").get("items"));
+    }
+
+    @Test
+    public void abortInterruptsAStepThatDoesNotDrain() throws Exception {
+        Stuck stuck = new Stuck();
+        Pipeline pipeline = Pipeline.forBean("stuck", stuck, null, () -> false);
+        assertTrue(pipeline.awaitTermination(0));
+        Thread runner = new Thread(() -> {
+            try {
+                pipeline.run();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        runner.start();
+        assertTrue(stuck.writing.await(5, TimeUnit.SECONDS));
+
+        pipeline.stop();
+        assertFalse(pipeline.awaitTermination(100));
+        pipeline.abort();
+        assertTrue(pipeline.awaitTermination(5000));
+        runner.join(5000);
+        assertFalse(runner.isAlive());
+        assertTrue(stuck.interrupted.get());
+    }
+
+    @Test
+    public void rejectsAnEmptyQueue() {
+        try {
+            Pipeline.forBean("unbuffered", new Unbuffered(), null, () -> false);
+            throw new AssertionError("Expected a capacity of 0 to be rejected");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Pipeline step unbuffered.write must have a capacity of at least 1, but was 0", e.getMessage());
+        }
+    }
+
+    public static class Numbers {
+        private final int count;
+        private final AtomicInteger next = new AtomicInteger();
+        final AtomicInteger written = new AtomicInteger();
+        final AtomicLong sum = new AtomicLong();
+        final AtomicInteger largestBatch = new AtomicInteger();
+
+        Numbers(int count) {
+            this.count = count;
+        }
+
+        @Source(batchSize = 64)
+        public Collection<Integer> read(int batchSize) {
+            List<Integer> batch = new ArrayList<>();
+            for (int i = 0; i < batchSize; i++) {
+                int n = next.incrementAndGet();
+                if (n > count) {
+                    break;
+                }
+                batch.add(n);
+            }
+            return batch;
+        }
+
+        @Stage(order = 1, parallelism = 3, capacity = 8)
+        public Integer doubled(Integer n) {
+            return n * 2;
+        }
+
+        @Stage(order = 2, batchSize = 16, capacity = 8)
+        public List<Integer> multiplesOfFour(List<Integer> batch) {
+            largestBatch.accumulateAndGet(batch.size(), Math::max);
+            List<Integer> result = new ArrayList<>();
+            for (Integer n : batch) {
+                if (n % 4 == 0) {
+                    result.add(n);
+                }
+            }
+            return result;
+        }
+
+        @Sink(parallelism = 2, capacity = 4)
+        public void write(Integer n) {
+            written.incrementAndGet();
+            sum.addAndGet(n);
+        }
+    }
+
+    public static class Failing {
+        private final AtomicInteger next = new AtomicInteger();
+
+        @Source
+        public Collection<Integer> read() {
+            List<Integer> batch = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                batch.add(next.incrementAndGet());
+            }
+            return batch;
+        }
+
+        @Stage(capacity = 16)
+        public Integer check(Integer n) {
+            if (n == 500) {
+                throw new IllegalStateException("bad item " + n);
+            }
+            return n;
+        }
+
+        @Sink
+        public void write(List<Integer> batch) {
+        }
+    }
+
+    public static class Stuck {
+        final CountDownLatch writing = new CountDownLatch(1);
+        final AtomicBoolean interrupted = new AtomicBoolean();
+
+        @Source
+        public Collection<Integer> read() {
+            return Collections.singletonList(1);
+        }
+
+        @Sink
+        public void write(Integer n) {
+            writing.countDown();
+            try {
+                Thread.sleep(60_000);
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            }
+        }
+    }
+
+    public static class Unbuffered {
+        @Source
+        public Collection<Integer> read() {
+            return null;
+        }
+
+        @Sink(capacity = 0)
+        public void write(Integer n) {
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package uk.co.solong.application.registration;
+
+import org.junit.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class GeneratedRegistrationsTest {
+
+    private static final String CONFIG = "package fixture;\n"
+            + "import org.springframework.beans.factory.annotation.Qualifier;\n"
+            + "import org.springframework.context.annotation.*;\n"
+            + "@Configuration @Import(Other.class) @uk.co.solong.application.annotations.GeneratedRegistration\n"
+            + "public class GenConfig {\n"
+            + "    @Bean public StringBuilder greeting(@Qualifier(\"alias\") String name, Thread worker) { return new StringBuilder(\"hello \" + name); }\n"
+            + "    @Bean(name = {\"name\", \"alias\"}) public String name() throws Exception { return \"world\"; }\n"
+            + "%s"
+            + "}\n";
+    private static final String OTHER = "package fixture;\n"
+            + "import org.springframework.context.annotation.*;\n"
+            + "@Configuration class Other {\n"
+            + "    @Bean @Lazy static Thread worker() { return new Thread(); }\n"
+            + "}\n";
+
+    private static final String PROPERTIES_CONFIG = "package fixture;\n"
+            + "import org.springframework.context.annotation.*;\n"
+            + "@Configuration @Import({Other.class, uk.co.solong.application.config.PropertyPlaceholderConfig.class})\n"
+            + "@PropertySource(\"classpath:fixture.properties\") @uk.co.solong.application.annotations.GeneratedRegistration\n"
+            + "public class GenConfig {\n"
+            + "    @Bean public String name(org.springframework.core.env.Environment environment) {\n"
+            + "        return environment.getProperty(\"greeting\") + \" \" + environment.getProperty(\"shared\");\n"
+            + "    }\n"
+            + "}\n";
+
+    @Test
+    public void generatedRegistrationAvoidsConfigurationProxy() throws Exception {
+        Path root = compile(true, "", null);
+        Class<?> config = load(root);
+
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        assertTrue(GeneratedRegistrations.register(context, config));
+        context.refresh();
+
+        assertEquals("hello world", context.getBean("greeting").toString());
+        assertEquals("world", context.getBean("alias"));
+        assertSame(config, context.getBean(config).getClass());
+        assertTrue(context.getBeanDefinition("worker").isLazyInit());
+        context.close();
+    }
+
+    @Test
+    public void outOfDateRegistrationFallsBackToReflection() throws Exception {
+        Path root = compile(true, "", null);
+        compile(false, "    @Bean public Integer answer() { return 42; }\n", root);
+        Class<?> config = load(root);
+
+        assertNull(GeneratedRegistrations.find(config));
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.setClassLoader(config.getClassLoader());
+        assertFalse(GeneratedRegistrations.register(context, config));
+        context.refresh();
+
+        assertEquals(42, context.getBean("answer"));
+        assertNotSame(config, context.getBean(config).getClass());
+        context.close();
+    }
+
+    @Test
+    public void propertySourcesAreAddedAsSpringWouldAddThem() throws Exception {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        Path root = compileSource(true, PROPERTIES_CONFIG, null, diagnostics);
+        assertTrue(diagnostics.getDiagnostics().toString(), diagnostics.getDiagnostics().isEmpty());
+        Files.write(root.resolve("fixture.properties"), "greeting=hello\nshared=fixture\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(root.resolve("default.properties"), "shared=default\n".getBytes(StandardCharsets.UTF_8));
+        Class<?> config = load(root);
+
+        AnnotationConfigApplicationContext generated = new AnnotationConfigApplicationContext();
+        generated.setClassLoader(config.getClassLoader());
+        assertTrue(GeneratedRegistrations.register(generated, config));
+        generated.refresh();
+        AnnotationConfigApplicationContext reflective = new AnnotationConfigApplicationContext();
+        reflective.setClassLoader(config.getClassLoader());
+        reflective.register(config);
+        reflective.refresh();
+
+        // the imported configuration's source is processed later, so it takes precedence
+        assertEquals("hello default", generated.getBean("name"));
+        assertEquals(reflective.getBean("name"), generated.getBean("name"));
+        assertTrue(generated.containsBean("propertySourcesPlaceholderConfigurer"));
+        generated.close();
+        reflective.close();
+    }
+
+    @Test
+    public void unsupportedConfigurationIsReportedAndNotGenerated() throws Exception {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        Path root = compile(true, "    @org.springframework.beans.factory.annotation.Autowired Object injected;\n", null, diagnostics);
+
+        assertNull(GeneratedRegistrations.find(load(root)));
+        boolean warned = false;
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+            warned |= diagnostic.getKind() == Diagnostic.Kind.WARNING && diagnostic.getMessage(null).contains("annotated field fixture.GenConfig.injected");
+        }
+        assertTrue(warned);
+    }
+
+    private static Path compile(boolean process, String extraMembers, Path into) throws IOException {
+        return compile(process, extraMembers, into, new DiagnosticCollector<JavaFileObject>());
+    }
+
+    private static Path compile(boolean process, String extraMembers, Path into, DiagnosticCollector<JavaFileObject> diagnostics) throws IOException {
+        return compileSource(process, String.format(CONFIG, extraMembers), into, diagnostics);
+    }
+
+    private static Path compileSource(boolean process, String configSource, Path into, DiagnosticCollector<JavaFileObject> diagnostics) throws IOException {
+        Path root = into != null ? into : Files.createTempDirectory("registration");
+        Path sources = Files.createTempDirectory("registration-src").resolve("fixture");
+        Files.createDirectories(sources);
+        File config = sources.resolve("GenConfig.java").toFile();
+        File other = sources.resolve("Other.java").toFile();
+        Files.write(config.toPath(), configSource.getBytes(StandardCharsets.UTF_8));
+        Files.write(other.toPath(), OTHER.getBytes(StandardCharsets.UTF_8));
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try (StandardJavaFileManager files = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+            List<String> options = new ArrayList<>(Arrays.asList("-d", root.toString(), "-classpath", System.getProperty("java.class.path")));
+            if (!process) {
+                options.add("-proc:none");
+            }
+            JavaCompiler.CompilationTask task = compiler.getTask(null, files, diagnostics, options, null, files.getJavaFileObjects(config, other));
+            if (process) {
+                task.setProcessors(Collections.singletonList(new RegistrationProcessor()));
+            }
+            assertTrue(diagnostics.getDiagnostics().toString(), task.call());
+        }
+        return root;
+    }
+
+    private Class<?> load(Path root) throws Exception {
+        ClassLoader classLoader = new URLClassLoader(new URL[]{root.toUri().toURL()}, getClass().getClassLoader());
+        return classLoader.loadClass("fixture.GenConfig");
+    }
+}
@@ -0,0 +1,163 @@
+package uk.co.solong.application.shutdown;
+
+import org.junit.Test;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import uk.co.solong.application.annotations.RestartPolicy;
+import uk.co.solong.application.supervisor.Worker;
+import uk.co.solong.application.supervisor.WorkerSupervisor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ShutdownCoordinatorTest {
+    static final List<String> destroyed = Collections.synchronizedList(new ArrayList<>());
+    static final List<String> threads = Collections.synchronizedList(new ArrayList<>());
+
+    @Test
+    public void destroysDependentsFirstInParallelAndTimesEachPhase() throws Exception {
+        destroyed.clear();
+        threads.clear();
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.register(Config.class);
+        ParallelDestroyer.configure(context, 4);
+        context.refresh();
+
+        CountDownLatch running = new CountDownLatch(1);
+        WorkerSupervisor supervisor = new WorkerSupervisor(Executors.defaultThreadFactory(), 5000);
+        Worker worker = new Worker("loop", () -> {
+            running.countDown();
+            Thread.sleep(60_000);
+            return null;
+        }, RestartPolicy.ALWAYS, 1, -1, 0);
+        supervisor.add(worker);
+        context.getBeanFactory().registerSingleton(WorkerSupervisor.BEAN_NAME, supervisor);
+        supervisor.start();
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        ShutdownCoordinator coordinator = new ShutdownCoordinator(Collections.singletonList(context), 10_000);
+        assertTrue(coordinator.shutdown());
+
+        assertFalse(context.isActive());
+        assertEquals(0, worker.getRunning());
+        assertEquals(3, destroyed.size());
+        assertTrue(destroyed.indexOf("client") < destroyed.indexOf("pool"));
+        assertTrue(threads.stream().allMatch(t -> t.startsWith("destroy-")));
+        Map<String, Long> timings = coordinator.getTimings();
+        assertEquals(Arrays.asList("drain", "stop", "destroy", "total"), new ArrayList<>(timings.keySet()));
+        assertTrue(coordinator.shutdown());
+    }
+
+    @Test
+    public void stoppingTheContextDestroysNothing() {
+        destroyed.clear();
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.register(Config.class);
+        ParallelDestroyer.configure(context, 4);
+        context.refresh();
+
+        context.stop();
+
+        assertTrue(destroyed.isEmpty());
+        assertTrue(context.isActive());
+        context.close();
+        assertEquals(3, destroyed.size());
+    }
+
+    @Test
+    public void leavesTimeToDestroyWhenAWorkerIgnoresInterrupts() throws Exception {
+        destroyed.clear();
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.register(Config.class);
+        ParallelDestroyer.configure(context, 1);
+        context.refresh();
+
+        CountDownLatch running = new CountDownLatch(1);
+        WorkerSupervisor supervisor = new WorkerSupervisor(r -> {
+            Thread thread = new Thread(r);
+            thread.setDaemon(true);
+            return thread;
+        }, 60_000);
+        supervisor.add(new Worker("stubborn", () -> {
+            running.countDown();
+            long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+            while (System.nanoTime() < end) {
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException ignored) {
+                    // keeps going regardless
+                }
+            }
+            return null;
+        }, RestartPolicy.NEVER, 1, 0, 0));
+        context.getBeanFactory().registerSingleton(WorkerSupervisor.BEAN_NAME, supervisor);
+        supervisor.start();
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        assertTrue(new ShutdownCoordinator(Collections.singletonList(context), 2_000).shutdown());
+        assertEquals(3, destroyed.size());
+    }
+
+    @Test
+    public void givesUpAtTheDeadline() {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.register(SlowConfig.class);
+        ParallelDestroyer.configure(context, 1);
+        context.refresh();
+
+        long begin = System.nanoTime();
+        assertFalse(new ShutdownCoordinator(Collections.singletonList(context), 200).shutdown());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin) < 5000);
+    }
+
+    static class Resource implements DisposableBean {
+        private final String name;
+
+        Resource(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void destroy() {
+            threads.add(Thread.currentThread().getName());
+            destroyed.add(name);
+        }
+    }
+
+    @Configuration
+    static class Config {
+        @Bean
+        public Resource pool() {
+            return new Resource("pool");
+        }
+
+        @Bean
+        public Resource client() {
+            pool();
+            return new Resource("client");
+        }
+
+        @Bean
+        public Resource cache() {
+            return new Resource("cache");
+        }
+    }
+
+    @Configuration
+    static class SlowConfig {
+        @Bean
+        public DisposableBean slow() {
+            return () -> Thread.sleep(60_000);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package uk.co.solong.application.startup;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ClassDataSharingTrainerTest {
+
+    @After
+    public void clearProperties() {
+        System.clearProperty("uk.co.solong.trainer.test");
+        System.clearProperty(ClassDataSharing.TRAINING_PROPERTY);
+    }
+
+    @Test
+    public void forwardsApplicationPropertiesButNotTrainingMode() {
+        System.setProperty("uk.co.solong.trainer.test", "a=b");
+        System.setProperty(ClassDataSharing.TRAINING_PROPERTY, "false");
+
+        List<String> arguments = ClassDataSharingTrainer.systemProperties();
+
+        assertTrue(arguments.contains("-Duk.co.solong.trainer.test=a=b"));
+        assertTrue(arguments.stream().noneMatch(a -> a.startsWith("-D" + ClassDataSharing.TRAINING_PROPERTY + "=")));
+    }
+}
@@ -0,0 +1,147 @@
+package uk.co.solong.application.startup;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class ClassPreloaderTest {
+    static final AtomicBoolean safeInitialised = new AtomicBoolean();
+    static final AtomicBoolean unsafeInitialised = new AtomicBoolean();
+
+    private Path list;
+
+    @Before
+    public void createList() throws IOException {
+        list = Files.createTempDirectory("preload").resolve("classes.txt");
+    }
+
+    @Test
+    public void initialisesListedClassesExceptDenied() throws Exception {
+        Files.write(list, Arrays.asList("# recorded", Safe.class.getName(), Unsafe.class.getName(), "com.example.Missing"), StandardCharsets.UTF_8);
+        ClassPreloader preloader = new ClassPreloader(getClass().getClassLoader(), Collections.<String>emptySet(), list,
+                Collections.singletonList(Unsafe.class.getName()), 2);
+        preloader.start();
+        awaitDone(preloader);
+
+        assertTrue(safeInitialised.get());
+        assertFalse(unsafeInitialised.get());
+
+        StartupRecorder recorder = StartupRecorder.start("test");
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(Config.class)) {
+            preloader.finish(recorder, context);
+        }
+        Map<?, ?> detail = (Map<?, ?>) recorder.finish().getDetails().get("preload");
+        assertEquals(3, detail.get("classes"));
+        assertEquals(1, detail.get("initialised"));
+        assertEquals(1, detail.get("loadedOnly"));
+        assertEquals(1, detail.get("failed"));
+        assertEquals(0, detail.get("pending"));
+        assertTrue(detail.containsKey("windowMillis"));
+    }
+
+    @Test
+    public void recordsBeanClasses() throws Exception {
+        ClassPreloader preloader = new ClassPreloader(getClass().getClassLoader(), Collections.singleton(Config.class.getName()), list,
+                ClassPreloader.DEFAULT_DENY, 1);
+        preloader.start();
+        awaitDone(preloader);
+        StartupRecorder recorder = StartupRecorder.start("test");
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(Config.class)) {
+            preloader.finish(recorder, context);
+        }
+
+        List<String> lines = Files.readAllLines(list, StandardCharsets.UTF_8);
+        assertEquals(Config.class.getName(), lines.get(0));
+        assertTrue(lines.contains(Service.class.getName()));
+        assertTrue(lines.contains(Greeter.class.getName()));
+        assertFalse(lines.contains(Object.class.getName()));
+        assertFalse(lines.stream().anyMatch(l -> l.contains("$$")));
+    }
+
+    @Test
+    public void reportsTheGainAgainstARunWithoutPreloading() throws Exception {
+        Files.write(list, Collections.singletonList(Safe.class.getName()), StandardCharsets.UTF_8);
+        ClassPreloader baseline = new ClassPreloader(getClass().getClassLoader(), Collections.<String>emptySet(), list,
+                ClassPreloader.DEFAULT_DENY, 0);
+        baseline.start();
+        StartupRecorder recorder = StartupRecorder.start("test");
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(Config.class)) {
+            baseline.finish(recorder, context);
+        }
+        long baselineMillis = (Long) ((Map<?, ?>) recorder.finish().getDetails().get("preload")).get("baselineMillis");
+        assertEquals(Collections.singletonList(Safe.class.getName()), Files.readAllLines(list, StandardCharsets.UTF_8));
+        Path baselineFile = list.resolveSibling("classes.txt" + ClassPreloader.BASELINE_SUFFIX);
+        assertEquals(Collections.singletonList(String.valueOf(baselineMillis)), Files.readAllLines(baselineFile, StandardCharsets.UTF_8));
+        Files.write(baselineFile, "5000\n".getBytes(StandardCharsets.UTF_8));
+
+        ClassPreloader preloader = new ClassPreloader(getClass().getClassLoader(), Collections.<String>emptySet(), list,
+                ClassPreloader.DEFAULT_DENY, 1);
+        preloader.start();
+        awaitDone(preloader);
+        recorder = StartupRecorder.start("test");
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(Config.class)) {
+            preloader.finish(recorder, context);
+        }
+        Map<?, ?> detail = (Map<?, ?>) recorder.finish().getDetails().get("preload");
+        assertEquals(5000L, detail.get("baselineMillis"));
+        assertEquals(5000L - (Long) detail.get("windowMillis"), detail.get("gainMillis"));
+    }
+
+    @Test
+    public void disabledByDefault() {
+        assertNull(ClassPreloader.start(getClass().getClassLoader(), Collections.<String>emptySet()));
+    }
+
+    private static void awaitDone(ClassPreloader preloader) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!preloader.isDone()) {
+            assertTrue("Preloading did not complete", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    static class Safe {
+        static {
+            safeInitialised.set(true);
+        }
+    }
+
+    static class Unsafe {
+        static {
+            unsafeInitialised.set(true);
+        }
+    }
+
+    interface Greeter {
+        String greet();
+    }
+
+    static class Service implements Greeter {
+        @Override
+        public String greet() {
+            return "hello";
+        }
+    }
+
+    @Configuration
+    static class Config {
+        @Bean
+        public Service service() {
+            return new Service();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package uk.co.solong.application.startup;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+public class StartupRecorderTest {
+
+    @After
+    public void clearProperties() {
+        System.clearProperty(StartupRecorder.REPORT_PROPERTY);
+    }
+
+    @Test
+    public void recordsPhasesAndBeans() throws IOException {
+        Path file = Files.createTempDirectory("startup").resolve("report.json");
+        System.setProperty(StartupRecorder.REPORT_PROPERTY, file.toString());
+
+        StartupRecorder recorder = StartupRecorder.start("test");
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            try (StartupRecorder.Phase phase = recorder.phase("register")) {
+                context.register(Config.class);
+            }
+            recorder.instrument(context);
+            try (StartupRecorder.Phase phase = recorder.phase("refresh")) {
+                context.refresh();
+            }
+        }
+        recorder.detail("answer", 42);
+        StartupReport report = recorder.finish();
+
+        assertSame(report, recorder.finish());
+        assertEquals(2, report.getPhases().size());
+        assertEquals("refresh", report.getPhases().get(1).getName());
+        assertTrue(report.getBeans().stream().anyMatch(b -> b.getName().equals("greeting") && b.getType().equals(String.class.getName())));
+        String json = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        assertTrue(json.startsWith("{\"launcher\":\"test\""));
+        assertTrue(json.contains("\"details\":{\"answer\":42,\"cds\":{\"sharing\":"));
+    }
+
+    @Configuration
+    static class Config {
+        @Bean
+        public String greeting() {
+            return "hello";
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package uk.co.solong.application.startup;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class StartupTrimTest {
+
+    @After
+    public void clearProperties() {
+        System.clearProperty(StartupTrim.TRIM_PROPERTY);
+    }
+
+    @Test
+    public void doesNothingUnlessEnabled() {
+        StartupRecorder recorder = StartupRecorder.start("test");
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(Config.class)) {
+            StartupTrim.trim(recorder, context);
+        }
+        StartupReport report = recorder.finish();
+        assertFalse(report.getDetails().containsKey("trim"));
+        assertTrue(report.getPhases().isEmpty());
+    }
+
+    @Test
+    public void reportsRecoveredHeapAndLeavesContextUsable() {
+        System.setProperty(StartupTrim.TRIM_PROPERTY, "true");
+        StartupRecorder recorder = StartupRecorder.start("test");
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(Config.class)) {
+            StartupTrim.trim(recorder, context);
+            StartupReport report = recorder.finish();
+
+            assertEquals("trim", report.getPhases().get(0).getName());
+            Map<?, ?> trim = (Map<?, ?>) report.getDetails().get("trim");
+            assertEquals((Long) trim.get("retainedBefore") - (Long) trim.get("retainedAfter"), trim.get("recovered"));
+            assertEquals("hello", context.getBean("greeting"));
+            assertEquals("hello world", context.getBean("lazyGreeting"));
+        }
+    }
+
+    @Configuration
+    static class Config {
+        @Bean
+        public String greeting() {
+            return "hello";
+        }
+
+        @Bean
+        @Lazy
+        public String lazyGreeting() {
+            return greeting() + " world";
+        }
+    }
+}
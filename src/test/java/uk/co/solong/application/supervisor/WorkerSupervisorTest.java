@@ -0,0 +1,83 @@
+package uk.co.solong.application.supervisor;
+
+import org.junit.Test;
+import uk.co.solong.application.annotations.RestartPolicy;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class WorkerSupervisorTest {
+
+    @Test
+    public void failingWorkerIsRestartedUpToTheLimit() throws Exception {
+        WorkerSupervisor supervisor = new WorkerSupervisor(Executors.defaultThreadFactory(), 1000);
+        Worker worker = new Worker("failing", () -> {
+            throw new IllegalStateException("boom");
+        }, RestartPolicy.ON_FAILURE, 1, 2, 0);
+        supervisor.add(worker);
+        supervisor.start();
+        supervisor.awaitTermination();
+
+        assertEquals(3, worker.getInvocations());
+        assertEquals(3, worker.getFailures());
+        assertEquals(2, worker.getRestarts());
+    }
+
+    @Test
+    public void successfulWorkerIsNotRestartedOnFailurePolicy() throws Exception {
+        WorkerSupervisor supervisor = new WorkerSupervisor(Executors.defaultThreadFactory(), 1000);
+        Worker worker = new Worker("once", () -> null, RestartPolicy.ON_FAILURE, 1, -1, 0);
+        supervisor.add(worker);
+        supervisor.start();
+        supervisor.awaitTermination();
+
+        assertEquals(1, worker.getInvocations());
+        assertFalse(supervisor.isRunning());
+    }
+
+    @Test
+    public void runsConcurrentInvocationsAndStopsThemAll() throws Exception {
+        CountDownLatch allRunning = new CountDownLatch(3);
+        WorkerSupervisor supervisor = new WorkerSupervisor(Executors.defaultThreadFactory(), 5000);
+        Worker worker = new Worker("loop", () -> {
+            allRunning.countDown();
+            Thread.sleep(60_000);
+            return null;
+        }, RestartPolicy.ALWAYS, 3, -1, 0);
+        supervisor.add(worker);
+        supervisor.start();
+
+        assertTrue(allRunning.await(5, TimeUnit.SECONDS));
+        assertEquals(3, worker.getRunning());
+        supervisor.stop();
+
+        assertFalse(supervisor.isRunning());
+        assertEquals(0, worker.getRunning());
+        assertEquals(0, worker.getRestarts());
+    }
+
+    @Test
+    public void drainsInFlightInvocationsBeforeInterrupting() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        WorkerSupervisor supervisor = new WorkerSupervisor(Executors.defaultThreadFactory(), 5000, 10000);
+        Worker worker = new Worker("batch", () -> {
+            running.countDown();
+            while (!supervisor.isStopping()) {
+                Thread.sleep(10);
+            }
+            return null;
+        }, RestartPolicy.ALWAYS, 1, -1, 0);
+        supervisor.add(worker);
+        supervisor.start();
+
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        supervisor.stop();
+
+        assertEquals(0, worker.getRunning());
+        assertEquals(0, worker.getFailures());
+        assertEquals(1, worker.getInvocations());
+    }
+}
@@ -0,0 +1,91 @@
+package uk.co.solong.application.warmup;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import uk.co.solong.application.annotations.WarmUp;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class BackgroundWarmUpTest {
+
+    private static final AtomicInteger created = new AtomicInteger();
+
+    @After
+    public void clearProperties() {
+        System.clearProperty(BackgroundWarmUp.LAZY_PROPERTY);
+        System.clearProperty(BackgroundWarmUp.PROFILE_PROPERTY);
+        created.set(0);
+    }
+
+    @Test
+    public void disabledByDefault() {
+        assertNull(BackgroundWarmUp.configure(new AnnotationConfigApplicationContext()));
+    }
+
+    @Test
+    public void startsLazilyThenWarmsInOrderAndRecordsProfile() throws Exception {
+        Path profile = Files.createTempDirectory("warmup").resolve("profile.txt");
+        Files.write(profile, Arrays.asList("# previous run", "second"), StandardCharsets.UTF_8);
+        System.setProperty(BackgroundWarmUp.LAZY_PROPERTY, "true");
+        System.setProperty(BackgroundWarmUp.PROFILE_PROPERTY, profile.toString());
+
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.register(Config.class);
+        BackgroundWarmUp warmUp = BackgroundWarmUp.configure(context);
+        context.refresh();
+
+        assertEquals(0, created.get());
+        List<String> order = warmUp.getOrder();
+        assertEquals(Arrays.asList("urgent", "early", "second"), order.subList(0, 3));
+        assertTrue(order.contains("first"));
+        assertFalse(context.getBean(BackgroundWarmUp.PROGRESS_BEAN_NAME, WarmUpProgress.class).isComplete());
+
+        context.getBean("first");
+        warmUp.start();
+        WarmUpProgress progress = warmUp.getProgress();
+        assertTrue(progress.awaitCompletion(10, TimeUnit.SECONDS));
+
+        assertEquals(progress.getTotal(), progress.getWarm());
+        assertEquals(100, progress.getPercentComplete());
+        assertEquals(4, created.get());
+        List<String> recorded = Files.readAllLines(profile, StandardCharsets.UTF_8);
+        assertEquals(Arrays.asList("first", "second"), recorded.subList(recorded.size() - 2, recorded.size()));
+        context.close();
+    }
+
+    @Configuration
+    static class Config {
+        @Bean
+        public Object first() {
+            return created.incrementAndGet();
+        }
+
+        @Bean
+        public Object second() {
+            return created.incrementAndGet();
+        }
+
+        @Bean
+        @WarmUp(5)
+        public Object early() {
+            return created.incrementAndGet();
+        }
+
+        @Bean
+        @WarmUp(1)
+        public Object urgent() {
+            return created.incrementAndGet();
+        }
+    }
+}